@@ -0,0 +1,82 @@
+package org.cujau.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.Base64;
+import org.cujau.utils.Base64Codec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link Base64#encodeBytes(byte[], int)} and {@link Base64#decode(byte[], int, int, int)}
+ * with and without line breaking, next to the allocation-free {@link Base64Codec} working on
+ * preallocated arrays, sequentially and split over the common fork/join pool.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" } )
+public class Base64Benchmark {
+
+    @Param( { Payloads.SIZE_16B, Payloads.SIZE_1K, Payloads.SIZE_64K, Payloads.SIZE_1M, Payloads.SIZE_64M } )
+    int size;
+
+    @Param( { "0", "8" } )
+    int options;
+
+    private byte[] raw;
+    private byte[] encoded;
+    private Base64Codec codec;
+    private byte[] encodeOut;
+    private byte[] decodeOut;
+
+    @Setup
+    public void setup() {
+        raw = Payloads.randomBytes( size );
+        encoded = Base64.encodeBytes( raw, options ).getBytes( java.nio.charset.StandardCharsets.US_ASCII );
+        codec = Base64Codec.getInstance( options );
+        encodeOut = new byte[codec.encodedLength( size )];
+        decodeOut = new byte[size];
+    }
+
+    @Benchmark
+    public String encodeBytes() {
+        return Base64.encodeBytes( raw, options );
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        return Base64.decode( encoded, 0, encoded.length, options );
+    }
+
+    @Benchmark
+    public int codecEncode() {
+        return codec.encode( raw, 0, raw.length, encodeOut, 0 );
+    }
+
+    @Benchmark
+    public int codecDecode() {
+        return codec.decode( encoded, 0, encoded.length, decodeOut, 0 );
+    }
+
+    @Benchmark
+    public int codecEncodeParallel() {
+        return codec.encodeParallel( raw, 0, raw.length, encodeOut, 0 );
+    }
+
+    @Benchmark
+    public int codecDecodeParallel() {
+        return codec.decodeParallel( encoded, 0, encoded.length, decodeOut, 0 );
+    }
+}
@@ -0,0 +1,83 @@
+package org.cujau.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.Base64;
+import org.cujau.utils.Base64Codec;
+import org.cujau.utils.TransferStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the file methods of {@link Base64} with the streaming ones of {@link Base64Codec}.
+ * Each benchmark thread works on its own temporary files.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" } )
+public class Base64FileBenchmark {
+
+    @Param( { Payloads.SIZE_64K, Payloads.SIZE_1M, Payloads.SIZE_64M } )
+    int size;
+
+    private File plain;
+    private File encoded;
+    private File dest;
+    private Base64Codec codec;
+
+    @Setup
+    public void setup()
+            throws IOException {
+        plain = File.createTempFile( "cujau-bench-plain", ".bin" );
+        encoded = File.createTempFile( "cujau-bench-encoded", ".b64" );
+        dest = File.createTempFile( "cujau-bench-dest", ".bin" );
+        Files.write( plain.toPath(), Payloads.randomBytes( size ) );
+        codec = Base64Codec.getInstance( Base64.NO_OPTIONS );
+        codec.encodeFile( plain.toPath(), encoded.toPath() );
+    }
+
+    @TearDown
+    public void tearDown() {
+        plain.delete();
+        encoded.delete();
+        dest.delete();
+    }
+
+    @Benchmark
+    public boolean encodeFileToFile() {
+        return Base64.encodeFileToFile( plain.getPath(), dest.getPath() );
+    }
+
+    @Benchmark
+    public boolean decodeFileToFile() {
+        return Base64.decodeFileToFile( encoded.getPath(), dest.getPath() );
+    }
+
+    @Benchmark
+    public TransferStats streamEncodeFile()
+            throws IOException {
+        return codec.encodeFile( plain.toPath(), dest.toPath() );
+    }
+
+    @Benchmark
+    public TransferStats streamDecodeFile()
+            throws IOException {
+        return codec.decodeFile( encoded.toPath(), dest.toPath() );
+    }
+}
@@ -0,0 +1,85 @@
+package org.cujau.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.cujau.utils.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the {@link Base64#GZIP} option of {@link Base64#encodeBytes(byte[], int, int, int, int)}
+ * and the automatic gunzip of {@link Base64#decode(String)} against the previous pipelines: a
+ * new {@link GZIPOutputStream} around a {@link Base64.OutputStream} per call, and a full decode
+ * followed by a {@link GZIPInputStream}. The payload is text, so it compresses.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" } )
+public class Base64GzipBenchmark {
+
+    @Param( { Payloads.SIZE_1K, Payloads.SIZE_64K, Payloads.SIZE_1M } )
+    int size;
+
+    @Param( { "1", "-1" } )
+    int level;
+
+    private byte[] raw;
+    private String encoded;
+
+    @Setup
+    public void setup() {
+        raw = Payloads.randomText( Payloads.random(), size ).getBytes( StandardCharsets.US_ASCII );
+        encoded = Base64.encodeBytes( raw, 0, raw.length, Base64.GZIP, level );
+    }
+
+    @Benchmark
+    public String streamsEncode()
+            throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try ( GZIPOutputStream gzos = new GZIPOutputStream( new Base64.OutputStream( baos, Base64.ENCODE ) ) {
+            {
+                def.setLevel( level );
+            }
+        } ) {
+            gzos.write( raw );
+        }
+        return new String( baos.toByteArray(), StandardCharsets.US_ASCII );
+    }
+
+    @Benchmark
+    public String pooledEncode() {
+        return Base64.encodeBytes( raw, 0, raw.length, Base64.GZIP, level );
+    }
+
+    @Benchmark
+    public byte[] streamsDecode()
+            throws IOException {
+        byte[] gz = Base64.decode( encoded.getBytes( StandardCharsets.US_ASCII ), 0, encoded.length(), Base64.NO_OPTIONS );
+        try ( GZIPInputStream gzis = new GZIPInputStream( new ByteArrayInputStream( gz ) ) ) {
+            return gzis.readAllBytes();
+        }
+    }
+
+    @Benchmark
+    public byte[] pooledDecode() {
+        return Base64.decode( encoded );
+    }
+}
@@ -0,0 +1,160 @@
+package org.cujau.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.Base64;
+import org.cujau.utils.JavaObjectSerializer;
+import org.cujau.utils.ObjectSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link Base64#encodeObject(Object, ObjectSerializer, int)} and
+ * {@link Base64#decodeToObject(String, ObjectSerializer, int)} on a session-like object, with Java
+ * serialization and with a hand-written binary format, against the previous pipeline: an
+ * {@link ObjectOutputStream} around a {@link Base64.OutputStream} around a
+ * {@link ByteArrayOutputStream}, and a full decode followed by an {@link ObjectInputStream}.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" } )
+public class Base64ObjectBenchmark {
+
+    /** The number of attributes in the session. */
+    @Param( { "4", "256" } )
+    int attributes;
+
+    private Session session;
+    private String javaEncoded;
+    private String binaryEncoded;
+
+    @Setup
+    public void setup()
+            throws IOException {
+        Random rnd = Payloads.random();
+        session = new Session( "user-" + rnd.nextInt( 100000 ), System.currentTimeMillis(), rnd.nextLong() );
+        for ( int i = 0; i < attributes; i++ ) {
+            session.attributes.put( "attribute." + i, Payloads.randomText( rnd, 24 ) );
+        }
+        javaEncoded = Base64.encodeObject( session, JavaObjectSerializer.INSTANCE, Base64.NO_OPTIONS );
+        binaryEncoded = Base64.encodeObject( session, SessionSerializer.INSTANCE, Base64.NO_OPTIONS );
+    }
+
+    @Benchmark
+    public String legacyEncode()
+            throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try ( ObjectOutputStream oos = new ObjectOutputStream( new Base64.OutputStream( baos, Base64.ENCODE ) ) ) {
+            oos.writeObject( session );
+        }
+        return new String( baos.toByteArray(), StandardCharsets.US_ASCII );
+    }
+
+    @Benchmark
+    public String javaEncode()
+            throws IOException {
+        return Base64.encodeObject( session, JavaObjectSerializer.INSTANCE, Base64.NO_OPTIONS );
+    }
+
+    @Benchmark
+    public String binaryEncode()
+            throws IOException {
+        return Base64.encodeObject( session, SessionSerializer.INSTANCE, Base64.NO_OPTIONS );
+    }
+
+    @Benchmark
+    public Object legacyDecode()
+            throws IOException, ClassNotFoundException {
+        byte[] bytes = Base64.decode( javaEncoded );
+        try ( ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( bytes ) ) ) {
+            return ois.readObject();
+        }
+    }
+
+    @Benchmark
+    public Object javaDecode()
+            throws IOException {
+        return Base64.decodeToObject( javaEncoded, JavaObjectSerializer.INSTANCE, Base64.NO_OPTIONS );
+    }
+
+    @Benchmark
+    public Session binaryDecode()
+            throws IOException {
+        return Base64.decodeToObject( binaryEncoded, SessionSerializer.INSTANCE, Base64.NO_OPTIONS );
+    }
+
+    /** A typical session blob. */
+    public static final class Session implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final String userId;
+        final long created;
+        final long token;
+        final Map<String, String> attributes = new LinkedHashMap<>();
+
+        Session( String userId, long created, long token ) {
+            this.userId = userId;
+            this.created = created;
+            this.token = token;
+        }
+    }
+
+    /** A compact binary format for {@link Session}. */
+    static final class SessionSerializer implements ObjectSerializer<Session> {
+
+        static final SessionSerializer INSTANCE = new SessionSerializer();
+
+        @Override
+        public void writeObject( Session session, OutputStream out )
+                throws IOException {
+            DataOutputStream dos = new DataOutputStream( out );
+            dos.writeUTF( session.userId );
+            dos.writeLong( session.created );
+            dos.writeLong( session.token );
+            dos.writeInt( session.attributes.size() );
+            for ( Map.Entry<String, String> e : session.attributes.entrySet() ) {
+                dos.writeUTF( e.getKey() );
+                dos.writeUTF( e.getValue() );
+            }
+            dos.flush();
+        }
+
+        @Override
+        public Session readObject( InputStream in )
+                throws IOException {
+            DataInputStream dis = new DataInputStream( in );
+            Session session = new Session( dis.readUTF(), dis.readLong(), dis.readLong() );
+            for ( int n = dis.readInt(); n > 0; n-- ) {
+                session.attributes.put( dis.readUTF(), dis.readUTF() );
+            }
+            return session;
+        }
+    }
+}
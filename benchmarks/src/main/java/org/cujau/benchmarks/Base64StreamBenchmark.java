@@ -0,0 +1,110 @@
+package org.cujau.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.Base64;
+import org.cujau.utils.Base64Codec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link Base64.OutputStream} and {@link Base64.InputStream} on large streams: array
+ * reads and writes, which take the bulk path, against a byte at a time, which is what every array
+ * call used to cost, and against the raw {@link Base64Codec} on the same data.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 2 )
+@Measurement( iterations = 3 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" } )
+public class Base64StreamBenchmark {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Param( { Payloads.SIZE_1M, Payloads.SIZE_100M } )
+    int size;
+
+    private byte[] raw;
+    private byte[] encoded;
+    private byte[] buffer;
+    private Base64Codec codec;
+    private byte[] codecOut;
+
+    @Setup
+    public void setup() {
+        raw = Payloads.randomBytes( size );
+        encoded = Base64.encodeBytes( raw ).getBytes( StandardCharsets.US_ASCII );
+        buffer = new byte[BUFFER_SIZE];
+        codec = Base64Codec.getInstance( Base64.NO_OPTIONS );
+        codecOut = new byte[codec.encodedLength( size )];
+    }
+
+    @Benchmark
+    public void streamEncode()
+            throws IOException {
+        try ( OutputStream out = new Base64.OutputStream( OutputStream.nullOutputStream(), Base64.ENCODE ) ) {
+            for ( int pos = 0; pos < raw.length; pos += BUFFER_SIZE ) {
+                out.write( raw, pos, Math.min( BUFFER_SIZE, raw.length - pos ) );
+            }
+        }
+    }
+
+    @Benchmark
+    public void streamEncodeByteByByte()
+            throws IOException {
+        try ( OutputStream out = new Base64.OutputStream( OutputStream.nullOutputStream(), Base64.ENCODE ) ) {
+            for ( byte b : raw ) {
+                out.write( b );
+            }
+        }
+    }
+
+    @Benchmark
+    public long streamDecode()
+            throws IOException {
+        long total = 0;
+        try ( InputStream in = new Base64.InputStream( new ByteArrayInputStream( encoded ), Base64.DECODE ) ) {
+            for ( int n = in.read( buffer ); n > 0; n = in.read( buffer ) ) {
+                total += n;
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long streamDecodeByteByByte()
+            throws IOException {
+        long total = 0;
+        try ( InputStream in = new Base64.InputStream( new ByteArrayInputStream( encoded ), Base64.DECODE ) ) {
+            for ( int b = in.read(); b >= 0; b = in.read() ) {
+                total += b;
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int codecEncode() {
+        return codec.encode( raw, 0, raw.length, codecOut, 0 );
+    }
+
+    @Benchmark
+    public int codecDecode() {
+        return codec.decode( encoded, 0, encoded.length, raw, 0 );
+    }
+}
@@ -0,0 +1,54 @@
+package org.cujau.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks once per thread count, from 1 up to the number of available
+ * processors (1, 2, 4, ..., N), with the {@link GCProfiler} attached so allocation rates are
+ * reported next to the timings.
+ * <p>
+ * All regular JMH command line options are accepted and passed through, e.g.
+ * <tt>java -jar target/benchmarks.jar Base64 -f 1</tt>. The results of each thread count are
+ * written to <tt>jmh-result-t&lt;threads&gt;.json</tt> in the working directory. An explicit
+ * <tt>-t</tt> option disables the thread sweep and runs only that thread count.
+ * </p>
+ */
+public class BenchmarkRunner {
+
+    public static void main( String[] args )
+            throws CommandLineOptionException, RunnerException {
+        CommandLineOptions cmdOptions = new CommandLineOptions( args );
+
+        List<Integer> threadCounts = new ArrayList<>();
+        if ( cmdOptions.getThreads().hasValue() ) {
+            threadCounts.add( cmdOptions.getThreads().get() );
+        } else {
+            int max = Runtime.getRuntime().availableProcessors();
+            for ( int t = 1; t < max; t *= 2 ) {
+                threadCounts.add( t );
+            }
+            threadCounts.add( max );
+        }
+
+        for ( int threads : threadCounts ) {
+            Options opts = new OptionsBuilder()
+                    .parent( cmdOptions )
+                    .threads( threads )
+                    .addProfiler( GCProfiler.class )
+                    .resultFormat( ResultFormatType.JSON )
+                    .result( "jmh-result-t" + threads + ".json" )
+                    .build();
+            new Runner( opts ).run();
+        }
+    }
+}
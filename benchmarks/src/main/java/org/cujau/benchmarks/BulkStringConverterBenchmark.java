@@ -0,0 +1,71 @@
+package org.cujau.benchmarks;
+
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.converters.BulkStringConverter;
+import org.cujau.utils.converters.StringConverterHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares converting a column of cells with one {@link StringConverterHelper} call per cell to
+ * converting it with a {@link BulkStringConverter}, on one thread and split across the cores.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@OperationsPerInvocation( BulkStringConverterBenchmark.CELLS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" } )
+public class BulkStringConverterBenchmark {
+
+    static final int CELLS = 1 << 18;
+
+    private final BulkStringConverter serial = new BulkStringConverter( Locale.US, Integer.MAX_VALUE );
+    private final BulkStringConverter parallel = new BulkStringConverter( Locale.US );
+
+    private String[] cells;
+    private double[] out;
+
+    @Setup
+    public void setup() {
+        Locale.setDefault( Locale.US );
+        Random rnd = new Random( 42 );
+        cells = new String[CELLS];
+        for ( int i = 0; i < CELLS; i++ ) {
+            cells[i] = String.valueOf( rnd.nextInt( 10000000 ) / 100.0 );
+        }
+        out = new double[CELLS];
+    }
+
+    @Benchmark
+    public double[] perCell() {
+        for ( int i = 0; i < cells.length; i++ ) {
+            out[i] = StringConverterHelper.doubleValueOf( cells[i] );
+        }
+        return out;
+    }
+
+    @Benchmark
+    public BitSet bulkSerial() {
+        return serial.toDoubles( cells, out );
+    }
+
+    @Benchmark
+    public BitSet bulkParallel() {
+        return parallel.toDoubles( cells, out );
+    }
+}
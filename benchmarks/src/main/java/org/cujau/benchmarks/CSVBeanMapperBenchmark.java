@@ -0,0 +1,212 @@
+package org.cujau.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.ReflectionException;
+import org.cujau.utils.ReflectionUtil;
+import org.cujau.utils.csv.BufferedCSVWriter;
+import org.cujau.utils.csv.CSVBeanMapper;
+import org.cujau.utils.csv.CSVReader;
+import org.cujau.utils.csv.CSVSymbols;
+import org.cujau.utils.csv.CSVTypedRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks rendering and parsing beans with a {@link CSVBeanMapper} in rows per second, against
+ * hand-written code and against the reflective path: a {@link CSVTypedRenderer} calling
+ * {@link ReflectionUtil#invokeGetProperty(Object, String)} for every field, and
+ * {@link ReflectionUtil#invokeSetProperty(Object, String, Object, Class)} for parsing.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@OperationsPerInvocation( CSVBeanMapperBenchmark.ROWS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" } )
+public class CSVBeanMapperBenchmark {
+
+    static final int ROWS = 10000;
+
+    private static final List<String> PROPERTIES = Arrays.asList( "id", "symbol", "quantity", "price" );
+
+    private static final CSVTypedRenderer<String> REFLECTIVE_RENDERER = new CSVTypedRenderer<String>() {
+        @Override
+        public String renderRecord( String property, Object... accessoryData ) {
+            try {
+                return String.valueOf( ReflectionUtil.invokeGetProperty( accessoryData[0], property ) );
+            } catch ( ReflectionException e ) {
+                throw new IllegalStateException( e );
+            }
+        }
+    };
+
+    private Trade[] trades;
+    private CSVSymbols symbols;
+    private CSVBeanMapper<Trade> mapper;
+    private String text;
+
+    @Setup
+    public void setup()
+            throws Exception {
+        Random rnd = Payloads.random();
+        trades = new Trade[ROWS];
+        for ( int i = 0; i < ROWS; i++ ) {
+            trades[i] = new Trade();
+            trades[i].setId( i );
+            trades[i].setSymbol( Payloads.randomText( rnd, 4 ) );
+            trades[i].setQuantity( rnd.nextInt( 1000000 ) );
+            trades[i].setPrice( rnd.nextInt( 10000000 ) / 100.0 );
+        }
+        symbols = new CSVSymbols( Locale.US );
+        mapper = CSVBeanMapper.create( Trade.class, PROPERTIES.toArray( new String[0] ) );
+        StringWriter out = new StringWriter();
+        try ( BufferedCSVWriter csv = new BufferedCSVWriter( out, symbols ) ) {
+            for ( Trade t : trades ) {
+                mapper.renderRow( t, csv );
+            }
+        }
+        text = out.toString();
+    }
+
+    @Benchmark
+    public long renderHandWritten()
+            throws IOException {
+        try ( BufferedCSVWriter csv = new BufferedCSVWriter( Writer.nullWriter(), symbols ) ) {
+            for ( Trade t : trades ) {
+                csv.writeField( t.getId() );
+                csv.writeField( t.getSymbol() );
+                csv.writeField( t.getQuantity() );
+                csv.writeField( t.getPrice() );
+                csv.endLine();
+            }
+        }
+        return trades.length;
+    }
+
+    @Benchmark
+    public long renderMapper()
+            throws IOException {
+        try ( BufferedCSVWriter csv = new BufferedCSVWriter( Writer.nullWriter(), symbols ) ) {
+            for ( Trade t : trades ) {
+                mapper.renderRow( t, csv );
+            }
+        }
+        return trades.length;
+    }
+
+    @Benchmark
+    public long renderReflective()
+            throws IOException {
+        try ( BufferedCSVWriter csv = new BufferedCSVWriter( Writer.nullWriter(), symbols ) ) {
+            for ( Trade t : trades ) {
+                csv.renderLine( REFLECTIVE_RENDERER, PROPERTIES, t );
+            }
+        }
+        return trades.length;
+    }
+
+    @Benchmark
+    public long parseHandWritten()
+            throws IOException {
+        long sum = 0;
+        try ( CSVReader in = new CSVReader( new StringReader( text ), symbols ) ) {
+            while ( in.next() ) {
+                Trade t = new Trade();
+                t.setId( Integer.parseInt( in.getField( 0 ), 0, in.getField( 0 ).length(), 10 ) );
+                t.setSymbol( in.getString( 1 ) );
+                t.setQuantity( Long.parseLong( in.getField( 2 ), 0, in.getField( 2 ).length(), 10 ) );
+                t.setPrice( Double.parseDouble( in.getString( 3 ) ) );
+                sum += t.getId();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long parseMapper()
+            throws IOException {
+        long sum = 0;
+        try ( CSVReader in = new CSVReader( new StringReader( text ), symbols ) ) {
+            while ( in.next() ) {
+                sum += mapper.parseRow( in ).getId();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long parseReflective()
+            throws IOException, ReflectionException {
+        long sum = 0;
+        try ( CSVReader in = new CSVReader( new StringReader( text ), symbols ) ) {
+            while ( in.next() ) {
+                Trade t = new Trade();
+                ReflectionUtil.invokeSetProperty( t, "id", Integer.valueOf( in.getString( 0 ) ), int.class );
+                ReflectionUtil.invokeSetProperty( t, "symbol", in.getString( 1 ), String.class );
+                ReflectionUtil.invokeSetProperty( t, "quantity", Long.valueOf( in.getString( 2 ) ), long.class );
+                ReflectionUtil.invokeSetProperty( t, "price", Double.valueOf( in.getString( 3 ) ), double.class );
+                sum += t.getId();
+            }
+        }
+        return sum;
+    }
+
+    public static class Trade {
+
+        private int id;
+        private String symbol;
+        private long quantity;
+        private double price;
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId( int id ) {
+            this.id = id;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+
+        public void setSymbol( String symbol ) {
+            this.symbol = symbol;
+        }
+
+        public long getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity( long quantity ) {
+            this.quantity = quantity;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public void setPrice( double price ) {
+            this.price = price;
+        }
+    }
+}
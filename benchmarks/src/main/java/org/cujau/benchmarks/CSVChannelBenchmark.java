@@ -0,0 +1,105 @@
+package org.cujau.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.cujau.utils.csv.BufferedCSVWriter;
+import org.cujau.utils.csv.CSVSymbols;
+import org.cujau.utils.csv.ChannelCSVSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks writing a UTF-8 CSV file through a {@link ChannelCSVSink} against an
+ * {@link OutputStreamWriter} on a file stream, both below a {@link BufferedCSVWriter}, in rows per
+ * second. With <tt>gzip</tt>, the sink compresses itself and the stream version goes through a
+ * {@link GZIPOutputStream}. The <tt>ascii</tt> parameter switches between plain ASCII rows and rows
+ * with a non-ASCII character in every line.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@OperationsPerInvocation( CSVChannelBenchmark.ROWS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" } )
+public class CSVChannelBenchmark {
+
+    static final int ROWS = 100000;
+
+    @Param( { "false", "true" } )
+    boolean gzip;
+
+    @Param( { "true", "false" } )
+    boolean ascii;
+
+    private String[][] rows;
+    private CSVSymbols symbols;
+    private Path file;
+
+    @Setup
+    public void setup()
+            throws IOException {
+        Random rnd = Payloads.random();
+        rows = new String[ROWS][];
+        for ( int i = 0; i < ROWS; i++ ) {
+            rows[i] = new String[] { Integer.toString( i ), Payloads.randomText( rnd, 12 ),
+                                     ascii ? "Zurich" : "Zürich", Long.toString( rnd.nextLong() ),
+                                     Payloads.randomText( rnd, 30 ), Double.toString( rnd.nextDouble() ) };
+        }
+        symbols = new CSVSymbols( Locale.US );
+        file = Files.createTempFile( "csv-channel", gzip ? ".csv.gz" : ".csv" );
+    }
+
+    @TearDown
+    public void tearDown()
+            throws IOException {
+        Files.deleteIfExists( file );
+    }
+
+    @Benchmark
+    public long outputStreamWriter()
+            throws IOException {
+        OutputStream out = Files.newOutputStream( file );
+        if ( gzip ) {
+            out = new GZIPOutputStream( out, 1 << 16 );
+        }
+        return write( new OutputStreamWriter( out, StandardCharsets.UTF_8 ) );
+    }
+
+    @Benchmark
+    public long channelSink()
+            throws IOException {
+        return write( ChannelCSVSink.open( file, StandardCharsets.UTF_8, gzip ) );
+    }
+
+    private long write( Writer out )
+            throws IOException {
+        try ( BufferedCSVWriter csv = new BufferedCSVWriter( out, symbols ) ) {
+            for ( String[] row : rows ) {
+                csv.renderLine( row );
+            }
+        }
+        return Files.size( file );
+    }
+}
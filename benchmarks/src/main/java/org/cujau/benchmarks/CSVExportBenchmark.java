@@ -0,0 +1,119 @@
+package org.cujau.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.csv.BufferedCSVWriter;
+import org.cujau.utils.csv.CSVRowRenderer;
+import org.cujau.utils.csv.CSVSymbols;
+import org.cujau.utils.csv.ParallelCSVExporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link ParallelCSVExporter} in rows per second against rendering the same rows on
+ * the calling thread, with a renderer that formats a date and two decimals per row, which is the
+ * expensive part of a typical export. The speed-up depends on the number of cores.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@OperationsPerInvocation( CSVExportBenchmark.ROWS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" } )
+public class CSVExportBenchmark {
+
+    static final int ROWS = 50000;
+
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = ThreadLocal.withInitial(
+            () -> new SimpleDateFormat( "yyyy-MM-dd HH:mm:ss", Locale.US ) );
+    private static final ThreadLocal<DecimalFormat> DECIMAL_FORMAT = ThreadLocal.withInitial(
+            () -> new DecimalFormat( "#,##0.00####", DecimalFormatSymbols.getInstance( Locale.US ) ) );
+
+    private static final CSVRowRenderer<Trade> RENDERER = new CSVRowRenderer<Trade>() {
+        @Override
+        public void renderRow( Trade trade, BufferedCSVWriter out )
+                throws IOException {
+            out.writeField( trade.id );
+            out.writeField( DATE_FORMAT.get().format( trade.date ) );
+            out.writeField( trade.symbol );
+            out.writeField( DECIMAL_FORMAT.get().format( trade.price ) );
+            out.writeField( DECIMAL_FORMAT.get().format( trade.quantity ) );
+            out.endLine();
+        }
+    };
+
+    private List<Trade> trades;
+    private CSVSymbols symbols;
+    private ParallelCSVExporter exporter;
+
+    @Setup
+    public void setup() {
+        Random rnd = Payloads.random();
+        trades = new ArrayList<>( ROWS );
+        for ( int i = 0; i < ROWS; i++ ) {
+            trades.add( new Trade( i, new Date( 1500000000000L + rnd.nextInt() * 1000L ),
+                                   Payloads.randomText( rnd, 4 ),
+                                   BigDecimal.valueOf( rnd.nextInt( 10000000 ), 4 ),
+                                   BigDecimal.valueOf( rnd.nextInt( 100000 ), 2 ) ) );
+        }
+        symbols = new CSVSymbols( Locale.US );
+        exporter = new ParallelCSVExporter( symbols, ForkJoinPool.commonPool(), ParallelCSVExporter.DEFAULT_BATCH_SIZE,
+                                            2 * ForkJoinPool.getCommonPoolParallelism() + 1 );
+    }
+
+    @Benchmark
+    public long sequential()
+            throws IOException {
+        try ( BufferedCSVWriter writer = new BufferedCSVWriter( Writer.nullWriter(), symbols ) ) {
+            for ( Trade trade : trades ) {
+                RENDERER.renderRow( trade, writer );
+            }
+        }
+        return trades.size();
+    }
+
+    @Benchmark
+    public long parallel()
+            throws IOException {
+        return exporter.export( trades.stream(), RENDERER, Writer.nullWriter() );
+    }
+
+    static final class Trade {
+
+        final long id;
+        final Date date;
+        final String symbol;
+        final BigDecimal price;
+        final BigDecimal quantity;
+
+        Trade( long id, Date date, String symbol, BigDecimal price, BigDecimal quantity ) {
+            this.id = id;
+            this.date = date;
+            this.symbol = symbol;
+            this.price = price;
+            this.quantity = quantity;
+        }
+    }
+}
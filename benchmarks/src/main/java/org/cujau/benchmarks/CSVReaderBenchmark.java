@@ -0,0 +1,142 @@
+package org.cujau.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.csv.BufferedCSVWriter;
+import org.cujau.utils.csv.CSVReader;
+import org.cujau.utils.csv.CSVSymbols;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link CSVReader} in rows per second, reading {@link #ROWS} rows of eight fields from
+ * a <tt>String</tt> and from a memory-mapped file, against <tt>readLine()</tt> and
+ * <tt>String.split()</tt>, which cannot handle quoted fields but is what simple parsers do.
+ * <p>
+ * About one field in eight contains a double quote or a separator, so the unescaping paths are
+ * exercised.
+ * </p>
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@OperationsPerInvocation( CSVReaderBenchmark.ROWS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" } )
+public class CSVReaderBenchmark {
+
+    static final int ROWS = 100000;
+    private static final int FIELDS_PER_ROW = 8;
+
+    private CSVSymbols symbols;
+    private String csv;
+    private Path file;
+
+    @Setup
+    public void setup()
+            throws IOException {
+        Random rnd = Payloads.random();
+        symbols = new CSVSymbols( Locale.US );
+        symbols.setLineSeparator( "\n" );
+        StringWriter sw = new StringWriter();
+        try ( BufferedCSVWriter writer = new BufferedCSVWriter( sw, symbols ) ) {
+            for ( int r = 0; r < ROWS; r++ ) {
+                for ( int f = 0; f < FIELDS_PER_ROW; f++ ) {
+                    String field = Payloads.randomText( rnd, 4 + rnd.nextInt( 12 ) );
+                    switch ( rnd.nextInt( 8 ) ) {
+                    case 0:
+                        field = field + "\"" + field;
+                        break;
+                    case 1:
+                        field = field + "," + field;
+                        break;
+                    default:
+                        break;
+                    }
+                    writer.writeField( field );
+                }
+                writer.endLine();
+            }
+        }
+        csv = sw.toString();
+        file = Files.createTempFile( "csv-benchmark", ".csv" );
+        Files.writeString( file, csv, StandardCharsets.UTF_8 );
+    }
+
+    @TearDown
+    public void tearDown()
+            throws IOException {
+        Files.deleteIfExists( file );
+    }
+
+    @Benchmark
+    public long readViews()
+            throws IOException {
+        try ( CSVReader reader = new CSVReader( new StringReader( csv ), symbols ) ) {
+            return consumeViews( reader );
+        }
+    }
+
+    @Benchmark
+    public long readStrings()
+            throws IOException {
+        long total = 0;
+        try ( CSVReader reader = new CSVReader( new StringReader( csv ), symbols ) ) {
+            while ( reader.next() ) {
+                total += reader.getStrings().length;
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long readMappedViews()
+            throws IOException {
+        try ( CSVReader reader = CSVReader.open( file, symbols, StandardCharsets.UTF_8 ) ) {
+            return consumeViews( reader );
+        }
+    }
+
+    @Benchmark
+    public long readLineSplit()
+            throws IOException {
+        long total = 0;
+        try ( BufferedReader reader = new BufferedReader( new StringReader( csv ) ) ) {
+            for ( String line = reader.readLine(); line != null; line = reader.readLine() ) {
+                total += line.split( "," ).length;
+            }
+        }
+        return total;
+    }
+
+    private static long consumeViews( CSVReader reader )
+            throws IOException {
+        long total = 0;
+        while ( reader.next() ) {
+            for ( int i = 0, n = reader.getFieldCount(); i < n; i++ ) {
+                total += reader.getField( i ).length();
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,118 @@
+package org.cujau.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.csv.BufferedCSVWriter;
+import org.cujau.utils.csv.CSVSymbols;
+import org.cujau.utils.csv.CSVWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link CSVWriter#renderLine(List)} writing roughly <tt>size</tt> characters of CSV
+ * into a discarding {@link Writer}, and the same with a {@link BufferedCSVWriter}, which also
+ * writes rows of primitive fields.
+ * <p>
+ * A fixed set of 256 distinct rows is cycled until the payload size is reached. About one field
+ * in eight contains a double quote or a separator so the escaping and quoting paths are exercised.
+ * </p>
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" } )
+public class CSVWriterBenchmark {
+
+    private static final int DISTINCT_ROWS = 256;
+    private static final int FIELDS_PER_ROW = 8;
+
+    @Param( { Payloads.SIZE_16B, Payloads.SIZE_1K, Payloads.SIZE_64K, Payloads.SIZE_1M, Payloads.SIZE_64M } )
+    int size;
+
+    private List<List<String>> rows;
+    private int rowCount;
+    private CSVWriter writer;
+    private BufferedCSVWriter buffered;
+
+    @Setup
+    public void setup() {
+        Random rnd = Payloads.random();
+        rows = new ArrayList<>( DISTINCT_ROWS );
+        long totalChars = 0;
+        for ( int r = 0; r < DISTINCT_ROWS; r++ ) {
+            String[] fields = new String[FIELDS_PER_ROW];
+            for ( int f = 0; f < FIELDS_PER_ROW; f++ ) {
+                String field = Payloads.randomText( rnd, 4 + rnd.nextInt( 12 ) );
+                switch ( rnd.nextInt( 8 ) ) {
+                case 0:
+                    field = field + "\"" + field;
+                    break;
+                case 1:
+                    field = field + "," + field;
+                    break;
+                default:
+                    break;
+                }
+                fields[f] = field;
+                totalChars += field.length() + 1;
+            }
+            rows.add( Arrays.asList( fields ) );
+        }
+        int avgRowChars = (int) Math.max( 1, totalChars / DISTINCT_ROWS );
+        rowCount = Math.max( 1, size / avgRowChars );
+        writer = new CSVWriter( Writer.nullWriter(), new CSVSymbols( Locale.US ) );
+        buffered = new BufferedCSVWriter( Writer.nullWriter(), new CSVSymbols( Locale.US ) );
+    }
+
+    @Benchmark
+    public CSVWriter renderLines()
+            throws IOException {
+        for ( int i = 0; i < rowCount; i++ ) {
+            writer.renderLine( rows.get( i & ( DISTINCT_ROWS - 1 ) ) );
+        }
+        return writer;
+    }
+
+    @Benchmark
+    public CSVWriter bufferedRenderLines()
+            throws IOException {
+        for ( int i = 0; i < rowCount; i++ ) {
+            buffered.renderLine( rows.get( i & ( DISTINCT_ROWS - 1 ) ) );
+        }
+        buffered.flush();
+        return buffered;
+    }
+
+    @Benchmark
+    public CSVWriter bufferedPrimitiveFields()
+            throws IOException {
+        for ( int i = 0; i < rowCount; i++ ) {
+            List<String> row = rows.get( i & ( DISTINCT_ROWS - 1 ) );
+            buffered.writeField( row.get( 0 ) );
+            buffered.writeField( i );
+            buffered.writeField( i * 1000003L );
+            buffered.writeField( i * 0.25 );
+            buffered.endLine();
+        }
+        buffered.flush();
+        return buffered;
+    }
+}
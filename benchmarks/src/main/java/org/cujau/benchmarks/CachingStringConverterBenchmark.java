@@ -0,0 +1,69 @@
+package org.cujau.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.converters.CachingStringConverter;
+import org.cujau.utils.converters.StringBigDecimalConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares converting a column with a few thousand distinct values directly to converting it
+ * through a {@link CachingStringConverter}.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@OperationsPerInvocation( CachingStringConverterBenchmark.CELLS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" } )
+public class CachingStringConverterBenchmark {
+
+    static final int CELLS = 1 << 14;
+    private static final int DISTINCT = 2000;
+
+    private final StringBigDecimalConverter direct = new StringBigDecimalConverter();
+    private final CachingStringConverter<BigDecimal> cached = new CachingStringConverter<>( direct, 4096 );
+
+    private String[] cells;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random( 42 );
+        cells = new String[CELLS];
+        for ( int i = 0; i < CELLS; i++ ) {
+            // A new String per cell, as a reader would create them.
+            cells[i] = new String( "CHF " + ( rnd.nextInt( DISTINCT ) * 5 ) + ".50" );
+        }
+    }
+
+    @Benchmark
+    public int direct() {
+        int sum = 0;
+        for ( String cell : cells ) {
+            sum += direct.convert( cell ).scale();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int cached() {
+        int sum = 0;
+        for ( String cell : cells ) {
+            sum += cached.convert( cell ).scale();
+        }
+        return sum;
+    }
+}
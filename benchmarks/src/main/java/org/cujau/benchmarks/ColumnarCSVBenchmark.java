@@ -0,0 +1,145 @@
+package org.cujau.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.csv.BufferedCSVWriter;
+import org.cujau.utils.csv.CSVRenderer;
+import org.cujau.utils.csv.CSVSymbols;
+import org.cujau.utils.csv.CSVWriter;
+import org.cujau.utils.csv.ColumnarCSVWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link ColumnarCSVWriter} in rows per second on a block of tick data (time, symbol,
+ * price, volume, flags), against boxing every row into a <tt>List&lt;Object&gt;</tt> for
+ * {@link CSVWriter#renderLine(CSVRenderer, List, Object...)} and against writing the fields one by
+ * one with {@link BufferedCSVWriter}. A row is about 50 characters, so 5M rows/s are about
+ * 250 MB/s.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@OperationsPerInvocation( ColumnarCSVBenchmark.ROWS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" } )
+public class ColumnarCSVBenchmark {
+
+    static final int ROWS = 100000;
+
+    private static final ZoneId ZONE = ZoneId.of( "Europe/Zurich" );
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern( "uuuu-MM-dd HH:mm:ss" )
+                                                                        .withZone( ZONE );
+
+    private static final CSVRenderer BOXED_RENDERER = new CSVRenderer() {
+        @Override
+        public String renderRecord( Object value, Object... accessoryData ) {
+            if ( value instanceof Instant ) {
+                return DATE_TIME.format( (Instant) value );
+            }
+            if ( value instanceof Double ) {
+                return String.format( Locale.US, "%.4f", value );
+            }
+            return String.valueOf( value );
+        }
+    };
+
+    private long[] times;
+    private int[] symbolCodes;
+    private String[] symbolNames;
+    private double[] prices;
+    private long[] volumes;
+    private int[] flags;
+    private CSVSymbols symbols;
+
+    @Setup
+    public void setup() {
+        Random rnd = Payloads.random();
+        times = new long[ROWS];
+        symbolCodes = new int[ROWS];
+        prices = new double[ROWS];
+        volumes = new long[ROWS];
+        flags = new int[ROWS];
+        symbolNames = new String[500];
+        for ( int i = 0; i < symbolNames.length; i++ ) {
+            symbolNames[i] = Payloads.randomText( rnd, 4 ) + ".SW";
+        }
+        long t = 1500000000000L;
+        for ( int i = 0; i < ROWS; i++ ) {
+            t += rnd.nextInt( 2000 );
+            times[i] = t;
+            symbolCodes[i] = rnd.nextInt( symbolNames.length );
+            prices[i] = rnd.nextInt( 100000000 ) / 10000.0;
+            volumes[i] = rnd.nextInt( 1000000 );
+            flags[i] = rnd.nextInt( 16 );
+        }
+        symbols = new CSVSymbols( Locale.US );
+    }
+
+    @Benchmark
+    public long columnar()
+            throws IOException {
+        try ( BufferedCSVWriter csv = new BufferedCSVWriter( Writer.nullWriter(), symbols ) ) {
+            ColumnarCSVWriter columns = new ColumnarCSVWriter( csv );
+            columns.addDateTimeColumn( "time", times, ZONE );
+            columns.addDictionaryColumn( "symbol", symbolCodes, symbolNames );
+            columns.addDoubleColumn( "price", prices, 4 );
+            columns.addLongColumn( "volume", volumes );
+            columns.addIntColumn( "flags", flags );
+            columns.writeRows( 0, ROWS );
+        }
+        return ROWS;
+    }
+
+    @Benchmark
+    public long boxedRows()
+            throws IOException {
+        try ( BufferedCSVWriter csv = new BufferedCSVWriter( Writer.nullWriter(), symbols ) ) {
+            for ( int i = 0; i < ROWS; i++ ) {
+                List<Object> row = new ArrayList<>( 5 );
+                row.add( Instant.ofEpochMilli( times[i] ) );
+                row.add( symbolNames[symbolCodes[i]] );
+                row.add( prices[i] );
+                row.add( volumes[i] );
+                row.add( flags[i] );
+                csv.renderLine( BOXED_RENDERER, row );
+            }
+        }
+        return ROWS;
+    }
+
+    @Benchmark
+    public long fieldByField()
+            throws IOException {
+        try ( BufferedCSVWriter csv = new BufferedCSVWriter( Writer.nullWriter(), symbols ) ) {
+            for ( int i = 0; i < ROWS; i++ ) {
+                csv.writeField( DATE_TIME.format( Instant.ofEpochMilli( times[i] ) ) );
+                csv.writeField( symbolNames[symbolCodes[i]] );
+                csv.writeField( prices[i] );
+                csv.writeField( volumes[i] );
+                csv.writeField( flags[i] );
+                csv.endLine();
+            }
+        }
+        return ROWS;
+    }
+}
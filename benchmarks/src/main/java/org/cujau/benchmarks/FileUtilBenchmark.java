@@ -0,0 +1,60 @@
+package org.cujau.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.FileUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link FileUtil#copy(File, File)}. Each benchmark thread copies its own temporary
+ * file so multi-threaded runs measure concurrent copies rather than contention on one file.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class FileUtilBenchmark {
+
+    @Param( { Payloads.SIZE_16B, Payloads.SIZE_1K, Payloads.SIZE_64K, Payloads.SIZE_1M, Payloads.SIZE_64M } )
+    int size;
+
+    private File src;
+    private File dest;
+
+    @Setup
+    public void setup()
+            throws IOException {
+        src = File.createTempFile( "cujau-bench-src", ".bin" );
+        dest = File.createTempFile( "cujau-bench-dest", ".bin" );
+        Files.write( src.toPath(), Payloads.randomBytes( size ) );
+    }
+
+    @TearDown
+    public void tearDown() {
+        src.delete();
+        dest.delete();
+    }
+
+    @Benchmark
+    public File copy()
+            throws IOException {
+        FileUtil.copy( src, dest );
+        return dest;
+    }
+}
@@ -0,0 +1,49 @@
+package org.cujau.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Shared payload generation for the benchmarks.
+ * <p>
+ * All data is generated from a fixed seed so that runs against different cujau releases see
+ * exactly the same input.
+ * </p>
+ */
+final class Payloads {
+
+    /**
+     * The payload sizes, in bytes, used by every size-parameterized benchmark: 16 B, 1 KB, 64 KB,
+     * 1 MB and 64 MB.
+     */
+    static final String SIZE_16B = "16";
+    static final String SIZE_1K = "1024";
+    static final String SIZE_64K = "65536";
+    static final String SIZE_1M = "1048576";
+    static final String SIZE_64M = "67108864";
+    /** 100 MB, for the stream benchmarks. */
+    static final String SIZE_100M = "104857600";
+
+    private static final long SEED = 12345678L;
+    private static final String TEXT_CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 ";
+
+    private Payloads() {
+    }
+
+    static Random random() {
+        return new Random( SEED );
+    }
+
+    static byte[] randomBytes( int size ) {
+        byte[] bytes = new byte[size];
+        random().nextBytes( bytes );
+        return bytes;
+    }
+
+    static String randomText( Random rnd, int size ) {
+        StringBuilder buf = new StringBuilder( size );
+        for ( int i = 0; i < size; i++ ) {
+            buf.append( TEXT_CHARS.charAt( rnd.nextInt( TEXT_CHARS.length() ) ) );
+        }
+        return buf.toString();
+    }
+}
@@ -0,0 +1,118 @@
+package org.cujau.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.priorityexecutor.BucketedPriorityBlockingQueue;
+import org.cujau.utils.priorityexecutor.PriorityCallable;
+import org.cujau.utils.priorityexecutor.PriorityFuture;
+import org.cujau.utils.priorityexecutor.PriorityThreadPoolExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the fan-out of a batch of tiny prioritized tasks to a {@link PriorityThreadPoolExecutor}:
+ * each invocation submits the batch, one task at a time or with <tt>submitAll</tt>, and waits for
+ * all of it. The <tt>priorityBlockingQueue</tt> queue is the JDK queue that was the default before
+ * the executor had its own. Run with <tt>-p instrumented=false,true</tt> to see the cost of latency
+ * tracking.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@OperationsPerInvocation( PriorityBatchBenchmark.BATCH )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" } )
+public class PriorityBatchBenchmark {
+
+    static final int BATCH = 10000;
+
+    @Param( { "priorityBlockingQueue", "priorityTaskQueue", "bucketed" } )
+    String queue;
+
+    @Param( { "oneByOne", "submitAll" } )
+    String submission;
+
+    /** Whether latency tracking is on, to measure the cost of the instrumentation. */
+    @Param( { "false" } )
+    boolean instrumented;
+
+    /** The number of worker threads; 0 for one per core. */
+    @Param( { "0" } )
+    int workers;
+
+    private PriorityThreadPoolExecutor executor;
+    private List<Callable<Void>> tasks;
+    private volatile CountDownLatch done;
+
+    @Setup( Level.Trial )
+    public void setup() {
+        int n = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        if ( queue.equals( "priorityBlockingQueue" ) ) {
+            Comparator<Runnable> byPriority = Comparator.comparingInt( r -> ( (PriorityFuture<?>) r ).getPriority() );
+            executor = new PriorityThreadPoolExecutor( n, n, 60, TimeUnit.SECONDS,
+                                                       new PriorityBlockingQueue<>( BATCH, byPriority ) );
+        } else if ( queue.equals( "bucketed" ) ) {
+            executor = new PriorityThreadPoolExecutor( n, n, 60, TimeUnit.SECONDS, new BucketedPriorityBlockingQueue( 0, 7 ) );
+        } else {
+            executor = new PriorityThreadPoolExecutor( n, n, 60, TimeUnit.SECONDS, BATCH );
+        }
+        executor.setLatencyTracking( instrumented );
+        tasks = new ArrayList<>( BATCH );
+        for ( int i = 0; i < BATCH; i++ ) {
+            final int priority = i & 7;
+            tasks.add( new PriorityCallable<Void>() {
+                @Override
+                public int getPriority() {
+                    return priority;
+                }
+
+                @Override
+                public Void call() {
+                    done.countDown();
+                    return null;
+                }
+            } );
+        }
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown()
+            throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination( 10, TimeUnit.SECONDS );
+    }
+
+    @Benchmark
+    public void fanOut()
+            throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch( BATCH );
+        done = latch;
+        if ( submission.equals( "submitAll" ) ) {
+            executor.submitAll( tasks );
+        } else {
+            for ( Callable<Void> task : tasks ) {
+                executor.submit( task );
+            }
+        }
+        latch.await();
+    }
+}
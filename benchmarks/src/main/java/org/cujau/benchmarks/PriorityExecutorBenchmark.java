@@ -0,0 +1,91 @@
+package org.cujau.benchmarks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.priorityexecutor.BucketedPriorityBlockingQueue;
+import org.cujau.utils.priorityexecutor.PriorityCallable;
+import org.cujau.utils.priorityexecutor.PriorityThreadPoolExecutor;
+import org.cujau.utils.priorityexecutor.WorkStealingPriorityExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how many tiny prioritized tasks per second an executor runs: each invocation submits a
+ * batch and waits for all of it. Run with <tt>-t</tt> set to several submitting threads and
+ * <tt>-p workers=</tt> to the number of cores to see how the executors scale.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@OperationsPerInvocation( PriorityExecutorBenchmark.BATCH )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" } )
+public class PriorityExecutorBenchmark {
+
+    static final int BATCH = 10000;
+
+    @Param( { "priorityThreadPool", "priorityThreadPoolBucketed", "workStealing" } )
+    String executorType;
+
+    /** The number of worker threads; 0 for one per core. */
+    @Param( { "0" } )
+    int workers;
+
+    private ExecutorService executor;
+
+    @Setup( Level.Trial )
+    public void setup() {
+        int n = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        if ( executorType.equals( "workStealing" ) ) {
+            executor = new WorkStealingPriorityExecutor( n );
+        } else if ( executorType.equals( "priorityThreadPoolBucketed" ) ) {
+            executor = new PriorityThreadPoolExecutor( n, n, 60, TimeUnit.SECONDS, new BucketedPriorityBlockingQueue( 0, 7 ) );
+        } else {
+            executor = new PriorityThreadPoolExecutor( n, n, 60, TimeUnit.SECONDS, 1024 );
+        }
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown()
+            throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination( 10, TimeUnit.SECONDS );
+    }
+
+    @Benchmark
+    public void submitAndWait()
+            throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch( BATCH );
+        for ( int i = 0; i < BATCH; i++ ) {
+            final int priority = i & 7;
+            executor.submit( new PriorityCallable<Void>() {
+                @Override
+                public int getPriority() {
+                    return priority;
+                }
+
+                @Override
+                public Void call() {
+                    done.countDown();
+                    return null;
+                }
+            } );
+        }
+        done.await();
+    }
+}
@@ -0,0 +1,112 @@
+package org.cujau.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.priorityexecutor.LatencyHistogram;
+import org.cujau.utils.priorityexecutor.PriorityCallable;
+import org.cujau.utils.priorityexecutor.PriorityThreadPoolExecutor;
+import org.cujau.utils.priorityexecutor.SchedulingPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Load generator for the scheduling policies of {@link PriorityThreadPoolExecutor}: each
+ * invocation submits a burst of small CPU-bound tasks of mixed priorities, far more than the
+ * workers can run at once, and waits for all of it. The score is the task throughput; the time
+ * each priority waited in the queue in the last iteration is printed per priority at the end of the trial, which is
+ * where the policies differ.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@OperationsPerInvocation( PriorityLatencyBenchmark.BURST )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" } )
+public class PriorityLatencyBenchmark {
+
+    static final int BURST = 2000;
+    static final int PRIORITIES = 4;
+
+    @Param( { "strict", "aging", "weightedFair" } )
+    String policy;
+
+    /** The number of worker threads; 0 for one per core. */
+    @Param( { "0" } )
+    int workers;
+
+    /** The work in each task, in {@link Blackhole#consumeCPU(long)} tokens. */
+    @Param( { "500" } )
+    int work;
+
+    private PriorityThreadPoolExecutor executor;
+
+    @Setup( Level.Trial )
+    public void setup() {
+        int n = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        executor = new PriorityThreadPoolExecutor( n, n, 60, TimeUnit.SECONDS, BURST );
+        if ( policy.equals( "aging" ) ) {
+            executor.setSchedulingPolicy( SchedulingPolicy.aging( 100, TimeUnit.MICROSECONDS ) );
+        } else if ( policy.equals( "weightedFair" ) ) {
+            executor.setSchedulingPolicy( SchedulingPolicy.weightedFair() );
+        }
+        executor.setLatencyTracking( true );
+    }
+
+    @Setup( Level.Iteration )
+    public void startRecording() {
+        // Report the last iteration only, so that the warm-up does not skew the waiting times.
+        for ( LatencyHistogram histogram : executor.getLatencyHistograms().values() ) {
+            histogram.reset();
+        }
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown()
+            throws InterruptedException {
+        System.out.println();
+        for ( Map.Entry<Integer, LatencyHistogram> entry : executor.getLatencyHistograms().entrySet() ) {
+            System.out.println( policy + " priority " + entry.getKey() + ": " + entry.getValue() );
+        }
+        executor.shutdown();
+        executor.awaitTermination( 10, TimeUnit.SECONDS );
+    }
+
+    @Benchmark
+    public void burst()
+            throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch( BURST );
+        for ( int i = 0; i < BURST; i++ ) {
+            final int priority = i % PRIORITIES;
+            executor.submit( new PriorityCallable<Void>() {
+                @Override
+                public int getPriority() {
+                    return priority;
+                }
+
+                @Override
+                public Void call() {
+                    Blackhole.consumeCPU( work );
+                    done.countDown();
+                    return null;
+                }
+            } );
+        }
+        done.await();
+    }
+}
@@ -0,0 +1,105 @@
+package org.cujau.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.converters.StringBooleanConverter;
+import org.cujau.utils.converters.StringConverterFactoryImpl;
+import org.cujau.utils.converters.StringDoubleConverter;
+import org.cujau.utils.converters.StringIntegerConverter;
+import org.cujau.utils.converters.StringLongConverter;
+import org.cujau.utils.converters.StringToBooleanConverter;
+import org.cujau.utils.converters.StringToDoubleConverter;
+import org.cujau.utils.converters.StringToIntConverter;
+import org.cujau.utils.converters.StringToLongConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares converting the fields of import rows to boxed values, through <tt>String</tt>s, with
+ * converting them to primitives straight from the line, as a bulk import loop would.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@OperationsPerInvocation( StringConverterBenchmark.ROWS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" } )
+public class StringConverterBenchmark {
+
+    static final int ROWS = 1000;
+
+    private final StringIntegerConverter boxedInts = new StringIntegerConverter();
+    private final StringLongConverter boxedLongs = new StringLongConverter();
+    private final StringDoubleConverter boxedDoubles = new StringDoubleConverter();
+    private final StringBooleanConverter boxedBooleans = new StringBooleanConverter();
+
+    private final StringToIntConverter ints = StringConverterFactoryImpl.getIntConverter();
+    private final StringToLongConverter longs = StringConverterFactoryImpl.getLongConverter();
+    private final StringToDoubleConverter doubles = StringConverterFactoryImpl.getDoubleConverter();
+    private final StringToBooleanConverter booleans = StringConverterFactoryImpl.getBooleanConverter();
+
+    /** The rows, one after the other, as a bulk reader would hold them. */
+    private StringBuilder text;
+    /** The start of each of the four fields of each row, and the end of the last one. */
+    private int[] bounds;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random( 42 );
+        text = new StringBuilder();
+        bounds = new int[ROWS * 5];
+        for ( int r = 0; r < ROWS; r++ ) {
+            int b = r * 5;
+            bounds[b] = text.length();
+            text.append( rnd.nextInt( 1000000 ) );
+            bounds[b + 1] = text.length();
+            text.append( rnd.nextLong() >>> 20 );
+            bounds[b + 2] = text.length();
+            text.append( rnd.nextInt( 100000 ) / 100.0 );
+            bounds[b + 3] = text.length();
+            text.append( rnd.nextBoolean() ? "yes" : "no" );
+            bounds[b + 4] = text.length();
+        }
+    }
+
+    private String field( int from, int to ) {
+        return text.substring( from, to );
+    }
+
+    @Benchmark
+    public double boxed() {
+        double sum = 0;
+        for ( int b = 0; b < bounds.length; b += 5 ) {
+            Integer i = boxedInts.convert( field( bounds[b], bounds[b + 1] ) );
+            Long l = boxedLongs.convert( field( bounds[b + 1], bounds[b + 2] ) );
+            Double d = boxedDoubles.convert( field( bounds[b + 2], bounds[b + 3] ) );
+            Boolean f = boxedBooleans.convert( field( bounds[b + 3], bounds[b + 4] ) );
+            sum += i + l + d + ( f ? 1 : 0 );
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double primitive() {
+        double sum = 0;
+        for ( int b = 0; b < bounds.length; b += 5 ) {
+            int i = ints.toInt( text, bounds[b], bounds[b + 1] );
+            long l = longs.toLong( text, bounds[b + 1], bounds[b + 2] );
+            double d = doubles.toDouble( text, bounds[b + 2], bounds[b + 3] );
+            boolean f = booleans.toBoolean( text, bounds[b + 3], bounds[b + 4] );
+            sum += i + l + d + ( f ? 1 : 0 );
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,55 @@
+package org.cujau.benchmarks;
+
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.converters.StringConverterHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the {@link StringConverterHelper} number parsers on clean and "dirty" input (currency
+ * symbols, grouping separators).
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class StringConverterHelperBenchmark {
+
+    @Param( { "1234", "1,234,567.89", "$1,234.5678$", "CHF2'923.50CHF" } )
+    String input;
+
+    @Benchmark
+    public int intValueOf() {
+        return StringConverterHelper.intValueOf( input );
+    }
+
+    @Benchmark
+    public float floatValueOf() {
+        return StringConverterHelper.floatValueOf( input );
+    }
+
+    @Benchmark
+    public double doubleValueOf() {
+        return StringConverterHelper.doubleValueOf( input );
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalValueOf()
+            throws ParseException {
+        return StringConverterHelper.bigDecimalValueOf( input, Locale.US );
+    }
+}
@@ -0,0 +1,72 @@
+package org.cujau.benchmarks;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.cujau.utils.StringUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link StringUtil#replaceProperties(String, Properties, boolean)} on a template of
+ * <tt>size</tt> characters.
+ * <p>
+ * The template always contains the same eight property keys (six matched, two unmatched) spread
+ * evenly through filler text, so the benchmark scales with the template length rather than with
+ * the number of keys.
+ * </p>
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" } )
+public class StringUtilBenchmark {
+
+    private static final String[] KEYS = { "user.name", "user.home", "app.version", "app.build_id",
+            "db.url", "db.user", "missing.one", "missing.two" };
+
+    @Param( { Payloads.SIZE_16B, Payloads.SIZE_1K, Payloads.SIZE_64K, Payloads.SIZE_1M, Payloads.SIZE_64M } )
+    int size;
+
+    private String template;
+    private Properties props;
+
+    @Setup
+    public void setup() {
+        Random rnd = Payloads.random();
+        props = new Properties();
+        for ( int i = 0; i < 6; i++ ) {
+            props.setProperty( KEYS[i], "value-" + i );
+        }
+
+        int fillerPerKey = Math.max( 0, size / KEYS.length - 16 );
+        StringBuilder buf = new StringBuilder( size );
+        for ( String key : KEYS ) {
+            buf.append( Payloads.randomText( rnd, fillerPerKey ) );
+            buf.append( "${" ).append( key ).append( '}' );
+        }
+        template = buf.toString();
+    }
+
+    @Benchmark
+    public String replaceProperties() {
+        return StringUtil.replaceProperties( template, props, false );
+    }
+
+    @Benchmark
+    public String replacePropertiesRemoveUnmatched() {
+        return StringUtil.replaceProperties( template, props, true );
+    }
+}
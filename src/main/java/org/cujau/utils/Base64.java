@@ -133,6 +133,10 @@ public class Base64
     private final static int MAX_LINE_LENGTH = 76;
     
     
+    /** Size of the blocks the streams convert at a time. */
+    private final static int STREAM_BLOCK_SIZE = 8192;
+    
+    
     /** The equals sign (=) as a byte. */
     private final static byte EQUALS_SIGN = (byte)'=';
     
@@ -351,7 +355,7 @@ public class Base64
 	 * in which case one of them will be picked, though there is
 	 * no guarantee as to which one will be picked.
 	 */
-	private final static byte[] getAlphabet( int options )
+	final static byte[] getAlphabet( int options )
 	{
 		if( (options & URL_SAFE) == URL_SAFE ) return _URL_SAFE_ALPHABET;
 		else if( (options & ORDERED) == ORDERED ) return _ORDERED_ALPHABET;
@@ -367,7 +371,7 @@ public class Base64
 	 * in which case one of them will be picked, though there is
 	 * no guarantee as to which one will be picked.
 	 */
-	private final static byte[] getDecodabet( int options )
+	final static byte[] getDecodabet( int options )
 	{
 		if( (options & URL_SAFE) == URL_SAFE ) return _URL_SAFE_DECODABET;
 		else if( (options & ORDERED) == ORDERED ) return _ORDERED_DECODABET;
@@ -523,57 +527,70 @@ public class Base64
      */
     public static String encodeObject( java.io.Serializable serializableObject, int options )
     {
-        // Streams
-        java.io.ByteArrayOutputStream  baos  = null; 
-        java.io.OutputStream           b64os = null; 
-        java.io.ObjectOutputStream     oos   = null; 
-        java.util.zip.GZIPOutputStream gzos  = null;
-        
-        // Isolate options
-        int gzip           = (options & GZIP);
-//        int dontBreakLines = (options & DONT_BREAK_LINES);
-        
         try
         {
-            // ObjectOutputStream -> (GZIP) -> Base64 -> ByteArrayOutputStream
-            baos  = new java.io.ByteArrayOutputStream();
-            b64os = new Base64.OutputStream( baos, ENCODE | options );
-    
-            // GZip?
-            if( gzip == GZIP )
-            {
-                gzos = new java.util.zip.GZIPOutputStream( b64os );
-                oos  = new java.io.ObjectOutputStream( gzos );
-            }   // end if: gzip
-            else
-                oos   = new java.io.ObjectOutputStream( b64os );
-            
-            oos.writeObject( serializableObject );
+            return encodeObject( serializableObject, JavaObjectSerializer.INSTANCE, options );
         }   // end try
         catch( java.io.IOException e )
         {
             e.printStackTrace();
             return null;
         }   // end catch
-        finally
+    }   // end encodeObject
+    
+    
+    
+    /**
+     * Serializes an object with the given serializer and returns the
+     * Base64-encoded version of the serialized bytes.
+     * <p>
+     * The serializer writes straight into the Base64 encoder through a
+     * buffer that is reused by the calling thread, so the serialized form
+     * is never copied into a byte array of its own. With the GZIP option,
+     * the bytes are compressed on their way into the encoder instead.
+     * <p>
+     * Example: <code>encodeObject( session, mySessionSerializer, Base64.DONT_BREAK_LINES )</code>
+     *
+     * @param object The object to encode
+     * @param serializer Converts the object to bytes, such as {@link JavaObjectSerializer#INSTANCE}
+     * @param options Specified options, as for {@link #encodeObject(java.io.Serializable, int)}
+     * @return The Base64-encoded object
+     * @throws java.io.IOException if the object cannot be serialized
+     * @see #decodeToObject(String, ObjectSerializer, int)
+     * @since 2.3
+     */
+    public static <T> String encodeObject( T object, ObjectSerializer<? super T> serializer, int options )
+    throws java.io.IOException
+    {
+        // GZip?
+        if( (options & GZIP) == GZIP )
         {
-            try{ oos.close();   } catch( Exception e ){}
-            try{ gzos.close();  } catch( Exception e ){}
-            try{ b64os.close(); } catch( Exception e ){}
-            try{ baos.close();  } catch( Exception e ){}
-        }   // end finally
+            // Serializer -> GZIP and Base64 in memory
+            Base64GzipOutputStream gzos = new Base64GzipOutputStream( options, java.util.zip.Deflater.DEFAULT_COMPRESSION, 512 );
+            try
+            {
+                serializer.writeObject( object, gzos );
+                gzos.finish();
+                return gzos.toAsciiString();
+            }   // end try
+            finally
+            {
+                gzos.close();
+            }   // end finally
+        }   // end if: gzip
         
-        // Return value according to relevant encoding.
-        try 
+        // Serializer -> Base64 in the thread's buffer
+        Base64ObjectBuffer buffer = Base64ObjectBuffer.acquire( options );
+        try
         {
-            return new String( baos.toByteArray(), PREFERRED_ENCODING );
+            serializer.writeObject( object, buffer );
+            return buffer.toEncodedString();
         }   // end try
-        catch (java.io.UnsupportedEncodingException uue)
+        finally
         {
-            return new String( baos.toByteArray() );
-        }   // end catch
-        
-    }   // end encode
+            buffer.release();
+        }   // end finally
+    }   // end encodeObject
     
     
 
@@ -657,6 +674,35 @@ public class Base64
      * @since 2.0
      */
     public static String encodeBytes( byte[] source, int off, int len, int options )
+    {
+        return encodeBytes( source, off, len, options, java.util.zip.Deflater.DEFAULT_COMPRESSION );
+    }   // end encodeBytes
+    
+    
+    
+    /**
+     * Encodes a byte array into Base64 notation, gzip-compressing it
+     * first with the given compression level if the GZIP option is set.
+     * The compressed data is streamed straight into the encoder by a
+     * {@link Base64GzipOutputStream}, using a pooled deflater.
+     * <p>
+     * Valid options:<pre>
+     *   GZIP: gzip-compresses object before encoding it.
+     *   DONT_BREAK_LINES: don't break lines at 76 characters
+     *     <i>Note: Technically, this makes your encoding non-compliant.</i>
+     * </pre>
+     *
+     * @param source The data to convert
+     * @param off Offset in array where conversion should begin
+     * @param len Length of data to convert
+     * @param options Specified options
+     * @param compressionLevel 0-9 or <tt>Deflater.DEFAULT_COMPRESSION</tt>,
+     *        ignored without the GZIP option
+     * @see Base64#GZIP
+     * @see Base64#DONT_BREAK_LINES
+     * @see ZipPool
+     */
+    public static String encodeBytes( byte[] source, int off, int len, int options, int compressionLevel )
     {
         // Isolate options
         int dontBreakLines = ( options & DONT_BREAK_LINES );
@@ -665,42 +711,18 @@ public class Base64
         // Compress?
         if( gzip == GZIP )
         {
-            java.io.ByteArrayOutputStream  baos  = null;
-            java.util.zip.GZIPOutputStream gzos  = null;
-            Base64.OutputStream            b64os = null;
-            
-    
+            Base64GzipOutputStream gzos = new Base64GzipOutputStream( options, compressionLevel, len );
             try
             {
-                // GZip -> Base64 -> ByteArray
-                baos = new java.io.ByteArrayOutputStream();
-                b64os = new Base64.OutputStream( baos, ENCODE | options );
-                gzos  = new java.util.zip.GZIPOutputStream( b64os ); 
-            
                 gzos.write( source, off, len );
-                gzos.close();
+                gzos.finish();
             }   // end try
             catch( java.io.IOException e )
             {
                 e.printStackTrace();
                 return null;
             }   // end catch
-            finally
-            {
-                try{ gzos.close();  } catch( Exception e ){}
-                try{ b64os.close(); } catch( Exception e ){}
-                try{ baos.close();  } catch( Exception e ){}
-            }   // end finally
-
-            // Return value according to relevant encoding.
-            try
-            {
-                return new String( baos.toByteArray(), PREFERRED_ENCODING );
-            }   // end try
-            catch (java.io.UnsupportedEncodingException uue)
-            {
-                return new String( baos.toByteArray() );
-            }   // end catch
+            return gzos.toAsciiString();
         }   // end if: compress
         
         // Else, don't compress. Better not to use streams at all then.
@@ -947,57 +969,59 @@ public class Base64
         }   // end catch
 		//</change>
         
-        // Decode
-        bytes = decode( bytes, 0, bytes.length, options );
-        
-        
-        // Check to see if it's gzip-compressed
-        // GZIP Magic Two-Byte Number: 0x8b1f (35615)
-        if( bytes != null && bytes.length >= 4 )
+        // Check to see if it's gzip-compressed and, if so, inflate
+        // straight from the Base64 characters.
+        if( isGzipped( bytes, bytes.length, options ) )
         {
-            
-            int head = ((int)bytes[0] & 0xff) | ((bytes[1] << 8) & 0xff00);       
-            if( java.util.zip.GZIPInputStream.GZIP_MAGIC == head ) 
+            Base64GzipInputStream gzis = new Base64GzipInputStream( bytes, 0, bytes.length, options );
+            try
             {
-                java.io.ByteArrayInputStream  bais = null;
-                java.util.zip.GZIPInputStream gzis = null;
-                java.io.ByteArrayOutputStream baos = null;
-                byte[] buffer = new byte[2048];
-                int    length = 0;
-
-                try
-                {
-                    baos = new java.io.ByteArrayOutputStream();
-                    bais = new java.io.ByteArrayInputStream( bytes );
-                    gzis = new java.util.zip.GZIPInputStream( bais );
-
-                    while( ( length = gzis.read( buffer ) ) >= 0 )
-                    {
-                        baos.write(buffer,0,length);
-                    }   // end while: reading input
-
-                    // No error? Get new bytes.
-                    bytes = baos.toByteArray();
-
-                }   // end try
-                catch( java.io.IOException e )
-                {
-                    // Just return originally-decoded bytes
-                }   // end catch
-                finally
-                {
-                    try{ baos.close(); } catch( Exception e ){}
-                    try{ gzis.close(); } catch( Exception e ){}
-                    try{ bais.close(); } catch( Exception e ){}
-                }   // end finally
-
-            }   // end if: gzipped
-        }   // end if: bytes.length >= 2
+                return gzis.readAll( bytes.length * 2 );
+            }   // end try
+            catch( java.io.IOException e )
+            {
+                // Just return the decoded bytes below
+            }   // end catch
+            finally
+            {
+                try{ gzis.close(); } catch( Exception e ){}
+            }   // end finally
+        }   // end if: gzipped
+        
+        // Decode
+        bytes = decode( bytes, 0, bytes.length, options );
         
         return bytes;
     }   // end decode
 
 
+    /**
+     * Checks whether the first Base64 quartet of <var>source</var> decodes
+     * to the gzip magic number and compression method.
+     *
+     * @param source the Base64 characters
+     * @param len the number of characters in source
+     * @param options alphabet type is pulled from this (standard, url-safe, ordered)
+     * @return true if the data looks gzip-compressed
+     */
+    private static boolean isGzipped( byte[] source, int len, int options )
+    {
+        java.nio.ByteBuffer head = java.nio.ByteBuffer.allocate( 3 );
+        try
+        {
+            Base64Codec.getInstance( options ).decode(
+                java.nio.ByteBuffer.wrap( source, 0, Math.min( len, 16 ) ), head, false );
+        }   // end try
+        catch( IllegalArgumentException e )
+        {
+            return false;
+        }   // end catch
+        return head.position() == 3
+            && ( head.get( 0 ) & 0xff ) == 0x1f && ( head.get( 1 ) & 0xff ) == 0x8b
+            && head.get( 2 ) == java.util.zip.Deflater.DEFLATED;
+    }   // end isGzipped
+
+
     
 
     /**
@@ -1010,38 +1034,66 @@ public class Base64
      */
     public static Object decodeToObject( String encodedObject )
     {
-        // Decode and gunzip if necessary
-        byte[] objBytes = decode( encodedObject );
-        
-        java.io.ByteArrayInputStream  bais = null;
-        java.io.ObjectInputStream     ois  = null;
-        Object obj = null;
-        
         try
         {
-            bais = new java.io.ByteArrayInputStream( objBytes );
-            ois  = new java.io.ObjectInputStream( bais );
-        
-            obj = ois.readObject();
+            return decodeToObject( encodedObject, JavaObjectSerializer.INSTANCE, NO_OPTIONS );
         }   // end try
         catch( java.io.IOException e )
         {
             e.printStackTrace();
-            obj = null;
+            return null;
         }   // end catch
-        catch( java.lang.ClassNotFoundException e )
+    }   // end decodeObject
+    
+    
+    
+    /**
+     * Decodes Base64 data and deserializes the object within with the
+     * given serializer, automatically detecting gzip-compressed data
+     * and decompressing it.
+     * <p>
+     * The characters are decoded into a buffer that is reused by the
+     * calling thread and the serializer reads straight from that buffer,
+     * or from the inflater for gzip-compressed data.
+     *
+     * @param encodedObject The Base64 data to decode
+     * @param serializer Converts the bytes to an object, such as {@link JavaObjectSerializer#INSTANCE}
+     * @param options encode options such as URL_SAFE
+     * @return The decoded and deserialized object
+     * @throws java.io.IOException if the data is not valid Base64 or cannot be deserialized
+     * @see #encodeObject(Object, ObjectSerializer, int)
+     * @since 2.3
+     */
+    public static <T> T decodeToObject( String encodedObject, ObjectSerializer<T> serializer, int options )
+    throws java.io.IOException
+    {
+        Base64ObjectBuffer buffer = Base64ObjectBuffer.acquire( options );
+        try
         {
-            e.printStackTrace();
-            obj = null;
-        }   // end catch
+            byte[] chars = buffer.setChars( encodedObject );
+            int len = encodedObject.length();
+            
+            // Gzip-compressed? Inflate straight from the Base64 characters.
+            if( isGzipped( chars, len, options ) )
+            {
+                Base64GzipInputStream gzis = new Base64GzipInputStream( chars, 0, len, options );
+                try
+                {
+                    return serializer.readObject( gzis );
+                }   // end try
+                finally
+                {
+                    gzis.close();
+                }   // end finally
+            }   // end if: gzipped
+            
+            return serializer.readObject( buffer.decode() );
+        }   // end try
         finally
         {
-            try{ bais.close(); } catch( Exception e ){}
-            try{ ois.close();  } catch( Exception e ){}
+            buffer.release();
         }   // end finally
-        
-        return obj;
-    }   // end decodeObject
+    }   // end decodeToObject
     
     
     
@@ -1121,6 +1173,7 @@ public class Base64
      * @param filename Filename for reading encoded data
      * @return decoded byte array or null if unsuccessful
      *
+     * @see Base64Codec#decodeFile(java.nio.file.Path, java.nio.channels.WritableByteChannel)
      * @since 2.1
      */
     public static byte[] decodeFromFile( String filename )
@@ -1148,8 +1201,9 @@ public class Base64
                       new java.io.BufferedInputStream( 
                       new java.io.FileInputStream( file ) ), Base64.DECODE );
             
-            // Read until done
-            while( ( numBytes = bis.read( buffer, length, 4096 ) ) >= 0 )
+            // Read until done or the buffer is full
+            while( length < buffer.length
+                   && ( numBytes = bis.read( buffer, length, Math.min( 4096, buffer.length - length ) ) ) >= 0 )
                 length += numBytes;
             
             // Save in a variable to return
@@ -1178,6 +1232,7 @@ public class Base64
      * @param filename Filename for reading binary data
      * @return base64-encoded string or null if unsuccessful
      *
+     * @see Base64Codec#encodeFile(java.nio.file.Path, java.nio.channels.WritableByteChannel)
      * @since 2.1
      */
     public static String encodeFromFile( String filename )
@@ -1197,8 +1252,9 @@ public class Base64
                       new java.io.BufferedInputStream( 
                       new java.io.FileInputStream( file ) ), Base64.ENCODE );
             
-            // Read until done
-            while( ( numBytes = bis.read( buffer, length, 4096 ) ) >= 0 )
+            // Read until done or the buffer is full
+            while( length < buffer.length
+                   && ( numBytes = bis.read( buffer, length, Math.min( 4096, buffer.length - length ) ) ) >= 0 )
                 length += numBytes;
             
             // Save in a variable to return
@@ -1226,6 +1282,7 @@ public class Base64
      * @param infile Input file
      * @param outfile Output file
      * @return true if the operation is successful
+     * @see Base64Codec#encodeFile(java.nio.file.Path, java.nio.file.Path)
      * @since 2.2
      */
     public static boolean encodeFileToFile( String infile, String outfile )
@@ -1263,6 +1320,7 @@ public class Base64
      * @param infile Input file
      * @param outfile Output file
      * @return true if the operation is successful
+     * @see Base64Codec#decodeFile(java.nio.file.Path, java.nio.file.Path)
      * @since 2.2
      */
     public static boolean decodeFileToFile( String infile, String outfile )
@@ -1317,6 +1375,15 @@ public class Base64
 		private int     options;        // Record options used to create the stream.
 //		private byte[]  alphabet;	    // Local copies to avoid extra method calls
 		private byte[]  decodabet;		// Local copies to avoid extra method calls
+        private Base64Codec codec;      // Converts whole groups, never breaking lines itself
+        private byte[]  raw;            // Block of data read from the underlying stream
+        private int     rawPosition;    // Next unconverted byte in raw
+        private int     rawLimit;       // End of the data in raw
+        private int     slowLimit;      // Data in raw before this is decoded a quartet at a time
+        private boolean endOfInput;     // The underlying stream is exhausted
+        private boolean padGroup;       // Encode a partial group after a read error
+        private boolean finished;       // Decoding stopped after a padded quartet
+        private byte[]  single;         // Scratch for read()
         
         
         /**
@@ -1364,6 +1431,7 @@ public class Base64
 			this.options      = options; // Record for later, mostly to determine which alphabet to use
 //			this.alphabet     = getAlphabet(options);
 			this.decodabet    = getDecodabet(options);
+            this.codec        = Base64Codec.getInstance( options | DONT_BREAK_LINES );
         }   // end constructor
         
         /**
@@ -1376,153 +1444,286 @@ public class Base64
         @Override
         public int read() throws java.io.IOException 
         { 
-            // Do we need to get data?
-            if( position < 0 )
+            if( single == null )
+                single = new byte[1];
+            
+            int n = read( single, 0, 1 );
+            return n > 0 ? single[0] & 0xFF : -1;
+        }   // end read
+        
+        
+        /**
+         * Reads a block of the input stream and converts
+         * as much of it as fits into <var>dest</var>.
+         * Whole groups are converted by {@link Base64Codec}
+         * straight into <var>dest</var>; only a group that
+         * does not fit goes through the small buffer.
+         * Returns number of bytes read into array or -1 if
+         * end of stream is encountered.
+         *
+         * @param dest array to hold values
+         * @param off offset for array
+         * @param len max number of bytes to read into array
+         * @return bytes read into array or -1 if end of stream is encountered.
+         * @since 1.3
+         */
+        @Override
+        public int read( byte[] dest, int off, int len ) throws java.io.IOException
+        {
+            if( off < 0 || len < 0 || off > dest.length - len )
+                throw new IndexOutOfBoundsException();
+            
+            if( len == 0 )
+                return 0;
+            
+            if( raw == null )
+                raw = new byte[ encode ? STREAM_BLOCK_SIZE / 3 * 3 : STREAM_BLOCK_SIZE ];
+            
+            int n = encode ? readEncoded( dest, off, len ) : readDecoded( dest, off, len );
+            return n == 0 ? -1 : n;
+        }   // end read
+        
+        
+        /**
+         * Encodes data from the underlying stream into <var>dest</var>,
+         * breaking lines lazily: a new line is only written when
+         * more data follows it.
+         */
+        private int readEncoded( byte[] dest, int off, int len ) throws java.io.IOException
+        {
+            int n = 0;
+            while( n < len )
             {
-                if( encode )
+                // Serve what is left of a group that did not fit.
+                if( position >= 0 )
                 {
-                    byte[] b3 = new byte[3];
-                    int numBinaryBytes = 0;
-                    for( int i = 0; i < 3; i++ )
+                    if( breakLines && lineLength >= MAX_LINE_LENGTH )
                     {
-                        try
-                        { 
-                            int b = in.read();
-                            
-                            // If end of stream, b is -1.
-                            if( b >= 0 )
-                            {
-                                b3[i] = (byte)b;
-                                numBinaryBytes++;
-                            }   // end if: not end of stream
-                            
-                        }   // end try: read
-                        catch( java.io.IOException e )
-                        {   
-                            // Only a problem if we got no data at all.
-                            if( i == 0 )
-                                throw e;
-                            
-                        }   // end catch
-                    }   // end for: each needed input byte
+                        dest[ off + n++ ] = NEW_LINE;
+                        lineLength = 0;
+                        continue;
+                    }   // end if: end of line
                     
-                    if( numBinaryBytes > 0 )
-                    {
-                        encode3to4( b3, 0, numBinaryBytes, buffer, 0, options );
-                        position = 0;
-                        numSigBytes = 4;
-                    }   // end if: got data
-                    else
-                    {
-                        return -1;
-                    }   // end else
-                }   // end if: encoding
+                    dest[ off + n++ ] = buffer[ position++ ];
+                    lineLength++;
+                    if( position >= bufferLength )
+                        position = -1;
+                    continue;
+                }   // end if: buffered group
                 
-                // Else decoding
-                else
+                int avail = rawLimit - rawPosition;
+                if( avail < 3 && !endOfInput && !padGroup )
                 {
-                    byte[] b4 = new byte[4];
-                    int i = 0;
-                    for( i = 0; i < 4; i++ )
-                    {
-                        // Read four "meaningful" bytes:
-                        int b = 0;
-                        do{ b = in.read(); }
-                        while( b >= 0 && decodabet[ b & 0x7f ] <= WHITE_SPACE_ENC );
-                        
-                        if( b < 0 )
-                            break; // Reads a -1 if end of stream
-                        
-                        b4[i] = (byte)b;
-                    }   // end for: each needed input byte
-                    
-                    if( i == 4 )
-                    {
-                        numSigBytes = decode4to3( b4, 0, buffer, 0, options );
-                        position = 0;
-                    }   // end if: got four characters
-                    else if( i == 0 ){
-                        return -1;
-                    }   // end else if: also padded correctly
-                    else
-                    {
-                        // Must have broken out from above.
-                        throw new java.io.IOException( "Improperly padded Base64 input." );
-                    }   // end 
-                    
-                }   // end else: decode
-            }   // end else: get data
-            
-            // Got data?
-            if( position >= 0 )
-            {
-                // End of relevant data?
-                if( /*!encode &&*/ position >= numSigBytes )
-                    return -1;
+                    // Do not block for more once some data was returned.
+                    if( n > 0 )
+                        break;
+                    fillRaw();
+                    continue;
+                }   // end if: need data
+                
+                if( avail == 0 )
+                {
+                    padGroup = false;
+                    break;
+                }   // end if: no more data
                 
-                if( encode && breakLines && lineLength >= MAX_LINE_LENGTH )
+                if( avail < 3 )
                 {
+                    // Final partial group, padded.
+                    encode3to4( raw, rawPosition, avail, buffer, 0, options );
+                    rawPosition += avail;
+                    position = 0;
+                    numSigBytes = 4;
+                    padGroup = false;
+                    continue;
+                }   // end if: partial group
+                
+                if( breakLines && lineLength >= MAX_LINE_LENGTH )
+                {
+                    dest[ off + n++ ] = NEW_LINE;
                     lineLength = 0;
-                    return '\n';
-                }   // end if
+                    continue;
+                }   // end if: end of line
+                
+                int groups = Math.min( avail / 3, ( len - n ) / 4 );
+                if( breakLines )
+                    groups = Math.min( groups, ( MAX_LINE_LENGTH - lineLength ) / 4 );
+                
+                if( groups > 0 )
+                {
+                    codec.encode( raw, rawPosition, groups * 3, dest, off + n );
+                    rawPosition += groups * 3;
+                    n           += groups * 4;
+                    lineLength  += groups * 4;
+                }   // end if: whole groups fit
                 else
                 {
-                    lineLength++;   // This isn't important when decoding
-                                    // but throwing an extra "if" seems
-                                    // just as wasteful.
+                    encode3to4( raw, rawPosition, 3, buffer, 0, options );
+                    rawPosition += 3;
+                    position = 0;
+                    numSigBytes = 4;
+                }   // end else: buffer one group
+            }   // end while: room in dest
+            return n;
+        }   // end readEncoded
+        
+        
+        /**
+         * Decodes data from the underlying stream into <var>dest</var>,
+         * stopping after the first padded quartet. Characters the codec
+         * rejects are handled a quartet at a time, the way this stream
+         * always handled them.
+         */
+        private int readDecoded( byte[] dest, int off, int len ) throws java.io.IOException
+        {
+            int n = 0;
+            while( n < len )
+            {
+                // Serve what is left of a quartet that did not fit.
+                if( position >= 0 )
+                {
+                    if( position >= numSigBytes )
+                        break;
                     
-                    int b = buffer[ position++ ];
-
+                    int count = Math.min( numSigBytes - position, len - n );
+                    System.arraycopy( buffer, position, dest, off + n, count );
+                    n        += count;
+                    position += count;
                     if( position >= bufferLength )
                         position = -1;
-
-                    return b & 0xFF; // This is how you "cast" a byte that's
-                                     // intended to be unsigned.
-                }   // end else
-            }   // end if: position >= 0
-            
-            // Else error
-            else
-            {   
-                // When JDK1.4 is more accepted, use an assertion here.
-                throw new java.io.IOException( "Error in Base64 code reading stream." );
-            }   // end else
-        }   // end read
+                    continue;
+                }   // end if: buffered quartet
+                
+                if( finished )
+                    break;
+                
+                if( rawLimit - rawPosition < 4 && !endOfInput )
+                {
+                    // Do not block for more once some data was returned.
+                    if( n > 0 )
+                        break;
+                    fillRaw();
+                    continue;
+                }   // end if: need data
+                
+                if( rawPosition >= slowLimit && len - n >= 3 )
+                {
+                    try
+                    {
+                        long state = codec.decodeRange( raw, rawPosition, rawLimit, dest, off + n, off + len, true );
+                        int produced = Base64Codec.destPosition( state ) - off - n;
+                        rawPosition = Base64Codec.srcPosition( state );
+                        n += produced;
+                        
+                        // Only a padded quartet produces less than three bytes.
+                        if( produced % 3 != 0 )
+                            finished = true;
+                        
+                        if( produced > 0 || ( rawLimit - rawPosition < 4 && !endOfInput ) )
+                            continue;
+                    }   // end try
+                    catch( IllegalArgumentException e )
+                    {
+                        slowLimit = rawLimit;
+                    }   // end catch
+                }   // end if: fast path
+                
+                if( !readQuartet() )
+                    break;
+            }   // end while: room in dest
+            return n;
+        }   // end readDecoded
         
         
         /**
-         * Calls {@link #read()} repeatedly until the end of stream
-         * is reached or <var>len</var> bytes are read.
-         * Returns number of bytes read into array or -1 if
-         * end of stream is encountered.
+         * Reads four "meaningful" characters and decodes them
+         * into the buffer.
          *
-         * @param dest array to hold values
-         * @param off offset for array
-         * @param len max number of bytes to read into array
-         * @return bytes read into array or -1 if end of stream is encountered.
-         * @since 1.3
+         * @return false at the end of the stream
          */
-        @Override
-        public int read( byte[] dest, int off, int len ) throws java.io.IOException
+        private boolean readQuartet() throws java.io.IOException
         {
-            int i;
-            int b;
-            for( i = 0; i < len; i++ )
+            byte[] b4 = new byte[4];
+            int i = 0;
+            for( i = 0; i < 4; i++ )
             {
-                b = read();
+                // Read four "meaningful" bytes:
+                int b = 0;
+                do{ b = readRaw(); }
+                while( b >= 0 && decodabet[ b & 0x7f ] <= WHITE_SPACE_ENC );
                 
-                //if( b < 0 && i == 0 )
-                //    return -1;
+                if( b < 0 )
+                    break; // Reads a -1 if end of stream
                 
-                if( b >= 0 )
-                    dest[off + i] = (byte)b;
-                else if( i == 0 )
+                b4[i] = (byte)b;
+            }   // end for: each needed input byte
+            
+            if( i == 4 )
+            {
+                numSigBytes = decode4to3( b4, 0, buffer, 0, options );
+                position = 0;
+                if( numSigBytes < 3 )
+                    finished = true;
+                return numSigBytes > 0;
+            }   // end if: got four characters
+            else if( i == 0 ){
+                return false;
+            }   // end else if: also padded correctly
+            else
+            {
+                // Must have broken out from above.
+                throw new java.io.IOException( "Improperly padded Base64 input." );
+            }   // end 
+        }   // end readQuartet
+        
+        
+        /**
+         * @return the next byte from the block, refilling it
+         *         as necessary, or -1 at the end of the stream
+         */
+        private int readRaw() throws java.io.IOException
+        {
+            while( rawPosition == rawLimit )
+            {
+                if( endOfInput )
                     return -1;
-                else
-                    break; // Out of 'for' loop
-            }   // end for: each byte read
-            return i;
-        }   // end read
+                fillRaw();
+            }   // end while: block empty
+            return raw[ rawPosition++ ] & 0xFF;
+        }   // end readRaw
+        
+        
+        /**
+         * Moves unconverted data to the front of the block and
+         * reads more from the underlying stream.
+         */
+        private void fillRaw() throws java.io.IOException
+        {
+            int remaining = rawLimit - rawPosition;
+            System.arraycopy( raw, rawPosition, raw, 0, remaining );
+            slowLimit   = Math.max( 0, slowLimit - rawPosition );
+            rawPosition = 0;
+            rawLimit    = remaining;
+            
+            int b;
+            try
+            {
+                b = in.read( raw, rawLimit, raw.length - rawLimit );
+            }   // end try
+            catch( java.io.IOException e )
+            {
+                // Only a problem if we got no data at all.
+                if( remaining == 0 || !encode )
+                    throw e;
+                padGroup = true;
+                return;
+            }   // end catch
+            
+            if( b < 0 )
+                endOfInput = true;
+            else
+                rawLimit += b;
+        }   // end fillRaw
         
     }   // end inner class InputStream
     
@@ -1556,6 +1757,9 @@ public class Base64
 		private int options; // Record for later
 //		private byte[]  alphabet;	    // Local copies to avoid extra method calls
 		private byte[]  decodabet;		// Local copies to avoid extra method calls
+        private Base64Codec codec;      // Converts whole groups, never breaking lines itself
+        private Base64Codec lineCodec;  // Converts whole lines, each followed by a new line
+        private byte[]  block;          // Converted data waiting to be written
         
         /**
          * Constructs a {@link Base64.OutputStream} in ENCODE mode.
@@ -1603,6 +1807,8 @@ public class Base64
 			this.options      = options;
 //			this.alphabet     = getAlphabet(options);
 			this.decodabet    = getDecodabet(options);
+            this.codec        = Base64Codec.getInstance( options | DONT_BREAK_LINES );
+            this.lineCodec    = Base64Codec.getInstance( options & ~DONT_BREAK_LINES );
         }   // end constructor
         
         
@@ -1672,8 +1878,12 @@ public class Base64
         
         
         /**
-         * Calls {@link #write(int)} repeatedly until <var>len</var> 
-         * bytes are written.
+         * Converts <var>len</var> bytes and writes them to the
+         * underlying stream. Whole groups (whole lines where
+         * possible) are converted by {@link Base64Codec} straight
+         * from <var>theBytes</var> into a block that is written in
+         * one call; only the bytes of an incomplete group go through
+         * {@link #write(int)}.
          *
          * @param theBytes array from which to read bytes
          * @param off offset for array
@@ -1690,14 +1900,135 @@ public class Base64
                 return;
             }   // end if: supsended
             
-            for( int i = 0; i < len; i++ )
+            if( off < 0 || len < 0 || off > theBytes.length - len )
+                throw new IndexOutOfBoundsException();
+            
+            // Complete a partially filled group first.
+            while( position > 0 && len > 0 )
             {
-                write( theBytes[ off + i ] );
-            }   // end for: each byte written
+                write( theBytes[ off++ ] );
+                len--;
+            }   // end while: partial group
+            
+            int end = encode ? writeEncoded( theBytes, off, len ) : writeDecoded( theBytes, off, len );
+            
+            // The rest starts a new group.
+            for( int i = end; i < off + len; i++ )
+            {
+                write( theBytes[ i ] );
+            }   // end for: each byte of the last group
             
         }   // end write
         
         
+        /**
+         * Encodes the whole groups of the given range.
+         *
+         * @return the offset of the first byte not encoded
+         */
+        private int writeEncoded( byte[] theBytes, int off, int len ) throws java.io.IOException
+        {
+            int groups = len / 3;
+            if( groups == 0 )
+                return off;
+            
+            if( block == null )
+                block = new byte[ STREAM_BLOCK_SIZE ];
+            
+            int blockLen = 0;
+            while( groups > 0 )
+            {
+                if( block.length - blockLen < MAX_LINE_LENGTH + 1 )
+                {
+                    out.write( block, 0, blockLen );
+                    blockLen = 0;
+                }   // end if: block full
+                
+                if( breakLines && lineLength == 0 && groups >= MAX_LINE_LENGTH / 4 )
+                {
+                    // Whole lines, each with its new line.
+                    int lines = Math.min( groups / ( MAX_LINE_LENGTH / 4 ),
+                                          ( block.length - blockLen ) / ( MAX_LINE_LENGTH + 1 ) );
+                    int bytes = lines * ( MAX_LINE_LENGTH / 4 * 3 );
+                    blockLen += lineCodec.encode( theBytes, off, bytes, block, blockLen );
+                    off      += bytes;
+                    groups   -= lines * ( MAX_LINE_LENGTH / 4 );
+                    continue;
+                }   // end if: whole lines
+                
+                int n = Math.min( groups, ( block.length - blockLen - 1 ) / 4 );
+                if( breakLines )
+                    n = Math.min( n, ( MAX_LINE_LENGTH - lineLength ) / 4 );
+                blockLen   += codec.encode( theBytes, off, n * 3, block, blockLen );
+                off        += n * 3;
+                groups     -= n;
+                lineLength += n * 4;
+                if( breakLines && lineLength >= MAX_LINE_LENGTH )
+                {
+                    block[ blockLen++ ] = NEW_LINE;
+                    lineLength = 0;
+                }   // end if: end of line
+            }   // end while: whole groups
+            
+            out.write( block, 0, blockLen );
+            return off;
+        }   // end writeEncoded
+        
+        
+        /**
+         * Decodes the whole quartets of the given range. Characters
+         * the codec rejects are passed to {@link #write(int)}, which
+         * handles them the way this stream always did.
+         *
+         * @return the offset of the first character not decoded
+         */
+        private int writeDecoded( byte[] theBytes, int off, int len ) throws java.io.IOException
+        {
+            if( len < 4 )
+                return off;
+            
+            if( block == null )
+                block = new byte[ STREAM_BLOCK_SIZE / 4 * 3 ];
+            
+            int end = off + len;
+            while( off < end )
+            {
+                int chunkEnd = Math.min( end, off + STREAM_BLOCK_SIZE );
+                int next;
+                int blockLen;
+                try
+                {
+                    long state = codec.decodeRange( theBytes, off, chunkEnd, block, 0, block.length, false );
+                    next     = Base64Codec.srcPosition( state );
+                    blockLen = Base64Codec.destPosition( state );
+                }   // end try
+                catch( IllegalArgumentException e )
+                {
+                    next     = off;
+                    blockLen = 0;
+                }   // end catch
+                
+                if( next == off )
+                {
+                    // Nothing decoded: bad characters, or only part of a quartet.
+                    if( chunkEnd == end )
+                        return off;
+                    for( ; off < chunkEnd; off++ )
+                        write( theBytes[ off ] );
+                    
+                    // Resume at a quartet boundary.
+                    while( off < end && position > 0 )
+                        write( theBytes[ off++ ] );
+                    continue;
+                }   // end if: no progress
+                
+                out.write( block, 0, blockLen );
+                off = next;
+            }   // end while: characters left
+            return off;
+        }   // end writeDecoded
+        
+        
         
         /**
          * Method added by PHIL. [Thanks, PHIL. -Rob]
@@ -0,0 +1,1218 @@
+package org.cujau.utils;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Allocation-free Base64 encoder and decoder that works directly on caller-supplied
+ * <tt>byte[]</tt> and {@link ByteBuffer} ranges.
+ * <p>
+ * The output is identical to {@link Base64#encodeBytes(byte[], int, int, int)} and the accepted
+ * input is the same as {@link Base64#decode(byte[], int, int, int)}, but instead of moving one
+ * three byte group at a time and allocating a new result for every call, the codec moves 64 bits
+ * per memory access: 12 source bytes become 16 characters per encode step and 8 characters become
+ * 6 bytes per decode step, using lookup tables that translate two characters (12 bits) at a time.
+ * Input broken into 76 character lines is decoded a whole line at a time.
+ * </p>
+ * <p>
+ * Of the {@link Base64} options, {@link Base64#URL_SAFE}, {@link Base64#ORDERED} and
+ * {@link Base64#DONT_BREAK_LINES} are honored. All other options are ignored. Instances are
+ * immutable and may be shared between threads.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * Base64Codec codec = Base64Codec.getInstance( Base64.URL_SAFE | Base64.DONT_BREAK_LINES );
+ * byte[] out = new byte[codec.encodedLength( data.length )];
+ * int produced = codec.encode( data, 0, data.length, out, 0 );
+ * </pre>
+ */
+public final class Base64Codec {
+
+    /** Maximum line length (76) of Base64 output. */
+    static final int MAX_LINE_LENGTH = 76;
+    /** The number of source bytes that are encoded into one full line of output. */
+    static final int BYTES_PER_LINE = MAX_LINE_LENGTH / 4 * 3;
+    /** The number of bytes one full line of output occupies, including the new line. */
+    static final int ENCODED_BYTES_PER_LINE = MAX_LINE_LENGTH + 1;
+
+    /**
+     * The size of the direct buffer the streaming methods read into. A whole number of lines (and
+     * three byte groups), so every full buffer encodes without a partial group.
+     */
+    static final int STREAM_BUFFER_SIZE = BYTES_PER_LINE * 1024;
+
+    /**
+     * Inputs shorter than this many bytes are always encoded and decoded sequentially by the
+     * parallel methods; splitting them costs more than it gains.
+     */
+    public static final int PARALLEL_THRESHOLD = 1 << 20;
+    /** The smallest number of source bytes handed to one parallel task. */
+    private static final int MIN_CHUNK_SIZE = 1 << 16;
+    /** The number of chunks per worker thread of the pool, to even out uneven progress. */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static final byte EQUALS_SIGN = (byte) '=';
+    private static final byte NEW_LINE = (byte) '\n';
+    private static final int WHITE_SPACE_ENC = -5;
+    private static final int EQUALS_SIGN_ENC = -1;
+    private static final int BAD_ENCODING = -9;
+    private static final int INVALID = -1;
+
+    private static final VarHandle LONG_ARRAY =
+            MethodHandles.byteArrayViewVarHandle( long[].class, ByteOrder.BIG_ENDIAN );
+    private static final VarHandle INT_ARRAY =
+            MethodHandles.byteArrayViewVarHandle( int[].class, ByteOrder.BIG_ENDIAN );
+    private static final VarHandle SHORT_ARRAY =
+            MethodHandles.byteArrayViewVarHandle( short[].class, ByteOrder.BIG_ENDIAN );
+    private static final VarHandle LONG_BUFFER =
+            MethodHandles.byteBufferViewVarHandle( long[].class, ByteOrder.BIG_ENDIAN );
+    private static final VarHandle INT_BUFFER =
+            MethodHandles.byteBufferViewVarHandle( int[].class, ByteOrder.BIG_ENDIAN );
+    private static final VarHandle SHORT_BUFFER =
+            MethodHandles.byteBufferViewVarHandle( short[].class, ByteOrder.BIG_ENDIAN );
+
+    /**
+     * Per-thread direct buffers for the streaming methods: the first holds the data read, the
+     * second the data to write. The second is large enough for the encoded form of the first.
+     */
+    private static final ThreadLocal<ByteBuffer[]> STREAM_BUFFERS = new ThreadLocal<ByteBuffer[]>() {
+        @Override
+        protected ByteBuffer[] initialValue() {
+            return new ByteBuffer[] { ByteBuffer.allocateDirect( STREAM_BUFFER_SIZE ),
+                    ByteBuffer.allocateDirect( STREAM_BUFFER_SIZE / BYTES_PER_LINE * ENCODED_BYTES_PER_LINE ) };
+        }
+    };
+
+    private static final Map<byte[], short[]> PAIR_TABLES = new IdentityHashMap<>();
+    private static final int DIALECT_MASK = Base64.URL_SAFE | Base64.ORDERED;
+    private static final Base64Codec[] INSTANCES = new Base64Codec[4];
+    static {
+        INSTANCES[0] = new Base64Codec( Base64.NO_OPTIONS );
+        INSTANCES[1] = new Base64Codec( Base64.DONT_BREAK_LINES );
+        INSTANCES[2] = new Base64Codec( Base64.URL_SAFE );
+        INSTANCES[3] = new Base64Codec( Base64.URL_SAFE | Base64.DONT_BREAK_LINES );
+    }
+    private static final Base64Codec ORDERED = new Base64Codec( Base64.ORDERED );
+    private static final Base64Codec ORDERED_DONT_BREAK_LINES =
+            new Base64Codec( Base64.ORDERED | Base64.DONT_BREAK_LINES );
+
+    private final int options;
+    private final boolean breakLines;
+    private final byte[] alphabet;
+    private final byte[] decodabet;
+    /** Maps 12 bits of input to the two output characters, first character in the high byte. */
+    private final char[] encodeTable;
+    /**
+     * Maps two characters (first character in the high byte) to their 12-bit value, or -1 if
+     * either is not part of the alphabet. Shared between the codecs of one dialect.
+     */
+    private final short[] decodePairs;
+    /** Maps a character to its 6-bit value shifted into place for each position of a quartet. */
+    private final int[] decode0;
+    private final int[] decode1;
+    private final int[] decode2;
+    private final int[] decode3;
+
+    private Base64Codec( int options ) {
+        this.options = options;
+        this.breakLines = ( options & Base64.DONT_BREAK_LINES ) == 0;
+        this.alphabet = Base64.getAlphabet( options );
+        this.decodabet = Base64.getDecodabet( options );
+
+        encodeTable = new char[4096];
+        for ( int i = 0; i < encodeTable.length; i++ ) {
+            encodeTable[i] = (char) ( ( alphabet[i >>> 6] << 8 ) | alphabet[i & 0x3f] );
+        }
+
+        decodePairs = decodePairTable( decodabet );
+
+        decode0 = new int[256];
+        decode1 = new int[256];
+        decode2 = new int[256];
+        decode3 = new int[256];
+        for ( int c = 0; c < 256; c++ ) {
+            int v = c < decodabet.length ? decodabet[c] : BAD_ENCODING;
+            if ( v < 0 ) {
+                decode0[c] = INVALID;
+                decode1[c] = INVALID;
+                decode2[c] = INVALID;
+                decode3[c] = INVALID;
+            } else {
+                decode0[c] = v << 18;
+                decode1[c] = v << 12;
+                decode2[c] = v << 6;
+                decode3[c] = v;
+            }
+        }
+    }
+
+    private static short[] decodePairTable( byte[] decodabet ) {
+        synchronized ( PAIR_TABLES ) {
+            short[] table = PAIR_TABLES.get( decodabet );
+            if ( table == null ) {
+                table = new short[65536];
+                for ( int i = 0; i < table.length; i++ ) {
+                    int hi = i >>> 8;
+                    int lo = i & 0xff;
+                    int vHi = hi < decodabet.length ? decodabet[hi] : BAD_ENCODING;
+                    int vLo = lo < decodabet.length ? decodabet[lo] : BAD_ENCODING;
+                    table[i] = vHi < 0 || vLo < 0 ? -1 : (short) ( ( vHi << 6 ) | vLo );
+                }
+                PAIR_TABLES.put( decodabet, table );
+            }
+            return table;
+        }
+    }
+
+    /**
+     * Get the codec for the given {@link Base64} options.
+     *
+     * @param options
+     *         The {@link Base64} options. Only {@link Base64#URL_SAFE}, {@link Base64#ORDERED} and
+     *         {@link Base64#DONT_BREAK_LINES} are taken into account.
+     * @return The shared codec instance for the options.
+     */
+    public static Base64Codec getInstance( int options ) {
+        boolean dontBreakLines = ( options & Base64.DONT_BREAK_LINES ) != 0;
+        if ( ( options & Base64.URL_SAFE ) == 0 && ( options & DIALECT_MASK ) == Base64.ORDERED ) {
+            return dontBreakLines ? ORDERED_DONT_BREAK_LINES : ORDERED;
+        }
+        int idx = ( ( options & Base64.URL_SAFE ) != 0 ? 2 : 0 ) + ( dontBreakLines ? 1 : 0 );
+        return INSTANCES[idx];
+    }
+
+    /**
+     * @return The options this codec was created with.
+     */
+    public int getOptions() {
+        return options;
+    }
+
+    /**
+     * @return <tt>true</tt> if the encoded output is broken into lines of 76 characters.
+     */
+    public boolean isBreakLines() {
+        return breakLines;
+    }
+
+    /**
+     * Get the exact number of bytes that encoding <tt>len</tt> source bytes will produce.
+     *
+     * @param len
+     *         The number of source bytes.
+     * @return The encoded length, including padding and line breaks.
+     * @throws IllegalArgumentException
+     *         If the encoded length does not fit in an int.
+     */
+    public int encodedLength( int len ) {
+        long ret = encodedLength( (long) len );
+        if ( ret > Integer.MAX_VALUE ) {
+            throw new IllegalArgumentException( "Encoded length of " + len + " bytes is too large for an array." );
+        }
+        return (int) ret;
+    }
+
+    /**
+     * Get the exact number of bytes that encoding <tt>len</tt> source bytes will produce.
+     *
+     * @param len
+     *         The number of source bytes.
+     * @return The encoded length, including padding and line breaks.
+     */
+    public long encodedLength( long len ) {
+        long ret = ( len + 2 ) / 3 * 4;
+        if ( breakLines ) {
+            ret += len / BYTES_PER_LINE;
+        }
+        return ret;
+    }
+
+    /**
+     * Get the maximum number of bytes that decoding <tt>len</tt> Base64 characters can produce.
+     *
+     * @param len
+     *         The number of Base64 characters, including any white space.
+     * @return The upper bound of the decoded length.
+     */
+    public int maxDecodedLength( int len ) {
+        return (int) ( ( len + 3L ) / 4 * 3 );
+    }
+
+    /**
+     * Encode the given source range into <tt>dest</tt>, starting at <tt>destOff</tt>. All of the
+     * source bytes are consumed and the output is padded.
+     *
+     * @param src
+     *         The data to encode.
+     * @param srcOff
+     *         The offset of the first byte to encode.
+     * @param srcLen
+     *         The number of bytes to encode.
+     * @param dest
+     *         The array receiving the Base64 characters.
+     * @param destOff
+     *         The offset in <tt>dest</tt> of the first character written.
+     * @return The number of bytes written to <tt>dest</tt>, which is always
+     *         {@link #encodedLength(int) encodedLength( srcLen )}.
+     * @throws IllegalArgumentException
+     *         If <tt>dest</tt> does not have room for the encoded data.
+     */
+    public int encode( byte[] src, int srcOff, int srcLen, byte[] dest, int destOff ) {
+        checkRange( src.length, srcOff, srcLen );
+        int len = encodedLength( srcLen );
+        if ( destOff < 0 || dest.length - destOff < len ) {
+            throw new IllegalArgumentException( "Output array too small: need " + len + " bytes at offset " + destOff );
+        }
+        return encodeArray( src, srcOff, srcOff + srcLen, dest, destOff ) - destOff;
+    }
+
+    /**
+     * Encode as much of the remaining bytes of <tt>src</tt> into <tt>dest</tt> as fits. The
+     * positions of both buffers are advanced past the bytes consumed and produced.
+     * <p>
+     * Unless <tt>endOfInput</tt> is <tt>true</tt>, only whole three byte groups (whole lines of
+     * 57 bytes if lines are broken) are consumed, so that the output of consecutive calls
+     * concatenates to the same output as a single call. When <tt>endOfInput</tt> is
+     * <tt>true</tt> and everything fits, the final partial group is encoded with padding.
+     * </p>
+     *
+     * @param src
+     *         The buffer holding the data to encode.
+     * @param dest
+     *         The buffer receiving the Base64 characters.
+     * @param endOfInput
+     *         <tt>true</tt> if <tt>src</tt> holds the last of the data.
+     * @return The number of bytes written to <tt>dest</tt>.
+     */
+    public int encode( ByteBuffer src, ByteBuffer dest, boolean endOfInput ) {
+        int unit = breakLines ? BYTES_PER_LINE : 3;
+        int unitOut = breakLines ? ENCODED_BYTES_PER_LINE : 4;
+        int srcRemaining = src.remaining();
+        int destRemaining = dest.remaining();
+
+        int units = Math.min( srcRemaining / unit, destRemaining / unitOut );
+        int consumed = units * unit;
+        int produced = units * unitOut;
+        if ( endOfInput && units == srcRemaining / unit ) {
+            int tail = srcRemaining - consumed;
+            int tailOut = (int) encodedLength( (long) tail );
+            if ( tailOut <= destRemaining - produced ) {
+                consumed += tail;
+                produced += tailOut;
+            }
+        }
+        if ( consumed == 0 ) {
+            return 0;
+        }
+
+        int sp = src.position();
+        int dp = dest.position();
+        if ( src.hasArray() && dest.hasArray() ) {
+            int srcBase = src.arrayOffset();
+            int destBase = dest.arrayOffset();
+            encodeArray( src.array(), srcBase + sp, srcBase + sp + consumed, dest.array(), destBase + dp );
+        } else {
+            encodeBuffer( src, sp, sp + consumed, dest, dp );
+        }
+        src.position( sp + consumed );
+        dest.position( dp + produced );
+        return produced;
+    }
+
+    /**
+     * Decode the given range of Base64 characters into <tt>dest</tt>, starting at
+     * <tt>destOff</tt>. White space is skipped and decoding stops after the first padded quartet.
+     * As with {@link Base64#decode(byte[], int, int, int)}, trailing characters that do not form a
+     * complete quartet are ignored.
+     *
+     * @param src
+     *         The Base64 characters.
+     * @param srcOff
+     *         The offset of the first character to decode.
+     * @param srcLen
+     *         The number of characters to decode.
+     * @param dest
+     *         The array receiving the decoded bytes.
+     * @param destOff
+     *         The offset in <tt>dest</tt> of the first byte written.
+     * @return The number of bytes written to <tt>dest</tt>.
+     * @throws IllegalArgumentException
+     *         If the input contains a character that is not part of the alphabet, or if
+     *         <tt>dest</tt> does not have room for the decoded data.
+     */
+    public int decode( byte[] src, int srcOff, int srcLen, byte[] dest, int destOff ) {
+        checkRange( src.length, srcOff, srcLen );
+        checkRange( dest.length, destOff, 0 );
+        int srcEnd = srcOff + srcLen;
+        long state = decodeArray( src, srcOff, srcEnd, dest, destOff, dest.length, true, true );
+        if ( srcPosition( state ) < srcEnd ) {
+            throw new IllegalArgumentException( "Output array too small for the decoded data at offset " + destOff );
+        }
+        return destPosition( state ) - destOff;
+    }
+
+    /**
+     * Decode as many of the remaining Base64 characters of <tt>src</tt> into <tt>dest</tt> as
+     * fits. The positions of both buffers are advanced past the characters consumed and the bytes
+     * produced.
+     * <p>
+     * Unless <tt>endOfInput</tt> is <tt>true</tt>, a trailing incomplete quartet is left in
+     * <tt>src</tt> so it can be completed by the next call. When <tt>endOfInput</tt> is
+     * <tt>true</tt>, a trailing incomplete quartet is consumed and ignored. Like a decoding
+     * {@link Base64.OutputStream}, and unlike {@link #decode(byte[], int, int, byte[], int)},
+     * decoding continues after a padded quartet, so concatenated Base64 data decodes to the
+     * concatenated bytes.
+     * </p>
+     *
+     * @param src
+     *         The buffer holding the Base64 characters.
+     * @param dest
+     *         The buffer receiving the decoded bytes.
+     * @param endOfInput
+     *         <tt>true</tt> if <tt>src</tt> holds the last of the data.
+     * @return The number of bytes written to <tt>dest</tt>.
+     * @throws IllegalArgumentException
+     *         If the input contains a character that is not part of the alphabet.
+     */
+    public int decode( ByteBuffer src, ByteBuffer dest, boolean endOfInput ) {
+        int sp = src.position();
+        int dp = dest.position();
+        long state;
+        if ( src.hasArray() && dest.hasArray() ) {
+            int srcBase = src.arrayOffset();
+            int destBase = dest.arrayOffset();
+            state = decodeArray( src.array(), srcBase + sp, srcBase + src.limit(), dest.array(), destBase + dp,
+                                 destBase + dest.limit(), endOfInput, false );
+            state -= ( (long) srcBase << 32 ) + destBase;
+        } else {
+            state = decodeBuffer( src, sp, src.limit(), dest, dp, dest.limit(), endOfInput, false );
+        }
+        src.position( srcPosition( state ) );
+        dest.position( destPosition( state ) );
+        return destPosition( state ) - dp;
+    }
+
+    /**
+     * Encode the given source range into <tt>dest</tt> using the common {@link ForkJoinPool}.
+     *
+     * @see #encodeParallel(byte[], int, int, byte[], int, ForkJoinPool)
+     */
+    public int encodeParallel( byte[] src, int srcOff, int srcLen, byte[] dest, int destOff ) {
+        return encodeParallel( src, srcOff, srcLen, dest, destOff, ForkJoinPool.commonPool() );
+    }
+
+    /**
+     * Encode the given source range into <tt>dest</tt>, splitting the work between the threads of
+     * <tt>pool</tt>. The source is cut into chunks of whole three byte groups (whole 57 byte
+     * lines if lines are broken), so each chunk encodes into a fixed slot of <tt>dest</tt> and the
+     * output is identical to {@link #encode(byte[], int, int, byte[], int)}. Inputs shorter than
+     * {@link #PARALLEL_THRESHOLD} and pools without parallelism are handled sequentially.
+     *
+     * @param src
+     *         The data to encode.
+     * @param srcOff
+     *         The offset of the first byte to encode.
+     * @param srcLen
+     *         The number of bytes to encode.
+     * @param dest
+     *         The array receiving the Base64 characters.
+     * @param destOff
+     *         The offset in <tt>dest</tt> of the first character written.
+     * @param pool
+     *         The pool to run the chunks on.
+     * @return The number of bytes written to <tt>dest</tt>, which is always
+     *         {@link #encodedLength(int) encodedLength( srcLen )}.
+     * @throws IllegalArgumentException
+     *         If <tt>dest</tt> does not have room for the encoded data.
+     */
+    public int encodeParallel( byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, ForkJoinPool pool ) {
+        if ( srcLen < PARALLEL_THRESHOLD || pool.getParallelism() < 2 ) {
+            return encode( src, srcOff, srcLen, dest, destOff );
+        }
+        checkRange( src.length, srcOff, srcLen );
+        int len = encodedLength( srcLen );
+        if ( destOff < 0 || dest.length - destOff < len ) {
+            throw new IllegalArgumentException( "Output array too small: need " + len + " bytes at offset " + destOff );
+        }
+        int unit = breakLines ? BYTES_PER_LINE : 3;
+        int unitOut = breakLines ? ENCODED_BYTES_PER_LINE : 4;
+        int chunkUnits = chunkUnits( srcLen, unit, pool );
+        pool.invoke( new ChunkTask( true, src, srcOff, srcOff + srcLen, dest, destOff, chunkUnits * unit,
+                                    chunkUnits * unitOut, 0, chunkCount( srcLen, chunkUnits * unit ) ) );
+        return len;
+    }
+
+    /**
+     * Decode the given range of Base64 characters into <tt>dest</tt> using the common
+     * {@link ForkJoinPool}.
+     *
+     * @see #decodeParallel(byte[], int, int, byte[], int, ForkJoinPool)
+     */
+    public int decodeParallel( byte[] src, int srcOff, int srcLen, byte[] dest, int destOff ) {
+        return decodeParallel( src, srcOff, srcLen, dest, destOff, ForkJoinPool.commonPool() );
+    }
+
+    /**
+     * Decode the given range of Base64 characters into <tt>dest</tt>, splitting the work between
+     * the threads of <tt>pool</tt>. The result is identical to
+     * {@link #decode(byte[], int, int, byte[], int)}.
+     * <p>
+     * The input is cut into chunks of whole 77 character lines if it starts with a line of 76
+     * characters followed by a new line, and into chunks of whole quartets otherwise, and every
+     * chunk is decoded into the slot its position predicts. This holds for everything the encoder
+     * produces. If any chunk does not decode to exactly its slot, because the input uses other
+     * line endings, has white space elsewhere or is padded early, the whole input is decoded again
+     * sequentially. Inputs shorter than {@link #PARALLEL_THRESHOLD} and pools without parallelism
+     * are handled sequentially.
+     * </p>
+     *
+     * @param src
+     *         The Base64 characters.
+     * @param srcOff
+     *         The offset of the first character to decode.
+     * @param srcLen
+     *         The number of characters to decode.
+     * @param dest
+     *         The array receiving the decoded bytes.
+     * @param destOff
+     *         The offset in <tt>dest</tt> of the first byte written.
+     * @param pool
+     *         The pool to run the chunks on.
+     * @return The number of bytes written to <tt>dest</tt>.
+     * @throws IllegalArgumentException
+     *         If the input contains a character that is not part of the alphabet, or if
+     *         <tt>dest</tt> does not have room for the decoded data.
+     */
+    public int decodeParallel( byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, ForkJoinPool pool ) {
+        if ( srcLen < PARALLEL_THRESHOLD || pool.getParallelism() < 2 ) {
+            return decode( src, srcOff, srcLen, dest, destOff );
+        }
+        checkRange( src.length, srcOff, srcLen );
+        checkRange( dest.length, destOff, 0 );
+        boolean lines = src[srcOff + MAX_LINE_LENGTH] == NEW_LINE;
+        int unit = lines ? ENCODED_BYTES_PER_LINE : 4;
+        int unitOut = lines ? BYTES_PER_LINE : 3;
+        int chunkUnits = chunkUnits( srcLen, unit, pool );
+        int end = pool.invoke( new ChunkTask( false, src, srcOff, srcOff + srcLen, dest, destOff, chunkUnits * unit,
+                                              chunkUnits * unitOut, 0, chunkCount( srcLen, chunkUnits * unit ) ) );
+        if ( end < 0 ) {
+            return decode( src, srcOff, srcLen, dest, destOff );
+        }
+        return end - destOff;
+    }
+
+    /**
+     * @return The number of units of <tt>unit</tt> source bytes each parallel chunk should hold.
+     */
+    private static int chunkUnits( int srcLen, int unit, ForkJoinPool pool ) {
+        long chunks = (long) pool.getParallelism() * CHUNKS_PER_THREAD;
+        int units = srcLen / unit;
+        return (int) Math.max( MIN_CHUNK_SIZE / unit, ( units + chunks - 1 ) / chunks );
+    }
+
+    private static int chunkCount( int srcLen, int chunkLen ) {
+        return (int) ( ( srcLen + (long) chunkLen - 1 ) / chunkLen );
+    }
+
+    /**
+     * Encodes or decodes the chunks <tt>[from, to)</tt> of a parallel operation, splitting the
+     * range in half until a single chunk remains. Every chunk but the last holds
+     * <tt>chunkIn</tt> source bytes that translate into exactly <tt>chunkOut</tt> output bytes.
+     * The result is the end position in <tt>dest</tt> of the last chunk, or -1 if a decoded chunk
+     * did not fill its slot.
+     */
+    private final class ChunkTask extends RecursiveTask<Integer> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final boolean encode;
+        private final byte[] src;
+        private final int srcOff;
+        private final int srcEnd;
+        private final byte[] dest;
+        private final int destOff;
+        private final int chunkIn;
+        private final int chunkOut;
+        private final int from;
+        private final int to;
+
+        ChunkTask( boolean encode, byte[] src, int srcOff, int srcEnd, byte[] dest, int destOff, int chunkIn,
+                   int chunkOut, int from, int to ) {
+            this.encode = encode;
+            this.src = src;
+            this.srcOff = srcOff;
+            this.srcEnd = srcEnd;
+            this.dest = dest;
+            this.destOff = destOff;
+            this.chunkIn = chunkIn;
+            this.chunkOut = chunkOut;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Integer compute() {
+            if ( to - from > 1 ) {
+                int mid = ( from + to ) >>> 1;
+                ChunkTask left = split( from, mid );
+                left.fork();
+                int right = split( mid, to ).compute();
+                int leftEnd = left.join();
+                return leftEnd < 0 ? leftEnd : right;
+            }
+
+            int sp = srcOff + from * chunkIn;
+            int sl = srcEnd - sp > chunkIn ? sp + chunkIn : srcEnd;
+            int dp = destOff + from * chunkOut;
+            if ( encode ) {
+                return encodeArray( src, sp, sl, dest, dp );
+            }
+
+            // Every chunk but the last must consume all of its input and fill its slot exactly.
+            boolean last = sl == srcEnd;
+            int dl = last ? dest.length : dp + chunkOut;
+            try {
+                long state = decodeArray( src, sp, sl, dest, dp, dl, last, true );
+                if ( srcPosition( state ) < sl || ( !last && destPosition( state ) != dl ) ) {
+                    return -1;
+                }
+                return destPosition( state );
+            } catch ( IllegalArgumentException e ) {
+                // Let the sequential decode decide whether the input is really bad.
+                return -1;
+            }
+        }
+
+        private ChunkTask split( int from, int to ) {
+            return new ChunkTask( encode, src, srcOff, srcEnd, dest, destOff, chunkIn, chunkOut, from, to );
+        }
+    }
+
+    /**
+     * Encode everything that can be read from <tt>in</tt> and write it to <tt>out</tt>. The data
+     * is streamed through fixed size, per-thread direct buffers, so memory use does not depend on
+     * the amount of data. The output is the same as {@link Base64#encodeBytes(byte[], int)} would
+     * produce for the whole input. Neither channel is closed.
+     *
+     * @param in
+     *         The (blocking) channel to read the data from.
+     * @param out
+     *         The (blocking) channel to write the Base64 characters to.
+     * @return The number of bytes read and written and the time taken.
+     * @throws IOException
+     *         If reading or writing fails.
+     */
+    public TransferStats encode( ReadableByteChannel in, WritableByteChannel out )
+            throws IOException {
+        return transfer( in, out, true );
+    }
+
+    /**
+     * Decode all Base64 characters that can be read from <tt>in</tt> and write the bytes to
+     * <tt>out</tt>. The data is streamed through fixed size, per-thread direct buffers, so memory
+     * use does not depend on the amount of data. Neither channel is closed.
+     *
+     * @param in
+     *         The (blocking) channel to read the Base64 characters from.
+     * @param out
+     *         The (blocking) channel to write the decoded bytes to.
+     * @return The number of bytes read and written and the time taken.
+     * @throws IOException
+     *         If reading or writing fails.
+     * @throws IllegalArgumentException
+     *         If the input contains a character that is not part of the alphabet.
+     */
+    public TransferStats decode( ReadableByteChannel in, WritableByteChannel out )
+            throws IOException {
+        return transfer( in, out, false );
+    }
+
+    /**
+     * Encode the contents of the file <tt>in</tt> into the file <tt>out</tt>, which is created or
+     * overwritten. The streaming counterpart of {@link Base64#encodeFileToFile(String, String)}.
+     *
+     * @see #encode(ReadableByteChannel, WritableByteChannel)
+     */
+    public TransferStats encodeFile( Path in, Path out )
+            throws IOException {
+        try ( FileChannel inChannel = FileChannel.open( in, StandardOpenOption.READ );
+              FileChannel outChannel = openForWrite( out ) ) {
+            return encode( inChannel, outChannel );
+        }
+    }
+
+    /**
+     * Encode the contents of the file <tt>in</tt> and write the Base64 characters to
+     * <tt>out</tt>. The streaming counterpart of {@link Base64#encodeFromFile(String)}; use
+     * {@link java.nio.channels.Channels#newChannel(java.io.OutputStream)} to write to a stream.
+     *
+     * @see #encode(ReadableByteChannel, WritableByteChannel)
+     */
+    public TransferStats encodeFile( Path in, WritableByteChannel out )
+            throws IOException {
+        try ( FileChannel inChannel = FileChannel.open( in, StandardOpenOption.READ ) ) {
+            return encode( inChannel, out );
+        }
+    }
+
+    /**
+     * Decode the Base64 file <tt>in</tt> into the file <tt>out</tt>, which is created or
+     * overwritten. The streaming counterpart of {@link Base64#decodeFileToFile(String, String)}.
+     *
+     * @see #decode(ReadableByteChannel, WritableByteChannel)
+     */
+    public TransferStats decodeFile( Path in, Path out )
+            throws IOException {
+        try ( FileChannel inChannel = FileChannel.open( in, StandardOpenOption.READ );
+              FileChannel outChannel = openForWrite( out ) ) {
+            return decode( inChannel, outChannel );
+        }
+    }
+
+    /**
+     * Decode the Base64 file <tt>in</tt> and write the decoded bytes to <tt>out</tt>. The
+     * streaming counterpart of {@link Base64#decodeFromFile(String)}.
+     *
+     * @see #decode(ReadableByteChannel, WritableByteChannel)
+     */
+    public TransferStats decodeFile( Path in, WritableByteChannel out )
+            throws IOException {
+        try ( FileChannel inChannel = FileChannel.open( in, StandardOpenOption.READ ) ) {
+            return decode( inChannel, out );
+        }
+    }
+
+    private TransferStats transfer( ReadableByteChannel in, WritableByteChannel out, boolean encode )
+            throws IOException {
+        long start = System.nanoTime();
+        ByteBuffer[] buffers = STREAM_BUFFERS.get();
+        ByteBuffer src = buffers[0];
+        ByteBuffer dest = buffers[1];
+        src.clear();
+        dest.clear();
+
+        long read = 0;
+        long written = 0;
+        while ( true ) {
+            int before = src.position();
+            boolean eof = fill( in, src );
+            read += src.position() - before;
+
+            src.flip();
+            if ( encode ) {
+                encode( src, dest, eof );
+            } else {
+                decode( src, dest, eof );
+            }
+            src.compact();
+
+            dest.flip();
+            written += dest.remaining();
+            while ( dest.hasRemaining() ) {
+                out.write( dest );
+            }
+            dest.clear();
+
+            if ( eof && src.position() == 0 ) {
+                break;
+            }
+        }
+        return new TransferStats( read, written, System.nanoTime() - start );
+    }
+
+    /**
+     * Read from <tt>in</tt> until <tt>buf</tt> is full or the end of the channel is reached.
+     *
+     * @return <tt>true</tt> if the end of the channel was reached.
+     */
+    private static boolean fill( ReadableByteChannel in, ByteBuffer buf )
+            throws IOException {
+        while ( buf.hasRemaining() ) {
+            int n = in.read( buf );
+            if ( n < 0 ) {
+                return true;
+            }
+            if ( n == 0 ) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static FileChannel openForWrite( Path path )
+            throws IOException {
+        return FileChannel.open( path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                                 StandardOpenOption.TRUNCATE_EXISTING );
+    }
+
+    /* ********  E N C O D I N G  ******** */
+
+    /**
+     * Encode <tt>src[sp, sl)</tt> completely, with padding and line breaks, into <tt>dest</tt>
+     * at <tt>dp</tt>. The destination must be large enough.
+     *
+     * @return The position in <tt>dest</tt> after the last byte written.
+     */
+    private int encodeArray( byte[] src, int sp, int sl, byte[] dest, int dp ) {
+        if ( breakLines ) {
+            while ( sl - sp >= BYTES_PER_LINE ) {
+                // 57 bytes: four 12 byte steps followed by three single groups.
+                for ( int i = 0; i < 4; i++ ) {
+                    encode12( src, sp, dest, dp );
+                    sp += 12;
+                    dp += 16;
+                }
+                for ( int i = 0; i < 3; i++ ) {
+                    encodeGroup( src, sp, dest, dp );
+                    sp += 3;
+                    dp += 4;
+                }
+                dest[dp++] = NEW_LINE;
+            }
+        } else {
+            // The last 64-bit read of a step starts 6 bytes before its end, so 2 extra bytes
+            // must be readable.
+            while ( sl - sp >= 26 ) {
+                encode12( src, sp, dest, dp );
+                encode12( src, sp + 12, dest, dp + 16 );
+                sp += 24;
+                dp += 32;
+            }
+            while ( sl - sp >= 14 ) {
+                encode12( src, sp, dest, dp );
+                sp += 12;
+                dp += 16;
+            }
+        }
+        while ( sl - sp >= 3 ) {
+            encodeGroup( src, sp, dest, dp );
+            sp += 3;
+            dp += 4;
+        }
+        if ( sp < sl ) {
+            int b0 = src[sp] & 0xff;
+            int b1 = sl - sp > 1 ? src[sp + 1] & 0xff : 0;
+            dest[dp] = alphabet[b0 >>> 2];
+            dest[dp + 1] = alphabet[( ( b0 << 4 ) | ( b1 >>> 4 ) ) & 0x3f];
+            dest[dp + 2] = sl - sp > 1 ? alphabet[( b1 << 2 ) & 0x3f] : EQUALS_SIGN;
+            dest[dp + 3] = EQUALS_SIGN;
+            dp += 4;
+        }
+        return dp;
+    }
+
+    private void encode12( byte[] src, int sp, byte[] dest, int dp ) {
+        long bits0 = (long) LONG_ARRAY.get( src, sp ) >>> 16;
+        long bits1 = (long) LONG_ARRAY.get( src, sp + 6 ) >>> 16;
+        LONG_ARRAY.set( dest, dp, encode48( bits0 ) );
+        LONG_ARRAY.set( dest, dp + 8, encode48( bits1 ) );
+    }
+
+    private void encodeGroup( byte[] src, int sp, byte[] dest, int dp ) {
+        int bits = ( ( src[sp] & 0xff ) << 16 ) | ( ( src[sp + 1] & 0xff ) << 8 ) | ( src[sp + 2] & 0xff );
+        INT_ARRAY.set( dest, dp, ( encodeTable[bits >>> 12] << 16 ) | encodeTable[bits & 0xfff] );
+    }
+
+    private void encodeBuffer( ByteBuffer src, int sp, int sl, ByteBuffer dest, int dp ) {
+        if ( breakLines ) {
+            while ( sl - sp >= BYTES_PER_LINE ) {
+                for ( int i = 0; i < 4; i++ ) {
+                    encode12( src, sp, dest, dp );
+                    sp += 12;
+                    dp += 16;
+                }
+                for ( int i = 0; i < 3; i++ ) {
+                    encodeGroup( src, sp, dest, dp );
+                    sp += 3;
+                    dp += 4;
+                }
+                dest.put( dp++, NEW_LINE );
+            }
+        } else {
+            while ( sl - sp >= 14 ) {
+                encode12( src, sp, dest, dp );
+                sp += 12;
+                dp += 16;
+            }
+        }
+        while ( sl - sp >= 3 ) {
+            encodeGroup( src, sp, dest, dp );
+            sp += 3;
+            dp += 4;
+        }
+        if ( sp < sl ) {
+            int b0 = src.get( sp ) & 0xff;
+            int b1 = sl - sp > 1 ? src.get( sp + 1 ) & 0xff : 0;
+            dest.put( dp, alphabet[b0 >>> 2] );
+            dest.put( dp + 1, alphabet[( ( b0 << 4 ) | ( b1 >>> 4 ) ) & 0x3f] );
+            dest.put( dp + 2, sl - sp > 1 ? alphabet[( b1 << 2 ) & 0x3f] : EQUALS_SIGN );
+            dest.put( dp + 3, EQUALS_SIGN );
+        }
+    }
+
+    private void encode12( ByteBuffer src, int sp, ByteBuffer dest, int dp ) {
+        long bits0 = (long) LONG_BUFFER.get( src, sp ) >>> 16;
+        long bits1 = (long) LONG_BUFFER.get( src, sp + 6 ) >>> 16;
+        LONG_BUFFER.set( dest, dp, encode48( bits0 ) );
+        LONG_BUFFER.set( dest, dp + 8, encode48( bits1 ) );
+    }
+
+    private void encodeGroup( ByteBuffer src, int sp, ByteBuffer dest, int dp ) {
+        int bits = ( ( src.get( sp ) & 0xff ) << 16 ) | ( ( src.get( sp + 1 ) & 0xff ) << 8 )
+                   | ( src.get( sp + 2 ) & 0xff );
+        INT_BUFFER.set( dest, dp, ( encodeTable[bits >>> 12] << 16 ) | encodeTable[bits & 0xfff] );
+    }
+
+    /**
+     * Encode the low 48 bits of <tt>bits</tt> into eight Base64 characters.
+     */
+    private long encode48( long bits ) {
+        return ( (long) encodeTable[(int) ( bits >>> 36 )] << 48 )
+               | ( (long) encodeTable[(int) ( bits >>> 24 ) & 0xfff] << 32 )
+               | ( (long) encodeTable[(int) ( bits >>> 12 ) & 0xfff] << 16 )
+               | encodeTable[(int) bits & 0xfff];
+    }
+
+    /* ********  D E C O D I N G  ******** */
+
+    /**
+     * Decode as much of <tt>src[srcOff, srcEnd)</tt> into <tt>dest[destOff, destEnd)</tt> as fits,
+     * without the argument checks of the public methods, for the bulk paths of
+     * {@link Base64.InputStream} and {@link Base64.OutputStream}. A trailing incomplete quartet
+     * is not consumed.
+     *
+     * @return The source position packed in the high 32 bits and the destination position packed
+     *         in the low 32 bits; see {@link #srcPosition(long)} and {@link #destPosition(long)}.
+     * @throws IllegalArgumentException
+     *         If the input contains a character that is not part of the alphabet or misplaced
+     *         padding.
+     */
+    long decodeRange( byte[] src, int srcOff, int srcEnd, byte[] dest, int destOff, int destEnd,
+                      boolean stopAtPadding ) {
+        return decodeArray( src, srcOff, srcEnd, dest, destOff, destEnd, false, stopAtPadding );
+    }
+
+    /**
+     * Decode <tt>src[sp, sl)</tt> into <tt>dest[dp, dl)</tt>. If <tt>stopAtPadding</tt> is set,
+     * decoding ends after the first padded quartet and the rest of the input is skipped.
+     *
+     * @return The source position packed in the high 32 bits and the destination position packed
+     *         in the low 32 bits.
+     */
+    private long decodeArray( byte[] src, int sp, int sl, byte[] dest, int dp, int dl, boolean endOfInput,
+                              boolean stopAtPadding ) {
+        while ( true ) {
+            // Whole 76 character lines, as produced by the encoder.
+            while ( sl - sp > MAX_LINE_LENGTH && dl - dp >= BYTES_PER_LINE && src[sp + MAX_LINE_LENGTH] == NEW_LINE
+                    && decodeLine( src, sp, dest, dp ) ) {
+                sp += ENCODED_BYTES_PER_LINE;
+                dp += BYTES_PER_LINE;
+            }
+            // Fast path: eight characters to six bytes while there is no white space or padding.
+            while ( sl - sp >= 8 && dl - dp >= 6 ) {
+                long bits = decode64( (long) LONG_ARRAY.get( src, sp ) );
+                if ( bits < 0 ) {
+                    break;
+                }
+                INT_ARRAY.set( dest, dp, (int) ( bits >>> 16 ) );
+                SHORT_ARRAY.set( dest, dp + 4, (short) bits );
+                sp += 8;
+                dp += 6;
+            }
+            if ( sp >= sl ) {
+                break;
+            }
+
+            // A single clean quartet, typically the last one before a line break.
+            if ( sl - sp >= 4 && dl - dp >= 3 ) {
+                int bits = decode0[src[sp] & 0xff] | decode1[src[sp + 1] & 0xff] | decode2[src[sp + 2] & 0xff]
+                           | decode3[src[sp + 3] & 0xff];
+                if ( bits >= 0 ) {
+                    dest[dp] = (byte) ( bits >>> 16 );
+                    dest[dp + 1] = (byte) ( bits >>> 8 );
+                    dest[dp + 2] = (byte) bits;
+                    sp += 4;
+                    dp += 3;
+                    continue;
+                }
+            }
+            if ( isWhiteSpace( src[sp] ) ) {
+                sp++;
+                continue;
+            }
+
+            // Slow path: one quartet, skipping white space and handling padding.
+            int start = sp;
+            int quad = 0;
+            int n = 0;
+            while ( n < 4 && sp < sl ) {
+                int c = src[sp] & 0xff;
+                int v = c < decodabet.length ? decodabet[c] : BAD_ENCODING;
+                if ( v >= EQUALS_SIGN_ENC ) {
+                    quad = ( quad << 8 ) | c;
+                    n++;
+                } else if ( v != WHITE_SPACE_ENC ) {
+                    throw new IllegalArgumentException( "Bad Base64 input character at " + sp + ": " + src[sp]
+                                                        + "(decimal)" );
+                }
+                sp++;
+            }
+            if ( n < 4 ) {
+                if ( !endOfInput ) {
+                    sp = start;
+                }
+                break;
+            }
+            int len = quartetLength( quad, sp - 1 );
+            if ( dl - dp < len ) {
+                sp = start;
+                break;
+            }
+            int bits = decodeQuartet( quad, len );
+            dest[dp] = (byte) ( bits >>> 16 );
+            if ( len > 1 ) {
+                dest[dp + 1] = (byte) ( bits >>> 8 );
+            }
+            if ( len > 2 ) {
+                dest[dp + 2] = (byte) bits;
+            }
+            dp += len;
+            if ( len < 3 && stopAtPadding ) {
+                sp = sl;
+                break;
+            }
+        }
+        return ( (long) sp << 32 ) | dp;
+    }
+
+    private long decodeBuffer( ByteBuffer src, int sp, int sl, ByteBuffer dest, int dp, int dl, boolean endOfInput,
+                               boolean stopAtPadding ) {
+        while ( true ) {
+            while ( sl - sp > MAX_LINE_LENGTH && dl - dp >= BYTES_PER_LINE
+                    && src.get( sp + MAX_LINE_LENGTH ) == NEW_LINE && decodeLine( src, sp, dest, dp ) ) {
+                sp += ENCODED_BYTES_PER_LINE;
+                dp += BYTES_PER_LINE;
+            }
+            while ( sl - sp >= 8 && dl - dp >= 6 ) {
+                long bits = decode64( (long) LONG_BUFFER.get( src, sp ) );
+                if ( bits < 0 ) {
+                    break;
+                }
+                INT_BUFFER.set( dest, dp, (int) ( bits >>> 16 ) );
+                SHORT_BUFFER.set( dest, dp + 4, (short) bits );
+                sp += 8;
+                dp += 6;
+            }
+            if ( sp >= sl ) {
+                break;
+            }
+
+            if ( sl - sp >= 4 && dl - dp >= 3 ) {
+                int bits = decode0[src.get( sp ) & 0xff] | decode1[src.get( sp + 1 ) & 0xff]
+                           | decode2[src.get( sp + 2 ) & 0xff] | decode3[src.get( sp + 3 ) & 0xff];
+                if ( bits >= 0 ) {
+                    dest.put( dp, (byte) ( bits >>> 16 ) );
+                    dest.put( dp + 1, (byte) ( bits >>> 8 ) );
+                    dest.put( dp + 2, (byte) bits );
+                    sp += 4;
+                    dp += 3;
+                    continue;
+                }
+            }
+            if ( isWhiteSpace( src.get( sp ) ) ) {
+                sp++;
+                continue;
+            }
+
+            int start = sp;
+            int quad = 0;
+            int n = 0;
+            while ( n < 4 && sp < sl ) {
+                int c = src.get( sp ) & 0xff;
+                int v = c < decodabet.length ? decodabet[c] : BAD_ENCODING;
+                if ( v >= EQUALS_SIGN_ENC ) {
+                    quad = ( quad << 8 ) | c;
+                    n++;
+                } else if ( v != WHITE_SPACE_ENC ) {
+                    throw new IllegalArgumentException( "Bad Base64 input character at " + sp + ": " + src.get( sp )
+                                                        + "(decimal)" );
+                }
+                sp++;
+            }
+            if ( n < 4 ) {
+                if ( !endOfInput ) {
+                    sp = start;
+                }
+                break;
+            }
+            int len = quartetLength( quad, sp - 1 );
+            if ( dl - dp < len ) {
+                sp = start;
+                break;
+            }
+            int bits = decodeQuartet( quad, len );
+            dest.put( dp, (byte) ( bits >>> 16 ) );
+            if ( len > 1 ) {
+                dest.put( dp + 1, (byte) ( bits >>> 8 ) );
+            }
+            if ( len > 2 ) {
+                dest.put( dp + 2, (byte) bits );
+            }
+            dp += len;
+            if ( len < 3 && stopAtPadding ) {
+                sp = sl;
+                break;
+            }
+        }
+        return ( (long) sp << 32 ) | dp;
+    }
+
+    /**
+     * Decode the 76 characters of a full line at <tt>sp</tt> into 57 bytes at <tt>dp</tt>. Nothing
+     * is written unless the whole line is valid.
+     *
+     * @return <tt>true</tt> if the line was decoded, <tt>false</tt> if it contains white space,
+     *         padding or invalid characters.
+     */
+    private boolean decodeLine( byte[] src, int sp, byte[] dest, int dp ) {
+        long b0 = decode64( (long) LONG_ARRAY.get( src, sp ) );
+        long b1 = decode64( (long) LONG_ARRAY.get( src, sp + 8 ) );
+        long b2 = decode64( (long) LONG_ARRAY.get( src, sp + 16 ) );
+        long b3 = decode64( (long) LONG_ARRAY.get( src, sp + 24 ) );
+        long b4 = decode64( (long) LONG_ARRAY.get( src, sp + 32 ) );
+        long b5 = decode64( (long) LONG_ARRAY.get( src, sp + 40 ) );
+        long b6 = decode64( (long) LONG_ARRAY.get( src, sp + 48 ) );
+        long b7 = decode64( (long) LONG_ARRAY.get( src, sp + 56 ) );
+        long b8 = decode64( (long) LONG_ARRAY.get( src, sp + 64 ) );
+        int q = decode0[src[sp + 72] & 0xff] | decode1[src[sp + 73] & 0xff] | decode2[src[sp + 74] & 0xff]
+                | decode3[src[sp + 75] & 0xff];
+        if ( ( b0 | b1 | b2 | b3 | b4 | b5 | b6 | b7 | b8 | q ) < 0 ) {
+            return false;
+        }
+        // Each 64-bit store writes two bytes too many, which the following store overwrites.
+        LONG_ARRAY.set( dest, dp, b0 << 16 );
+        LONG_ARRAY.set( dest, dp + 6, b1 << 16 );
+        LONG_ARRAY.set( dest, dp + 12, b2 << 16 );
+        LONG_ARRAY.set( dest, dp + 18, b3 << 16 );
+        LONG_ARRAY.set( dest, dp + 24, b4 << 16 );
+        LONG_ARRAY.set( dest, dp + 30, b5 << 16 );
+        LONG_ARRAY.set( dest, dp + 36, b6 << 16 );
+        LONG_ARRAY.set( dest, dp + 42, b7 << 16 );
+        LONG_ARRAY.set( dest, dp + 48, b8 << 16 );
+        dest[dp + 54] = (byte) ( q >>> 16 );
+        dest[dp + 55] = (byte) ( q >>> 8 );
+        dest[dp + 56] = (byte) q;
+        return true;
+    }
+
+    private boolean decodeLine( ByteBuffer src, int sp, ByteBuffer dest, int dp ) {
+        long b0 = decode64( (long) LONG_BUFFER.get( src, sp ) );
+        long b1 = decode64( (long) LONG_BUFFER.get( src, sp + 8 ) );
+        long b2 = decode64( (long) LONG_BUFFER.get( src, sp + 16 ) );
+        long b3 = decode64( (long) LONG_BUFFER.get( src, sp + 24 ) );
+        long b4 = decode64( (long) LONG_BUFFER.get( src, sp + 32 ) );
+        long b5 = decode64( (long) LONG_BUFFER.get( src, sp + 40 ) );
+        long b6 = decode64( (long) LONG_BUFFER.get( src, sp + 48 ) );
+        long b7 = decode64( (long) LONG_BUFFER.get( src, sp + 56 ) );
+        long b8 = decode64( (long) LONG_BUFFER.get( src, sp + 64 ) );
+        int q = decode0[src.get( sp + 72 ) & 0xff] | decode1[src.get( sp + 73 ) & 0xff]
+                | decode2[src.get( sp + 74 ) & 0xff] | decode3[src.get( sp + 75 ) & 0xff];
+        if ( ( b0 | b1 | b2 | b3 | b4 | b5 | b6 | b7 | b8 | q ) < 0 ) {
+            return false;
+        }
+        LONG_BUFFER.set( dest, dp, b0 << 16 );
+        LONG_BUFFER.set( dest, dp + 6, b1 << 16 );
+        LONG_BUFFER.set( dest, dp + 12, b2 << 16 );
+        LONG_BUFFER.set( dest, dp + 18, b3 << 16 );
+        LONG_BUFFER.set( dest, dp + 24, b4 << 16 );
+        LONG_BUFFER.set( dest, dp + 30, b5 << 16 );
+        LONG_BUFFER.set( dest, dp + 36, b6 << 16 );
+        LONG_BUFFER.set( dest, dp + 42, b7 << 16 );
+        LONG_BUFFER.set( dest, dp + 48, b8 << 16 );
+        dest.put( dp + 54, (byte) ( q >>> 16 ) );
+        dest.put( dp + 55, (byte) ( q >>> 8 ) );
+        dest.put( dp + 56, (byte) q );
+        return true;
+    }
+
+    /**
+     * Decode the eight characters packed in <tt>w</tt> into 48 bits.
+     *
+     * @return The decoded bits, or a negative value if any of the characters is white space,
+     *         padding or not part of the alphabet.
+     */
+    private long decode64( long w ) {
+        int p0 = decodePairs[(int) ( w >>> 48 )];
+        int p1 = decodePairs[(int) ( w >>> 32 ) & 0xffff];
+        int p2 = decodePairs[(int) ( w >>> 16 ) & 0xffff];
+        int p3 = decodePairs[(int) w & 0xffff];
+        if ( ( p0 | p1 | p2 | p3 ) < 0 ) {
+            return -1;
+        }
+        return ( (long) p0 << 36 ) | ( (long) p1 << 24 ) | ( p2 << 12 ) | p3;
+    }
+
+    private boolean isWhiteSpace( byte c ) {
+        return c >= 0 && c < decodabet.length && decodabet[c] == WHITE_SPACE_ENC;
+    }
+
+    /**
+     * Get the number of bytes (1 to 3) the given quartet of characters decodes to.
+     */
+    private static int quartetLength( int quad, int pos ) {
+        if ( ( quad >>> 24 ) == EQUALS_SIGN || ( ( quad >>> 16 ) & 0xff ) == EQUALS_SIGN ) {
+            throw new IllegalArgumentException( "Misplaced Base64 padding in quartet ending at " + pos );
+        }
+        if ( ( ( quad >>> 8 ) & 0xff ) == EQUALS_SIGN ) {
+            return 1;
+        }
+        if ( ( quad & 0xff ) == EQUALS_SIGN ) {
+            return 2;
+        }
+        return 3;
+    }
+
+    /**
+     * Decode the quartet of characters packed in <tt>quad</tt> into 24 bits.
+     */
+    private int decodeQuartet( int quad, int len ) {
+        int bits = decode0[quad >>> 24] | decode1[( quad >>> 16 ) & 0xff];
+        if ( len > 1 ) {
+            bits |= decode2[( quad >>> 8 ) & 0xff];
+        }
+        if ( len > 2 ) {
+            bits |= decode3[quad & 0xff];
+        }
+        return bits;
+    }
+
+    static int srcPosition( long state ) {
+        return (int) ( state >>> 32 );
+    }
+
+    static int destPosition( long state ) {
+        return (int) state;
+    }
+
+    private static void checkRange( int arrayLength, int off, int len ) {
+        if ( off < 0 || len < 0 || off > arrayLength - len ) {
+            throw new IndexOutOfBoundsException( "Range [" + off + ", " + off + " + " + len + ") out of bounds for length "
+                                                 + arrayLength );
+        }
+    }
+}
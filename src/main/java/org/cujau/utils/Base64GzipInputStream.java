@@ -0,0 +1,270 @@
+package org.cujau.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * An input stream that reads gzip-compressed data in Base64 notation from another stream and
+ * returns the uncompressed bytes. The counterpart of {@link Base64GzipOutputStream}: the Base64
+ * characters are decoded by {@link Base64Codec} into a buffer the inflater reads from, and the
+ * inflater writes straight into the array passed to {@link #read(byte[], int, int)}. The inflater
+ * is taken from the {@link ZipPool} and given back at the end of the data or when the stream is
+ * closed.
+ * <p>
+ * Only the first gzip member is read; anything following its trailer is ignored.
+ * </p>
+ */
+public class Base64GzipInputStream extends InputStream {
+
+    private static final int CHAR_BUFFER_SIZE = 1 << 16;
+    private static final int COMPRESSED_BUFFER_SIZE = CHAR_BUFFER_SIZE / 4 * 3;
+
+    /* Gzip header flags. */
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final InputStream in;
+    private final Base64Codec codec;
+    private final ByteBuffer chars;
+    private boolean charsEnd;
+    private final byte[] compressed;
+    private final ByteBuffer compressedBuffer;
+    private int compressedPos;
+    private int compressedLimit;
+
+    private final CRC32 crc = new CRC32();
+    private Inflater inflater;
+    private boolean headerRead;
+    private boolean eof;
+    private byte[] single;
+
+    /**
+     * Construct a stream reading Base64 characters from <tt>in</tt>.
+     *
+     * @param in
+     *         The stream providing the Base64 characters of gzip data.
+     * @param options
+     *         The {@link Base64} options of the encoding, such as {@link Base64#URL_SAFE}.
+     */
+    public Base64GzipInputStream( InputStream in, int options ) {
+        this.in = in;
+        this.codec = Base64Codec.getInstance( options );
+        this.chars = ByteBuffer.allocate( CHAR_BUFFER_SIZE );
+        this.chars.flip();
+        this.compressed = new byte[COMPRESSED_BUFFER_SIZE];
+        this.compressedBuffer = ByteBuffer.wrap( compressed );
+    }
+
+    /**
+     * Construct a stream decoding the given range of Base64 characters, without copying them.
+     */
+    Base64GzipInputStream( byte[] src, int off, int len, int options ) {
+        this.in = null;
+        this.codec = Base64Codec.getInstance( options );
+        this.chars = ByteBuffer.wrap( src, off, len );
+        this.charsEnd = true;
+        this.compressed = new byte[Math.max( 64, Math.min( COMPRESSED_BUFFER_SIZE, codec.maxDecodedLength( len ) ) )];
+        this.compressedBuffer = ByteBuffer.wrap( compressed );
+    }
+
+    /**
+     * Read all of the remaining uncompressed data.
+     *
+     * @param sizeHint
+     *         The expected size of the data.
+     * @return The uncompressed data.
+     */
+    byte[] readAll( int sizeHint )
+            throws IOException {
+        byte[] buf = new byte[Math.max( 64, sizeHint )];
+        int len = 0;
+        while ( true ) {
+            if ( len == buf.length ) {
+                buf = Arrays.copyOf( buf, buf.length * 2 );
+            }
+            int n = read( buf, len, buf.length - len );
+            if ( n < 0 ) {
+                return len == buf.length ? buf : Arrays.copyOf( buf, len );
+            }
+            len += n;
+        }
+    }
+
+    @Override
+    public int read()
+            throws IOException {
+        if ( single == null ) {
+            single = new byte[1];
+        }
+        int n = read( single, 0, 1 );
+        return n < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read( byte[] b, int off, int len )
+            throws IOException {
+        if ( off < 0 || len < 0 || off > b.length - len ) {
+            throw new IndexOutOfBoundsException();
+        }
+        if ( eof ) {
+            return -1;
+        }
+        if ( len == 0 ) {
+            return 0;
+        }
+        try {
+            if ( !headerRead ) {
+                readHeader();
+                inflater = ZipPool.inflater();
+                headerRead = true;
+            }
+            while ( true ) {
+                int n = inflater.inflate( b, off, len );
+                if ( n > 0 ) {
+                    crc.update( b, off, n );
+                    return n;
+                }
+                if ( inflater.finished() ) {
+                    compressedPos = compressedLimit - inflater.getRemaining();
+                    readTrailer();
+                    return -1;
+                }
+                if ( inflater.needsDictionary() ) {
+                    throw new ZipException( "Deflate data needs a preset dictionary" );
+                }
+                if ( inflater.needsInput() ) {
+                    if ( compressedPos == compressedLimit && !fill() ) {
+                        throw new EOFException( "Unexpected end of gzip data" );
+                    }
+                    inflater.setInput( compressed, compressedPos, compressedLimit - compressedPos );
+                    compressedPos = compressedLimit;
+                }
+            }
+        } catch ( DataFormatException e ) {
+            throw new ZipException( e.getMessage() );
+        } catch ( IllegalArgumentException e ) {
+            // A bad Base64 character.
+            throw new IOException( e.getMessage(), e );
+        }
+    }
+
+    @Override
+    public void close()
+            throws IOException {
+        eof = true;
+        releaseInflater();
+        if ( in != null ) {
+            in.close();
+        }
+    }
+
+    private void readHeader()
+            throws IOException {
+        if ( readUByte() != 0x1f || readUByte() != 0x8b ) {
+            throw new ZipException( "Not in gzip format" );
+        }
+        if ( readUByte() != 8 ) {
+            throw new ZipException( "Unsupported gzip compression method" );
+        }
+        int flags = readUByte();
+        // Modification time, extra flags and operating system.
+        skipBytes( 6 );
+        if ( ( flags & FEXTRA ) != 0 ) {
+            skipBytes( readUByte() | ( readUByte() << 8 ) );
+        }
+        if ( ( flags & FNAME ) != 0 ) {
+            while ( readUByte() != 0 ) {
+                // skip the file name
+            }
+        }
+        if ( ( flags & FCOMMENT ) != 0 ) {
+            while ( readUByte() != 0 ) {
+                // skip the comment
+            }
+        }
+        if ( ( flags & FHCRC ) != 0 ) {
+            skipBytes( 2 );
+        }
+    }
+
+    private void readTrailer()
+            throws IOException {
+        long expectedCrc = readIntLE();
+        long expectedSize = readIntLE();
+        long size = inflater.getBytesWritten() & 0xffffffffL;
+        eof = true;
+        releaseInflater();
+        if ( expectedCrc != crc.getValue() ) {
+            throw new ZipException( "Corrupt gzip trailer: CRC mismatch" );
+        }
+        if ( expectedSize != size ) {
+            throw new ZipException( "Corrupt gzip trailer: size mismatch" );
+        }
+    }
+
+    private long readIntLE()
+            throws IOException {
+        return readUByte() | ( readUByte() << 8 ) | ( readUByte() << 16 ) | ( (long) readUByte() << 24 );
+    }
+
+    private void skipBytes( int n )
+            throws IOException {
+        for ( int i = 0; i < n; i++ ) {
+            readUByte();
+        }
+    }
+
+    private int readUByte()
+            throws IOException {
+        if ( compressedPos == compressedLimit && !fill() ) {
+            throw new EOFException( "Unexpected end of gzip data" );
+        }
+        return compressed[compressedPos++] & 0xff;
+    }
+
+    /**
+     * Decode more Base64 characters into the (consumed) compressed buffer.
+     *
+     * @return <tt>false</tt> if there is no more data.
+     */
+    private boolean fill()
+            throws IOException {
+        compressedBuffer.clear();
+        while ( compressedBuffer.position() == 0 ) {
+            codec.decode( chars, compressedBuffer, charsEnd );
+            if ( compressedBuffer.position() > 0 ) {
+                break;
+            }
+            if ( charsEnd ) {
+                return false;
+            }
+            chars.compact();
+            int n = in.read( chars.array(), chars.position(), chars.remaining() );
+            if ( n < 0 ) {
+                charsEnd = true;
+            } else {
+                chars.position( chars.position() + n );
+            }
+            chars.flip();
+        }
+        compressedPos = 0;
+        compressedLimit = compressedBuffer.position();
+        return true;
+    }
+
+    private void releaseInflater() {
+        if ( inflater != null ) {
+            ZipPool.release( inflater );
+            inflater = null;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package org.cujau.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * An output stream that gzip-compresses everything written to it and writes the compressed data
+ * in Base64 notation to another stream. The result is the same as a {@link java.util.zip.GZIPOutputStream}
+ * wrapped around a {@link Base64.OutputStream}, but without their intermediate copies: the
+ * deflater writes into a buffer holding whole Base64 lines, which {@link Base64Codec} encodes
+ * straight into the output buffer. The deflater is taken from the {@link ZipPool} and given back
+ * when the stream is finished.
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * try ( Base64GzipOutputStream out = new Base64GzipOutputStream( fileOut, Base64.NO_OPTIONS, Deflater.BEST_SPEED ) ) {
+ *     out.write( data );
+ * }
+ * </pre>
+ */
+public class Base64GzipOutputStream extends OutputStream {
+
+    /**
+     * The gzip header as written by {@link java.util.zip.GZIPOutputStream}: no flags, no
+     * modification time and an unknown operating system.
+     */
+    static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+    /** The size of the gzip trailer: the CRC-32 and the uncompressed size, both little endian. */
+    static final int GZIP_TRAILER_SIZE = 8;
+
+    /** The size of the compressed data buffer: a whole number of 57 byte lines. */
+    private static final int COMPRESSED_BUFFER_SIZE = Base64Codec.BYTES_PER_LINE * 128;
+    /** Encoded data is passed on to the underlying stream in blocks of at least this size. */
+    private static final int FLUSH_SIZE = 1 << 16;
+
+    private final OutputStream out;
+    private final Base64Codec codec;
+    private final int unit;
+    private final CRC32 crc = new CRC32();
+    private Deflater deflater;
+
+    private final byte[] compressed;
+    private int compressedLength;
+    private byte[] encoded;
+    private int encodedLength;
+
+    private boolean finished;
+    private byte[] single;
+
+    /**
+     * Construct a stream that compresses with the given level and writes the Base64 characters to
+     * <tt>out</tt>.
+     *
+     * @param out
+     *         The stream receiving the Base64 characters.
+     * @param options
+     *         The {@link Base64} options for the encoding, such as {@link Base64#DONT_BREAK_LINES}.
+     * @param level
+     *         The compression level, 0-9 or {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public Base64GzipOutputStream( OutputStream out, int options, int level ) {
+        this( out, options, level, COMPRESSED_BUFFER_SIZE, FLUSH_SIZE + Base64Codec.ENCODED_BYTES_PER_LINE * 128 );
+    }
+
+    /**
+     * Construct a stream that keeps all of the Base64 characters in memory, to be fetched with
+     * {@link #toAsciiString()}.
+     *
+     * @param sizeHint
+     *         The expected number of bytes that will be written.
+     */
+    Base64GzipOutputStream( int options, int level, int sizeHint ) {
+        this( null, options, level,
+              Math.min( COMPRESSED_BUFFER_SIZE, ( sizeHint / 4 / Base64Codec.BYTES_PER_LINE + 2 ) * Base64Codec.BYTES_PER_LINE ),
+              Base64Codec.getInstance( options ).encodedLength( sizeHint / 2 + 64 ) );
+    }
+
+    /**
+     * @param compressedSize
+     *         The size of the compressed data buffer, a multiple of 57 of at least 114, so that a
+     *         remainder of less than a line and the trailer always fit.
+     */
+    private Base64GzipOutputStream( OutputStream out, int options, int level, int compressedSize, int encodedSize ) {
+        this.out = out;
+        this.codec = Base64Codec.getInstance( options );
+        this.unit = codec.isBreakLines() ? Base64Codec.BYTES_PER_LINE : 3;
+        this.deflater = ZipPool.deflater( level );
+        this.compressed = new byte[compressedSize];
+        this.encoded = new byte[encodedSize];
+        System.arraycopy( GZIP_HEADER, 0, compressed, 0, GZIP_HEADER.length );
+        compressedLength = GZIP_HEADER.length;
+    }
+
+    @Override
+    public void write( int b )
+            throws IOException {
+        if ( single == null ) {
+            single = new byte[1];
+        }
+        single[0] = (byte) b;
+        write( single, 0, 1 );
+    }
+
+    @Override
+    public void write( byte[] b, int off, int len )
+            throws IOException {
+        if ( finished ) {
+            throw new IOException( "Stream already finished" );
+        }
+        if ( off < 0 || len < 0 || off > b.length - len ) {
+            throw new IndexOutOfBoundsException();
+        }
+        if ( len == 0 ) {
+            return;
+        }
+        crc.update( b, off, len );
+        deflater.setInput( b, off, len );
+        while ( !deflater.needsInput() ) {
+            deflate();
+        }
+    }
+
+    /**
+     * Complete the compressed data and write all of the remaining Base64 characters, without
+     * closing the underlying stream. Nothing may be written afterwards.
+     *
+     * @throws IOException
+     *         If writing to the underlying stream fails.
+     */
+    public void finish()
+            throws IOException {
+        if ( finished ) {
+            return;
+        }
+        finished = true;
+        try {
+            deflater.finish();
+            while ( !deflater.finished() ) {
+                deflate();
+            }
+            if ( compressed.length - compressedLength < GZIP_TRAILER_SIZE ) {
+                encodeCompressed( false );
+            }
+            writeIntLE( (int) crc.getValue() );
+            writeIntLE( (int) deflater.getBytesRead() );
+            encodeCompressed( true );
+        } finally {
+            ZipPool.release( deflater );
+            deflater = null;
+        }
+        if ( out != null ) {
+            flushEncoded();
+            out.flush();
+        }
+    }
+
+    @Override
+    public void flush()
+            throws IOException {
+        if ( out != null ) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close()
+            throws IOException {
+        try {
+            finish();
+        } finally {
+            if ( out != null ) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * @return All of the Base64 characters of a finished, in-memory stream.
+     */
+    String toAsciiString() {
+        return new String( encoded, 0, encodedLength, StandardCharsets.ISO_8859_1 );
+    }
+
+    private void deflate()
+            throws IOException {
+        compressedLength += deflater.deflate( compressed, compressedLength, compressed.length - compressedLength );
+        if ( compressedLength == compressed.length ) {
+            encodeCompressed( false );
+        }
+    }
+
+    private void writeIntLE( int value ) {
+        compressed[compressedLength++] = (byte) value;
+        compressed[compressedLength++] = (byte) ( value >>> 8 );
+        compressed[compressedLength++] = (byte) ( value >>> 16 );
+        compressed[compressedLength++] = (byte) ( value >>> 24 );
+    }
+
+    /**
+     * Encode the whole Base64 lines (or all, at the end) of the compressed buffer into the
+     * encoded buffer, keeping any remainder for the next call.
+     */
+    private void encodeCompressed( boolean end )
+            throws IOException {
+        int len = end ? compressedLength : compressedLength - compressedLength % unit;
+        int needed = codec.encodedLength( len );
+        if ( encoded.length - encodedLength < needed ) {
+            if ( out != null ) {
+                flushEncoded();
+            }
+            if ( encoded.length - encodedLength < needed ) {
+                encoded = Arrays.copyOf( encoded, Math.max( encodedLength + needed, encoded.length * 2 ) );
+            }
+        }
+        encodedLength += codec.encode( compressed, 0, len, encoded, encodedLength );
+        compressedLength -= len;
+        System.arraycopy( compressed, len, compressed, 0, compressedLength );
+        if ( out != null && encodedLength >= FLUSH_SIZE ) {
+            flushEncoded();
+        }
+    }
+
+    private void flushEncoded()
+            throws IOException {
+        out.write( encoded, 0, encodedLength );
+        encodedLength = 0;
+    }
+}
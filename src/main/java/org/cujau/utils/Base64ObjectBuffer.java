@@ -0,0 +1,181 @@
+package org.cujau.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The reusable per-thread buffers behind {@link Base64#encodeObject(Object, ObjectSerializer, int)}
+ * and {@link Base64#decodeToObject(String, ObjectSerializer, int)}.
+ * <p>
+ * For encoding, the buffer is the {@link OutputStream} the serializer writes to: every full block
+ * of serialized bytes is encoded by {@link Base64Codec} straight into the character buffer, so the
+ * serialized form never exists as a whole and the only copy left is the final <tt>String</tt>. For
+ * decoding, the characters of the string are copied into a byte buffer, decoded into a second one
+ * and handed to the serializer as an {@link InputStream} over that buffer.
+ * </p>
+ * <p>
+ * Buffers that grew larger than {@link #MAX_RETAINED_SIZE} are dropped when they are released, so
+ * an occasional huge object does not pin its memory to the thread.
+ * </p>
+ */
+final class Base64ObjectBuffer extends OutputStream {
+
+    /** Buffers larger than this are not kept for the next call. */
+    static final int MAX_RETAINED_SIZE = 1 << 20;
+
+    /** The size of the block of serialized bytes that is encoded at a time: a whole number of lines. */
+    private static final int BLOCK_SIZE = Base64Codec.BYTES_PER_LINE * 64;
+    private static final int INITIAL_SIZE = 1 << 12;
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final ThreadLocal<Base64ObjectBuffer> BUFFERS = ThreadLocal.withInitial( Base64ObjectBuffer::new );
+
+    private final byte[] block = new byte[BLOCK_SIZE];
+    private int blockLength;
+    private byte[] chars = new byte[INITIAL_SIZE];
+    private int charsLength;
+    private byte[] decoded = new byte[INITIAL_SIZE];
+    private final Input input = new Input();
+
+    private Base64Codec codec;
+    private boolean inUse;
+
+    private Base64ObjectBuffer() {
+    }
+
+    /**
+     * Take the buffer of the current thread, or a new one if that buffer is already in use by a
+     * serializer further up the stack.
+     */
+    static Base64ObjectBuffer acquire( int options ) {
+        Base64ObjectBuffer buffer = BUFFERS.get();
+        if ( buffer.inUse ) {
+            buffer = new Base64ObjectBuffer();
+        }
+        buffer.inUse = true;
+        buffer.codec = Base64Codec.getInstance( options );
+        buffer.blockLength = 0;
+        buffer.charsLength = 0;
+        return buffer;
+    }
+
+    /**
+     * Give the buffer back after {@link #acquire(int)}.
+     */
+    void release() {
+        input.reset( null, 0 );
+        if ( chars.length > MAX_RETAINED_SIZE ) {
+            chars = new byte[INITIAL_SIZE];
+        }
+        if ( decoded.length > MAX_RETAINED_SIZE ) {
+            decoded = new byte[INITIAL_SIZE];
+        }
+        inUse = false;
+    }
+
+    @Override
+    public void write( int b ) {
+        if ( blockLength == BLOCK_SIZE ) {
+            encodeBlock();
+        }
+        block[blockLength++] = (byte) b;
+    }
+
+    @Override
+    public void write( byte[] b, int off, int len ) {
+        if ( off < 0 || len < 0 || off > b.length - len ) {
+            throw new IndexOutOfBoundsException();
+        }
+        while ( len > 0 ) {
+            if ( blockLength == BLOCK_SIZE ) {
+                encodeBlock();
+            }
+            int n = Math.min( len, BLOCK_SIZE - blockLength );
+            System.arraycopy( b, off, block, blockLength, n );
+            blockLength += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Encode the rest of the serialized bytes.
+     *
+     * @return All of the Base64 characters written since {@link #acquire(int)}.
+     */
+    String toEncodedString() {
+        encodeBlock();
+        return new String( chars, 0, charsLength, StandardCharsets.ISO_8859_1 );
+    }
+
+    /**
+     * Copy the characters of <tt>s</tt> into the byte buffer. Characters outside of ASCII become
+     * <tt>'?'</tt>, as with a US-ASCII encoder, and are rejected by the decoder.
+     *
+     * @return The byte buffer holding the characters in its first <tt>s.length()</tt> bytes.
+     */
+    byte[] setChars( String s ) {
+        int len = s.length();
+        if ( chars.length < len ) {
+            chars = new byte[len];
+        }
+        byte[] dest = chars;
+        for ( int i = 0; i < len; i++ ) {
+            char c = s.charAt( i );
+            dest[i] = c < 0x80 ? (byte) c : (byte) '?';
+        }
+        charsLength = len;
+        return dest;
+    }
+
+    /**
+     * Decode the characters set with {@link #setChars(String)}.
+     *
+     * @return A stream over the decoded bytes, valid until the buffer is released.
+     * @throws IOException
+     *         If the characters are not valid Base64.
+     */
+    InputStream decode()
+            throws IOException {
+        int max = codec.maxDecodedLength( charsLength );
+        if ( decoded.length < max ) {
+            decoded = new byte[max];
+        }
+        int len;
+        try {
+            len = codec.decode( chars, 0, charsLength, decoded, 0 );
+        } catch ( IllegalArgumentException e ) {
+            throw new IOException( e.getMessage(), e );
+        }
+        input.reset( decoded, len );
+        return input;
+    }
+
+    private void encodeBlock() {
+        int needed = codec.encodedLength( blockLength );
+        if ( chars.length - charsLength < needed ) {
+            chars = Arrays.copyOf( chars, Math.max( charsLength + needed, chars.length * 2 ) );
+        }
+        charsLength += codec.encode( block, 0, blockLength, chars, charsLength );
+        blockLength = 0;
+    }
+
+    /** A {@link ByteArrayInputStream} that can be pointed at new data. */
+    private static final class Input extends ByteArrayInputStream {
+
+        Input() {
+            super( EMPTY );
+        }
+
+        void reset( byte[] data, int len ) {
+            buf = data == null ? EMPTY : data;
+            pos = 0;
+            mark = 0;
+            count = len;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.cujau.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * An {@link ObjectSerializer} using Java serialization through {@link ObjectOutputStream} and
+ * {@link ObjectInputStream}. The format is the one {@link Base64#encodeObject(java.io.Serializable)}
+ * has always produced.
+ */
+public final class JavaObjectSerializer implements ObjectSerializer<Object> {
+
+    /** The shared instance. */
+    public static final JavaObjectSerializer INSTANCE = new JavaObjectSerializer();
+
+    private JavaObjectSerializer() {
+    }
+
+    @Override
+    public void writeObject( Object object, OutputStream out )
+            throws IOException {
+        ObjectOutputStream oos = new ObjectOutputStream( out );
+        oos.writeObject( object );
+        oos.flush();
+    }
+
+    @Override
+    public Object readObject( InputStream in )
+            throws IOException {
+        try {
+            return new ObjectInputStream( in ).readObject();
+        } catch ( ClassNotFoundException e ) {
+            throw new IOException( "Class of serialized object not found: " + e.getMessage(), e );
+        }
+    }
+}
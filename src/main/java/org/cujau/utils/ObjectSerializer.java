@@ -0,0 +1,48 @@
+package org.cujau.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Converts objects to and from a stream of bytes, for {@link Base64#encodeObject(Object, ObjectSerializer, int)}
+ * and {@link Base64#decodeToObject(String, ObjectSerializer, int)}.
+ * <p>
+ * {@link JavaObjectSerializer} uses Java serialization. Implement this interface to plug in a more
+ * compact or faster binary format for a known set of classes.
+ * </p>
+ * <p>
+ * Implementations must be thread safe. The streams passed in are only valid for the duration of
+ * the call and must not be closed.
+ * </p>
+ *
+ * @param <T>
+ *         The type of the objects handled by the serializer.
+ */
+public interface ObjectSerializer<T> {
+
+    /**
+     * Write the given object to the stream.
+     *
+     * @param object
+     *         The object to serialize.
+     * @param out
+     *         The stream to write to.
+     * @throws IOException
+     *         If the object cannot be serialized.
+     */
+    void writeObject( T object, OutputStream out )
+            throws IOException;
+
+    /**
+     * Read an object that was written with {@link #writeObject(Object, OutputStream)}.
+     *
+     * @param in
+     *         The stream to read from.
+     * @return The deserialized object.
+     * @throws IOException
+     *         If the data cannot be deserialized.
+     */
+    T readObject( InputStream in )
+            throws IOException;
+}
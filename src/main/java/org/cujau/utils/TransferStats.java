@@ -0,0 +1,67 @@
+package org.cujau.utils;
+
+import java.util.Locale;
+
+/**
+ * The byte counts and elapsed time of a completed streaming transfer, such as the streaming
+ * {@link Base64Codec} file operations.
+ */
+public final class TransferStats {
+
+    private final long bytesRead;
+    private final long bytesWritten;
+    private final long elapsedNanos;
+
+    public TransferStats( long bytesRead, long bytesWritten, long elapsedNanos ) {
+        this.bytesRead = bytesRead;
+        this.bytesWritten = bytesWritten;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return The number of bytes read from the source.
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return The number of bytes written to the destination.
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * @return The wall clock time the transfer took, in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return The number of source bytes processed per second, or 0 if no time was measured.
+     */
+    public double getBytesReadPerSecond() {
+        if ( elapsedNanos <= 0 ) {
+            return 0;
+        }
+        return bytesRead * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return The number of destination bytes produced per second, or 0 if no time was measured.
+     */
+    public double getBytesWrittenPerSecond() {
+        if ( elapsedNanos <= 0 ) {
+            return 0;
+        }
+        return bytesWritten * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format( Locale.ROOT, "read=%d written=%d time=%.3fms (%.1f MB/s)", bytesRead, bytesWritten,
+                              elapsedNanos / 1e6, getBytesReadPerSecond() / ( 1024 * 1024 ) );
+    }
+}
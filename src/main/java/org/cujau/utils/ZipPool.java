@@ -0,0 +1,102 @@
+package org.cujau.utils;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A bounded pool of raw (<tt>nowrap</tt>) {@link Deflater} and {@link Inflater} instances.
+ * <p>
+ * Creating a <tt>Deflater</tt> allocates several hundred kilobytes of native zlib state, which is
+ * what makes short gzip operations expensive. Borrowed instances are reset before they are handed
+ * out again. At most {@link #MAX_POOLED} instances of each kind are kept; any others returned to
+ * the pool are ended, so the native memory is released.
+ * </p>
+ * <p>
+ * Every instance taken with {@link #deflater(int)} or {@link #inflater()} must be given back with
+ * {@link #release(Deflater)} or {@link #release(Inflater)}, typically in a <tt>finally</tt> block,
+ * and must not be used afterwards.
+ * </p>
+ */
+public final class ZipPool {
+
+    /** The maximum number of idle instances of each kind kept in the pool. */
+    public static final int MAX_POOLED = 2 * Runtime.getRuntime().availableProcessors();
+
+    private static final ConcurrentLinkedQueue<Deflater> DEFLATERS = new ConcurrentLinkedQueue<>();
+    private static final ConcurrentLinkedQueue<Inflater> INFLATERS = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger DEFLATER_COUNT = new AtomicInteger();
+    private static final AtomicInteger INFLATER_COUNT = new AtomicInteger();
+
+    private ZipPool() {
+    }
+
+    /**
+     * Take a raw deflater, producing deflate data without zlib header or checksum, from the pool.
+     *
+     * @param level
+     *         The compression level, 0-9 or {@link Deflater#DEFAULT_COMPRESSION}.
+     * @return A deflater ready for new input.
+     * @throws IllegalArgumentException
+     *         If the compression level is invalid.
+     */
+    public static Deflater deflater( int level ) {
+        if ( ( level < 0 || level > 9 ) && level != Deflater.DEFAULT_COMPRESSION ) {
+            throw new IllegalArgumentException( "Invalid compression level: " + level );
+        }
+        Deflater deflater = DEFLATERS.poll();
+        if ( deflater == null ) {
+            return new Deflater( level, true );
+        }
+        DEFLATER_COUNT.decrementAndGet();
+        deflater.setLevel( level );
+        return deflater;
+    }
+
+    /**
+     * Give a deflater taken with {@link #deflater(int)} back to the pool.
+     *
+     * @param deflater
+     *         The deflater, which may be in any state.
+     */
+    public static void release( Deflater deflater ) {
+        if ( DEFLATER_COUNT.incrementAndGet() > MAX_POOLED ) {
+            DEFLATER_COUNT.decrementAndGet();
+            deflater.end();
+            return;
+        }
+        deflater.reset();
+        DEFLATERS.offer( deflater );
+    }
+
+    /**
+     * Take a raw inflater, expecting deflate data without zlib header or checksum, from the pool.
+     *
+     * @return An inflater ready for new input.
+     */
+    public static Inflater inflater() {
+        Inflater inflater = INFLATERS.poll();
+        if ( inflater == null ) {
+            return new Inflater( true );
+        }
+        INFLATER_COUNT.decrementAndGet();
+        return inflater;
+    }
+
+    /**
+     * Give an inflater taken with {@link #inflater()} back to the pool.
+     *
+     * @param inflater
+     *         The inflater, which may be in any state.
+     */
+    public static void release( Inflater inflater ) {
+        if ( INFLATER_COUNT.incrementAndGet() > MAX_POOLED ) {
+            INFLATER_COUNT.decrementAndGet();
+            inflater.end();
+            return;
+        }
+        inflater.reset();
+        INFLATERS.offer( inflater );
+    }
+}
@@ -0,0 +1,567 @@
+package org.cujau.utils.converters;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.CharBuffer;
+import java.text.ParsePosition;
+import java.util.BitSet;
+import java.util.Currency;
+import java.util.List;
+import java.util.Locale;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
+
+/**
+ * Converts many text cells to an array of numbers at once, such as a column of a CSV file.
+ * <p>
+ * The cells can be given as an array or list of {@link CharSequence}s, or as ranges of a
+ * <tt>char</tt> buffer. They are parsed like the <tt>valueOf</tt> methods of
+ * {@link StringConverterHelper}, with a {@link NumberParser}; the few numbers that do not fit in a
+ * <tt>long</tt> or have an exponent are parsed again, more slowly, into a {@link BigDecimal}.
+ * Instead of throwing, a conversion returns the indexes of the cells that could not be converted
+ * in a {@link BitSet}; the elements of the output array for those cells are set to zero (or
+ * <tt>null</tt>). A cell fails if it is <tt>null</tt>, has no digits, is out of the range of the
+ * type, or has text after the number other than blanks, a currency symbol or code, or a percent
+ * sign. The integer types take the integer part of a number with a fraction.
+ * </p>
+ * <p>
+ * Inputs with at least {@link #getParallelThreshold()} cells are split into blocks that are
+ * converted in parallel in the common {@link java.util.concurrent.ForkJoinPool}. Instances are
+ * immutable and thread safe.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * BulkStringConverter converter = new BulkStringConverter( Locale.GERMANY );
+ * double[] prices = new double[cells.length];
+ * BitSet errors = converter.toDoubles( cells, prices );
+ * for ( int i = errors.nextSetBit( 0 ); i &gt;= 0; i = errors.nextSetBit( i + 1 ) ) {
+ *     LOG.warn( "Row {}: not a price: {}", i, cells[i] );
+ * }
+ * </pre>
+ */
+public final class BulkStringConverter {
+
+    /** The default number of cells from which a conversion runs in parallel. */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 15;
+
+    /** The number of cells converted by one task; a multiple of 64 so tasks own whole error words. */
+    private static final int BLOCK_SIZE = 1 << 12;
+
+    /** The status of a number that is followed by more than a unit, like <tt>"12abc"</tt>. */
+    private static final int TRAILING_TEXT = -1;
+
+    private final Locale locale;
+    private final NumberParser parser;
+    private final int parallelThreshold;
+
+    /**
+     * Create a converter for the default locale for formatting.
+     */
+    public BulkStringConverter() {
+        this( Locale.getDefault( Locale.Category.FORMAT ) );
+    }
+
+    public BulkStringConverter( Locale locale ) {
+        this( locale, DEFAULT_PARALLEL_THRESHOLD );
+    }
+
+    /**
+     * @param locale
+     *         The locale whose decimal and grouping separators the cells use.
+     * @param parallelThreshold
+     *         The number of cells from which a conversion runs in parallel; use
+     *         <tt>Integer.MAX_VALUE</tt> to always convert on the calling thread.
+     */
+    public BulkStringConverter( Locale locale, int parallelThreshold ) {
+        if ( parallelThreshold < 1 ) {
+            throw new IllegalArgumentException( "parallelThreshold must be positive: " + parallelThreshold );
+        }
+        this.locale = locale;
+        this.parser = NumberParser.getInstance( locale );
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public Locale getLocale() {
+        return locale;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    // ---- int
+
+    /**
+     * Convert each cell to an <tt>int</tt>.
+     *
+     * @param cells
+     *         The text of the cells, such as a <tt>String[]</tt>.
+     * @param out
+     *         Receives the values; it must be at least as long as <tt>cells</tt>.
+     * @return The indexes of the cells that could not be converted.
+     */
+    public BitSet toInts( CharSequence[] cells, int[] out ) {
+        return convert( new ArrayCells( cells ), new IntTarget( out ) );
+    }
+
+    /**
+     * Convert each cell to an <tt>int</tt>.
+     *
+     * @see #toInts(CharSequence[], int[])
+     */
+    public BitSet toInts( List<? extends CharSequence> cells, int[] out ) {
+        return convert( cells( cells ), new IntTarget( out ) );
+    }
+
+    /**
+     * Convert each range of a buffer to an <tt>int</tt>.
+     *
+     * @param buf
+     *         The text of all cells.
+     * @param starts
+     *         The index in <tt>buf</tt> of the first character of each cell.
+     * @param ends
+     *         The index in <tt>buf</tt> after the last character of each cell; as long as
+     *         <tt>starts</tt>.
+     * @param out
+     *         Receives the values; it must be at least as long as <tt>starts</tt>.
+     * @return The indexes of the cells that could not be converted.
+     */
+    public BitSet toInts( char[] buf, int[] starts, int[] ends, int[] out ) {
+        return convert( new BufferCells( buf, starts, ends ), new IntTarget( out ) );
+    }
+
+    // ---- long
+
+    /**
+     * Convert each cell to a <tt>long</tt>.
+     *
+     * @see #toInts(CharSequence[], int[])
+     */
+    public BitSet toLongs( CharSequence[] cells, long[] out ) {
+        return convert( new ArrayCells( cells ), new LongTarget( out ) );
+    }
+
+    /**
+     * Convert each cell to a <tt>long</tt>.
+     *
+     * @see #toInts(CharSequence[], int[])
+     */
+    public BitSet toLongs( List<? extends CharSequence> cells, long[] out ) {
+        return convert( cells( cells ), new LongTarget( out ) );
+    }
+
+    /**
+     * Convert each range of a buffer to a <tt>long</tt>.
+     *
+     * @see #toInts(char[], int[], int[], int[])
+     */
+    public BitSet toLongs( char[] buf, int[] starts, int[] ends, long[] out ) {
+        return convert( new BufferCells( buf, starts, ends ), new LongTarget( out ) );
+    }
+
+    // ---- double
+
+    /**
+     * Convert each cell to a <tt>double</tt>.
+     *
+     * @see #toInts(CharSequence[], int[])
+     */
+    public BitSet toDoubles( CharSequence[] cells, double[] out ) {
+        return convert( new ArrayCells( cells ), new DoubleTarget( out ) );
+    }
+
+    /**
+     * Convert each cell to a <tt>double</tt>.
+     *
+     * @see #toInts(CharSequence[], int[])
+     */
+    public BitSet toDoubles( List<? extends CharSequence> cells, double[] out ) {
+        return convert( cells( cells ), new DoubleTarget( out ) );
+    }
+
+    /**
+     * Convert each range of a buffer to a <tt>double</tt>.
+     *
+     * @see #toInts(char[], int[], int[], int[])
+     */
+    public BitSet toDoubles( char[] buf, int[] starts, int[] ends, double[] out ) {
+        return convert( new BufferCells( buf, starts, ends ), new DoubleTarget( out ) );
+    }
+
+    // ---- BigDecimal
+
+    /**
+     * Convert each cell to a {@link BigDecimal} with the scale written in the cell.
+     *
+     * @see #toInts(CharSequence[], int[])
+     */
+    public BitSet toBigDecimals( CharSequence[] cells, BigDecimal[] out ) {
+        return convert( new ArrayCells( cells ), new BigDecimalTarget( out ) );
+    }
+
+    /**
+     * Convert each cell to a {@link BigDecimal} with the scale written in the cell.
+     *
+     * @see #toInts(CharSequence[], int[])
+     */
+    public BitSet toBigDecimals( List<? extends CharSequence> cells, BigDecimal[] out ) {
+        return convert( cells( cells ), new BigDecimalTarget( out ) );
+    }
+
+    /**
+     * Convert each range of a buffer to a {@link BigDecimal} with the scale written in the cell.
+     *
+     * @see #toInts(char[], int[], int[], int[])
+     */
+    public BitSet toBigDecimals( char[] buf, int[] starts, int[] ends, BigDecimal[] out ) {
+        return convert( new BufferCells( buf, starts, ends ), new BigDecimalTarget( out ) );
+    }
+
+    private static Cells cells( List<? extends CharSequence> cells ) {
+        if ( cells instanceof RandomAccess ) {
+            return new ListCells( cells );
+        }
+        return new ArrayCells( cells.toArray( new CharSequence[0] ) );
+    }
+
+    private BitSet convert( Cells cells, Target target ) {
+        int n = cells.size();
+        if ( target.length() < n ) {
+            throw new IllegalArgumentException( "The output holds " + target.length() + " values, not " + n );
+        }
+        long[] errors = new long[( n + 63 ) >>> 6];
+        if ( n < parallelThreshold ) {
+            convert( cells, target, 0, n, errors );
+        } else {
+            int blocks = ( n + BLOCK_SIZE - 1 ) / BLOCK_SIZE;
+            IntStream.range( 0, blocks ).parallel().forEach(
+                    b -> convert( cells, target, b * BLOCK_SIZE, Math.min( n, ( b + 1 ) * BLOCK_SIZE ), errors ) );
+        }
+        return BitSet.valueOf( errors );
+    }
+
+    /**
+     * Convert the cells in <tt>[from, to)</tt>. Blocks start at a multiple of 64, so each block
+     * writes its own words of <tt>errors</tt>.
+     */
+    private void convert( Cells cells, Target target, int from, int to, long[] errors ) {
+        NumberParser.Result result = new NumberParser.Result();
+        for ( int i = from; i < to; i++ ) {
+            CharSequence seq = cells.get( i );
+            boolean ok = seq != null && target.set( i, seq, cells.start( i ), cells.end( i ), result );
+            if ( !ok ) {
+                target.clear( i );
+                errors[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * Parse a cell with the {@link NumberParser}.
+     *
+     * @return The status of the parser, or {@link #TRAILING_TEXT} if the number is followed by
+     *         more than blanks and a unit.
+     */
+    private int parse( CharSequence seq, int start, int end, NumberParser.Result result ) {
+        int status = parser.parse( seq, start, end, result );
+        if ( status == NumberParser.OK && !isUnit( seq, result.getEnd(), end ) ) {
+            return TRAILING_TEXT;
+        }
+        return status;
+    }
+
+    /**
+     * @return Whether the range holds nothing but blanks, a currency symbol, a currency code and
+     *         percent or per mille signs.
+     */
+    private static boolean isUnit( CharSequence seq, int start, int end ) {
+        int i = start;
+        while ( i < end ) {
+            char c = seq.charAt( i );
+            if ( Character.isWhitespace( c ) || Character.isSpaceChar( c ) || c == '%' || c == '\u2030'
+                 || Character.getType( c ) == Character.CURRENCY_SYMBOL ) {
+                i++;
+            } else if ( i + 3 <= end && isCurrencyCode( seq, i ) ) {
+                i += 3;
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCurrencyCode( CharSequence seq, int start ) {
+        for ( int i = start; i < start + 3; i++ ) {
+            char c = seq.charAt( i );
+            if ( c < 'A' || c > 'Z' ) {
+                return false;
+            }
+        }
+        try {
+            Currency.getInstance( seq.subSequence( start, start + 3 ).toString() );
+            return true;
+        } catch ( IllegalArgumentException e ) {
+            return false;
+        }
+    }
+
+    /**
+     * Parse a number that the {@link NumberParser} could not represent, because it is too long or
+     * has an exponent, with {@link NumberParser#parseBigDecimal(CharSequence, int, int, ParsePosition)}.
+     *
+     * @return The number, or <tt>null</tt> if it cannot be parsed or is followed by more than a unit.
+     */
+    private BigDecimal parseSlowly( int status, CharSequence seq, int start, int end ) {
+        if ( status != NumberParser.TOO_MANY_DIGITS && status != NumberParser.UNSUPPORTED ) {
+            return null;
+        }
+        ParsePosition pos = new ParsePosition( start );
+        BigDecimal value = parser.parseBigDecimal( seq, start, end, pos );
+        return value != null && isUnit( seq, pos.getIndex(), end ) ? value : null;
+    }
+
+    /** Where the text of the cells comes from. */
+    private abstract static class Cells {
+
+        abstract int size();
+
+        abstract CharSequence get( int i );
+
+        int start( int i ) {
+            return 0;
+        }
+
+        int end( int i ) {
+            return get( i ).length();
+        }
+    }
+
+    private static final class ArrayCells extends Cells {
+        private final CharSequence[] cells;
+
+        ArrayCells( CharSequence[] cells ) {
+            this.cells = cells;
+        }
+
+        @Override
+        int size() {
+            return cells.length;
+        }
+
+        @Override
+        CharSequence get( int i ) {
+            return cells[i];
+        }
+    }
+
+    private static final class ListCells extends Cells {
+        private final List<? extends CharSequence> cells;
+
+        ListCells( List<? extends CharSequence> cells ) {
+            this.cells = cells;
+        }
+
+        @Override
+        int size() {
+            return cells.size();
+        }
+
+        @Override
+        CharSequence get( int i ) {
+            return cells.get( i );
+        }
+    }
+
+    private static final class BufferCells extends Cells {
+        private final CharBuffer buf;
+        private final int[] starts;
+        private final int[] ends;
+
+        BufferCells( char[] buf, int[] starts, int[] ends ) {
+            if ( starts.length != ends.length ) {
+                throw new IllegalArgumentException( starts.length + " starts but " + ends.length + " ends" );
+            }
+            this.buf = CharBuffer.wrap( buf );
+            this.starts = starts;
+            this.ends = ends;
+        }
+
+        @Override
+        int size() {
+            return starts.length;
+        }
+
+        @Override
+        CharSequence get( int i ) {
+            return buf;
+        }
+
+        @Override
+        int start( int i ) {
+            return starts[i];
+        }
+
+        @Override
+        int end( int i ) {
+            return ends[i];
+        }
+    }
+
+    /** Where the values go. */
+    private abstract static class Target {
+
+        abstract int length();
+
+        /**
+         * Parse a cell into element <tt>i</tt>.
+         *
+         * @return Whether the cell was converted.
+         */
+        abstract boolean set( int i, CharSequence seq, int start, int end, NumberParser.Result result );
+
+        abstract void clear( int i );
+    }
+
+    private final class IntTarget extends Target {
+        private final int[] out;
+
+        IntTarget( int[] out ) {
+            this.out = out;
+        }
+
+        @Override
+        int length() {
+            return out.length;
+        }
+
+        @Override
+        boolean set( int i, CharSequence seq, int start, int end, NumberParser.Result result ) {
+            int status = parse( seq, start, end, result );
+            if ( status == NumberParser.OK ) {
+                if ( !result.fitsInInt() ) {
+                    return false;
+                }
+                out[i] = result.intValue();
+                return true;
+            }
+            BigDecimal value = parseSlowly( status, seq, start, end );
+            if ( value != null ) {
+                try {
+                    out[i] = value.setScale( 0, RoundingMode.DOWN ).intValueExact();
+                    return true;
+                } catch ( ArithmeticException e ) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        void clear( int i ) {
+            out[i] = 0;
+        }
+    }
+
+    private final class LongTarget extends Target {
+        private final long[] out;
+
+        LongTarget( long[] out ) {
+            this.out = out;
+        }
+
+        @Override
+        int length() {
+            return out.length;
+        }
+
+        @Override
+        boolean set( int i, CharSequence seq, int start, int end, NumberParser.Result result ) {
+            int status = parse( seq, start, end, result );
+            if ( status == NumberParser.OK ) {
+                out[i] = result.longValue();
+                return true;
+            }
+            BigDecimal value = parseSlowly( status, seq, start, end );
+            if ( value != null ) {
+                try {
+                    out[i] = value.setScale( 0, RoundingMode.DOWN ).longValueExact();
+                    return true;
+                } catch ( ArithmeticException e ) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        void clear( int i ) {
+            out[i] = 0;
+        }
+    }
+
+    private final class DoubleTarget extends Target {
+        private final double[] out;
+
+        DoubleTarget( double[] out ) {
+            this.out = out;
+        }
+
+        @Override
+        int length() {
+            return out.length;
+        }
+
+        @Override
+        boolean set( int i, CharSequence seq, int start, int end, NumberParser.Result result ) {
+            int status = parse( seq, start, end, result );
+            if ( status == NumberParser.OK ) {
+                out[i] = result.doubleValue();
+                return true;
+            }
+            BigDecimal value = parseSlowly( status, seq, start, end );
+            if ( value != null ) {
+                out[i] = value.doubleValue();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        void clear( int i ) {
+            out[i] = 0;
+        }
+    }
+
+    private final class BigDecimalTarget extends Target {
+        private final BigDecimal[] out;
+
+        BigDecimalTarget( BigDecimal[] out ) {
+            this.out = out;
+        }
+
+        @Override
+        int length() {
+            return out.length;
+        }
+
+        @Override
+        boolean set( int i, CharSequence seq, int start, int end, NumberParser.Result result ) {
+            int status = parse( seq, start, end, result );
+            if ( status == NumberParser.OK ) {
+                out[i] = result.bigDecimalValue();
+                return true;
+            }
+            out[i] = parseSlowly( status, seq, start, end );
+            return out[i] != null;
+        }
+
+        @Override
+        void clear( int i ) {
+            out[i] = null;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package org.cujau.utils.converters;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link StringConverter} that remembers what another converter made of each text, so that
+ * repeated texts are parsed once and always give the same instance.
+ * <p>
+ * Imported data often repeats a few thousand distinct values, such as currency codes, flags and
+ * ticker symbols; wrapping their converter saves both the parsing and the duplicate objects. The
+ * cache holds at most <tt>capacity</tt> texts. When it is full, the oldest entry is evicted first
+ * ({@link Eviction#FIFO}), or the oldest entry that has not been used since it was last passed
+ * over ({@link Eviction#CLOCK}, which keeps frequently used values like an LRU cache would).
+ * Rendering with {@link #convert(Object)} is not cached.
+ * </p>
+ * <p>
+ * Lookups are lock-free reads of a {@link ConcurrentHashMap} and are safe to run on many threads.
+ * Texts that the delegate cannot convert, and <tt>null</tt>, are not cached. The counters can be
+ * read at any time, for example by a metrics scraper.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * CachingStringConverter&lt;Currency&gt; currencies =
+ *         new CachingStringConverter&lt;&gt;( new StringCurrencyConverter(), 1024 );
+ * StringConverterFactoryImpl.addConverter( Currency.class, currencies );
+ * ...
+ * LOG.info( "Currency cache: {} hits, {} misses", currencies.getHitCount(), currencies.getMissCount() );
+ * </pre>
+ *
+ * @param <E>
+ *         The type of the converted values.
+ */
+public class CachingStringConverter<E> implements StringConverter<E> {
+
+    /**
+     * Which entry to evict when the cache is full.
+     */
+    public enum Eviction {
+        /** The entry that was added first. */
+        FIFO,
+        /** The entry that was added first and has not been used since it was last passed over. */
+        CLOCK
+    }
+
+    private final StringConverter<E> delegate;
+    private final int capacity;
+    private final Eviction eviction;
+
+    private final ConcurrentMap<String, Entry<E>> entries;
+    /** The keys in the order they are considered for eviction. */
+    private final Queue<String> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingStringConverter( StringConverter<E> delegate, int capacity ) {
+        this( delegate, capacity, Eviction.CLOCK );
+    }
+
+    /**
+     * @param delegate
+     *         The converter whose results are cached.
+     * @param capacity
+     *         The maximum number of texts in the cache.
+     * @param eviction
+     *         Which entry to evict when the cache is full.
+     */
+    public CachingStringConverter( StringConverter<E> delegate, int capacity, Eviction eviction ) {
+        if ( capacity < 1 ) {
+            throw new IllegalArgumentException( "capacity must be positive: " + capacity );
+        }
+        this.delegate = delegate;
+        this.capacity = capacity;
+        this.eviction = eviction;
+        this.entries = new ConcurrentHashMap<>( Math.min( capacity, 1 << 16 ) );
+    }
+
+    @Override
+    public E convert( String val )
+            throws IllegalArgumentException {
+        if ( val == null ) {
+            return delegate.convert( val );
+        }
+        Entry<E> entry = entries.get( val );
+        if ( entry != null ) {
+            hits.increment();
+            if ( !entry.referenced ) {
+                entry.referenced = true;
+            }
+            return entry.value;
+        }
+        misses.increment();
+        E value = delegate.convert( val );
+        if ( value == null ) {
+            return null;
+        }
+        Entry<E> existing = entries.putIfAbsent( val, new Entry<>( value ) );
+        if ( existing != null ) {
+            // Another thread converted it first; its instance is the canonical one.
+            return existing.value;
+        }
+        order.offer( val );
+        if ( size.incrementAndGet() > capacity ) {
+            evict();
+        }
+        return value;
+    }
+
+    @Override
+    public String convert( Object val )
+            throws IllegalArgumentException {
+        return delegate.convert( val );
+    }
+
+    @Override
+    public Class<E> getConvertedClass() {
+        return delegate.getConvertedClass();
+    }
+
+    public StringConverter<E> getDelegate() {
+        return delegate;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public Eviction getEviction() {
+        return eviction;
+    }
+
+    /**
+     * @return The number of texts in the cache.
+     */
+    public int getSize() {
+        return Math.max( 0, size.get() );
+    }
+
+    /**
+     * @return The number of conversions answered from the cache.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of conversions passed to the delegate.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of entries evicted to make room for others.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return The share of the conversions answered from the cache, or 0 before the first one.
+     */
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * Remove all entries. The counters are kept.
+     */
+    public void clear() {
+        String key;
+        while ( ( key = order.poll() ) != null ) {
+            if ( entries.remove( key ) != null ) {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CachingStringConverter[" + delegate.getClass().getSimpleName() + ", size=" + getSize() + "/"
+               + capacity + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions="
+               + getEvictionCount() + "]";
+    }
+
+    /**
+     * Remove entries from the head of the queue until the cache fits again. With
+     * {@link Eviction#CLOCK} an entry that was used since it was last passed over gets a second
+     * chance at the tail; as that clears its flag, a full pass over the queue finds a victim.
+     */
+    private void evict() {
+        while ( size.get() > capacity ) {
+            String key = order.poll();
+            if ( key == null ) {
+                return;
+            }
+            Entry<E> entry = entries.get( key );
+            if ( entry == null ) {
+                continue;
+            }
+            if ( eviction == Eviction.CLOCK && entry.referenced ) {
+                entry.referenced = false;
+                order.offer( key );
+                continue;
+            }
+            if ( entries.remove( key, entry ) ) {
+                size.decrementAndGet();
+                evictions.increment();
+            }
+        }
+    }
+
+    private static final class Entry<E> {
+        final E value;
+        /** Set when the entry is used, and cleared when eviction passes over it. */
+        volatile boolean referenced;
+
+        Entry( E value ) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.cujau.utils.converters;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A thread-safe set of {@link StringConverter}s by class, which also finds the converter of a
+ * superclass or interface.
+ * <p>
+ * {@link #resolve(Class)} looks for a converter registered for the class itself, then for its
+ * superclasses from the nearest up, then for the interfaces of the class and its superclasses,
+ * breadth first and in declaration order. The converter registered for <tt>Object</tt> is not
+ * part of the resolution; it is the catch-all that {@link #toString(Object)} falls back to.
+ * </p>
+ * <p>
+ * Resolved lookups are cached in a {@link ClassValue}, so a lookup is a lock-free read once a class
+ * has been seen. Registration may run at the same time as lookups: it replaces the cache, and a
+ * lookup that starts after a registration returns sees its result.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * ConverterRegistry registry = ConverterRegistry.withDefaults();
+ * registry.register( Money.class, new StringMoneyConverter() );
+ * // Resolved through the superclass.
+ * StringConverter&lt;?&gt; cvtr = registry.resolve( SwissFrancs.class );
+ * </pre>
+ */
+public class ConverterRegistry {
+
+    private final Map<Class<?>, StringConverter<?>> converters = new ConcurrentHashMap<>();
+    private volatile Resolved resolved = new Resolved();
+
+    /**
+     * @return A registry with the converters for the common value types: <tt>String</tt>, the
+     *         boxed and primitive numbers and booleans, <tt>BigDecimal</tt> and <tt>Object</tt>.
+     */
+    public static ConverterRegistry withDefaults() {
+        ConverterRegistry registry = new ConverterRegistry();
+        registry.register( String.class, new StringStringConverter() );
+        StringIntegerConverter integerConverter = new StringIntegerConverter();
+        registry.register( Integer.class, integerConverter );
+        registry.register( int.class, integerConverter );
+        StringLongConverter longConverter = new StringLongConverter();
+        registry.register( Long.class, longConverter );
+        registry.register( long.class, longConverter );
+        StringFloatConverter floatConverter = new StringFloatConverter();
+        registry.register( Float.class, floatConverter );
+        registry.register( float.class, floatConverter );
+        StringDoubleConverter doubleConverter = new StringDoubleConverter();
+        registry.register( Double.class, doubleConverter );
+        registry.register( double.class, doubleConverter );
+        StringBooleanConverter booleanConverter = new StringBooleanConverter();
+        registry.register( Boolean.class, booleanConverter );
+        registry.register( boolean.class, booleanConverter );
+        registry.register( BigDecimal.class, new StringBigDecimalConverter() );
+        registry.register( Object.class, new StringObjectConverter() );
+        return registry;
+    }
+
+    /**
+     * @return A new registry with the same converters as this one.
+     */
+    public ConverterRegistry copy() {
+        ConverterRegistry copy = new ConverterRegistry();
+        copy.converters.putAll( converters );
+        return copy;
+    }
+
+    /**
+     * Register a converter for a class, replacing any converter registered for it before.
+     *
+     * @return The converter registered for the class before, or <tt>null</tt>.
+     */
+    public synchronized StringConverter<?> register( Class<?> klass, StringConverter<?> converter ) {
+        StringConverter<?> old = converters.put( klass, converter );
+        resolved = new Resolved();
+        return old;
+    }
+
+    /**
+     * Remove the converter registered for a class.
+     *
+     * @return The converter that was registered for the class, or <tt>null</tt>.
+     */
+    public synchronized StringConverter<?> unregister( Class<?> klass ) {
+        StringConverter<?> old = converters.remove( klass );
+        if ( old != null ) {
+            resolved = new Resolved();
+        }
+        return old;
+    }
+
+    /**
+     * @return The converter registered for exactly this class, or <tt>null</tt>.
+     */
+    public StringConverter<?> getRegistered( Class<?> klass ) {
+        return converters.get( klass );
+    }
+
+    /**
+     * @return The converter registered for the class or, failing that, for the nearest
+     *         superclass or interface other than <tt>Object</tt>; or <tt>null</tt>.
+     */
+    public StringConverter<?> resolve( Class<?> klass ) {
+        return resolved.get( klass ).orElse( null );
+    }
+
+    /**
+     * Render a value with the converter resolved for its class, or the one registered for
+     * <tt>Object</tt>.
+     */
+    public String toString( Object val ) {
+        StringConverter<?> cvtr = null;
+        if ( val != null ) {
+            cvtr = resolve( val.getClass() );
+        }
+        if ( cvtr == null ) {
+            cvtr = converters.get( Object.class );
+        }
+        return cvtr.convert( val );
+    }
+
+    /**
+     * @return The converter registered for <tt>int.class</tt>, or one that unboxes the result of
+     *         a converter without a primitive version.
+     */
+    public StringToIntConverter getIntConverter() {
+        StringConverter<?> cvtr = converters.get( int.class );
+        if ( cvtr instanceof StringToIntConverter ) {
+            return (StringToIntConverter) cvtr;
+        }
+        return ( val, start, end ) -> ( (Number) cvtr.convert( val.subSequence( start, end ).toString() ) ).intValue();
+    }
+
+    /**
+     * @return The converter registered for <tt>long.class</tt>, or one that unboxes the result of
+     *         a converter without a primitive version.
+     */
+    public StringToLongConverter getLongConverter() {
+        StringConverter<?> cvtr = converters.get( long.class );
+        if ( cvtr instanceof StringToLongConverter ) {
+            return (StringToLongConverter) cvtr;
+        }
+        return ( val, start, end ) -> ( (Number) cvtr.convert( val.subSequence( start, end ).toString() ) ).longValue();
+    }
+
+    /**
+     * @return The converter registered for <tt>double.class</tt>, or one that unboxes the result
+     *         of a converter without a primitive version.
+     */
+    public StringToDoubleConverter getDoubleConverter() {
+        StringConverter<?> cvtr = converters.get( double.class );
+        if ( cvtr instanceof StringToDoubleConverter ) {
+            return (StringToDoubleConverter) cvtr;
+        }
+        return ( val, start, end ) -> ( (Number) cvtr.convert( val.subSequence( start, end ).toString() ) ).doubleValue();
+    }
+
+    /**
+     * @return The converter registered for <tt>boolean.class</tt>, or one that unboxes the result
+     *         of a converter without a primitive version.
+     */
+    public StringToBooleanConverter getBooleanConverter() {
+        StringConverter<?> cvtr = converters.get( boolean.class );
+        if ( cvtr instanceof StringToBooleanConverter ) {
+            return (StringToBooleanConverter) cvtr;
+        }
+        return ( val, start, end ) -> (Boolean) cvtr.convert( val.subSequence( start, end ).toString() );
+    }
+
+    /**
+     * @return The registered converters by class, as a read-only view.
+     */
+    public Map<Class<?>, StringConverter<?>> getRegisteredConverters() {
+        return Collections.unmodifiableMap( converters );
+    }
+
+    private StringConverter<?> findConverter( Class<?> klass ) {
+        StringConverter<?> cvtr = converters.get( klass );
+        if ( cvtr != null ) {
+            return cvtr;
+        }
+        for ( Class<?> sup = klass.getSuperclass(); sup != null && sup != Object.class; sup = sup.getSuperclass() ) {
+            cvtr = converters.get( sup );
+            if ( cvtr != null ) {
+                return cvtr;
+            }
+        }
+        Set<Class<?>> seen = new HashSet<>();
+        Queue<Class<?>> queue = new ArrayDeque<>();
+        for ( Class<?> c = klass; c != null; c = c.getSuperclass() ) {
+            Collections.addAll( queue, c.getInterfaces() );
+        }
+        while ( !queue.isEmpty() ) {
+            Class<?> iface = queue.remove();
+            if ( seen.add( iface ) ) {
+                cvtr = converters.get( iface );
+                if ( cvtr != null ) {
+                    return cvtr;
+                }
+                Collections.addAll( queue, iface.getInterfaces() );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The lookups resolved since the last registration.
+     */
+    private class Resolved extends ClassValue<Optional<StringConverter<?>>> {
+
+        @Override
+        protected Optional<StringConverter<?>> computeValue( Class<?> klass ) {
+            return Optional.ofNullable( findConverter( klass ) );
+        }
+    }
+}
@@ -0,0 +1,463 @@
+package org.cujau.utils.converters;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormatSymbols;
+import java.text.ParsePosition;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A single-pass parser for decimal numbers written in the format of a locale, which reports
+ * failure with a status code instead of an exception.
+ * <p>
+ * The parser skips any leading characters that cannot start a number, such as currency symbols,
+ * and stops at the first character after the number, so <tt>"CHF 1'234.50 net"</tt> parses as
+ * <tt>1234.50</tt>. A minus sign right before the number, or at the start of the skipped prefix
+ * as in <tt>"-CHF 5"</tt>, makes it negative. In the integer part, a grouping character between
+ * two digits is skipped: the grouping separator of the locale, and also <tt>'</tt>,
+ * <tt>&#8217;</tt>, space, no-break space, <tt>,</tt> and <tt>.</tt> unless that is the decimal
+ * separator of the locale.
+ * </p>
+ * <p>
+ * Numbers with an exponent, such as <tt>"1.5E10"</tt>, and texts with more than one minus sign or a
+ * minus sign elsewhere in the prefix are reported as {@link #UNSUPPORTED}, for a slower parser to
+ * deal with.
+ * </p>
+ * <p>
+ * Instances hold the {@link DecimalFormatSymbols} of their locale, are cached per locale and are
+ * thread safe. The result of a parse goes into a {@link Result}, which can be reused.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * NumberParser.Result result = new NumberParser.Result();
+ * if ( NumberParser.getInstance( Locale.GERMANY ).parse( "EUR 2.923,50", result ) == NumberParser.OK ) {
+ *     BigDecimal amount = result.bigDecimalValue();
+ * }
+ * </pre>
+ */
+public final class NumberParser {
+
+    /** A number was parsed. */
+    public static final int OK = 0;
+    /** The text contains no digits that could be parsed. */
+    public static final int NO_DIGITS = 1;
+    /** The number has more significant digits than fit in a <tt>long</tt>. */
+    public static final int TOO_MANY_DIGITS = 2;
+    /** The number has an exponent, or the minus signs are not where this parser expects them. */
+    public static final int UNSUPPORTED = 3;
+
+    /** The most significant digits that are guaranteed to fit in a <tt>long</tt>. */
+    private static final int MAX_DIGITS = 18;
+
+    /** Doubles up to this value are exact, as are the powers of ten up to 10^22. */
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+    private static final double[] POWERS_OF_TEN = new double[23];
+    private static final long[] LONG_POWERS_OF_TEN = new long[MAX_DIGITS + 1];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for ( int i = 1; i < POWERS_OF_TEN.length; i++ ) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+        LONG_POWERS_OF_TEN[0] = 1;
+        for ( int i = 1; i < LONG_POWERS_OF_TEN.length; i++ ) {
+            LONG_POWERS_OF_TEN[i] = LONG_POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private static final ConcurrentMap<Locale, NumberParser> INSTANCES = new ConcurrentHashMap<>();
+
+    private final char decimalSeparator;
+    private final char groupingSeparator;
+    private final char minusSign;
+
+    private NumberParser( DecimalFormatSymbols symbols ) {
+        this.decimalSeparator = symbols.getDecimalSeparator();
+        this.groupingSeparator = symbols.getGroupingSeparator();
+        this.minusSign = symbols.getMinusSign();
+    }
+
+    /**
+     * @return The parser for the default locale for formatting.
+     */
+    public static NumberParser getInstance() {
+        return getInstance( Locale.getDefault( Locale.Category.FORMAT ) );
+    }
+
+    /**
+     * @return The parser for the locale.
+     */
+    public static NumberParser getInstance( Locale locale ) {
+        NumberParser parser = INSTANCES.get( locale );
+        if ( parser == null ) {
+            parser = new NumberParser( DecimalFormatSymbols.getInstance( locale ) );
+            NumberParser existing = INSTANCES.putIfAbsent( locale, parser );
+            if ( existing != null ) {
+                parser = existing;
+            }
+        }
+        return parser;
+    }
+
+    public char getDecimalSeparator() {
+        return decimalSeparator;
+    }
+
+    /**
+     * Parse the first number in the text.
+     *
+     * @param str
+     *         The text.
+     * @param result
+     *         Receives the number. It is reset first.
+     * @return {@link #OK}, {@link #NO_DIGITS}, {@link #TOO_MANY_DIGITS} or {@link #UNSUPPORTED};
+     *         the same as {@link Result#getStatus()}.
+     */
+    public int parse( CharSequence str, Result result ) {
+        return parse( str, 0, str.length(), result );
+    }
+
+    /**
+     * Parse the first number in a range of the text.
+     *
+     * @param str
+     *         The text.
+     * @param start
+     *         The index of the first character to parse.
+     * @param end
+     *         The index after the last character to parse.
+     * @param result
+     *         Receives the number. It is reset first.
+     * @return {@link #OK}, {@link #NO_DIGITS}, {@link #TOO_MANY_DIGITS} or {@link #UNSUPPORTED};
+     *         the same as {@link Result#getStatus()}.
+     */
+    public int parse( CharSequence str, int start, int end, Result result ) {
+        result.reset();
+        int i = skipPrefix( str, start, end );
+        if ( i == end ) {
+            return result.status = NO_DIGITS;
+        }
+        int sign = sign( str, start, i );
+        if ( sign < 0 ) {
+            return result.status = UNSUPPORTED;
+        }
+        boolean negative = sign > 0;
+
+        long unscaled = 0;
+        int digits = 0;
+        int scale = 0;
+        // The integer part, with grouping characters between digits.
+        while ( i < end ) {
+            char c = str.charAt( i );
+            if ( isDigit( c ) ) {
+                if ( unscaled != 0 || c != '0' ) {
+                    if ( ++digits > MAX_DIGITS ) {
+                        return result.status = TOO_MANY_DIGITS;
+                    }
+                    unscaled = unscaled * 10 + ( c - '0' );
+                }
+                i++;
+            } else if ( isGrouping( c ) && i + 1 < end && isDigit( str.charAt( i + 1 ) ) ) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        // The fraction.
+        if ( i < end && str.charAt( i ) == decimalSeparator ) {
+            i++;
+            while ( i < end ) {
+                char c = str.charAt( i );
+                if ( !isDigit( c ) ) {
+                    break;
+                }
+                if ( unscaled != 0 || c != '0' ) {
+                    if ( ++digits > MAX_DIGITS ) {
+                        return result.status = TOO_MANY_DIGITS;
+                    }
+                    unscaled = unscaled * 10 + ( c - '0' );
+                }
+                scale++;
+                i++;
+            }
+        }
+        if ( isExponent( str, i, end ) ) {
+            return result.status = UNSUPPORTED;
+        }
+        result.negative = negative;
+        result.unscaled = unscaled;
+        result.scale = scale;
+        result.end = i;
+        return result.status = OK;
+    }
+
+    /**
+     * Parse the first number in a range of the text into a {@link BigDecimal}, following the same
+     * rules as {@link #parse(CharSequence, int, int, Result)} but with any number of digits and an
+     * optional exponent, such as <tt>"1.5E10"</tt> or <tt>"2e-3"</tt>. It allocates, so it is meant
+     * for the numbers that <tt>parse</tt> reports as {@link #TOO_MANY_DIGITS} or
+     * {@link #UNSUPPORTED}.
+     *
+     * @param str
+     *         The text.
+     * @param start
+     *         The index of the first character to parse.
+     * @param end
+     *         The index after the last character to parse.
+     * @param pos
+     *         Receives the index after the number, or the error index if there is none.
+     * @return The number, or <tt>null</tt> if the text has no digits, the minus signs are not where
+     *         <tt>parse</tt> allows them, or the exponent is out of range.
+     */
+    public BigDecimal parseBigDecimal( CharSequence str, int start, int end, ParsePosition pos ) {
+        int i = skipPrefix( str, start, end );
+        int sign = i < end ? sign( str, start, i ) : -1;
+        if ( sign < 0 ) {
+            pos.setErrorIndex( start );
+            return null;
+        }
+        StringBuilder number = new StringBuilder( end - i + 1 );
+        if ( sign > 0 ) {
+            number.append( '-' );
+        }
+        while ( i < end ) {
+            char c = str.charAt( i );
+            if ( isDigit( c ) ) {
+                number.append( c );
+                i++;
+            } else if ( isGrouping( c ) && i + 1 < end && isDigit( str.charAt( i + 1 ) ) ) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        if ( i < end && str.charAt( i ) == decimalSeparator ) {
+            number.append( '.' );
+            i++;
+            while ( i < end && isDigit( str.charAt( i ) ) ) {
+                number.append( str.charAt( i++ ) );
+            }
+        }
+        if ( isExponent( str, i, end ) ) {
+            number.append( 'E' );
+            char c = str.charAt( ++i );
+            if ( c == '+' ) {
+                i++;
+            } else if ( isMinus( c ) ) {
+                number.append( '-' );
+                i++;
+            }
+            while ( i < end && isDigit( str.charAt( i ) ) ) {
+                number.append( str.charAt( i++ ) );
+            }
+        }
+        try {
+            BigDecimal value = new BigDecimal( number.toString() );
+            pos.setIndex( i );
+            return value;
+        } catch ( NumberFormatException e ) {
+            pos.setErrorIndex( start );
+            return null;
+        }
+    }
+
+    /**
+     * @return The index where the number starts, or <tt>end</tt> if there are no digits.
+     */
+    private int skipPrefix( CharSequence str, int start, int end ) {
+        int i = start;
+        while ( i < end ) {
+            char c = str.charAt( i );
+            if ( isDigit( c ) ) {
+                break;
+            }
+            if ( c == decimalSeparator && i + 1 < end && isDigit( str.charAt( i + 1 ) ) ) {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return 1 if the prefix of the number makes it negative, 0 if not, or -1 if it has more than
+     *         one minus sign, or one that is neither at its start nor right before the number.
+     */
+    private int sign( CharSequence str, int start, int numberStart ) {
+        int prefixStart = -1;
+        int minus = -1;
+        for ( int i = start; i < numberStart; i++ ) {
+            char c = str.charAt( i );
+            if ( prefixStart < 0 && !Character.isWhitespace( c ) ) {
+                prefixStart = i;
+            }
+            if ( isMinus( c ) ) {
+                if ( minus >= 0 ) {
+                    return -1;
+                }
+                minus = i;
+            }
+        }
+        if ( minus < 0 ) {
+            return 0;
+        }
+        return minus == numberStart - 1 || minus == prefixStart ? 1 : -1;
+    }
+
+    private static boolean isDigit( char c ) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * @return Whether an exponent, such as <tt>E10</tt> or <tt>e-3</tt>, starts at the index.
+     */
+    private boolean isExponent( CharSequence str, int i, int end ) {
+        if ( i + 1 >= end || ( str.charAt( i ) != 'E' && str.charAt( i ) != 'e' ) ) {
+            return false;
+        }
+        char c = str.charAt( i + 1 );
+        if ( c == '+' || isMinus( c ) ) {
+            return i + 2 < end && isDigit( str.charAt( i + 2 ) );
+        }
+        return isDigit( c );
+    }
+
+    private boolean isMinus( char c ) {
+        return c == '-' || c == minusSign;
+    }
+
+    private boolean isGrouping( char c ) {
+        if ( c == decimalSeparator ) {
+            return false;
+        }
+        switch ( c ) {
+        case ',':
+        case '.':
+        case '\'':
+        case '\u2019':
+        case ' ':
+        case '\u00a0':
+        case '\u202f':
+            return true;
+        default:
+            return c == groupingSeparator;
+        }
+    }
+
+    /**
+     * The outcome of a parse: a status and, if it is {@link NumberParser#OK}, the number as an
+     * unscaled value and a scale. Instances are not thread safe.
+     */
+    public static final class Result {
+
+        private int status = NO_DIGITS;
+        private boolean negative;
+        private long unscaled;
+        private int scale;
+        private int end;
+
+        void reset() {
+            status = NO_DIGITS;
+            negative = false;
+            unscaled = 0;
+            scale = 0;
+            end = 0;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public boolean isOk() {
+            return status == OK;
+        }
+
+        public boolean isNegative() {
+            return negative;
+        }
+
+        /**
+         * @return The digits of the number without the decimal separator and sign.
+         */
+        public long getUnscaledValue() {
+            return unscaled;
+        }
+
+        /**
+         * @return The number of digits after the decimal separator.
+         */
+        public int getScale() {
+            return scale;
+        }
+
+        /**
+         * @return The index after the last character of the number.
+         */
+        public int getEnd() {
+            return end;
+        }
+
+        /**
+         * @return Whether the integer part of the number fits in an <tt>int</tt>.
+         */
+        public boolean fitsInInt() {
+            long integer = integerPart();
+            return integer >= Integer.MIN_VALUE && integer <= Integer.MAX_VALUE;
+        }
+
+        /**
+         * @return The integer part of the number, which must fit in an <tt>int</tt>.
+         */
+        public int intValue() {
+            return (int) integerPart();
+        }
+
+        /**
+         * @return The integer part of the number.
+         */
+        public long longValue() {
+            return integerPart();
+        }
+
+        /**
+         * @return The <tt>double</tt> closest to the number.
+         */
+        public double doubleValue() {
+            double value;
+            if ( unscaled <= MAX_EXACT_DOUBLE && scale < POWERS_OF_TEN.length ) {
+                // Both operands are exact, so the division is correctly rounded.
+                value = unscaled / POWERS_OF_TEN[scale];
+            } else {
+                value = BigDecimal.valueOf( unscaled, scale ).doubleValue();
+            }
+            return negative ? -value : value;
+        }
+
+        /**
+         * @return The number as a <tt>float</tt>, rounded through {@link #doubleValue()} unless it is
+         *         an integer.
+         */
+        public float floatValue() {
+            if ( scale == 0 ) {
+                float value = unscaled;
+                return negative ? -value : value;
+            }
+            return (float) doubleValue();
+        }
+
+        /**
+         * @return The number with its scale, such as <tt>2923.50</tt> for <tt>"2,923.50"</tt>.
+         */
+        public BigDecimal bigDecimalValue() {
+            return BigDecimal.valueOf( negative ? -unscaled : unscaled, scale );
+        }
+
+        private long integerPart() {
+            long integer = scale == 0 ? unscaled : scale > MAX_DIGITS ? 0 : unscaled / LONG_POWERS_OF_TEN[scale];
+            return negative ? -integer : integer;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.cujau.utils.converters;
+
+import java.math.BigDecimal;
+import java.text.ParseException;
+
+public class StringBigDecimalConverter implements StringConverter<BigDecimal> {
+
+    @Override
+    public BigDecimal convert( String val )
+            throws IllegalArgumentException {
+        try {
+            return StringConverterHelper.bigDecimalValueOf( val );
+        } catch ( ParseException e ) {
+            throw new IllegalArgumentException( "Not a number: " + val, e );
+        }
+    }
+
+    /**
+     * Render the value without an exponent, such as <tt>0.0000001</tt> for <tt>1E-7</tt>.
+     */
+    @Override
+    public String convert( Object val )
+            throws IllegalArgumentException {
+        if ( val == null ) {
+            return "";
+        }
+        if ( val instanceof BigDecimal ) {
+            return ( (BigDecimal) val ).toPlainString();
+        }
+        return val.toString();
+    }
+
+    @Override
+    public Class<BigDecimal> getConvertedClass() {
+        return BigDecimal.class;
+    }
+
+}
@@ -1,12 +1,17 @@
 package org.cujau.utils.converters;
 
-public class StringBooleanConverter implements StringConverter<Boolean> {
+public class StringBooleanConverter implements StringConverter<Boolean>, StringToBooleanConverter {
 
     @Override
     public Boolean convert( String val ) {
         return StringConverterHelper.booleanValueOf( val );
     }
 
+    @Override
+    public boolean toBoolean( CharSequence val, int start, int end ) {
+        return StringConverterHelper.booleanValueOf( val, start, end );
+    }
+
     @Override
     public String convert( Object val )
             throws IllegalArgumentException {
@@ -1,40 +1,109 @@
 package org.cujau.utils.converters;
 
-import java.util.HashMap;
-import java.util.Map;
-
+/**
+ * The converters for the common value types, by class.
+ * <p>
+ * Converters are kept in a {@link ConverterRegistry}, which is thread safe and resolves a class
+ * without a converter of its own through its superclasses and interfaces. Instances created with
+ * the no-argument constructor share the registry that the static methods configure; give an
+ * instance its own registry to keep its converters apart.
+ * </p>
+ * <p>
+ * The number and boolean converters are also registered for the primitive classes, such as
+ * <tt>int.class</tt>, and implement the primitive converter interfaces, such as
+ * {@link StringToIntConverter}. Bulk imports should get those with {@link #getIntConverter()} and
+ * friends, which convert a range of a {@link CharSequence} without boxing the value.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * StringToIntConverter ints = StringConverterFactoryImpl.getIntConverter();
+ * int quantity = ints.toInt( line, fieldStart, fieldEnd );
+ *
+ * ConverterRegistry registry = ConverterRegistry.withDefaults();
+ * registry.register( Date.class, new StringIsoDateConverter() );
+ * StringConverterFactory isoDates = new StringConverterFactoryImpl( registry );
+ * </pre>
+ */
 public class StringConverterFactoryImpl implements StringConverterFactory {
 
-    private static Map<Class<?>, StringConverter<?>> map = new HashMap<Class<?>, StringConverter<?>>();
-    static {
-        map.put( String.class, new StringStringConverter() );
-        map.put( Integer.class, new StringIntegerConverter() );
-        map.put( Float.class, new StringFloatConverter() );
-        map.put( Boolean.class, new StringBooleanConverter() );
-        map.put( Object.class, new StringObjectConverter() );
+    private static final ConverterRegistry DEFAULT_REGISTRY = ConverterRegistry.withDefaults();
+
+    private final ConverterRegistry registry;
+
+    /**
+     * Create a factory using the shared registry.
+     */
+    public StringConverterFactoryImpl() {
+        this( DEFAULT_REGISTRY );
+    }
+
+    /**
+     * Create a factory using its own registry.
+     */
+    public StringConverterFactoryImpl( ConverterRegistry registry ) {
+        this.registry = registry;
     }
-    
+
+    /**
+     * @return The registry that the static methods and the factories created without one use.
+     */
+    public static ConverterRegistry getDefaultRegistry() {
+        return DEFAULT_REGISTRY;
+    }
+
     public static void addConverter( Class<?> klass, StringConverter<?> converter ) {
-        map.put( klass, converter );
+        DEFAULT_REGISTRY.register( klass, converter );
     }
     public static StringConverter<?> getConfiguredConverter( Class<?> klass ) {
-        return map.get( klass );
+        return DEFAULT_REGISTRY.getRegistered( klass );
+    }
+
+    /**
+     * @see ConverterRegistry#getIntConverter()
+     */
+    public static StringToIntConverter getIntConverter() {
+        return DEFAULT_REGISTRY.getIntConverter();
     }
-    
+
+    /**
+     * @see ConverterRegistry#getLongConverter()
+     */
+    public static StringToLongConverter getLongConverter() {
+        return DEFAULT_REGISTRY.getLongConverter();
+    }
+
+    /**
+     * @see ConverterRegistry#getDoubleConverter()
+     */
+    public static StringToDoubleConverter getDoubleConverter() {
+        return DEFAULT_REGISTRY.getDoubleConverter();
+    }
+
+    /**
+     * @see ConverterRegistry#getBooleanConverter()
+     */
+    public static StringToBooleanConverter getBooleanConverter() {
+        return DEFAULT_REGISTRY.getBooleanConverter();
+    }
+
+    public ConverterRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * @return The converter for the class or the nearest superclass or interface other than
+     *         <tt>Object</tt>, or <tt>null</tt>.
+     */
     @Override
     public StringConverter<?> getConverter( Class<?> klass ) {
-        return map.get( klass );
+        return registry.resolve( klass );
     }
-    
+
     @Override
     public String toString( Object val ) {
-        StringConverter<?> cvtr = null;
-        if ( val != null ) {
-            cvtr = map.get( val.getClass() );
-        }
-        if ( cvtr == null ) {
-            cvtr = map.get( Object.class );
-        }
-        return (String) cvtr.convert( val );
+        return registry.toString( val );
     }
 }
@@ -9,6 +9,16 @@ import java.util.regex.Pattern;
 
 /**
  * Helper methods for converting Strings to integers or floats.
+ * <p>
+ * The <tt>valueOf</tt> methods parse with a {@link NumberParser} for the locale, which skips
+ * currency symbols and grouping characters in a single pass. Only if it finds no number, or one that
+ * it cannot represent exactly, do they fall back to {@link NumberFormat} and stripping the input
+ * with regular expressions.
+ * </p>
+ * <p>
+ * The variants that take a range of a {@link CharSequence} do not allocate unless they have to fall
+ * back, so they suit bulk imports that parse fields straight out of a buffer.
+ * </p>
  */
 public class StringConverterHelper {
 
@@ -17,6 +27,9 @@ public class StringConverterHelper {
     private final static Pattern NUM_STRIPPER_INT_RE = Pattern.compile( "[^0-9\\-\\'\\,]" );
     private final static Pattern NUM_STRIPPER_ALL_INT_RE = Pattern.compile( "[^0-9\\-]" );
 
+    /** Reused by the parses on each thread, so that the fast path does not allocate. */
+    private static final ThreadLocal<NumberParser.Result> RESULT = ThreadLocal.withInitial( NumberParser.Result::new );
+
     private static String stripNonIntlFloatJunk( String str ) {
         return NUM_STRIPPER_FLOAT_RE.matcher( str ).replaceAll( "" );
     }
@@ -46,10 +59,12 @@ public class StringConverterHelper {
 
     public static BigDecimal bigDecimalValueOf( String str, Locale loc )
             throws ParseException {
-        // Always use the simple version, which removes non-number characters before parsing.
-        // This may be slightly slower than the parse-if-error-strip-parse way that was used 
-        // before, but it can handle a broader range of number formats (notably fr_FR with the
-        // space grouping separator).
+        NumberParser.Result result = RESULT.get();
+        if ( NumberParser.getInstance( loc ).parse( str, result ) == NumberParser.OK ) {
+            return result.bigDecimalValue();
+        }
+        // The simple version removes non-number characters before parsing, which can handle
+        // a broad range of number formats (notably fr_FR with the space grouping separator).
         return simpleBigDecimalValueOf( str, loc );
     }
 
@@ -66,6 +81,10 @@ public class StringConverterHelper {
     }
 
     public static float floatValueOf( String str ) {
+        NumberParser.Result result = RESULT.get();
+        if ( NumberParser.getInstance().parse( str, result ) == NumberParser.OK ) {
+            return result.floatValue();
+        }
         NumberFormat nf = NumberFormat.getInstance();
         Number nbr;
         try {
@@ -94,6 +113,18 @@ public class StringConverterHelper {
     }
 
     public static double doubleValueOf( String str ) {
+        return doubleValueOf( str, 0, str.length() );
+    }
+
+    public static double doubleValueOf( CharSequence str, int start, int end ) {
+        NumberParser.Result result = RESULT.get();
+        if ( NumberParser.getInstance().parse( str, start, end, result ) == NumberParser.OK ) {
+            return result.doubleValue();
+        }
+        return legacyDoubleValueOf( str.subSequence( start, end ).toString() );
+    }
+
+    private static double legacyDoubleValueOf( String str ) {
         NumberFormat nf = NumberFormat.getInstance();
         Number nbr;
         try {
@@ -122,6 +153,18 @@ public class StringConverterHelper {
     }
 
     public static int intValueOf( String str ) {
+        return intValueOf( str, 0, str.length() );
+    }
+
+    public static int intValueOf( CharSequence str, int start, int end ) {
+        NumberParser.Result result = RESULT.get();
+        if ( NumberParser.getInstance().parse( str, start, end, result ) == NumberParser.OK && result.fitsInInt() ) {
+            return result.intValue();
+        }
+        return legacyIntValueOf( str.subSequence( start, end ).toString() );
+    }
+
+    private static int legacyIntValueOf( String str ) {
         NumberFormat nf = NumberFormat.getInstance();
         Number nbr;
         try {
@@ -137,10 +180,67 @@ public class StringConverterHelper {
         }
     }
 
+    public static long simpleLongValueOf( String str )
+            throws NumberFormatException {
+        return Long.parseLong( NUM_STRIPPER_ALL_INT_RE.matcher( str ).replaceAll( "" ) );
+    }
+
+    public static long longValueOf( String str ) {
+        return longValueOf( str, 0, str.length() );
+    }
+
+    public static long longValueOf( CharSequence str, int start, int end ) {
+        NumberParser.Result result = RESULT.get();
+        if ( NumberParser.getInstance().parse( str, start, end, result ) == NumberParser.OK ) {
+            return result.longValue();
+        }
+        return legacyLongValueOf( str.subSequence( start, end ).toString() );
+    }
+
+    private static long legacyLongValueOf( String str ) {
+        NumberFormat nf = NumberFormat.getInstance();
+        Number nbr;
+        try {
+            nbr = nf.parse( str );
+            return nbr.longValue();
+        } catch ( ParseException e ) {
+            try {
+                nbr = nf.parse( stripNonIntlIntJunk( str ) );
+                return nbr.longValue();
+            } catch ( ParseException e2 ) {
+                return simpleLongValueOf( str );
+            }
+        }
+    }
+
     public static boolean booleanValueOf( String str ) {
         if ( str != null && ( str.equals( "1" ) || str.toLowerCase().equals( "yes" ) ) ) {
             return true;
         }
         return Boolean.parseBoolean(str);
     }
+
+    /**
+     * The same as {@link #booleanValueOf(String)} for a range of the text: <tt>"1"</tt>, and
+     * <tt>"yes"</tt> and <tt>"true"</tt> in any case, are <tt>true</tt>.
+     */
+    public static boolean booleanValueOf( CharSequence str, int start, int end ) {
+        if ( str == null ) {
+            return false;
+        }
+        int len = end - start;
+        if ( len == 1 ) {
+            return str.charAt( start ) == '1';
+        }
+        return len == 3 && equalsIgnoreCase( str, start, "yes" ) || len == 4 && equalsIgnoreCase( str, start, "true" );
+    }
+
+    private static boolean equalsIgnoreCase( CharSequence str, int start, String lowerCase ) {
+        for ( int i = 0; i < lowerCase.length(); i++ ) {
+            if ( Character.toLowerCase( str.charAt( start + i ) ) != lowerCase.charAt( i ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
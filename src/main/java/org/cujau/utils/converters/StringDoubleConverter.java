@@ -0,0 +1,32 @@
+package org.cujau.utils.converters;
+
+public class StringDoubleConverter implements StringConverter<Double>, StringToDoubleConverter {
+
+    @Override
+    public Double convert( String val ) {
+        return StringConverterHelper.doubleValueOf( val );
+    }
+
+    @Override
+    public double toDouble( CharSequence val, int start, int end ) {
+        return StringConverterHelper.doubleValueOf( val, start, end );
+    }
+
+    /**
+     * Render the value like {@link Double#toString(double)}, which round-trips.
+     */
+    @Override
+    public String convert( Object val )
+            throws IllegalArgumentException {
+        if ( val == null ) {
+            return "";
+        }
+        return val.toString();
+    }
+
+    @Override
+    public Class<Double> getConvertedClass() {
+        return Double.class;
+    }
+
+}
@@ -1,6 +1,6 @@
 package org.cujau.utils.converters;
 
-public class StringIntegerConverter implements StringConverter<Integer> {
+public class StringIntegerConverter implements StringConverter<Integer>, StringToIntConverter {
 
     protected static String FORMAT_STR = "%d";
     
@@ -13,6 +13,11 @@ public class StringIntegerConverter implements StringConverter<Integer> {
         return StringConverterHelper.intValueOf( val );
     }
 
+    @Override
+    public int toInt( CharSequence val, int start, int end ) {
+        return StringConverterHelper.intValueOf( val, start, end );
+    }
+
     @Override
     public String convert( Object val )
             throws IllegalArgumentException {
@@ -0,0 +1,29 @@
+package org.cujau.utils.converters;
+
+public class StringLongConverter implements StringConverter<Long>, StringToLongConverter {
+
+    @Override
+    public Long convert( String val ) {
+        return StringConverterHelper.longValueOf( val );
+    }
+
+    @Override
+    public long toLong( CharSequence val, int start, int end ) {
+        return StringConverterHelper.longValueOf( val, start, end );
+    }
+
+    @Override
+    public String convert( Object val )
+            throws IllegalArgumentException {
+        if ( val == null ) {
+            return "";
+        }
+        return val.toString();
+    }
+
+    @Override
+    public Class<Long> getConvertedClass() {
+        return Long.class;
+    }
+
+}
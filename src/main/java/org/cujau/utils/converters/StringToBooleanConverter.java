@@ -0,0 +1,31 @@
+package org.cujau.utils.converters;
+
+/**
+ * Converts text to a <tt>boolean</tt> without boxing it.
+ */
+public interface StringToBooleanConverter {
+
+    /**
+     * Convert a range of characters.
+     *
+     * @param val
+     *         The text.
+     * @param start
+     *         The index of the first character to convert.
+     * @param end
+     *         The index after the last character to convert.
+     * @return The converted value.
+     * @throws IllegalArgumentException
+     *         If the text cannot be converted.
+     */
+    boolean toBoolean( CharSequence val, int start, int end )
+            throws IllegalArgumentException;
+
+    /**
+     * Convert all of the text.
+     */
+    default boolean toBoolean( CharSequence val )
+            throws IllegalArgumentException {
+        return toBoolean( val, 0, val.length() );
+    }
+}
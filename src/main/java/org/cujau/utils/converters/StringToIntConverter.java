@@ -0,0 +1,31 @@
+package org.cujau.utils.converters;
+
+/**
+ * Converts text to an <tt>int</tt> without boxing it.
+ */
+public interface StringToIntConverter {
+
+    /**
+     * Convert a range of characters.
+     *
+     * @param val
+     *         The text.
+     * @param start
+     *         The index of the first character to convert.
+     * @param end
+     *         The index after the last character to convert.
+     * @return The converted value.
+     * @throws IllegalArgumentException
+     *         If the text cannot be converted.
+     */
+    int toInt( CharSequence val, int start, int end )
+            throws IllegalArgumentException;
+
+    /**
+     * Convert all of the text.
+     */
+    default int toInt( CharSequence val )
+            throws IllegalArgumentException {
+        return toInt( val, 0, val.length() );
+    }
+}
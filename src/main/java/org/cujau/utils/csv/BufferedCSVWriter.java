@@ -0,0 +1,327 @@
+package org.cujau.utils.csv;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * A {@link CSVWriter} that collects its output in a large internal <tt>char</tt> buffer and passes
+ * it on to the underlying {@link Writer} a block at a time.
+ * <p>
+ * Each field is scanned once: double quotes are doubled as the characters are copied into the
+ * buffer, and the field is wrapped in quotes afterwards if a separator or line break was seen.
+ * The output is the same as that of {@link CSVWriter}. Besides the <tt>renderLine</tt> methods,
+ * fields can be written one at a time with the <tt>writeField</tt> methods, which accept any
+ * {@link CharSequence} and primitive numbers without boxing them or creating intermediate
+ * <tt>String</tt>s. Numbers are rendered like {@link String#valueOf(double)} and friends.
+ * </p>
+ * <p>
+ * Nothing reaches the underlying writer before the buffer is full or {@link #flush()} or
+ * {@link #close()} is called. Instances are not thread safe.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * try ( BufferedCSVWriter csv = new BufferedCSVWriter( fileWriter, symbols ) ) {
+ *     for ( Trade t : trades ) {
+ *         csv.writeField( t.getSymbol() );
+ *         csv.writeField( t.getQuantity() );
+ *         csv.writeField( t.getPrice() );
+ *         csv.endLine();
+ *     }
+ * }
+ * </pre>
+ */
+public class BufferedCSVWriter extends CSVWriter implements Closeable, Flushable {
+
+    /** The default size of the buffer, in characters. */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private static final int MIN_BUFFER_SIZE = 64;
+
+    private final Writer out;
+    private final CSVSymbols symbols;
+    private final char[] buf;
+    private int pos;
+    private boolean lineStarted;
+    /** Scratch space for rendering numbers; appending primitives to it does not allocate. */
+    private final StringBuilder number = new StringBuilder( 32 );
+
+    public BufferedCSVWriter( Writer out ) {
+        this( out, new CSVSymbols() );
+    }
+
+    public BufferedCSVWriter( Writer out, CSVSymbols symbols ) {
+        this( out, symbols, DEFAULT_BUFFER_SIZE );
+    }
+
+    /**
+     * @param out
+     *         The writer receiving the CSV text.
+     * @param symbols
+     *         The separators to use.
+     * @param bufferSize
+     *         The size of the internal buffer, in characters.
+     */
+    public BufferedCSVWriter( Writer out, CSVSymbols symbols, int bufferSize ) {
+        super( out, symbols );
+        this.out = out;
+        this.symbols = symbols;
+        this.buf = new char[Math.max( MIN_BUFFER_SIZE, bufferSize )];
+    }
+
+    /**
+     * Write a field, quoting and escaping it as necessary. A <tt>null</tt> value is written as an
+     * empty field.
+     *
+     * @param value
+     *         The field value.
+     */
+    public void writeField( CharSequence value )
+            throws IOException {
+        writeSeparatorIfNeeded();
+        if ( value != null ) {
+            writeEscaped( value );
+        }
+    }
+
+    /**
+     * Write an <tt>int</tt> field, rendered like {@link String#valueOf(int)}.
+     */
+    public void writeField( int value )
+            throws IOException {
+        number.setLength( 0 );
+        writeField( number.append( value ) );
+    }
+
+    /**
+     * Write a <tt>long</tt> field, rendered like {@link String#valueOf(long)}.
+     */
+    public void writeField( long value )
+            throws IOException {
+        number.setLength( 0 );
+        writeField( number.append( value ) );
+    }
+
+    /**
+     * Write a <tt>double</tt> field, rendered like {@link String#valueOf(double)}.
+     */
+    public void writeField( double value )
+            throws IOException {
+        number.setLength( 0 );
+        writeField( number.append( value ) );
+    }
+
+    /**
+     * End the current line by writing the line separator.
+     */
+    public void endLine()
+            throws IOException {
+        writeLineSeparator();
+    }
+
+    @Override
+    public void renderLine( String... records )
+            throws IOException {
+        for ( String record : records ) {
+            writeField( record );
+        }
+        endLine();
+    }
+
+    @Override
+    public void renderLine( List<String> records )
+            throws IOException {
+        for ( int i = 0, n = records.size(); i < n; i++ ) {
+            writeField( records.get( i ) );
+        }
+        endLine();
+    }
+
+    /**
+     * Write the buffered characters to the underlying writer and flush it.
+     */
+    @Override
+    public void flush()
+            throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Write the buffered characters to the underlying writer and close it.
+     */
+    @Override
+    public void close()
+            throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+
+    @Override
+    boolean writeRecord( String s, boolean needSep )
+            throws IOException {
+        if ( needSep ) {
+            writeSeparator();
+        }
+        lineStarted = true;
+        if ( s != null ) {
+            writeEscaped( s );
+        }
+        return true;
+    }
+
+    @Override
+    void writeLineSeparator()
+            throws IOException {
+        String lineSeparator = symbols.getLineSeparator();
+        int len = lineSeparator.length();
+        if ( buf.length - pos < len ) {
+            flushBuffer();
+            if ( buf.length < len ) {
+                out.write( lineSeparator );
+                lineStarted = false;
+                return;
+            }
+        }
+        lineSeparator.getChars( 0, len, buf, pos );
+        pos += len;
+        lineStarted = false;
+    }
+
+    /**
+     * Start a field that the caller writes directly into {@link #buffer()}, from the returned
+     * position, and completes with {@link #endField(int)}. The field must not need escaping.
+     *
+     * @param maxLength
+     *         The maximum length of the field, which must not exceed the size of the buffer.
+     * @return The position in the buffer where the field starts.
+     */
+    int beginField( int maxLength )
+            throws IOException {
+        writeSeparatorIfNeeded();
+        if ( buf.length - pos < maxLength ) {
+            flushBuffer();
+        }
+        return pos;
+    }
+
+    /**
+     * Complete a field started with {@link #beginField(int)}.
+     *
+     * @param end
+     *         The position in the buffer after the last character of the field.
+     */
+    void endField( int end ) {
+        pos = end;
+    }
+
+    char[] buffer() {
+        return buf;
+    }
+
+    private void writeSeparatorIfNeeded()
+            throws IOException {
+        if ( lineStarted ) {
+            writeSeparator();
+        }
+        lineStarted = true;
+    }
+
+    private void writeSeparator()
+            throws IOException {
+        if ( pos == buf.length ) {
+            flushBuffer();
+        }
+        buf[pos++] = symbols.getRecordSeparator();
+    }
+
+    /**
+     * Copy the field into the buffer in one pass, doubling quotes, and wrap it in quotes if it
+     * contains a separator or line break.
+     */
+    private void writeEscaped( CharSequence s )
+            throws IOException {
+        int len = s.length();
+        // Worst case: every character is a quote, plus the surrounding quotes.
+        long maxLen = 2L * len + 2;
+        if ( buf.length - pos < maxLen ) {
+            flushBuffer();
+            if ( buf.length < maxLen ) {
+                writeLargeField( s );
+                return;
+            }
+        }
+        char sep = symbols.getRecordSeparator();
+        char[] b = buf;
+        int start = pos;
+        int p = start;
+        boolean quote = false;
+        for ( int i = 0; i < len; i++ ) {
+            char c = s.charAt( i );
+            if ( c == sep || c == '\n' || c == '\r' ) {
+                quote = true;
+            }
+            if ( c == '"' ) {
+                b[p++] = '"';
+            }
+            b[p++] = c;
+        }
+        if ( quote ) {
+            System.arraycopy( b, start, b, start + 1, p - start );
+            b[start] = '"';
+            p++;
+            b[p++] = '"';
+        }
+        pos = p;
+    }
+
+    /**
+     * Write a field that may not fit in the buffer: find out whether it needs quotes first, then
+     * copy it through the buffer.
+     */
+    private void writeLargeField( CharSequence s )
+            throws IOException {
+        char sep = symbols.getRecordSeparator();
+        int len = s.length();
+        boolean quote = false;
+        for ( int i = 0; i < len && !quote; i++ ) {
+            char c = s.charAt( i );
+            quote = c == sep || c == '\n' || c == '\r';
+        }
+        if ( quote ) {
+            buf[pos++] = '"';
+        }
+        for ( int i = 0; i < len; i++ ) {
+            if ( buf.length - pos < 2 ) {
+                flushBuffer();
+            }
+            char c = s.charAt( i );
+            if ( c == '"' ) {
+                buf[pos++] = '"';
+            }
+            buf[pos++] = c;
+        }
+        if ( quote ) {
+            if ( pos == buf.length ) {
+                flushBuffer();
+            }
+            buf[pos++] = '"';
+        }
+    }
+
+    private void flushBuffer()
+            throws IOException {
+        if ( pos > 0 ) {
+            out.write( buf, 0, pos );
+            pos = 0;
+        }
+    }
+}
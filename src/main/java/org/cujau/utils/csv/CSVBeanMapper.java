@@ -0,0 +1,570 @@
+package org.cujau.utils.csv;
+
+import java.io.IOException;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandleProxies;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+import org.cujau.utils.ReflectionException;
+import org.cujau.utils.converters.StringConverter;
+import org.cujau.utils.converters.StringConverterFactoryImpl;
+
+/**
+ * Renders beans as CSV rows and parses them back, one column per bean property.
+ * <p>
+ * The bean class is introspected once, when the mapper is created: the getter and setter of every
+ * property are looked up and bound to functional interfaces with {@link LambdaMetafactory}, so
+ * rendering and parsing a row calls them like hand-written code would, without
+ * {@link Method#invoke(Object, Object...)} or looking methods up again. <tt>int</tt>,
+ * <tt>long</tt> and <tt>double</tt> properties are read, written and parsed without boxing.
+ * </p>
+ * <p>
+ * Properties are found by their public <tt>get</tt> (or <tt>is</tt>, for booleans) and
+ * <tt>set</tt> methods. Values are rendered like {@link String#valueOf(Object)} and parsed back
+ * with the <tt>valueOf</tt>/<tt>parse</tt> method of their type. This covers strings, primitives and
+ * their wrappers, {@link BigDecimal} and enums; other types need a converter registered with
+ * {@link StringConverterFactoryImpl#addConverter(Class, StringConverter)}, which is then used in
+ * both directions. A converter registered for a superclass or interface also renders the
+ * properties of its subtypes, but only one registered for the exact type parses. A <tt>null</tt>
+ * value is rendered as an empty field, and empty fields are not set when parsing, so the property
+ * keeps the value given to it by the constructor.
+ * </p>
+ * <p>
+ * Parsing needs a public no-argument constructor and a setter for every property; a mapper for a
+ * read-only bean can only render. The mapper is immutable and thread safe, so it can be shared by
+ * the threads of a {@link ParallelCSVExporter}.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * CSVBeanMapper&lt;Trade&gt; mapper = CSVBeanMapper.create( Trade.class, "id", "symbol", "price", "quantity" );
+ * try ( BufferedCSVWriter csv = new BufferedCSVWriter( fileWriter, symbols ) ) {
+ *     mapper.renderHeader( csv );
+ *     for ( Trade t : trades ) {
+ *         mapper.renderRow( t, csv );
+ *     }
+ * }
+ * ...
+ * try ( CSVReader csv = new CSVReader( fileReader, symbols ) ) {
+ *     csv.next(); // The header.
+ *     while ( csv.next() ) {
+ *         trades.add( mapper.parseRow( csv ) );
+ *     }
+ * }
+ * </pre>
+ *
+ * @param <T>
+ *         The type of the beans.
+ */
+public final class CSVBeanMapper<T> implements CSVRowRenderer<T> {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Class<T> beanClass;
+    private final List<String> properties;
+    private final Column[] columns;
+    private final Supplier<T> constructor;
+    /** Why rows cannot be parsed, or <tt>null</tt> if they can. */
+    private final String parseProblem;
+
+    private CSVBeanMapper( MethodHandles.Lookup lookup, MethodHandles.Lookup caller, Class<T> beanClass,
+                           String[] properties )
+            throws ReflectionException {
+        if ( properties.length == 0 ) {
+            throw new IllegalArgumentException( "No properties given" );
+        }
+        this.beanClass = beanClass;
+        this.properties = List.of( properties );
+        this.columns = new Column[properties.length];
+        String problem = null;
+        for ( int i = 0; i < properties.length; i++ ) {
+            columns[i] = createColumn( lookup, caller, beanClass, properties[i] );
+            if ( problem == null && !columns[i].isSettable() ) {
+                problem = "Property '" + properties[i] + "' of " + beanClass.getName()
+                          + " has no setter or cannot be parsed";
+            }
+        }
+        this.constructor = createConstructor( lookup, caller, beanClass );
+        if ( problem == null && constructor == null ) {
+            problem = "No public no-argument constructor in " + beanClass.getName();
+        }
+        this.parseProblem = problem;
+    }
+
+    /**
+     * Create a mapper for a public bean class.
+     *
+     * @param beanClass
+     *         The bean class.
+     * @param properties
+     *         The properties, in the order of the columns.
+     * @return The mapper.
+     * @throws ReflectionException
+     *         If a property has no public getter or cannot be accessed.
+     * @throws IllegalArgumentException
+     *         If no properties are given.
+     */
+    public static <T> CSVBeanMapper<T> create( Class<T> beanClass, String... properties )
+            throws ReflectionException {
+        // The generated accessors must be able to see the bean class.
+        MethodHandles.Lookup caller = isVisible( beanClass ) ? LOOKUP : null;
+        return new CSVBeanMapper<>( MethodHandles.publicLookup(), caller, beanClass, properties );
+    }
+
+    /**
+     * Create a mapper for a bean class that is accessible to the class of <tt>lookup</tt>, such as
+     * a package-private class. The accessors are generated in the context of the lookup, which
+     * should be a full-privilege lookup from <tt>MethodHandles.lookup()</tt>.
+     *
+     * @param lookup
+     *         The lookup used to access the bean class and its methods.
+     * @param beanClass
+     *         The bean class.
+     * @param properties
+     *         The properties, in the order of the columns.
+     * @return The mapper.
+     * @throws ReflectionException
+     *         If a property has no public getter or cannot be accessed.
+     * @throws IllegalArgumentException
+     *         If no properties are given.
+     */
+    public static <T> CSVBeanMapper<T> create( MethodHandles.Lookup lookup, Class<T> beanClass, String... properties )
+            throws ReflectionException {
+        return new CSVBeanMapper<>( lookup, lookup, beanClass, properties );
+    }
+
+    public Class<T> getBeanClass() {
+        return beanClass;
+    }
+
+    /**
+     * @return The properties, in the order of the columns.
+     */
+    public List<String> getProperties() {
+        return properties;
+    }
+
+    /**
+     * @return Whether rows can be parsed into beans.
+     */
+    public boolean canParse() {
+        return parseProblem == null;
+    }
+
+    /**
+     * Write a line with the names of the properties.
+     */
+    public void renderHeader( BufferedCSVWriter out )
+            throws IOException {
+        out.renderLine( properties );
+    }
+
+    /**
+     * Write the properties of a bean as one line.
+     */
+    @Override
+    public void renderRow( T bean, BufferedCSVWriter out )
+            throws IOException {
+        for ( Column column : columns ) {
+            column.render( bean, out );
+        }
+        out.endLine();
+    }
+
+    /**
+     * Create a bean from the current record of the reader. Fields beyond the mapped properties are
+     * ignored, and properties without a field are not set.
+     *
+     * @param in
+     *         A reader positioned on a record.
+     * @return The new bean.
+     * @throws IllegalArgumentException
+     *         If a field cannot be parsed as the type of its property.
+     * @throws UnsupportedOperationException
+     *         If the bean has no public no-argument constructor or a property has no setter.
+     */
+    public T parseRow( CSVReader in ) {
+        checkParse();
+        T bean = constructor.get();
+        parseFields( in, bean );
+        return bean;
+    }
+
+    /**
+     * Set the properties of an existing bean from the current record of the reader.
+     *
+     * @param in
+     *         A reader positioned on a record.
+     * @param bean
+     *         The bean to set.
+     * @throws IllegalArgumentException
+     *         If a field cannot be parsed as the type of its property.
+     * @throws UnsupportedOperationException
+     *         If a property has no setter.
+     */
+    public void parseRow( CSVReader in, T bean ) {
+        checkParse();
+        parseFields( in, bean );
+    }
+
+    private void checkParse() {
+        if ( parseProblem != null ) {
+            throw new UnsupportedOperationException( parseProblem );
+        }
+    }
+
+    private void parseFields( CSVReader in, T bean ) {
+        int n = Math.min( columns.length, in.getFieldCount() );
+        for ( int i = 0; i < n; i++ ) {
+            CharSequence field = in.getField( i );
+            if ( field.length() == 0 ) {
+                continue;
+            }
+            try {
+                columns[i].parse( bean, field );
+            } catch ( IllegalArgumentException e ) {
+                throw new IllegalArgumentException( "Invalid value for property '" + properties.get( i ) + "' in record "
+                                                    + in.getRecordNumber() + ": " + field, e );
+            }
+        }
+    }
+
+    private static boolean isVisible( Class<?> klass ) {
+        try {
+            return Class.forName( klass.getName(), false, CSVBeanMapper.class.getClassLoader() ) == klass;
+        } catch ( ClassNotFoundException e ) {
+            return false;
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static Column createColumn( MethodHandles.Lookup lookup, MethodHandles.Lookup caller, Class<?> beanClass,
+                                        String property )
+            throws ReflectionException {
+        if ( property == null || property.isEmpty() ) {
+            throw new IllegalArgumentException( "Invalid property name: '" + property + "'" );
+        }
+        String suffix = Character.toUpperCase( property.charAt( 0 ) ) + property.substring( 1 );
+        Method getter = findMethod( beanClass, "get" + suffix );
+        if ( getter == null ) {
+            getter = findMethod( beanClass, "is" + suffix );
+            if ( getter != null && getter.getReturnType() != boolean.class
+                 && getter.getReturnType() != Boolean.class ) {
+                getter = null;
+            }
+        }
+        if ( getter == null || getter.getReturnType() == void.class ) {
+            throw new ReflectionException( "No getter for property '" + property + "' in " + beanClass.getName(),
+                                           null );
+        }
+        Class<?> type = getter.getReturnType();
+        Method setter = findMethod( beanClass, "set" + suffix, type );
+        MethodHandle get = unreflect( lookup, getter );
+        MethodHandle set = setter != null ? unreflect( lookup, setter ) : null;
+
+        if ( type == int.class ) {
+            return new IntColumn( bind( caller, ToIntFunction.class, "applyAsInt", get ),
+                                  set != null ? bind( caller, ObjIntConsumer.class, "accept", set ) : null );
+        }
+        if ( type == long.class ) {
+            return new LongColumn( bind( caller, ToLongFunction.class, "applyAsLong", get ),
+                                   set != null ? bind( caller, ObjLongConsumer.class, "accept", set ) : null );
+        }
+        if ( type == double.class ) {
+            return new DoubleColumn( bind( caller, ToDoubleFunction.class, "applyAsDouble", get ),
+                                     set != null ? bind( caller, ObjDoubleConsumer.class, "accept", set ) : null );
+        }
+        return new ObjectColumn( bind( caller, Function.class, "apply", get ),
+                                 set != null ? bind( caller, BiConsumer.class, "accept", set ) : null,
+                                 createParser( type ), createRenderer( type ) );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static <T> Supplier<T> createConstructor( MethodHandles.Lookup lookup, MethodHandles.Lookup caller,
+                                                      Class<T> beanClass )
+            throws ReflectionException {
+        if ( Modifier.isAbstract( beanClass.getModifiers() ) ) {
+            return null;
+        }
+        MethodHandle init;
+        try {
+            init = lookup.findConstructor( beanClass, MethodType.methodType( void.class ) );
+        } catch ( NoSuchMethodException | IllegalAccessException e ) {
+            return null;
+        }
+        return bind( caller, Supplier.class, "get", init );
+    }
+
+    private static Method findMethod( Class<?> beanClass, String name, Class<?>... parameterTypes ) {
+        try {
+            Method method = beanClass.getMethod( name, parameterTypes );
+            return Modifier.isStatic( method.getModifiers() ) ? null : method;
+        } catch ( NoSuchMethodException e ) {
+            return null;
+        }
+    }
+
+    private static MethodHandle unreflect( MethodHandles.Lookup lookup, Method method )
+            throws ReflectionException {
+        try {
+            return lookup.unreflect( method );
+        } catch ( IllegalAccessException e ) {
+            throw new ReflectionException( "Cannot access " + method, e );
+        }
+    }
+
+    /**
+     * Bind a method handle to a functional interface. The interface is implemented by a class
+     * generated with {@link LambdaMetafactory}, or by a slower proxy if that is not possible in the
+     * context of <tt>caller</tt>.
+     */
+    private static <F> F bind( MethodHandles.Lookup caller, Class<F> iface, String methodName, MethodHandle impl )
+            throws ReflectionException {
+        MethodType samType = findSamType( iface, methodName );
+        if ( caller != null ) {
+            // Where the interface takes or returns objects, the implementation boxes primitives.
+            MethodType instantiated = impl.type();
+            for ( int i = 0; i < samType.parameterCount(); i++ ) {
+                if ( !samType.parameterType( i ).isPrimitive() ) {
+                    instantiated = instantiated.changeParameterType( i, box( instantiated.parameterType( i ) ) );
+                }
+            }
+            if ( !samType.returnType().isPrimitive() ) {
+                instantiated = instantiated.changeReturnType( box( instantiated.returnType() ) );
+            }
+            try {
+                CallSite site = LambdaMetafactory.metafactory( caller, methodName, MethodType.methodType( iface ),
+                                                               samType, impl, instantiated );
+                return iface.cast( site.getTarget().invoke() );
+            } catch ( LambdaConversionException | IllegalArgumentException e ) {
+                // Fall through to the proxy.
+            } catch ( Throwable t ) {
+                throw new ReflectionException( "Cannot bind " + impl + " to " + iface.getName(), t );
+            }
+        }
+        return MethodHandleProxies.asInterfaceInstance( iface, impl );
+    }
+
+    private static MethodType findSamType( Class<?> iface, String methodName ) {
+        for ( Method method : iface.getMethods() ) {
+            if ( method.getName().equals( methodName ) && Modifier.isAbstract( method.getModifiers() ) ) {
+                return MethodType.methodType( method.getReturnType(), method.getParameterTypes() );
+            }
+        }
+        throw new IllegalStateException( "No method " + methodName + " in " + iface.getName() );
+    }
+
+    private static Class<?> box( Class<?> type ) {
+        return type.isPrimitive() && type != void.class ? MethodType.methodType( type ).wrap().returnType() : type;
+    }
+
+    private static Function<Object, String> createRenderer( final Class<?> type ) {
+        if ( type == String.class || type.isPrimitive() || Number.class.isAssignableFrom( type )
+             || type == Boolean.class || type == Character.class || type.isEnum() ) {
+            return null;
+        }
+        @SuppressWarnings( "unchecked" )
+        final StringConverter<Object> converter = (StringConverter<Object>) StringConverterFactoryImpl
+                .getDefaultRegistry().resolve( type );
+        if ( converter == null ) {
+            return null;
+        }
+        return new Function<Object, String>() {
+            @Override
+            public String apply( Object value ) {
+                return converter.convert( value );
+            }
+        };
+    }
+
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    private static Function<String, Object> createParser( final Class<?> type ) {
+        Class<?> boxed = box( type );
+        if ( boxed == String.class ) {
+            return s -> s;
+        } else if ( boxed == Integer.class ) {
+            return Integer::valueOf;
+        } else if ( boxed == Long.class ) {
+            return Long::valueOf;
+        } else if ( boxed == Double.class ) {
+            return Double::valueOf;
+        } else if ( boxed == Float.class ) {
+            return Float::valueOf;
+        } else if ( boxed == Short.class ) {
+            return Short::valueOf;
+        } else if ( boxed == Byte.class ) {
+            return Byte::valueOf;
+        } else if ( boxed == Boolean.class ) {
+            return Boolean::valueOf;
+        } else if ( boxed == BigDecimal.class ) {
+            return BigDecimal::new;
+        } else if ( boxed == Character.class ) {
+            return s -> {
+                if ( s.length() != 1 ) {
+                    throw new IllegalArgumentException( "Not a single character: " + s );
+                }
+                return s.charAt( 0 );
+            };
+        } else if ( type.isEnum() ) {
+            final Class<? extends Enum> enumType = type.asSubclass( Enum.class );
+            return s -> Enum.valueOf( enumType, s );
+        }
+        final StringConverter<?> converter = StringConverterFactoryImpl.getConfiguredConverter( type );
+        if ( converter == null || type == Object.class ) {
+            return null;
+        }
+        return converter::convert;
+    }
+
+    /** Renders and parses one property. */
+    private abstract static class Column {
+
+        abstract boolean isSettable();
+
+        abstract void render( Object bean, BufferedCSVWriter out )
+                throws IOException;
+
+        abstract void parse( Object bean, CharSequence field );
+    }
+
+    private static final class IntColumn extends Column {
+
+        private final ToIntFunction<Object> getter;
+        private final ObjIntConsumer<Object> setter;
+
+        IntColumn( ToIntFunction<Object> getter, ObjIntConsumer<Object> setter ) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        boolean isSettable() {
+            return setter != null;
+        }
+
+        @Override
+        void render( Object bean, BufferedCSVWriter out )
+                throws IOException {
+            out.writeField( getter.applyAsInt( bean ) );
+        }
+
+        @Override
+        void parse( Object bean, CharSequence field ) {
+            setter.accept( bean, Integer.parseInt( field, 0, field.length(), 10 ) );
+        }
+    }
+
+    private static final class LongColumn extends Column {
+
+        private final ToLongFunction<Object> getter;
+        private final ObjLongConsumer<Object> setter;
+
+        LongColumn( ToLongFunction<Object> getter, ObjLongConsumer<Object> setter ) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        boolean isSettable() {
+            return setter != null;
+        }
+
+        @Override
+        void render( Object bean, BufferedCSVWriter out )
+                throws IOException {
+            out.writeField( getter.applyAsLong( bean ) );
+        }
+
+        @Override
+        void parse( Object bean, CharSequence field ) {
+            setter.accept( bean, Long.parseLong( field, 0, field.length(), 10 ) );
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+
+        private final ToDoubleFunction<Object> getter;
+        private final ObjDoubleConsumer<Object> setter;
+
+        DoubleColumn( ToDoubleFunction<Object> getter, ObjDoubleConsumer<Object> setter ) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        boolean isSettable() {
+            return setter != null;
+        }
+
+        @Override
+        void render( Object bean, BufferedCSVWriter out )
+                throws IOException {
+            out.writeField( getter.applyAsDouble( bean ) );
+        }
+
+        @Override
+        void parse( Object bean, CharSequence field ) {
+            setter.accept( bean, Double.parseDouble( field.toString() ) );
+        }
+    }
+
+    private static final class ObjectColumn extends Column {
+
+        private final Function<Object, Object> getter;
+        private final BiConsumer<Object, Object> setter;
+        private final Function<String, Object> parser;
+        /** Renders values of types with a registered converter, or <tt>null</tt>. */
+        private final Function<Object, String> converter;
+
+        ObjectColumn( Function<Object, Object> getter, BiConsumer<Object, Object> setter,
+                      Function<String, Object> parser, Function<Object, String> converter ) {
+            this.getter = getter;
+            // Without a parser, the property cannot be set from a field.
+            this.setter = parser != null ? setter : null;
+            this.parser = parser;
+            this.converter = converter;
+        }
+
+        @Override
+        boolean isSettable() {
+            return setter != null;
+        }
+
+        @Override
+        void render( Object bean, BufferedCSVWriter out )
+                throws IOException {
+            Object value = getter.apply( bean );
+            if ( value == null || value instanceof CharSequence ) {
+                out.writeField( (CharSequence) value );
+            } else if ( converter != null ) {
+                out.writeField( converter.apply( value ) );
+            } else {
+                out.writeField( value.toString() );
+            }
+        }
+
+        @Override
+        void parse( Object bean, CharSequence field ) {
+            setter.accept( bean, parser.apply( field.toString() ) );
+        }
+    }
+}
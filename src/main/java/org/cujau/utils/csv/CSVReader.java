@@ -0,0 +1,492 @@
+package org.cujau.utils.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads CSV data with the conventions of {@link CSVWriter}: fields separated by the
+ * {@link CSVSymbols#getRecordSeparator() record separator}, quoted with double quotes when they
+ * contain a separator or line break, and double quotes doubled. Records end with <tt>\n</tt>,
+ * <tt>\r\n</tt> or <tt>\r</tt>; line breaks inside quoted fields are part of the field.
+ * <p>
+ * The reader is a cursor: {@link #next()} moves to the next record, whose fields are then
+ * available with {@link #getField(int)} as {@link CharSequence} views into the reader's buffer.
+ * The views are reused for every record, so reading does not allocate per row; they are only
+ * valid until the next call to {@link #next()}. Use {@link #getString(int)} to keep a value.
+ * </p>
+ * <p>
+ * Quoted fields are unescaped in place. Doubled quotes in unquoted fields, as written by
+ * {@link CSVWriter}, are read as a single quote. A field consisting of just <tt>""</tt> is the
+ * empty quoted field, so a lone double quote written by {@link CSVWriter} reads back as an empty
+ * field, and so does a value starting with two double quotes that was not quoted. An empty line
+ * is a record with no fields, so a record of one empty field reads back without fields.
+ * </p>
+ * <p>
+ * Besides any {@link Reader}, a file can be read through a memory mapping with
+ * {@link #open(Path, CSVSymbols, Charset)}, which decodes the mapped bytes straight into the
+ * reader's buffer. Instances are not thread safe.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * try ( CSVReader csv = CSVReader.open( path, symbols, StandardCharsets.UTF_8 ) ) {
+ *     while ( csv.next() ) {
+ *         CharSequence name = csv.getField( 0 );
+ *         ...
+ *     }
+ * }
+ * </pre>
+ */
+public class CSVReader implements Closeable {
+
+    /** The default initial size of the buffer, in characters. */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private static final int MIN_BUFFER_SIZE = 64;
+
+    private final Source source;
+    private final CSVSymbols symbols;
+
+    private char[] buf;
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private boolean skipLineFeed;
+
+    private int fieldCount;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private Field[] fields = new Field[16];
+    private long recordNumber;
+
+    public CSVReader( Reader in ) {
+        this( in, new CSVSymbols() );
+    }
+
+    public CSVReader( Reader in, CSVSymbols symbols ) {
+        this( in, symbols, DEFAULT_BUFFER_SIZE );
+    }
+
+    /**
+     * @param in
+     *         The reader providing the CSV text.
+     * @param symbols
+     *         The separators to use. Only the record separator is taken into account.
+     * @param bufferSize
+     *         The initial size of the internal buffer, in characters. The buffer grows to hold the
+     *         longest record.
+     */
+    public CSVReader( Reader in, CSVSymbols symbols, int bufferSize ) {
+        this( new ReaderSource( in ), symbols, bufferSize );
+    }
+
+    private CSVReader( Source source, CSVSymbols symbols, int bufferSize ) {
+        this.source = source;
+        this.symbols = symbols;
+        this.buf = new char[Math.max( MIN_BUFFER_SIZE, bufferSize )];
+    }
+
+    /**
+     * Open a reader on a file, which is mapped into memory and decoded a window at a time.
+     *
+     * @param file
+     *         The CSV file.
+     * @param symbols
+     *         The separators to use.
+     * @param charset
+     *         The encoding of the file. Malformed input is replaced, as with an
+     *         {@link java.io.InputStreamReader}.
+     * @return The reader, which must be closed.
+     * @throws IOException
+     *         If the file cannot be opened.
+     */
+    public static CSVReader open( Path file, CSVSymbols symbols, Charset charset )
+            throws IOException {
+        return open( file, symbols, charset, MappedSource.WINDOW_SIZE );
+    }
+
+    /**
+     * Like {@link #open(Path, CSVSymbols, Charset)}, with the given size of the mapped windows.
+     */
+    static CSVReader open( Path file, CSVSymbols symbols, Charset charset, long windowSize )
+            throws IOException {
+        return new CSVReader( new MappedSource( file, charset, windowSize ), symbols, DEFAULT_BUFFER_SIZE );
+    }
+
+    public CSVSymbols getCSVSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Move to the next record.
+     *
+     * @return <tt>false</tt> if there are no more records.
+     * @throws IOException
+     *         If reading from the source fails.
+     */
+    public boolean next()
+            throws IOException {
+        fieldCount = 0;
+        if ( pos == limit ) {
+            refill( pos );
+            if ( pos == limit ) {
+                return false;
+            }
+        }
+        if ( skipLineFeed ) {
+            skipLineFeed = false;
+            if ( buf[pos] == '\n' ) {
+                pos++;
+                if ( pos == limit ) {
+                    refill( pos );
+                    if ( pos == limit ) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        // Find the end of the record: the first line break outside of quotes.
+        int start = pos;
+        int scan = start;
+        boolean inQuotes = false;
+        int end;
+        while ( true ) {
+            if ( scan == limit ) {
+                int shift = refill( start );
+                start -= shift;
+                scan -= shift;
+                if ( scan == limit ) {
+                    end = scan;
+                    pos = scan;
+                    break;
+                }
+            }
+            char c = buf[scan];
+            if ( c == '"' ) {
+                inQuotes = !inQuotes;
+            } else if ( !inQuotes && ( c == '\n' || c == '\r' ) ) {
+                end = scan;
+                pos = scan + 1;
+                skipLineFeed = c == '\r';
+                break;
+            }
+            scan++;
+        }
+        parseFields( start, end );
+        recordNumber++;
+        return true;
+    }
+
+    /**
+     * @return The number of fields in the current record; 0 for an empty line.
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @return The number of the current record, starting at 1.
+     */
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * Get a field of the current record as a view into the reader's buffer. The view is reused
+     * and only valid until the next call to {@link #next()}.
+     *
+     * @param index
+     *         The index of the field.
+     * @return The unescaped field value.
+     * @throws IndexOutOfBoundsException
+     *         If the record has no such field.
+     */
+    public CharSequence getField( int index ) {
+        checkIndex( index );
+        return fields[index];
+    }
+
+    /**
+     * @param index
+     *         The index of the field.
+     * @return The unescaped field value as a new <tt>String</tt>.
+     * @throws IndexOutOfBoundsException
+     *         If the record has no such field.
+     */
+    public String getString( int index ) {
+        checkIndex( index );
+        return new String( buf, starts[index], ends[index] - starts[index] );
+    }
+
+    /**
+     * @return All fields of the current record as new <tt>String</tt>s.
+     */
+    public String[] getStrings() {
+        String[] ret = new String[fieldCount];
+        for ( int i = 0; i < fieldCount; i++ ) {
+            ret[i] = getString( i );
+        }
+        return ret;
+    }
+
+    @Override
+    public void close()
+            throws IOException {
+        source.close();
+    }
+
+    /**
+     * Split the record in <tt>[start, end)</tt> into fields, unescaping them in place.
+     */
+    private void parseFields( int start, int end ) {
+        if ( start == end ) {
+            return;
+        }
+        char sep = symbols.getRecordSeparator();
+        char[] b = buf;
+        int i = start;
+        while ( true ) {
+            int fieldStart = i;
+            int w = i;
+            if ( i < end && b[i] == '"' && !( i + 2 < end && b[i + 1] == '"' && b[i + 2] != '"' && b[i + 2] != sep ) ) {
+                // A quoted field, up to the closing quote.
+                i++;
+                while ( i < end ) {
+                    char c = b[i++];
+                    if ( c == '"' ) {
+                        if ( i < end && b[i] == '"' ) {
+                            i++;
+                        } else {
+                            break;
+                        }
+                    }
+                    b[w++] = c;
+                }
+            }
+            // Unquoted text, or anything following the closing quote.
+            while ( i < end ) {
+                char c = b[i];
+                if ( c == sep ) {
+                    break;
+                }
+                i++;
+                if ( c == '"' && i < end && b[i] == '"' ) {
+                    i++;
+                }
+                b[w++] = c;
+            }
+            addField( fieldStart, w );
+            if ( i == end ) {
+                return;
+            }
+            // Skip the separator.
+            i++;
+        }
+    }
+
+    private void addField( int start, int end ) {
+        if ( fieldCount == starts.length ) {
+            int len = fieldCount * 2;
+            starts = Arrays.copyOf( starts, len );
+            ends = Arrays.copyOf( ends, len );
+            fields = Arrays.copyOf( fields, len );
+        }
+        if ( fields[fieldCount] == null ) {
+            fields[fieldCount] = new Field( fieldCount );
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        fieldCount++;
+    }
+
+    private void checkIndex( int index ) {
+        if ( index < 0 || index >= fieldCount ) {
+            throw new IndexOutOfBoundsException( "Field " + index + " of a record with " + fieldCount + " fields" );
+        }
+    }
+
+    /**
+     * Read more characters, keeping those from <tt>keep</tt> on, which are moved to the start of
+     * the buffer. The buffer grows if it is mostly occupied by the kept characters.
+     *
+     * @return The distance the kept characters moved.
+     */
+    private int refill( int keep )
+            throws IOException {
+        if ( keep > 0 ) {
+            System.arraycopy( buf, keep, buf, 0, limit - keep );
+            limit -= keep;
+            pos -= keep;
+        }
+        if ( buf.length - limit < buf.length / 4 ) {
+            buf = Arrays.copyOf( buf, buf.length * 2 );
+        }
+        while ( !eof && limit < buf.length ) {
+            int n = source.read( buf, limit, buf.length - limit );
+            if ( n < 0 ) {
+                eof = true;
+            } else if ( n > 0 ) {
+                limit += n;
+                break;
+            }
+        }
+        return keep;
+    }
+
+    /** A field of the current record. */
+    private final class Field implements CharSequence {
+
+        private final int index;
+
+        Field( int index ) {
+            this.index = index;
+        }
+
+        @Override
+        public int length() {
+            return ends[index] - starts[index];
+        }
+
+        @Override
+        public char charAt( int i ) {
+            if ( i < 0 || i >= length() ) {
+                throw new IndexOutOfBoundsException( "index " + i + ", length " + length() );
+            }
+            return buf[starts[index] + i];
+        }
+
+        @Override
+        public CharSequence subSequence( int start, int end ) {
+            if ( start < 0 || end > length() || start > end ) {
+                throw new IndexOutOfBoundsException( "start " + start + ", end " + end + ", length " + length() );
+            }
+            return new String( buf, starts[index] + start, end - start );
+        }
+
+        @Override
+        public String toString() {
+            return new String( buf, starts[index], length() );
+        }
+    }
+
+    /** Where the characters come from. */
+    private interface Source extends Closeable {
+
+        /** Like {@link Reader#read(char[], int, int)}. */
+        int read( char[] b, int off, int len )
+                throws IOException;
+    }
+
+    private static final class ReaderSource implements Source {
+
+        private final Reader in;
+
+        ReaderSource( Reader in ) {
+            this.in = in;
+        }
+
+        @Override
+        public int read( char[] b, int off, int len )
+                throws IOException {
+            return in.read( b, off, len );
+        }
+
+        @Override
+        public void close()
+                throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Decodes a file mapped into memory a window at a time. The mappings are released by the
+     * garbage collector.
+     */
+    private static final class MappedSource implements Source {
+
+        private static final long WINDOW_SIZE = 1L << 26;
+        /** Large enough for the leftover bytes of a partial character and more. */
+        private static final long MIN_WINDOW_SIZE = 16;
+
+        private final FileChannel channel;
+        private final long windowSize;
+        private final long size;
+        private final CharsetDecoder decoder;
+        private long windowStart;
+        private MappedByteBuffer window;
+        private CharBuffer chars;
+        private boolean flushed;
+
+        MappedSource( Path file, Charset charset, long windowSize )
+                throws IOException {
+            this.windowSize = Math.max( MIN_WINDOW_SIZE, windowSize );
+            this.channel = FileChannel.open( file, StandardOpenOption.READ );
+            try {
+                this.size = channel.size();
+                this.decoder = charset.newDecoder()
+                                      .onMalformedInput( CodingErrorAction.REPLACE )
+                                      .onUnmappableCharacter( CodingErrorAction.REPLACE );
+                map( 0 );
+            } catch ( IOException | RuntimeException e ) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public int read( char[] b, int off, int len )
+                throws IOException {
+            if ( chars == null || chars.array() != b ) {
+                chars = CharBuffer.wrap( b );
+            }
+            chars.limit( off + len ).position( off );
+            while ( chars.position() == off ) {
+                if ( flushed ) {
+                    return -1;
+                }
+                boolean last = windowStart + window.limit() >= size;
+                CoderResult result = decoder.decode( window, chars, last );
+                if ( result.isError() ) {
+                    result.throwException();
+                }
+                if ( chars.position() > off ) {
+                    break;
+                }
+                if ( !last ) {
+                    // Only a partial character, if anything, is left in this window.
+                    map( windowStart + window.position() );
+                } else {
+                    decoder.flush( chars );
+                    flushed = true;
+                }
+            }
+            return chars.position() - off;
+        }
+
+        @Override
+        public void close()
+                throws IOException {
+            channel.close();
+        }
+
+        private void map( long start )
+                throws IOException {
+            windowStart = start;
+            window = channel.map( FileChannel.MapMode.READ_ONLY, start, Math.min( windowSize, size - start ) );
+        }
+    }
+}
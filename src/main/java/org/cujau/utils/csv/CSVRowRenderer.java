@@ -0,0 +1,16 @@
+package org.cujau.utils.csv;
+
+import java.io.IOException;
+
+/**
+ * Renders a whole row as one line, for {@link ParallelCSVExporter}. Implementations write the
+ * fields with the <tt>writeField</tt> methods of the given writer and end with
+ * {@link BufferedCSVWriter#endLine()}, or call one of its <tt>renderLine</tt> methods.
+ *
+ * @param <R>
+ *         The type of the rows.
+ */
+public interface CSVRowRenderer<R> {
+    void renderRow( R row, BufferedCSVWriter out )
+            throws IOException;
+}
@@ -6,6 +6,8 @@ import java.util.Arrays;
 import java.util.List;
 
 public class CSVWriter {
+    private static final StringCSVRenderer STRING_RENDERER = new StringCSVRenderer();
+
     private CSVSymbols symbols;
     private Writer writer;
 
@@ -28,8 +30,7 @@ public class CSVWriter {
     
     public void renderLine( List<String> records )
             throws IOException {
-        StringCSVRenderer renderer = new StringCSVRenderer();
-        renderLine( renderer, records );
+        renderLine( STRING_RENDERER, records );
     }
 
     public void renderLine( CSVRenderer renderer, List<Object> recordValues, Object... accessoryData )
@@ -39,7 +40,7 @@ public class CSVWriter {
             String s = renderer.renderRecord( value, accessoryData );
             needSep = writeRecord( s, needSep );
         }
-        writer.write( symbols.getLineSeparator() );
+        writeLineSeparator();
     }
 
     public <E> void renderLine( CSVTypedRenderer<E> renderer, List<E> recordValues, Object... accessoryData )
@@ -49,7 +50,7 @@ public class CSVWriter {
             String s = renderer.renderRecord( value, accessoryData );
             needSep = writeRecord( s, needSep );
         }
-        writer.write( symbols.getLineSeparator() );
+        writeLineSeparator();
     }
 
     boolean writeRecord( String s, boolean needSep )
@@ -60,6 +61,11 @@ public class CSVWriter {
         writer.write( quoteIfNecessary( escapeDoubleQuotes( s ) ) );
         return true;
     }
+
+    void writeLineSeparator()
+            throws IOException {
+        writer.write( symbols.getLineSeparator() );
+    }
     
     String escapeDoubleQuotes( String str ) {
         return str.replace( "\"", "\"\"" );
@@ -73,7 +79,7 @@ public class CSVWriter {
         return str;
     }
     
-    private class StringCSVRenderer implements CSVTypedRenderer<String> {
+    private static class StringCSVRenderer implements CSVTypedRenderer<String> {
         @Override
         public String renderRecord( String value, Object... accessoryData ) {
             return value;
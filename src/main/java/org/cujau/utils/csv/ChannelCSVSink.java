@@ -0,0 +1,496 @@
+package org.cujau.utils.csv;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.cujau.utils.ZipPool;
+
+/**
+ * A {@link Writer} that encodes characters straight into a pooled {@link ByteBuffer} and writes
+ * it to a {@link WritableByteChannel}, optionally gzip-compressed. Meant as the target of a
+ * {@link BufferedCSVWriter}, which hands over its characters a block at a time:
+ *
+ * <pre>
+ * try ( BufferedCSVWriter csv = new BufferedCSVWriter( ChannelCSVSink.open( path, StandardCharsets.UTF_8, false ),
+ *                                                      symbols ) ) {
+ *     ...
+ * }
+ * </pre>
+ * <p>
+ * For UTF-8, US-ASCII and ISO-8859-1, characters are encoded by hand: runs of 7-bit characters are
+ * copied a byte per character without a {@link CharsetEncoder}, and other characters are
+ * encoded directly. Other charsets go through a reused {@link CharsetEncoder}. In all cases
+ * characters that cannot be encoded, including unpaired surrogates, are replaced as an
+ * {@link java.io.OutputStreamWriter} does. Unlike an <tt>OutputStreamWriter</tt>, the sink takes
+ * no lock and is not thread safe.
+ * </p>
+ * <p>
+ * With gzip, the encoded bytes are compressed by a {@link Deflater} from the {@link ZipPool} and
+ * the output is a complete gzip file. {@link #flush()} passes all encoded bytes to the deflater and
+ * writes whatever compressed data is ready, without forcing a flush of the compressor.
+ * </p>
+ */
+public class ChannelCSVSink extends Writer {
+
+    /** The size of the byte buffers. */
+    public static final int BUFFER_SIZE = 1 << 16;
+    /** The maximum number of idle buffers kept in the pool. */
+    public static final int MAX_POOLED = 2 * Runtime.getRuntime().availableProcessors();
+
+    private static final ConcurrentLinkedQueue<ByteBuffer> BUFFERS = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger BUFFER_COUNT = new AtomicInteger();
+
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    /* How characters are encoded. */
+    private static final int UTF_8 = 0;
+    private static final int SINGLE_BYTE = 1;
+    private static final int ENCODER = 2;
+
+    /** The largest number of bytes one character (or surrogate pair) encodes to by hand. */
+    private static final int MAX_BYTES_PER_CHAR = 4;
+    /** The size of the array strings are copied into before they are encoded. */
+    private static final int SCRATCH_SIZE = 1024;
+
+    private final WritableByteChannel channel;
+    private final int mode;
+    /** The highest character the single-byte charset can encode. */
+    private final char maxChar;
+    private final CharsetEncoder encoder;
+
+    private ByteBuffer buffer;
+    private final byte[] bytes;
+    private int pos;
+    /** A high surrogate waiting for the low surrogate from the next write. */
+    private char pendingHighSurrogate;
+    /** Holds single characters and pieces of strings on their way to {@link #write(char[], int, int)}. */
+    private final char[] scratch = new char[SCRATCH_SIZE];
+
+    private Deflater deflater;
+    private final CRC32 crc;
+    private ByteBuffer compressedBuffer;
+    private final byte[] compressed;
+    private int compressedPos;
+
+    private long bytesWritten;
+    private boolean closed;
+
+    /**
+     * Construct a sink writing uncompressed text to the channel.
+     *
+     * @param channel
+     *         The channel receiving the encoded text. It is closed by {@link #close()}.
+     * @param charset
+     *         The encoding.
+     */
+    public ChannelCSVSink( WritableByteChannel channel, Charset charset ) {
+        this( channel, charset, false, Deflater.DEFAULT_COMPRESSION );
+    }
+
+    private ChannelCSVSink( WritableByteChannel channel, Charset charset, boolean gzip, int level ) {
+        this.channel = channel;
+        if ( charset.equals( StandardCharsets.UTF_8 ) ) {
+            mode = UTF_8;
+            maxChar = 0;
+            encoder = null;
+        } else if ( charset.equals( StandardCharsets.US_ASCII ) || charset.equals( StandardCharsets.ISO_8859_1 ) ) {
+            mode = SINGLE_BYTE;
+            maxChar = charset.equals( StandardCharsets.US_ASCII ) ? (char) 0x7f : (char) 0xff;
+            encoder = null;
+        } else {
+            mode = ENCODER;
+            maxChar = 0;
+            encoder = charset.newEncoder()
+                             .onMalformedInput( CodingErrorAction.REPLACE )
+                             .onUnmappableCharacter( CodingErrorAction.REPLACE );
+        }
+        if ( gzip ) {
+            deflater = ZipPool.deflater( level );
+            crc = new CRC32();
+        } else {
+            crc = null;
+        }
+        buffer = acquireBuffer();
+        bytes = buffer.array();
+        if ( gzip ) {
+            compressedBuffer = acquireBuffer();
+            compressed = compressedBuffer.array();
+            System.arraycopy( GZIP_HEADER, 0, compressed, 0, GZIP_HEADER.length );
+            compressedPos = GZIP_HEADER.length;
+        } else {
+            compressed = null;
+        }
+    }
+
+    /**
+     * Construct a sink writing gzip-compressed text to the channel.
+     *
+     * @param channel
+     *         The channel receiving the gzip data. It is closed by {@link #close()}.
+     * @param charset
+     *         The encoding of the text.
+     * @param level
+     *         The compression level, 0-9 or {@link Deflater#DEFAULT_COMPRESSION}.
+     * @return The sink.
+     * @throws IllegalArgumentException
+     *         If the compression level is invalid.
+     */
+    public static ChannelCSVSink gzip( WritableByteChannel channel, Charset charset, int level ) {
+        return new ChannelCSVSink( channel, charset, true, level );
+    }
+
+    /**
+     * Open a sink writing to a file, which is created or truncated.
+     *
+     * @param file
+     *         The file to write.
+     * @param charset
+     *         The encoding of the text.
+     * @param gzip
+     *         Whether to gzip-compress the file, with the default compression level.
+     * @return The sink.
+     * @throws IOException
+     *         If the file cannot be opened.
+     */
+    public static ChannelCSVSink open( Path file, Charset charset, boolean gzip )
+            throws IOException {
+        FileChannel channel = FileChannel.open( file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                StandardOpenOption.TRUNCATE_EXISTING );
+        return new ChannelCSVSink( channel, charset, gzip, Deflater.DEFAULT_COMPRESSION );
+    }
+
+    /**
+     * @return The number of bytes written to the channel so far.
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public void write( int c )
+            throws IOException {
+        scratch[0] = (char) c;
+        write( scratch, 0, 1 );
+    }
+
+    @Override
+    public void write( String str, int off, int len )
+            throws IOException {
+        if ( off < 0 || len < 0 || off > str.length() - len ) {
+            throw new IndexOutOfBoundsException();
+        }
+        int end = off + len;
+        while ( off < end ) {
+            int n = Math.min( end - off, SCRATCH_SIZE );
+            str.getChars( off, off + n, scratch, 0 );
+            write( scratch, 0, n );
+            off += n;
+        }
+    }
+
+    @Override
+    public void write( char[] cbuf, int off, int len )
+            throws IOException {
+        if ( off < 0 || len < 0 || off > cbuf.length - len ) {
+            throw new IndexOutOfBoundsException();
+        }
+        ensureOpen();
+        if ( mode == ENCODER ) {
+            encodeChars( cbuf, off, len );
+            return;
+        }
+        int end = off + len;
+        int i = off;
+        if ( pendingHighSurrogate != 0 && i < end ) {
+            char high = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            i = encodeSurrogate( high, cbuf, i, end );
+        }
+        byte[] b = bytes;
+        while ( i < end ) {
+            if ( b.length - pos < MAX_BYTES_PER_CHAR ) {
+                flushBytes();
+            }
+            // Copy a run of 7-bit characters.
+            int runEnd = Math.min( end, i + ( b.length - pos ) );
+            int p = pos;
+            while ( i < runEnd ) {
+                char c = cbuf[i];
+                if ( c >= 0x80 ) {
+                    break;
+                }
+                b[p++] = (byte) c;
+                i++;
+            }
+            pos = p;
+            if ( i < end && cbuf[i] >= 0x80 && b.length - pos >= MAX_BYTES_PER_CHAR ) {
+                char c = cbuf[i++];
+                if ( mode == SINGLE_BYTE ) {
+                    if ( Character.isHighSurrogate( c ) ) {
+                        // A pair is one unmappable character.
+                        i = encodeSurrogate( c, cbuf, i, end );
+                    } else {
+                        b[pos++] = c <= maxChar ? (byte) c : (byte) '?';
+                    }
+                } else if ( c < 0x800 ) {
+                    b[pos++] = (byte) ( 0xc0 | ( c >> 6 ) );
+                    b[pos++] = (byte) ( 0x80 | ( c & 0x3f ) );
+                } else if ( Character.isSurrogate( c ) ) {
+                    i = encodeSurrogate( c, cbuf, i, end );
+                } else {
+                    b[pos++] = (byte) ( 0xe0 | ( c >> 12 ) );
+                    b[pos++] = (byte) ( 0x80 | ( ( c >> 6 ) & 0x3f ) );
+                    b[pos++] = (byte) ( 0x80 | ( c & 0x3f ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the encoded bytes to the channel. With gzip, they are passed to the deflater and only
+     * the compressed data that is ready is written.
+     */
+    @Override
+    public void flush()
+            throws IOException {
+        ensureOpen();
+        flushBytes();
+        if ( compressed != null ) {
+            writeCompressed();
+        }
+    }
+
+    /**
+     * Write all remaining data, complete the gzip file if compressing and close the channel. An
+     * unpaired high surrogate at the end is replaced.
+     */
+    @Override
+    public void close()
+            throws IOException {
+        if ( closed ) {
+            return;
+        }
+        closed = true;
+        try {
+            if ( mode == ENCODER ) {
+                CharBuffer rest = CharBuffer.wrap( new char[] { pendingHighSurrogate },
+                                                   0, pendingHighSurrogate != 0 ? 1 : 0 );
+                pendingHighSurrogate = 0;
+                encode( rest, true );
+                if ( bytes.length - pos < MAX_BYTES_PER_CHAR ) {
+                    flushBytes();
+                }
+                buffer.position( pos );
+                encoder.flush( buffer );
+                pos = buffer.position();
+            }
+            if ( pendingHighSurrogate != 0 ) {
+                pendingHighSurrogate = 0;
+                if ( bytes.length == pos ) {
+                    flushBytes();
+                }
+                bytes[pos++] = '?';
+            }
+            flushBytes();
+            if ( compressed != null ) {
+                finishGzip();
+            }
+        } finally {
+            releaseResources();
+            channel.close();
+        }
+    }
+
+    private void ensureOpen()
+            throws IOException {
+        if ( closed ) {
+            throw new IOException( "Stream closed" );
+        }
+    }
+
+    /**
+     * Encode a surrogate at <tt>cbuf[i - 1]</tt> as UTF-8, pairing a high surrogate with the low
+     * surrogate at <tt>cbuf[i]</tt>.
+     *
+     * @return The index after the consumed characters.
+     */
+    private int encodeSurrogate( char c, char[] cbuf, int i, int end )
+            throws IOException {
+        if ( bytes.length - pos < MAX_BYTES_PER_CHAR ) {
+            flushBytes();
+        }
+        if ( Character.isHighSurrogate( c ) ) {
+            if ( i == end ) {
+                pendingHighSurrogate = c;
+                return i;
+            }
+            char low = cbuf[i];
+            if ( mode == SINGLE_BYTE ) {
+                // Paired or not, the character cannot be mapped.
+                bytes[pos++] = '?';
+                return Character.isLowSurrogate( low ) ? i + 1 : i;
+            }
+            if ( Character.isLowSurrogate( low ) ) {
+                int cp = Character.toCodePoint( c, low );
+                bytes[pos++] = (byte) ( 0xf0 | ( cp >> 18 ) );
+                bytes[pos++] = (byte) ( 0x80 | ( ( cp >> 12 ) & 0x3f ) );
+                bytes[pos++] = (byte) ( 0x80 | ( ( cp >> 6 ) & 0x3f ) );
+                bytes[pos++] = (byte) ( 0x80 | ( cp & 0x3f ) );
+                return i + 1;
+            }
+        }
+        // An unpaired surrogate.
+        bytes[pos++] = '?';
+        return i;
+    }
+
+    /**
+     * Encode characters with the {@link CharsetEncoder}, which leaves a high surrogate at the end
+     * unconsumed until it sees the next character.
+     */
+    private void encodeChars( char[] cbuf, int off, int len )
+            throws IOException {
+        if ( pendingHighSurrogate != 0 ) {
+            if ( len == 0 ) {
+                return;
+            }
+            CharBuffer pair = CharBuffer.wrap( new char[] { pendingHighSurrogate, cbuf[off] } );
+            pendingHighSurrogate = 0;
+            encode( pair, false );
+            // Zero if the first character was replaced and the second one is a high surrogate.
+            int consumed = pair.position() - 1;
+            off += consumed;
+            len -= consumed;
+        }
+        CharBuffer chars = CharBuffer.wrap( cbuf, off, len );
+        encode( chars, false );
+        if ( chars.hasRemaining() ) {
+            pendingHighSurrogate = chars.get();
+        }
+    }
+
+    private void encode( CharBuffer chars, boolean endOfInput )
+            throws IOException {
+        while ( true ) {
+            buffer.position( pos );
+            CoderResult result = encoder.encode( chars, buffer, endOfInput );
+            pos = buffer.position();
+            if ( result.isOverflow() ) {
+                flushBytes();
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void flushBytes()
+            throws IOException {
+        if ( pos == 0 ) {
+            return;
+        }
+        if ( compressed != null ) {
+            crc.update( bytes, 0, pos );
+            deflater.setInput( bytes, 0, pos );
+            while ( !deflater.needsInput() ) {
+                deflate();
+            }
+        } else {
+            buffer.clear().limit( pos );
+            writeFully( buffer );
+        }
+        pos = 0;
+    }
+
+    private void deflate()
+            throws IOException {
+        compressedPos += deflater.deflate( compressed, compressedPos, compressed.length - compressedPos );
+        if ( compressedPos == compressed.length ) {
+            writeCompressed();
+        }
+    }
+
+    private void finishGzip()
+            throws IOException {
+        deflater.finish();
+        while ( !deflater.finished() ) {
+            deflate();
+        }
+        if ( compressed.length - compressedPos < 8 ) {
+            writeCompressed();
+        }
+        writeIntLE( (int) crc.getValue() );
+        writeIntLE( (int) deflater.getBytesRead() );
+        writeCompressed();
+    }
+
+    private void writeIntLE( int value ) {
+        compressed[compressedPos++] = (byte) value;
+        compressed[compressedPos++] = (byte) ( value >>> 8 );
+        compressed[compressedPos++] = (byte) ( value >>> 16 );
+        compressed[compressedPos++] = (byte) ( value >>> 24 );
+    }
+
+    private void writeCompressed()
+            throws IOException {
+        if ( compressedPos > 0 ) {
+            compressedBuffer.clear().limit( compressedPos );
+            writeFully( compressedBuffer );
+            compressedPos = 0;
+        }
+    }
+
+    private void writeFully( ByteBuffer src )
+            throws IOException {
+        while ( src.hasRemaining() ) {
+            bytesWritten += channel.write( src );
+        }
+    }
+
+    private void releaseResources() {
+        if ( deflater != null ) {
+            ZipPool.release( deflater );
+            deflater = null;
+        }
+        if ( buffer != null ) {
+            releaseBuffer( buffer );
+            buffer = null;
+        }
+        if ( compressedBuffer != null ) {
+            releaseBuffer( compressedBuffer );
+            compressedBuffer = null;
+        }
+    }
+
+    private static ByteBuffer acquireBuffer() {
+        ByteBuffer buffer = BUFFERS.poll();
+        if ( buffer == null ) {
+            return ByteBuffer.allocate( BUFFER_SIZE );
+        }
+        BUFFER_COUNT.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    private static void releaseBuffer( ByteBuffer buffer ) {
+        if ( BUFFER_COUNT.incrementAndGet() > MAX_POOLED ) {
+            BUFFER_COUNT.decrementAndGet();
+            return;
+        }
+        BUFFERS.offer( buffer );
+    }
+}
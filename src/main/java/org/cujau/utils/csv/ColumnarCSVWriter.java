@@ -0,0 +1,511 @@
+package org.cujau.utils.csv;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes blocks of rows from data that is held in column arrays, such as <tt>double[]</tt>,
+ * <tt>long[]</tt> and dictionary-coded strings, without boxing the values into rows first.
+ * <p>
+ * Columns are added once, each with its array, and {@link #writeRows(int, int)} then writes any
+ * range of rows to the {@link BufferedCSVWriter} given to the constructor. Numbers and dates are
+ * formatted by hand straight into the writer's buffer, and the entries of a dictionary are escaped
+ * once when the column is added, so writing a block allocates nothing. The arrays are not copied:
+ * changes made to them show up in the rows written afterwards.
+ * </p>
+ * <p>
+ * Numbers are formatted like {@link String#valueOf(long)} and {@link String#valueOf(double)}, or
+ * with a fixed number of decimals, rounded half away from zero. Dates and times are formatted as
+ * <tt>yyyy-MM-dd</tt> and <tt>yyyy-MM-dd HH:mm:ss</tt> in a time zone, from epoch milliseconds.
+ * <tt>null</tt> strings and negative dictionary codes are written as empty fields. Instances are not
+ * thread safe.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * try ( BufferedCSVWriter csv = new BufferedCSVWriter( fileWriter, symbols ) ) {
+ *     ColumnarCSVWriter columns = new ColumnarCSVWriter( csv );
+ *     columns.addDateTimeColumn( "time", times, ZoneId.of( "Europe/Zurich" ) );
+ *     columns.addDictionaryColumn( "symbol", symbolCodes, symbolNames );
+ *     columns.addDoubleColumn( "price", prices, 4 );
+ *     columns.addLongColumn( "volume", volumes );
+ *     columns.writeHeader();
+ *     columns.writeRows( 0, times.length );
+ * }
+ * </pre>
+ */
+public class ColumnarCSVWriter {
+
+    /** The largest number of decimals accepted for fixed-point columns. */
+    public static final int MAX_DECIMALS = 15;
+
+    private static final long[] POWERS_OF_TEN = new long[MAX_DECIMALS + 1];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for ( int i = 1; i < POWERS_OF_TEN.length; i++ ) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /** Scaled values from here on do not fit in a <tt>long</tt> exactly enough. */
+    private static final double MAX_SCALED = 9.0e18;
+
+    private static final int LONG_WIDTH = 20;
+    private static final int DATE_WIDTH = 10;
+    private static final int DATE_TIME_WIDTH = 19;
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern( "uuuu-MM-dd" );
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern( "uuuu-MM-dd HH:mm:ss" );
+
+    private final BufferedCSVWriter out;
+    private final List<String> names = new ArrayList<>();
+    private Column[] columns = new Column[0];
+    /** The number of rows all columns have. */
+    private int rowCount = Integer.MAX_VALUE;
+
+    /**
+     * @param out
+     *         The writer receiving the rows. It is not flushed or closed by this class.
+     */
+    public ColumnarCSVWriter( BufferedCSVWriter out ) {
+        this.out = out;
+    }
+
+    /**
+     * @return The number of rows available in all columns.
+     */
+    public int getRowCount() {
+        return columns.length == 0 ? 0 : rowCount;
+    }
+
+    public ColumnarCSVWriter addIntColumn( String name, int[] values ) {
+        return add( name, values.length, new IntColumn( values ) );
+    }
+
+    public ColumnarCSVWriter addLongColumn( String name, long[] values ) {
+        return add( name, values.length, new LongColumn( values ) );
+    }
+
+    /**
+     * Add a column of doubles formatted like {@link String#valueOf(double)}.
+     */
+    public ColumnarCSVWriter addDoubleColumn( String name, double[] values ) {
+        return add( name, values.length, new DoubleColumn( values ) );
+    }
+
+    /**
+     * Add a column of doubles formatted with a fixed number of decimals. The value times
+     * 10<sup>decimals</sup> is computed in double precision and rounded half away from zero.
+     * Infinite and NaN values are formatted like {@link String#valueOf(double)}.
+     *
+     * @param decimals
+     *         The number of decimals, from 0 to {@link #MAX_DECIMALS}.
+     * @throws IllegalArgumentException
+     *         If the number of decimals is out of range.
+     */
+    public ColumnarCSVWriter addDoubleColumn( String name, double[] values, int decimals ) {
+        if ( decimals < 0 || decimals > MAX_DECIMALS ) {
+            throw new IllegalArgumentException( "Invalid number of decimals: " + decimals );
+        }
+        return add( name, values.length, new FixedDoubleColumn( values, decimals ) );
+    }
+
+    public ColumnarCSVWriter addStringColumn( String name, String[] values ) {
+        return add( name, values.length, new StringColumn( values ) );
+    }
+
+    /**
+     * Add a column of dictionary-coded strings.
+     *
+     * @param codes
+     *         The index into <tt>dictionary</tt> of every row, or a negative number for an empty
+     *         field.
+     * @param dictionary
+     *         The distinct values. It is escaped when the column is added, so later changes to it
+     *         are not seen.
+     */
+    public ColumnarCSVWriter addDictionaryColumn( String name, int[] codes, String[] dictionary ) {
+        char sep = out.getCSVSymbols().getRecordSeparator();
+        char[][] escaped = new char[dictionary.length][];
+        for ( int i = 0; i < dictionary.length; i++ ) {
+            escaped[i] = dictionary[i] != null ? escape( dictionary[i], sep ) : new char[0];
+        }
+        return add( name, codes.length, new DictionaryColumn( codes, escaped ) );
+    }
+
+    /**
+     * Add a column of dates formatted as <tt>yyyy-MM-dd</tt>.
+     *
+     * @param epochMillis
+     *         The points in time, in milliseconds since the epoch.
+     * @param zone
+     *         The time zone of the dates.
+     */
+    public ColumnarCSVWriter addDateColumn( String name, long[] epochMillis, ZoneId zone ) {
+        return add( name, epochMillis.length, new DateColumn( epochMillis, zone, false ) );
+    }
+
+    /**
+     * Add a column of dates and times formatted as <tt>yyyy-MM-dd HH:mm:ss</tt>.
+     *
+     * @param epochMillis
+     *         The points in time, in milliseconds since the epoch.
+     * @param zone
+     *         The time zone of the dates and times.
+     */
+    public ColumnarCSVWriter addDateTimeColumn( String name, long[] epochMillis, ZoneId zone ) {
+        return add( name, epochMillis.length, new DateColumn( epochMillis, zone, true ) );
+    }
+
+    /**
+     * Write a line with the names of the columns.
+     */
+    public void writeHeader()
+            throws IOException {
+        out.renderLine( names );
+    }
+
+    /**
+     * Write rows <tt>from</tt> (inclusive) to <tt>to</tt> (exclusive) of all columns, one line
+     * each.
+     *
+     * @throws IndexOutOfBoundsException
+     *         If the range is not within {@link #getRowCount()}.
+     */
+    public void writeRows( int from, int to )
+            throws IOException {
+        if ( from < 0 || from > to || to > getRowCount() ) {
+            throw new IndexOutOfBoundsException( "Rows " + from + " to " + to + " of " + getRowCount() );
+        }
+        Column[] cols = columns;
+        for ( int row = from; row < to; row++ ) {
+            for ( Column col : cols ) {
+                col.write( out, row );
+            }
+            out.endLine();
+        }
+    }
+
+    private ColumnarCSVWriter add( String name, int length, Column column ) {
+        names.add( name );
+        columns = Arrays.copyOf( columns, columns.length + 1 );
+        columns[columns.length - 1] = column;
+        rowCount = Math.min( rowCount, length );
+        return this;
+    }
+
+    private static char[] escape( String s, char sep ) {
+        boolean quote = s.indexOf( sep ) >= 0 || s.indexOf( '\n' ) >= 0 || s.indexOf( '\r' ) >= 0;
+        String escaped = s.replace( "\"", "\"\"" );
+        return ( quote ? "\"" + escaped + "\"" : escaped ).toCharArray();
+    }
+
+    /**
+     * Write the decimal digits of a non-negative number ending before <tt>end</tt>.
+     */
+    private static void putDigits( char[] b, int end, long v ) {
+        int p = end;
+        while ( v >= 10 ) {
+            long q = v / 10;
+            b[--p] = (char) ( '0' + ( v - q * 10 ) );
+            v = q;
+        }
+        b[--p] = (char) ( '0' + v );
+    }
+
+    private static int digitCount( long v ) {
+        int n = 1;
+        for ( long limit = 10; n < 19 && v >= limit; limit *= 10 ) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Write a number like {@link String#valueOf(long)} at position <tt>p</tt>.
+     *
+     * @return The position after the number.
+     */
+    private static int putLong( char[] b, int p, long v ) {
+        if ( v < 0 ) {
+            if ( v == Long.MIN_VALUE ) {
+                String s = Long.toString( v );
+                s.getChars( 0, s.length(), b, p );
+                return p + s.length();
+            }
+            b[p++] = '-';
+            v = -v;
+        }
+        int end = p + digitCount( v );
+        putDigits( b, end, v );
+        return end;
+    }
+
+    private static void put2( char[] b, int p, int v ) {
+        b[p] = (char) ( '0' + v / 10 );
+        b[p + 1] = (char) ( '0' + v % 10 );
+    }
+
+    /** Writes the value of one row. */
+    private abstract static class Column {
+
+        abstract void write( BufferedCSVWriter out, int row )
+                throws IOException;
+    }
+
+    private static final class IntColumn extends Column {
+
+        private final int[] values;
+
+        IntColumn( int[] values ) {
+            this.values = values;
+        }
+
+        @Override
+        void write( BufferedCSVWriter out, int row )
+                throws IOException {
+            int p = out.beginField( LONG_WIDTH );
+            out.endField( putLong( out.buffer(), p, values[row] ) );
+        }
+    }
+
+    private static final class LongColumn extends Column {
+
+        private final long[] values;
+
+        LongColumn( long[] values ) {
+            this.values = values;
+        }
+
+        @Override
+        void write( BufferedCSVWriter out, int row )
+                throws IOException {
+            int p = out.beginField( LONG_WIDTH );
+            out.endField( putLong( out.buffer(), p, values[row] ) );
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+
+        private final double[] values;
+
+        DoubleColumn( double[] values ) {
+            this.values = values;
+        }
+
+        @Override
+        void write( BufferedCSVWriter out, int row )
+                throws IOException {
+            out.writeField( values[row] );
+        }
+    }
+
+    private static final class FixedDoubleColumn extends Column {
+
+        private final double[] values;
+        private final int decimals;
+        private final long scale;
+
+        FixedDoubleColumn( double[] values, int decimals ) {
+            this.values = values;
+            this.decimals = decimals;
+            this.scale = POWERS_OF_TEN[decimals];
+        }
+
+        @Override
+        void write( BufferedCSVWriter out, int row )
+                throws IOException {
+            double v = values[row];
+            if ( Double.isNaN( v ) || Double.isInfinite( v ) ) {
+                out.writeField( v );
+                return;
+            }
+            double scaled = Math.abs( v ) * scale + 0.5;
+            if ( scaled >= MAX_SCALED ) {
+                out.writeField( BigDecimal.valueOf( v ).setScale( decimals, RoundingMode.HALF_UP ).toPlainString() );
+                return;
+            }
+            long units = (long) scaled;
+            // '-', 19 digits, '.' and leading zeros of the fraction.
+            int p = out.beginField( LONG_WIDTH + 2 + MAX_DECIMALS );
+            char[] b = out.buffer();
+            if ( v < 0 && units != 0 ) {
+                b[p++] = '-';
+            }
+            long integer = units / scale;
+            p = putLong( b, p, integer );
+            if ( decimals > 0 ) {
+                b[p++] = '.';
+                long fraction = units - integer * scale;
+                int end = p + decimals;
+                int digits = digitCount( fraction );
+                while ( p < end - digits ) {
+                    b[p++] = '0';
+                }
+                putDigits( b, end, fraction );
+                p = end;
+            }
+            out.endField( p );
+        }
+    }
+
+    private static final class StringColumn extends Column {
+
+        private final String[] values;
+
+        StringColumn( String[] values ) {
+            this.values = values;
+        }
+
+        @Override
+        void write( BufferedCSVWriter out, int row )
+                throws IOException {
+            out.writeField( values[row] );
+        }
+    }
+
+    private static final class DictionaryColumn extends Column {
+
+        private final int[] codes;
+        private final char[][] escaped;
+
+        DictionaryColumn( int[] codes, char[][] escaped ) {
+            this.codes = codes;
+            this.escaped = escaped;
+        }
+
+        @Override
+        void write( BufferedCSVWriter out, int row )
+                throws IOException {
+            int code = codes[row];
+            if ( code < 0 ) {
+                out.writeField( (CharSequence) null );
+                return;
+            }
+            char[] value = escaped[code];
+            if ( value.length > out.buffer().length ) {
+                // Longer than the whole buffer; let the writer split it.
+                out.writeField( new String( value ) );
+                return;
+            }
+            int p = out.beginField( value.length );
+            System.arraycopy( value, 0, out.buffer(), p, value.length );
+            out.endField( p + value.length );
+        }
+    }
+
+    private static final class DateColumn extends Column {
+
+        private final long[] epochMillis;
+        private final ZoneRules rules;
+        private final boolean withTime;
+
+        /* The offset of the zone from validFrom (inclusive) to validUntil (exclusive), in epoch seconds. */
+        private long validFrom = 1;
+        private long validUntil = 0;
+        private int offsetSeconds;
+
+        /* The last date written, as days since the epoch and as text. */
+        private long lastDay = Long.MIN_VALUE;
+        private final char[] lastDate = new char[DATE_WIDTH];
+
+        DateColumn( long[] epochMillis, ZoneId zone, boolean withTime ) {
+            this.epochMillis = epochMillis;
+            this.rules = zone.getRules();
+            this.withTime = withTime;
+            if ( rules.isFixedOffset() ) {
+                validFrom = Long.MIN_VALUE;
+                validUntil = Long.MAX_VALUE;
+                offsetSeconds = rules.getOffset( Instant.EPOCH ).getTotalSeconds();
+            }
+        }
+
+        @Override
+        void write( BufferedCSVWriter out, int row )
+                throws IOException {
+            long seconds = Math.floorDiv( epochMillis[row], 1000L );
+            if ( seconds < validFrom || seconds >= validUntil ) {
+                updateOffset( seconds );
+            }
+            long local = seconds + offsetSeconds;
+            long day = Math.floorDiv( local, 86400L );
+            if ( day != lastDay && !formatDate( day ) ) {
+                writeFallback( out, local );
+                return;
+            }
+            int p = out.beginField( DATE_TIME_WIDTH );
+            char[] b = out.buffer();
+            System.arraycopy( lastDate, 0, b, p, DATE_WIDTH );
+            p += DATE_WIDTH;
+            if ( withTime ) {
+                int secondOfDay = (int) ( local - day * 86400L );
+                b[p] = ' ';
+                put2( b, p + 1, secondOfDay / 3600 );
+                b[p + 3] = ':';
+                put2( b, p + 4, secondOfDay / 60 % 60 );
+                b[p + 6] = ':';
+                put2( b, p + 7, secondOfDay % 60 );
+                p += 9;
+            }
+            out.endField( p );
+        }
+
+        private void updateOffset( long seconds ) {
+            Instant instant = Instant.ofEpochSecond( seconds );
+            offsetSeconds = rules.getOffset( instant ).getTotalSeconds();
+            ZoneOffsetTransition previous = rules.previousTransition( instant );
+            ZoneOffsetTransition next = rules.nextTransition( instant );
+            validFrom = previous != null ? Math.min( seconds, previous.toEpochSecond() ) : Long.MIN_VALUE;
+            validUntil = next != null ? next.toEpochSecond() : Long.MAX_VALUE;
+        }
+
+        /**
+         * Format a day since the epoch into <tt>lastDate</tt>, for the years 0 to 9999.
+         *
+         * @return <tt>false</tt> if the year is out of range.
+         */
+        private boolean formatDate( long epochDay ) {
+            // Days to civil date, from Howard Hinnant's date algorithms.
+            long z = epochDay + 719468;
+            long era = Math.floorDiv( z, 146097L );
+            long doe = z - era * 146097;
+            long yoe = ( doe - doe / 1460 + doe / 36524 - doe / 146096 ) / 365;
+            long doy = doe - ( 365 * yoe + yoe / 4 - yoe / 100 );
+            long mp = ( 5 * doy + 2 ) / 153;
+            int day = (int) ( doy - ( 153 * mp + 2 ) / 5 + 1 );
+            int month = (int) ( mp < 10 ? mp + 3 : mp - 9 );
+            long year = yoe + era * 400 + ( month <= 2 ? 1 : 0 );
+            if ( year < 0 || year > 9999 ) {
+                return false;
+            }
+            char[] b = lastDate;
+            put2( b, 0, (int) ( year / 100 ) );
+            put2( b, 2, (int) ( year % 100 ) );
+            b[4] = '-';
+            put2( b, 5, month );
+            b[7] = '-';
+            put2( b, 8, day );
+            lastDay = epochDay;
+            return true;
+        }
+
+        private void writeFallback( BufferedCSVWriter out, long local )
+                throws IOException {
+            LocalDateTime time = LocalDateTime.ofEpochSecond( local, 0, ZoneOffset.UTC );
+            out.writeField( ( withTime ? DATE_TIME_FORMAT : DATE_FORMAT ).format( time ) );
+        }
+    }
+}
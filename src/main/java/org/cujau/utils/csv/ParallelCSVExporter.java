@@ -0,0 +1,282 @@
+package org.cujau.utils.csv;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.stream.Stream;
+
+/**
+ * Exports rows as CSV, rendering batches of lines on worker threads while the calling thread
+ * writes the finished batches to the target {@link Writer} in the original row order.
+ * <p>
+ * The calling thread pulls rows from the source, groups them into batches of
+ * {@link #getBatchSize()} rows and hands each batch to the executor, which renders it with a
+ * {@link BufferedCSVWriter} into an in-memory chunk. At most {@link #getMaxPendingBatches()}
+ * batches are in flight: once that many are pending, the calling thread waits for the oldest one,
+ * writes it out and only then pulls more rows. The memory used is therefore bounded by the size of
+ * that many batches, however long the source is, and a slow target writer slows down the source.
+ * </p>
+ * <p>
+ * The output is the same as rendering the rows one after the other with a
+ * {@link BufferedCSVWriter}. Renderers are called concurrently from several threads and must be
+ * thread safe. If a renderer throws, the export stops, the remaining batches are cancelled and
+ * the exception is rethrown by the <tt>export</tt> method.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * ParallelCSVExporter exporter = new ParallelCSVExporter( symbols );
+ * exporter.export( trades.stream(), ( trade, csv ) -&gt; {
+ *     csv.writeField( dateFormat.get().format( trade.getDate() ) );
+ *     csv.writeField( trade.getPrice() );
+ *     csv.endLine();
+ * }, fileWriter );
+ * </pre>
+ */
+public class ParallelCSVExporter {
+
+    /** The default number of rows rendered by one task. */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private static final int CHUNK_BUFFER_SIZE = 1 << 13;
+
+    private final CSVSymbols symbols;
+    private final Executor executor;
+    private final int batchSize;
+    private final int maxPendingBatches;
+
+    /**
+     * Construct an exporter on the common {@link ForkJoinPool}, with batches of
+     * {@link #DEFAULT_BATCH_SIZE} rows and two pending batches per thread of the pool.
+     */
+    public ParallelCSVExporter( CSVSymbols symbols ) {
+        this( symbols, ForkJoinPool.commonPool(), DEFAULT_BATCH_SIZE,
+              2 * ForkJoinPool.getCommonPoolParallelism() + 1 );
+    }
+
+    /**
+     * @param symbols
+     *         The separators to use.
+     * @param executor
+     *         Runs the rendering of the batches.
+     * @param batchSize
+     *         The number of rows rendered by one task.
+     * @param maxPendingBatches
+     *         The maximum number of batches that are being rendered or waiting to be written.
+     * @throws IllegalArgumentException
+     *         If the batch size or the number of pending batches is less than 1.
+     */
+    public ParallelCSVExporter( CSVSymbols symbols, Executor executor, int batchSize, int maxPendingBatches ) {
+        if ( batchSize < 1 ) {
+            throw new IllegalArgumentException( "Invalid batch size: " + batchSize );
+        }
+        if ( maxPendingBatches < 1 ) {
+            throw new IllegalArgumentException( "Invalid number of pending batches: " + maxPendingBatches );
+        }
+        this.symbols = symbols;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.maxPendingBatches = maxPendingBatches;
+    }
+
+    public CSVSymbols getCSVSymbols() {
+        return symbols;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getMaxPendingBatches() {
+        return maxPendingBatches;
+    }
+
+    /**
+     * Export the rows of a stream. The stream is consumed sequentially by the calling thread.
+     *
+     * @return The number of rows written.
+     */
+    public <R> long export( Stream<R> rows, CSVRowRenderer<? super R> renderer, Writer out )
+            throws IOException {
+        return export( rows.iterator(), renderer, out );
+    }
+
+    /**
+     * Export the rows of a spliterator, in its encounter order.
+     *
+     * @return The number of rows written.
+     */
+    public <R> long export( Spliterator<R> rows, CSVRowRenderer<? super R> renderer, Writer out )
+            throws IOException {
+        return export( Spliterators.iterator( rows ), renderer, out );
+    }
+
+    /**
+     * Export rows of values, rendering every value with <tt>renderer</tt> as
+     * {@link CSVWriter#renderLine(CSVTypedRenderer, List, Object...)} does.
+     *
+     * @return The number of rows written.
+     */
+    public <E> long export( Iterator<? extends List<E>> rows, final CSVTypedRenderer<E> renderer, Writer out,
+                            final Object... accessoryData )
+            throws IOException {
+        return export( rows, new CSVRowRenderer<List<E>>() {
+            @Override
+            public void renderRow( List<E> row, BufferedCSVWriter csv )
+                    throws IOException {
+                csv.renderLine( renderer, row, accessoryData );
+            }
+        }, out );
+    }
+
+    /**
+     * Export the rows of an iterator.
+     *
+     * @param rows
+     *         The rows, which are only accessed by the calling thread.
+     * @param renderer
+     *         Renders one row as a line; called from the executor's threads.
+     * @param out
+     *         The writer receiving the CSV text. It is not flushed or closed.
+     * @return The number of rows written.
+     * @throws IOException
+     *         If writing fails or a renderer throws an <tt>IOException</tt>.
+     */
+    public <R> long export( Iterator<? extends R> rows, CSVRowRenderer<? super R> renderer, Writer out )
+            throws IOException {
+        ArrayDeque<FutureTask<Chunk>> pending = new ArrayDeque<>();
+        ArrayDeque<Chunk> freeChunks = new ArrayDeque<>();
+        long count = 0;
+        boolean completed = false;
+        try {
+            while ( rows.hasNext() ) {
+                List<R> batch = new ArrayList<>( batchSize );
+                while ( batch.size() < batchSize && rows.hasNext() ) {
+                    batch.add( rows.next() );
+                }
+                if ( pending.size() == maxPendingBatches ) {
+                    writeChunk( pending.poll(), out, freeChunks );
+                }
+                Chunk chunk = freeChunks.poll();
+                FutureTask<Chunk> task = new FutureTask<>( new RenderTask<R>( batch, renderer,
+                                                                            chunk != null ? chunk : new Chunk( symbols ) ) );
+                pending.add( task );
+                executor.execute( task );
+                count += batch.size();
+            }
+            while ( !pending.isEmpty() ) {
+                writeChunk( pending.poll(), out, freeChunks );
+            }
+            completed = true;
+        } finally {
+            if ( !completed ) {
+                for ( FutureTask<Chunk> task : pending ) {
+                    task.cancel( false );
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void writeChunk( FutureTask<Chunk> task, Writer out, ArrayDeque<Chunk> freeChunks )
+            throws IOException {
+        Chunk chunk;
+        try {
+            chunk = task.get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while waiting for a rendered batch" );
+        } catch ( ExecutionException e ) {
+            Throwable cause = e.getCause();
+            if ( cause instanceof IOException ) {
+                throw (IOException) cause;
+            }
+            if ( cause instanceof RuntimeException ) {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error ) {
+                throw (Error) cause;
+            }
+            throw new IOException( cause );
+        }
+        chunk.writeTo( out );
+        chunk.reset();
+        freeChunks.offer( chunk );
+    }
+
+    /** Renders a batch of rows into a chunk. */
+    private static final class RenderTask<R> implements Callable<Chunk> {
+
+        private final List<R> batch;
+        private final CSVRowRenderer<? super R> renderer;
+        private final Chunk chunk;
+
+        RenderTask( List<R> batch, CSVRowRenderer<? super R> renderer, Chunk chunk ) {
+            this.batch = batch;
+            this.renderer = renderer;
+            this.chunk = chunk;
+        }
+
+        @Override
+        public Chunk call()
+                throws IOException {
+            for ( int i = 0, n = batch.size(); i < n; i++ ) {
+                renderer.renderRow( batch.get( i ), chunk.csv );
+            }
+            chunk.csv.flush();
+            return chunk;
+        }
+    }
+
+    /** The rendered text of a batch, reused for later batches once it has been written. */
+    private static final class Chunk extends Writer {
+
+        private final BufferedCSVWriter csv;
+        private char[] chars = new char[CHUNK_BUFFER_SIZE];
+        private int length;
+
+        Chunk( CSVSymbols symbols ) {
+            this.csv = new BufferedCSVWriter( this, symbols, CHUNK_BUFFER_SIZE );
+        }
+
+        void writeTo( Writer out )
+                throws IOException {
+            out.write( chars, 0, length );
+        }
+
+        void reset() {
+            length = 0;
+        }
+
+        @Override
+        public void write( char[] cbuf, int off, int len ) {
+            if ( chars.length - length < len ) {
+                chars = Arrays.copyOf( chars, Math.max( length + len, chars.length * 2 ) );
+            }
+            System.arraycopy( cbuf, off, chars, length, len );
+            length += len;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
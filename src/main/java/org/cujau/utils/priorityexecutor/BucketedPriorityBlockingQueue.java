@@ -0,0 +1,396 @@
+package org.cujau.utils.priorityexecutor;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Unbounded blocking queue of tasks for a small range of integer priorities, with a FIFO per
+ * priority level.
+ * <p>
+ * Each level is a lock-free {@link ConcurrentLinkedQueue}, and a bitmap records the levels that may
+ * hold tasks, so both {@link #offer(Runnable)} and {@link #poll()} take constant time however many
+ * tasks are queued. Tasks come out lowest priority value first, like with
+ * {@link PriorityTaskQueue}, and tasks of the same priority come out in the order they were added,
+ * which a heap does not guarantee. The lock of the queue is only taken to park and wake
+ * threads waiting in {@link #take()}.
+ * </p>
+ * <p>
+ * The priority of a {@link PriorityFuture} or a {@link PriorityRunnable} is its own; other tasks
+ * have priority 0. Priorities outside the range of the queue are treated as the nearest end of the
+ * range. The range can span at most {@link #MAX_LEVELS} levels.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * ExecutorService executor = new PriorityThreadPoolExecutor( 8, 8, 60, TimeUnit.SECONDS,
+ *                                                            new BucketedPriorityBlockingQueue( 0, 9 ) );
+ * </pre>
+ */
+public class BucketedPriorityBlockingQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    /** The most priority levels a queue can have; one per bit of the bitmap. */
+    public static final int MAX_LEVELS = 64;
+
+    private final int minPriority;
+    private final int maxPriority;
+    private final ConcurrentLinkedQueue<Runnable>[] levels;
+    /** Bit <tt>i</tt> is set if level <tt>i</tt> may hold tasks; it is never clear when it does. */
+    private final AtomicLong nonEmpty = new AtomicLong();
+    private final AtomicInteger count = new AtomicInteger();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    /**
+     * @param minPriority
+     *         The lowest priority value, which runs first.
+     * @param maxPriority
+     *         The highest priority value, which runs last.
+     */
+    @SuppressWarnings("unchecked")
+    public BucketedPriorityBlockingQueue(int minPriority, int maxPriority) {
+        long n = (long) maxPriority - minPriority + 1;
+        if (n < 1 || n > MAX_LEVELS) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_LEVELS + " priority levels are supported, not "
+                                               + n);
+        }
+        this.minPriority = minPriority;
+        this.maxPriority = maxPriority;
+        this.levels = (ConcurrentLinkedQueue<Runnable>[]) new ConcurrentLinkedQueue<?>[(int) n];
+        for (int i = 0; i < n; i++) {
+            levels[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    public int getMinPriority() {
+        return minPriority;
+    }
+
+    public int getMaxPriority() {
+        return maxPriority;
+    }
+
+    /**
+     * @return The number of tasks of a priority waiting in the queue.
+     */
+    public int size(int priority) {
+        return levels[level(priority)].size();
+    }
+
+    @Override
+    public boolean offer(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        int level = level(priority(task));
+        levels[level].offer(task);
+        count.incrementAndGet();
+        // After the task is visible, so a poll that clears the bit sees it and sets the bit again.
+        setBit(level);
+        if (waiters.get() > 0) {
+            signalNotEmpty();
+        }
+        return true;
+    }
+
+    /**
+     * Add all the tasks, waking at most one waiting thread per task.
+     */
+    @Override
+    public boolean addAll(Collection<? extends Runnable> c) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = 0;
+        long bits = 0;
+        for (Runnable task : c) {
+            if (task == null) {
+                throw new NullPointerException();
+            }
+            int level = level(priority(task));
+            levels[level].offer(task);
+            bits |= 1L << level;
+            n++;
+        }
+        if (n == 0) {
+            return false;
+        }
+        count.addAndGet(n);
+        long old;
+        do {
+            old = nonEmpty.get();
+        } while ((old | bits) != old && !nonEmpty.compareAndSet(old, old | bits));
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                for (int i = Math.min(n, waiters.get()); i > 0; i--) {
+                    notEmpty.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Runnable poll() {
+        while (true) {
+            long bits = nonEmpty.get();
+            if (bits == 0) {
+                return null;
+            }
+            int level = Long.numberOfTrailingZeros(bits);
+            Runnable task = levels[level].poll();
+            if (task != null) {
+                count.decrementAndGet();
+                return task;
+            }
+            // The level looks empty: clear its bit, unless a task arrived meanwhile.
+            clearBit(level);
+            if (!levels[level].isEmpty()) {
+                setBit(level);
+            }
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        long bits = nonEmpty.get();
+        while (bits != 0) {
+            int level = Long.numberOfTrailingZeros(bits);
+            Runnable task = levels[level].peek();
+            if (task != null) {
+                return task;
+            }
+            bits &= bits - 1;
+        }
+        return null;
+    }
+
+    @Override
+    public void put(Runnable task) {
+        offer(task);
+    }
+
+    @Override
+    public boolean offer(Runnable task, long timeout, TimeUnit unit) {
+        return offer(task);
+    }
+
+    @Override
+    public Runnable take()
+            throws InterruptedException {
+        Runnable task = poll();
+        if (task != null) {
+            return task;
+        }
+        lock.lockInterruptibly();
+        waiters.incrementAndGet();
+        try {
+            // Registered as a waiter before polling again, so an offer after this poll signals.
+            while ((task = poll()) == null) {
+                notEmpty.await();
+            }
+        } finally {
+            waiters.decrementAndGet();
+            lock.unlock();
+        }
+        signalIfMore();
+        return task;
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        Runnable task = poll();
+        if (task != null) {
+            return task;
+        }
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        waiters.incrementAndGet();
+        try {
+            while ((task = poll()) == null) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+        } finally {
+            waiters.decrementAndGet();
+            lock.unlock();
+        }
+        signalIfMore();
+        return task;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int size() {
+        return Math.max(0, count.get());
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Runnable)) {
+            return false;
+        }
+        // Most likely at its own level, but its priority may have been clamped or be unknown.
+        int level = level(priority((Runnable) o));
+        if (levels[level].remove(o)) {
+            count.decrementAndGet();
+            return true;
+        }
+        for (int i = 0; i < levels.length; i++) {
+            if (i != level && levels[i].remove(o)) {
+                count.decrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        for (ConcurrentLinkedQueue<Runnable> level : levels) {
+            if (level.contains(o)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = 0;
+        Runnable task;
+        while (n < maxElements && (task = poll()) != null) {
+            c.add(task);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * @return A weakly consistent iterator over the tasks, in the order they would be taken if
+     *         no more were added.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        return new Iterator<Runnable>() {
+            private int level;
+            private Iterator<Runnable> current = levels[0].iterator();
+            private Iterator<Runnable> last;
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext()) {
+                    if (++level == levels.length) {
+                        level--;
+                        return false;
+                    }
+                    current = levels[level].iterator();
+                }
+                return true;
+            }
+
+            @Override
+            public Runnable next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = current;
+                return current.next();
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                last.remove();
+                last = null;
+                count.decrementAndGet();
+            }
+        };
+    }
+
+    private int priority(Runnable task) {
+        return task instanceof PriorityFuture ? ((PriorityFuture<?>) task).getPriority()
+                : task instanceof PriorityRunnable ? ((PriorityRunnable) task).getPriority() : 0;
+    }
+
+    private int level(int priority) {
+        if (priority <= minPriority) {
+            return 0;
+        }
+        if (priority >= maxPriority) {
+            return levels.length - 1;
+        }
+        return priority - minPriority;
+    }
+
+    private void setBit(int level) {
+        long bit = 1L << level;
+        long bits;
+        do {
+            bits = nonEmpty.get();
+        } while ((bits & bit) == 0 && !nonEmpty.compareAndSet(bits, bits | bit));
+    }
+
+    private void clearBit(int level) {
+        long bit = 1L << level;
+        long bits;
+        do {
+            bits = nonEmpty.get();
+        } while ((bits & bit) != 0 && !nonEmpty.compareAndSet(bits, bits & ~bit));
+    }
+
+    private void signalNotEmpty() {
+        lock.lock();
+        try {
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pass the signal on when tasks remain, in case several offers woke only this waiter.
+     */
+    private void signalIfMore() {
+        if (waiters.get() > 0 && nonEmpty.get() != 0) {
+            signalNotEmpty();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.cujau.utils.priorityexecutor;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The measurements of a {@link PriorityThreadPoolExecutor}, by priority: how long tasks waited to
+ * start, how long they ran and how many were rejected, and how long the workers were busy in all.
+ * <p>
+ * Recording takes a lookup in a concurrent map, keyed by the boxed priority, and a few uncontended
+ * atomic additions. It does not allocate for a priority from -128 to 127 once that has been seen;
+ * other priorities allocate an <tt>Integer</tt> for each lookup.
+ * </p>
+ */
+public class PriorityExecutorMetrics {
+
+    private final ConcurrentMap<Integer, LatencyHistogram> waitTimes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, LatencyHistogram> runTimes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, LongAdder> rejections = new ConcurrentHashMap<>();
+    private volatile long sinceNanos = System.nanoTime();
+
+    PriorityExecutorMetrics() {
+    }
+
+    void recordWait(int priority, long nanos) {
+        histogram(waitTimes, priority).record(nanos);
+    }
+
+    void recordRun(int priority, long nanos) {
+        histogram(runTimes, priority).record(nanos);
+    }
+
+    void recordRejection(int priority) {
+        LongAdder count = rejections.get(priority);
+        if (count == null) {
+            count = rejections.computeIfAbsent(priority, p -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /**
+     * @return The times that the tasks of a priority waited to start, or <tt>null</tt> if none
+     *         were recorded.
+     */
+    public LatencyHistogram getWaitTimes(int priority) {
+        return waitTimes.get(priority);
+    }
+
+    /**
+     * @return The recorded waiting times by priority, best priority first.
+     */
+    public SortedMap<Integer, LatencyHistogram> getWaitTimes() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(waitTimes));
+    }
+
+    /**
+     * @return The times that the tasks of a priority ran, or <tt>null</tt> if none were recorded.
+     */
+    public LatencyHistogram getRunTimes(int priority) {
+        return runTimes.get(priority);
+    }
+
+    /**
+     * @return The recorded running times by priority, best priority first.
+     */
+    public SortedMap<Integer, LatencyHistogram> getRunTimes() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(runTimes));
+    }
+
+    public long getRejectedCount(int priority) {
+        LongAdder count = rejections.get(priority);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * @return The number of rejected tasks by priority, best priority first.
+     */
+    public SortedMap<Integer, Long> getRejectedCounts() {
+        SortedMap<Integer, Long> counts = new TreeMap<>();
+        for (Map.Entry<Integer, LongAdder> entry : rejections.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().sum());
+        }
+        return Collections.unmodifiableSortedMap(counts);
+    }
+
+    public long getRejectedCount() {
+        long n = 0;
+        for (LongAdder count : rejections.values()) {
+            n += count.sum();
+        }
+        return n;
+    }
+
+    /**
+     * @return The total time that tasks ran, over all workers.
+     */
+    public long getBusyTime(TimeUnit unit) {
+        long nanos = 0;
+        for (LatencyHistogram histogram : runTimes.values()) {
+            nanos += histogram.getTotal(TimeUnit.NANOSECONDS);
+        }
+        return unit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return The time since the metrics were created or last reset.
+     */
+    public long getElapsedTime(TimeUnit unit) {
+        return unit.convert(System.nanoTime() - sinceNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Forget all measurements.
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : waitTimes.values()) {
+            histogram.reset();
+        }
+        for (LatencyHistogram histogram : runTimes.values()) {
+            histogram.reset();
+        }
+        for (LongAdder count : rejections.values()) {
+            count.reset();
+        }
+        sinceNanos = System.nanoTime();
+    }
+
+    private static LatencyHistogram histogram(ConcurrentMap<Integer, LatencyHistogram> histograms, int priority) {
+        LatencyHistogram histogram = histograms.get(priority);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(priority, p -> new LatencyHistogram());
+        }
+        return histogram;
+    }
+}
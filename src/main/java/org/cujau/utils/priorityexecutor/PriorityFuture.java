@@ -1,17 +1,33 @@
 package org.cujau.utils.priorityexecutor;
 
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.RunnableFuture;
-import java.util.concurrent.TimeUnit;
-
-public class PriorityFuture<T> implements RunnableFuture<T> {
-
-    private RunnableFuture<T> src;
-    private int priority;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+public class PriorityFuture<T> extends FutureTask<T> {
+
+    private final int priority;
+    /** The order in the queue, lowest first; set by the {@link SchedulingPolicy}. */
+    long sortKey;
+    /** When the task was submitted, from {@link System#nanoTime()}, if it was recorded. */
+    long enqueueNanos;
+    /** When the task started, if it was recorded. */
+    long startNanos;
+    /**
+     * Whether the task was passed to <tt>execute</tt> rather than submitted, so that what it throws
+     * goes to the thread, as it would without the future around it.
+     */
+    boolean rethrow;
+
+    PriorityFuture(Callable<T> callable, int priority) {
+        super(callable);
+        this.priority = priority;
+        this.sortKey = priority;
+    }
 
-    PriorityFuture(RunnableFuture<T> other, int priority) {
-        this.src = other;
+    PriorityFuture(Runnable runnable, T result, int priority) {
+        super(runnable, result);
         this.priority = priority;
+        this.sortKey = priority;
     }
 
     public int getPriority() {
@@ -19,34 +35,14 @@ public class PriorityFuture<T> implements RunnableFuture<T> {
     }
 
     @Override
-    public boolean cancel(boolean mayInterruptIfRunning) {
-        return src.cancel(mayInterruptIfRunning);
-    }
-
-    @Override
-    public boolean isCancelled() {
-        return src.isCancelled();
-    }
-
-    @Override
-    public boolean isDone() {
-        return src.isDone();
-    }
-
-    @Override
-    public T get()
-            throws InterruptedException, ExecutionException {
-        return src.get();
-    }
-
-    @Override
-    public T get(long timeout, TimeUnit unit)
-            throws InterruptedException, ExecutionException {
-        return src.get();
-    }
-
-    @Override
-    public void run() {
-        src.run();
+    protected void setException(Throwable t) {
+        super.setException(t);
+        if (rethrow) {
+            // A Runnable only throws unchecked exceptions.
+            if (t instanceof Error) {
+                throw (Error) t;
+            }
+            throw (RuntimeException) t;
+        }
     }
 }
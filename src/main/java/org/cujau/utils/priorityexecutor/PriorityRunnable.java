@@ -0,0 +1,5 @@
+package org.cujau.utils.priorityexecutor;
+
+public interface PriorityRunnable extends Runnable {
+    int getPriority();
+}
@@ -0,0 +1,434 @@
+package org.cujau.utils.priorityexecutor;
+
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Unbounded blocking queue of tasks ordered by priority, lowest sort key first; the default queue
+ * of {@link PriorityThreadPoolExecutor}.
+ * <p>
+ * Like {@link java.util.concurrent.PriorityBlockingQueue}, it is a binary heap guarded by one lock,
+ * and tasks of the same priority come out in no particular order. Unlike it, {@link #addAll(Collection)}
+ * adds a whole batch under a single acquisition of the lock, rebuilding the heap in linear time
+ * when the batch is at least as large as the queue, and wakes as many waiting threads as there are
+ * new tasks. The keys are kept in an array of their own next to the tasks, so sifting compares
+ * <tt>long</tt>s instead of calling a comparator.
+ * </p>
+ * <p>
+ * The key of a {@link PriorityFuture} is the sort key given by the {@link SchedulingPolicy} of the
+ * executor; the key of a {@link PriorityRunnable} is its priority, and that of other tasks is 0.
+ * </p>
+ */
+public class PriorityTaskQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private long[] keys;
+    private Runnable[] tasks;
+    private int size;
+    /** The number of threads waiting in {@link #take()} or {@link #poll(long, TimeUnit)}. */
+    private int waiters;
+
+    public PriorityTaskQueue() {
+        this(16);
+    }
+
+    public PriorityTaskQueue(int initialCapacity) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("initialCapacity must be positive: " + initialCapacity);
+        }
+        keys = new long[initialCapacity];
+        tasks = new Runnable[initialCapacity];
+    }
+
+    @Override
+    public boolean offer(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        long key = key(task);
+        lock.lock();
+        try {
+            ensureCapacity(size + 1);
+            siftUp(size++, key, task);
+            if (waiters > 0) {
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Add all the tasks under one acquisition of the lock.
+     */
+    @Override
+    public boolean addAll(Collection<? extends Runnable> c) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        Object[] batch = c.toArray();
+        int n = batch.length;
+        if (n == 0) {
+            return false;
+        }
+        long[] batchKeys = new long[n];
+        for (int i = 0; i < n; i++) {
+            if (batch[i] == null) {
+                throw new NullPointerException();
+            }
+            batchKeys[i] = key((Runnable) batch[i]);
+        }
+        lock.lock();
+        try {
+            ensureCapacity(size + n);
+            if (n >= size) {
+                // Floyd's construction: O(size + n) instead of O(n log(size + n)).
+                System.arraycopy(batchKeys, 0, keys, size, n);
+                System.arraycopy(batch, 0, tasks, size, n);
+                size += n;
+                for (int i = (size >>> 1) - 1; i >= 0; i--) {
+                    siftDown(i, keys[i], tasks[i]);
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    siftUp(size++, batchKeys[i], (Runnable) batch[i]);
+                }
+            }
+            for (int i = Math.min(n, waiters); i > 0; i--) {
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    @Override
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            return size == 0 ? null : tasks[0];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Runnable task) {
+        offer(task);
+    }
+
+    @Override
+    public boolean offer(Runnable task, long timeout, TimeUnit unit) {
+        return offer(task);
+    }
+
+    @Override
+    public Runnable take()
+            throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                waiters++;
+                try {
+                    notEmpty.await();
+                } finally {
+                    waiters--;
+                }
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                waiters++;
+                try {
+                    nanos = notEmpty.awaitNanos(nanos);
+                } finally {
+                    waiters--;
+                }
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        lock.lock();
+        try {
+            for (int i = 0; i < size; i++) {
+                if (o.equals(tasks[i])) {
+                    removeAt(i);
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o == null) {
+            return false;
+        }
+        lock.lock();
+        try {
+            for (int i = 0; i < size; i++) {
+                if (o.equals(tasks[i])) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            Arrays.fill(tasks, 0, size, null);
+            size = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Object[] toArray() {
+        lock.lock();
+        try {
+            return Arrays.copyOf(tasks, size, Object[].class);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        lock.lock();
+        try {
+            if (a.length < size) {
+                return (T[]) Arrays.copyOf(tasks, size, a.getClass());
+            }
+            System.arraycopy(tasks, 0, a, 0, size);
+            if (a.length > size) {
+                a[size] = null;
+            }
+            return a;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        lock.lock();
+        try {
+            int n = 0;
+            while (n < maxElements && size > 0) {
+                c.add(dequeue());
+                n++;
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return An iterator over a snapshot of the tasks, in no particular order, as with
+     *         {@link java.util.concurrent.PriorityBlockingQueue}.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        final Object[] snapshot = toArray();
+        return new Iterator<Runnable>() {
+            private int next;
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.length;
+            }
+
+            @Override
+            public Runnable next() {
+                if (next >= snapshot.length) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                return (Runnable) snapshot[next++];
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                removeIdentical(snapshot[last]);
+                last = -1;
+            }
+        };
+    }
+
+    private void removeIdentical(Object o) {
+        lock.lock();
+        try {
+            for (int i = 0; i < size; i++) {
+                if (tasks[i] == o) {
+                    removeAt(i);
+                    return;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static long key(Runnable task) {
+        if (task instanceof PriorityFuture) {
+            return ((PriorityFuture<?>) task).sortKey;
+        }
+        return task instanceof PriorityRunnable ? ((PriorityRunnable) task).getPriority() : 0;
+    }
+
+    /**
+     * Called with the lock held.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > tasks.length) {
+            int newCapacity = Math.max(capacity, tasks.length + (tasks.length >>> 1) + 1);
+            keys = Arrays.copyOf(keys, newCapacity);
+            tasks = Arrays.copyOf(tasks, newCapacity);
+        }
+    }
+
+    /**
+     * Called with the lock held.
+     */
+    private Runnable dequeue() {
+        if (size == 0) {
+            return null;
+        }
+        Runnable head = tasks[0];
+        removeAt(0);
+        return head;
+    }
+
+    /**
+     * Called with the lock held.
+     */
+    private void removeAt(int index) {
+        int n = --size;
+        long key = keys[n];
+        Runnable task = tasks[n];
+        tasks[n] = null;
+        if (index < n) {
+            // Put the last task in the hole, then move it down, or up if it is better than the parent.
+            int i = siftDown(index, key, task);
+            if (i == index) {
+                siftUp(index, key, task);
+            }
+        }
+    }
+
+    private void siftUp(int i, long key, Runnable task) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            keys[i] = keys[parent];
+            tasks[i] = tasks[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        tasks[i] = task;
+    }
+
+    /**
+     * @return Where the task ended up.
+     */
+    private int siftDown(int i, long key, Runnable task) {
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && keys[right] < keys[child]) {
+                child = right;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            keys[i] = keys[child];
+            tasks[i] = tasks[child];
+            i = child;
+        }
+        keys[i] = key;
+        tasks[i] = task;
+        return i;
+    }
+}
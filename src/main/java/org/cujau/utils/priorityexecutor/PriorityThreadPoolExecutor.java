@@ -1,7 +1,19 @@
 package org.cujau.utils.priorityexecutor;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.ThreadFactory;
@@ -11,38 +23,488 @@ import java.util.concurrent.TimeUnit;
 /**
  * Prioritized ThreadPoolExecutor.
  *
+ * By default the tasks wait in a {@link PriorityTaskQueue}; the constructors that take a queue
+ * accept another one that orders tasks by priority, such as a {@link BucketedPriorityBlockingQueue}
+ * when the priorities fall in a small range.
+ *
+ * Tasks submitted as a {@link PriorityCallable} or a {@link PriorityRunnable}, or passed to
+ * <tt>execute</tt> as a {@link PriorityRunnable}, have their own priority; other tasks get the
+ * {@link #setDefaultPriority(int) default priority}. The overloads of {@link #execute(Runnable, int)}
+ * and <tt>submit</tt> that take a priority run any task at that priority, without wrapping it.
+ *
+ * {@link #submitAll(Collection)} and {@link #invokeAll(Collection)} add a batch of tasks to an
+ * unbounded queue in one call to its <tt>addAll</tt>, which {@link PriorityTaskQueue} and
+ * {@link BucketedPriorityBlockingQueue} do under a single lock acquisition, waking one waiting
+ * thread per task.
+ *
+ * Under sustained load, strict priority order can keep low priority tasks waiting forever. A
+ * {@link SchedulingPolicy} set with {@link #setSchedulingPolicy(SchedulingPolicy)} can age waiting
+ * tasks or share the threads fairly between priorities instead.
+ *
+ * With latency tracking on, the executor is instrumented: the {@link #getMetrics() metrics} record
+ * how long each task waited to start and how long it ran, in a {@link LatencyHistogram} per
+ * priority, and how long the workers were busy. Rejected tasks are always counted. The metrics can
+ * also be passed on to a {@link TaskMetricsSink}, and the executor is a
+ * {@link PriorityThreadPoolExecutorMXBean}, so it can be registered with JMX:
+ *
+ * <pre>
+ * ManagementFactory.getPlatformMBeanServer().registerMBean( executor,
+ *         new ObjectName( "org.cujau:type=PriorityThreadPoolExecutor,name=fetcher" ) );
+ * </pre>
+ *
  * Taken from StackOverflow: https://stackoverflow.com/questions/3545623/how-to-implement-priorityblockingqueue-with-threadpoolexecutor-and-custom-tasks/5485769#5485769
  */
-public class PriorityThreadPoolExecutor extends ThreadPoolExecutor {
+public class PriorityThreadPoolExecutor extends ThreadPoolExecutor implements PriorityThreadPoolExecutorMXBean {
+
+    private volatile int defaultPriority;
+    private volatile SchedulingPolicy policy = SchedulingPolicy.strict();
+    private volatile boolean latencyTracking;
+    private final PriorityExecutorMetrics metrics = new PriorityExecutorMetrics();
+    private volatile TaskMetricsSink sink;
 
     public PriorityThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
                                       int initialQueueSize) {
         super(corePoolSize, maximumPoolSize, keepAliveTime, unit,
-              new PriorityBlockingQueue<>(initialQueueSize, new PriorityFutureComparator()));
+              new PriorityTaskQueue(initialQueueSize));
+        countRejections();
     }
 
     public PriorityThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
                                       ThreadFactory threadFactory, int initialQueueSize) {
         super(corePoolSize, maximumPoolSize, keepAliveTime, unit,
-              new PriorityBlockingQueue<>(initialQueueSize, new PriorityFutureComparator()), threadFactory);
+              new PriorityTaskQueue(initialQueueSize), threadFactory);
+        countRejections();
     }
 
     public PriorityThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
                                       RejectedExecutionHandler handler, int initialQueueSize) {
         super(corePoolSize, maximumPoolSize, keepAliveTime, unit,
-              new PriorityBlockingQueue<>(initialQueueSize, new PriorityFutureComparator()), handler);
+              new PriorityTaskQueue(initialQueueSize), handler);
+        countRejections();
     }
 
     public PriorityThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
                                       ThreadFactory threadFactory, RejectedExecutionHandler handler,
                                       int initialQueueSize) {
         super(corePoolSize, maximumPoolSize, keepAliveTime, unit,
-              new PriorityBlockingQueue<>(initialQueueSize, new PriorityFutureComparator()), threadFactory, handler);
+              new PriorityTaskQueue(initialQueueSize), threadFactory, handler);
+        countRejections();
+    }
+
+    public PriorityThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                      BlockingQueue<Runnable> workQueue) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue);
+        countRejections();
+    }
+
+    public PriorityThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                      BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory,
+                                      RejectedExecutionHandler handler) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
+        countRejections();
+    }
+
+    public int getDefaultPriority() {
+        return defaultPriority;
+    }
+
+    /**
+     * Set the priority of the tasks that do not have one; 0 unless set.
+     */
+    public void setDefaultPriority(int defaultPriority) {
+        this.defaultPriority = defaultPriority;
+    }
+
+    public SchedulingPolicy getSchedulingPolicy() {
+        return policy;
+    }
+
+    /**
+     * Set the order in which waiting tasks are taken. Set it before submitting tasks: the tasks
+     * already waiting keep their place.
+     */
+    public void setSchedulingPolicy(SchedulingPolicy policy) {
+        if (policy == null) {
+            throw new NullPointerException();
+        }
+        this.policy = policy;
+    }
+
+    @Override
+    public boolean isLatencyTracking() {
+        return latencyTracking;
+    }
+
+    /**
+     * Turn the recording of how long tasks wait in the queue and run on or off. A task's waiting
+     * time is recorded if tracking was on when it was submitted, and its running time if tracking
+     * was on when it started.
+     */
+    @Override
+    public void setLatencyTracking(boolean latencyTracking) {
+        this.latencyTracking = latencyTracking;
+    }
+
+    /**
+     * @return The times that the tasks of a priority waited in the queue, or <tt>null</tt> if
+     *         none were recorded.
+     */
+    public LatencyHistogram getLatencyHistogram(int priority) {
+        return metrics.getWaitTimes(priority);
+    }
+
+    /**
+     * @return The recorded waiting times by priority, best priority first.
+     */
+    public SortedMap<Integer, LatencyHistogram> getLatencyHistograms() {
+        return metrics.getWaitTimes();
+    }
+
+    public PriorityExecutorMetrics getMetrics() {
+        return metrics;
+    }
+
+    public TaskMetricsSink getMetricsSink() {
+        return sink;
+    }
+
+    /**
+     * Pass the measurements on to a sink as well, or to none if <tt>null</tt>.
+     */
+    public void setMetricsSink(TaskMetricsSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public int getQueueSize() {
+        return getQueue().size();
+    }
+
+    /**
+     * Count the waiting tasks by priority. This goes through a snapshot of the queue, so it takes
+     * time in proportion to the number of waiting tasks, but adds nothing to submitting them.
+     */
+    @Override
+    public SortedMap<Integer, Integer> getQueueDepths() {
+        SortedMap<Integer, Integer> depths = new TreeMap<>();
+        for (Object task : getQueue().toArray()) {
+            depths.merge(queuedPriorityOf((Runnable) task), 1, Integer::sum);
+        }
+        return Collections.unmodifiableSortedMap(depths);
+    }
+
+    @Override
+    public long getRejectedTaskCount() {
+        return metrics.getRejectedCount();
+    }
+
+    @Override
+    public SortedMap<Integer, Long> getRejectedTaskCounts() {
+        return metrics.getRejectedCounts();
+    }
+
+    /**
+     * @return The time that tasks ran, divided by the time since the metrics were reset times the
+     *         current number of threads; 0 without latency tracking.
+     */
+    @Override
+    public double getUtilization() {
+        long elapsed = metrics.getElapsedTime(TimeUnit.NANOSECONDS);
+        int threads = getPoolSize();
+        if (elapsed <= 0 || threads == 0) {
+            return 0;
+        }
+        return Math.min(1, (double) metrics.getBusyTime(TimeUnit.NANOSECONDS) / elapsed / threads);
+    }
+
+    @Override
+    public SortedMap<Integer, String> getWaitTimeSummaries() {
+        return summaries(metrics.getWaitTimes());
+    }
+
+    @Override
+    public SortedMap<Integer, String> getRunTimeSummaries() {
+        return summaries(metrics.getRunTimes());
+    }
+
+    @Override
+    public long getWaitTimePercentile(int priority, double percentile) {
+        LatencyHistogram histogram = metrics.getWaitTimes(priority);
+        return histogram == null ? 0 : histogram.getPercentile(percentile, TimeUnit.MICROSECONDS);
+    }
+
+    @Override
+    public long getRunTimePercentile(int priority, double percentile) {
+        LatencyHistogram histogram = metrics.getRunTimes(priority);
+        return histogram == null ? 0 : histogram.getPercentile(percentile, TimeUnit.MICROSECONDS);
+    }
+
+    @Override
+    public void resetMetrics() {
+        metrics.reset();
+    }
+
+    /**
+     * Set the handler of rejected tasks; the rejections are counted before it is called.
+     */
+    @Override
+    public void setRejectedExecutionHandler(RejectedExecutionHandler handler) {
+        if (handler == null) {
+            throw new NullPointerException();
+        }
+        super.setRejectedExecutionHandler(new CountingRejectedExecutionHandler(handler));
+    }
+
+    @Override
+    public RejectedExecutionHandler getRejectedExecutionHandler() {
+        RejectedExecutionHandler handler = super.getRejectedExecutionHandler();
+        return handler instanceof CountingRejectedExecutionHandler
+                ? ((CountingRejectedExecutionHandler) handler).handler : handler;
+    }
+
+    /**
+     * Execute a task at a priority. Like {@link #execute(Runnable)}, what the task throws goes to the
+     * thread that runs it.
+     */
+    public void execute(Runnable command, int priority) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        PriorityFuture<Void> future = prepare(new PriorityFuture<>(command, null, priority));
+        future.rethrow = true;
+        super.execute(future);
+    }
+
+    /**
+     * Execute a task at its own priority if it is a {@link PriorityRunnable}, otherwise at the
+     * default priority.
+     */
+    @Override
+    public void execute(Runnable command) {
+        if (command instanceof PriorityFuture) {
+            // Submitted, and so already prepared by newTaskFor.
+            super.execute(command);
+        } else {
+            execute(command, priorityOf(command));
+        }
+    }
+
+    /**
+     * Submit a task at a priority.
+     */
+    public Future<?> submit(Runnable task, int priority) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        PriorityFuture<Void> future = prepare(new PriorityFuture<>(task, null, priority));
+        super.execute(future);
+        return future;
+    }
+
+    /**
+     * Submit a task at a priority.
+     */
+    public <T> Future<T> submit(Callable<T> task, int priority) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        PriorityFuture<T> future = prepare(new PriorityFuture<>(task, priority));
+        super.execute(future);
+        return future;
+    }
+
+    /**
+     * Submit a batch of tasks at once. Each gets the priority it would get from
+     * {@link #submit(Callable)}.
+     *
+     * @return The futures of the tasks, in the order of the collection.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<Future<T>> submitAll(Collection<? extends Callable<T>> tasks) {
+        List<RunnableFuture<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            if (task == null) {
+                throw new NullPointerException();
+            }
+            futures.add(newTaskFor(task));
+        }
+        executeAll(futures);
+        return (List<Future<T>>) (List<?>) futures;
+    }
+
+    /**
+     * Like {@link java.util.concurrent.AbstractExecutorService#invokeAll(Collection)}, but submits
+     * the tasks with {@link #submitAll(Collection)}.
+     */
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks)
+            throws InterruptedException {
+        List<Future<T>> futures = submitAll(tasks);
+        boolean done = false;
+        try {
+            for (Future<T> future : futures) {
+                if (!future.isDone()) {
+                    try {
+                        future.get();
+                    } catch (CancellationException | ExecutionException ignore) {
+                    }
+                }
+            }
+            done = true;
+            return futures;
+        } finally {
+            if (!done) {
+                for (Future<T> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queue a batch of prepared tasks with one <tt>addAll</tt>, doing what
+     * {@link #execute(Runnable)} does for each: start core threads while there are fewer than the
+     * core pool size, and reject the tasks if the executor was shut down meanwhile.
+     */
+    private void executeAll(List<? extends Runnable> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        BlockingQueue<Runnable> queue = getQueue();
+        if (isShutdown() || getCorePoolSize() == 0 || queue.remainingCapacity() != Integer.MAX_VALUE) {
+            // Rejections, threads beyond the core and bounded queues are left to execute.
+            for (Runnable task : tasks) {
+                super.execute(task);
+            }
+            return;
+        }
+        for (int i = 0; i < tasks.size(); i++) {
+            if (!prestartCoreThread()) {
+                break;
+            }
+        }
+        queue.addAll(tasks);
+        if (isShutdown()) {
+            List<Runnable> removed = new ArrayList<>();
+            for (Runnable task : tasks) {
+                if (remove(task)) {
+                    removed.add(task);
+                }
+            }
+            try {
+                // Through the counting handler, as in execute.
+                for (Runnable task : removed) {
+                    super.getRejectedExecutionHandler().rejectedExecution(task, this);
+                }
+            } catch (RuntimeException e) {
+                // None of the removed tasks will run.
+                for (Runnable task : removed) {
+                    ((Future<?>) task).cancel(false);
+                }
+                throw e;
+            }
+        } else if (getPoolSize() == 0) {
+            prestartCoreThread();
+        }
     }
 
     @Override
     protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
-        RunnableFuture<T> newTaskFor = super.newTaskFor(callable);
-        return new PriorityFuture<>(newTaskFor, ((PriorityCallable<T>) callable).getPriority());
+        int priority = callable instanceof PriorityCallable ? ((PriorityCallable<T>) callable).getPriority()
+                : defaultPriority;
+        return prepare(new PriorityFuture<>(callable, priority));
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return prepare(new PriorityFuture<>(runnable, value, priorityOf(runnable)));
+    }
+
+    private int priorityOf(Runnable runnable) {
+        return runnable instanceof PriorityRunnable ? ((PriorityRunnable) runnable).getPriority() : defaultPriority;
+    }
+
+    private <T> PriorityFuture<T> prepare(PriorityFuture<T> future) {
+        SchedulingPolicy policy = this.policy;
+        long now = policy.needsTime() || latencyTracking ? System.nanoTime() : 0;
+        future.enqueueNanos = latencyTracking ? now : 0;
+        future.sortKey = policy.sortKey(future.getPriority(), now);
+        return future;
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        if (r instanceof PriorityFuture) {
+            PriorityFuture<?> future = (PriorityFuture<?>) r;
+            policy.started(future.sortKey);
+            boolean tracking = latencyTracking;
+            if (tracking || future.enqueueNanos != 0) {
+                long now = System.nanoTime();
+                if (tracking) {
+                    future.startNanos = now;
+                }
+                if (future.enqueueNanos != 0) {
+                    long wait = now - future.enqueueNanos;
+                    metrics.recordWait(future.getPriority(), wait);
+                    TaskMetricsSink sink = this.sink;
+                    if (sink != null) {
+                        sink.taskStarted(future.getPriority(), wait);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        super.afterExecute(r, t);
+        if (r instanceof PriorityFuture) {
+            PriorityFuture<?> future = (PriorityFuture<?>) r;
+            if (future.startNanos != 0) {
+                long run = System.nanoTime() - future.startNanos;
+                metrics.recordRun(future.getPriority(), run);
+                TaskMetricsSink sink = this.sink;
+                if (sink != null) {
+                    sink.taskFinished(future.getPriority(), run);
+                }
+            }
+        }
+    }
+
+    private void countRejections() {
+        super.setRejectedExecutionHandler(new CountingRejectedExecutionHandler(super.getRejectedExecutionHandler()));
+    }
+
+    private int queuedPriorityOf(Runnable task) {
+        return task instanceof PriorityFuture ? ((PriorityFuture<?>) task).getPriority() : priorityOf(task);
+    }
+
+    private static SortedMap<Integer, String> summaries(SortedMap<Integer, LatencyHistogram> histograms) {
+        SortedMap<Integer, String> summaries = new TreeMap<>();
+        for (Map.Entry<Integer, LatencyHistogram> entry : histograms.entrySet()) {
+            summaries.put(entry.getKey(), entry.getValue().toString());
+        }
+        return summaries;
+    }
+
+    private final class CountingRejectedExecutionHandler implements RejectedExecutionHandler {
+
+        private final RejectedExecutionHandler handler;
+
+        CountingRejectedExecutionHandler(RejectedExecutionHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            int priority = queuedPriorityOf(r);
+            metrics.recordRejection(priority);
+            TaskMetricsSink sink = PriorityThreadPoolExecutor.this.sink;
+            if (sink != null) {
+                sink.taskRejected(priority);
+            }
+            handler.rejectedExecution(r, executor);
+        }
     }
 }
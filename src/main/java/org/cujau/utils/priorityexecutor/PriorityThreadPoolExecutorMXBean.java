@@ -0,0 +1,75 @@
+package org.cujau.utils.priorityexecutor;
+
+import java.util.Map;
+
+/**
+ * The management interface of a {@link PriorityThreadPoolExecutor}, which implements it, so that
+ * it can be registered with an MBean server as it is. Times are in microseconds.
+ */
+public interface PriorityThreadPoolExecutorMXBean {
+
+    int getCorePoolSize();
+
+    int getMaximumPoolSize();
+
+    int getPoolSize();
+
+    int getLargestPoolSize();
+
+    int getActiveCount();
+
+    long getTaskCount();
+
+    long getCompletedTaskCount();
+
+    int getQueueSize();
+
+    /**
+     * @return The number of waiting tasks by priority.
+     */
+    Map<Integer, Integer> getQueueDepths();
+
+    long getRejectedTaskCount();
+
+    /**
+     * @return The number of rejected tasks by priority.
+     */
+    Map<Integer, Long> getRejectedTaskCounts();
+
+    /**
+     * @return The fraction of the time since the metrics were reset that the workers ran tasks,
+     *         as measured with latency tracking on.
+     */
+    double getUtilization();
+
+    boolean isLatencyTracking();
+
+    void setLatencyTracking(boolean latencyTracking);
+
+    /**
+     * @return A summary of the waiting times of each priority.
+     */
+    Map<Integer, String> getWaitTimeSummaries();
+
+    /**
+     * @return A summary of the running times of each priority.
+     */
+    Map<Integer, String> getRunTimeSummaries();
+
+    /**
+     * @return The waiting time that the given percentage of the tasks of a priority did not
+     *         exceed, in microseconds.
+     */
+    long getWaitTimePercentile(int priority, double percentile);
+
+    /**
+     * @return The running time that the given percentage of the tasks of a priority did not
+     *         exceed, in microseconds.
+     */
+    long getRunTimePercentile(int priority, double percentile);
+
+    /**
+     * Forget all measurements.
+     */
+    void resetMetrics();
+}
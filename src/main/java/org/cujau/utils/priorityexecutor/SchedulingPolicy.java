@@ -0,0 +1,182 @@
+package org.cujau.utils.priorityexecutor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Decides the order in which a {@link PriorityThreadPoolExecutor} takes waiting tasks, by giving
+ * each task a sort key when it is submitted; the lowest key runs first.
+ * <ul>
+ * <li>{@link #strict()}: the key is the priority, so a steady stream of better tasks can keep a
+ * task waiting forever. This is the default.</li>
+ * <li>{@link #aging(long, TimeUnit)}: a task's effective priority improves by one for every
+ * interval it waits, so no task waits longer than about <tt>(priority - best priority) *
+ * interval</tt> behind better tasks that arrive later.</li>
+ * <li>{@link #weightedFair(IntUnaryOperator)}: every priority gets a share of the task starts in
+ * proportion to its weight while it has tasks waiting, as in weighted fair queuing.</li>
+ * </ul>
+ * The keys order the default {@link PriorityTaskQueue} of the executor; a
+ * {@link BucketedPriorityBlockingQueue} orders by priority alone.
+ */
+public abstract class SchedulingPolicy {
+
+    private static final SchedulingPolicy STRICT = new SchedulingPolicy() {
+        @Override
+        long sortKey(int priority, long nowNanos) {
+            return priority;
+        }
+
+        @Override
+        boolean needsTime() {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "strict";
+        }
+    };
+
+    SchedulingPolicy() {
+    }
+
+    /**
+     * @return The policy that runs tasks strictly by priority.
+     */
+    public static SchedulingPolicy strict() {
+        return STRICT;
+    }
+
+    /**
+     * @param interval
+     *         How long a task waits for its priority to improve by one.
+     * @return The policy that runs tasks by priority, improved by the time they have waited.
+     */
+    public static SchedulingPolicy aging(long interval, TimeUnit unit) {
+        final long intervalNanos = unit.toNanos(interval);
+        if (intervalNanos <= 0) {
+            throw new IllegalArgumentException("interval must be positive: " + interval);
+        }
+        return new SchedulingPolicy() {
+            /**
+             * At any time <tt>t</tt>, task a goes before task b if <tt>pa - (t - ta) / interval &lt;
+             * pb - (t - tb) / interval</tt>, which is <tt>pa * interval + ta &lt; pb * interval +
+             * tb</tt>: a deadline that does not change while the task waits.
+             */
+            @Override
+            long sortKey(int priority, long nowNanos) {
+                return saturatedAdd(saturatedMultiply(priority, intervalNanos), nowNanos);
+            }
+
+            @Override
+            public String toString() {
+                return "aging(" + intervalNanos + "ns)";
+            }
+        };
+    }
+
+    /**
+     * @return The weighted-fair policy with the weight doubling with each step to a better
+     *         priority: 1024 for priority 0, 512 for 1, 2048 for -1, and so on, between 1 and 2^20.
+     */
+    public static SchedulingPolicy weightedFair() {
+        return weightedFair(priority -> 1 << Math.max(0, Math.min(20, 10 - priority)));
+    }
+
+    /**
+     * @param weights
+     *         The weight of each priority; must be positive.
+     * @return The policy that shares the task starts between the priorities with tasks waiting,
+     *         in proportion to their weights.
+     */
+    public static SchedulingPolicy weightedFair(IntUnaryOperator weights) {
+        return new WeightedFair(weights);
+    }
+
+    /**
+     * @return The sort key of a task submitted now.
+     */
+    abstract long sortKey(int priority, long nowNanos);
+
+    /**
+     * Called when a task starts.
+     */
+    void started(long sortKey) {
+    }
+
+    /**
+     * @return Whether {@link #sortKey(int, long)} uses the time.
+     */
+    boolean needsTime() {
+        return true;
+    }
+
+    private static long saturatedMultiply(long a, long b) {
+        long hi = Math.multiplyHigh(a, b);
+        long lo = a * b;
+        if ((hi == 0 && lo >= 0) || (hi == -1 && lo < 0)) {
+            return lo;
+        }
+        return (a < 0) == (b < 0) ? Long.MAX_VALUE : Long.MIN_VALUE;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long r = a + b;
+        if (((a ^ r) & (b ^ r)) < 0) {
+            return a < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        return r;
+    }
+
+    /**
+     * Weighted fair queuing: each task gets a virtual finish time, one unit of service divided by
+     * the weight of its priority after the later of the current virtual time and the finish time
+     * of the last task of its priority. The virtual time advances to the key of each task that
+     * starts, so a priority that had no tasks waiting does not build up credit.
+     */
+    private static final class WeightedFair extends SchedulingPolicy {
+
+        /** The virtual length of one task; divided by a weight of up to 2^20, it stays large. */
+        private static final long SERVICE = 1L << 32;
+
+        private final IntUnaryOperator weights;
+        private final Map<Integer, Long> lastFinish = new HashMap<>();
+        private long virtualTime;
+
+        WeightedFair(IntUnaryOperator weights) {
+            this.weights = weights;
+        }
+
+        @Override
+        synchronized long sortKey(int priority, long nowNanos) {
+            int weight = weights.applyAsInt(priority);
+            if (weight <= 0) {
+                throw new IllegalArgumentException("The weight of priority " + priority + " is not positive: " + weight);
+            }
+            Long last = lastFinish.get(priority);
+            long start = last == null ? virtualTime : Math.max(virtualTime, last);
+            long finish = saturatedAdd(start, SERVICE / weight);
+            lastFinish.put(priority, finish);
+            return finish;
+        }
+
+        @Override
+        synchronized void started(long sortKey) {
+            if (sortKey > virtualTime) {
+                virtualTime = sortKey;
+            }
+        }
+
+        @Override
+        boolean needsTime() {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "weightedFair";
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.cujau.utils.priorityexecutor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A binary min-heap of tasks ordered by priority and then by the order they were added, guarded by
+ * its own lock. The key of the head can be read without the lock, to choose between heaps.
+ * <p>
+ * A key holds the priority in its high half and a 31-bit sequence number in its low half, so no
+ * key reaches {@link #EMPTY}. When the sequence numbers run out, the tasks in the heap are
+ * numbered again from 0 in their current order.
+ * </p>
+ */
+final class TaskHeap {
+
+    /** The key of an empty heap; larger than any real key. */
+    static final long EMPTY = Long.MAX_VALUE;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private long[] keys = new long[64];
+    private Runnable[] tasks = new Runnable[64];
+    private int size;
+    /** The sequence number of the next task; always below <tt>Integer.MAX_VALUE</tt>. */
+    private int seq;
+    private volatile long top = EMPTY;
+
+    TaskHeap() {
+        this(0);
+    }
+
+    /**
+     * @param seq
+     *         The first sequence number, to test the renumbering.
+     */
+    TaskHeap(int seq) {
+        this.seq = seq;
+    }
+
+    /**
+     * The key of the head task, or {@link #EMPTY}. It may be stale by the time it is used.
+     */
+    long top() {
+        return top;
+    }
+
+    /**
+     * The number of tasks. The caller must hold the lock.
+     */
+    int size() {
+        return size;
+    }
+
+    boolean tryLock() {
+        return lock.tryLock();
+    }
+
+    void lock() {
+        lock.lock();
+    }
+
+    void unlock() {
+        lock.unlock();
+    }
+
+    /**
+     * Add a task. The caller must hold the lock.
+     */
+    void push(int priority, Runnable task) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            tasks = Arrays.copyOf(tasks, size * 2);
+        }
+        if (seq == Integer.MAX_VALUE) {
+            renumber();
+        }
+        long key = ((long) priority << 32) | seq++;
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            keys[i] = keys[parent];
+            tasks[i] = tasks[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        tasks[i] = task;
+        top = keys[0];
+    }
+
+    /**
+     * Remove the head task. The caller must hold the lock.
+     *
+     * @return The task, or <tt>null</tt> if the heap is empty.
+     */
+    Runnable poll() {
+        if (size == 0) {
+            return null;
+        }
+        Runnable head = tasks[0];
+        removeAt(0);
+        return head;
+    }
+
+    /**
+     * Remove a task. The caller must hold the lock.
+     *
+     * @return Whether the task was in the heap.
+     */
+    boolean remove(Runnable task) {
+        for (int i = 0; i < size; i++) {
+            if (tasks[i] == task) {
+                removeAt(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void removeAt(int index) {
+        int n = --size;
+        long key = keys[n];
+        Runnable task = tasks[n];
+        tasks[n] = null;
+        if (index < n) {
+            // Put the last task in the hole, then move it down, or up if it is better than the parent.
+            int i = index;
+            int half = n >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < n && keys[right] < keys[child]) {
+                    child = right;
+                }
+                if (key <= keys[child]) {
+                    break;
+                }
+                keys[i] = keys[child];
+                tasks[i] = tasks[child];
+                i = child;
+            }
+            if (i == index) {
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (keys[parent] <= key) {
+                        break;
+                    }
+                    keys[i] = keys[parent];
+                    tasks[i] = tasks[parent];
+                    i = parent;
+                }
+            }
+            keys[i] = key;
+            tasks[i] = task;
+        }
+        top = n == 0 ? EMPTY : keys[0];
+    }
+
+    /**
+     * Number the tasks from 0 in the order they come out of the heap. A sorted array is a heap.
+     */
+    private void renumber() {
+        int n = size;
+        long[] sortedKeys = new long[keys.length];
+        Runnable[] sortedTasks = new Runnable[tasks.length];
+        for (int i = 0; i < n; i++) {
+            sortedKeys[i] = (keys[0] & 0xFFFFFFFF00000000L) | i;
+            sortedTasks[i] = tasks[0];
+            removeAt(0);
+        }
+        keys = sortedKeys;
+        tasks = sortedTasks;
+        size = n;
+        seq = n;
+        top = n == 0 ? EMPTY : keys[0];
+    }
+
+    /**
+     * Remove all tasks into a list. The caller must hold the lock.
+     */
+    void drainTo(List<Runnable> list) {
+        for (int i = 0; i < size; i++) {
+            list.add(tasks[i]);
+            tasks[i] = null;
+        }
+        size = 0;
+        top = EMPTY;
+    }
+}
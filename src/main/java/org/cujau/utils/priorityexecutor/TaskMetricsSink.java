@@ -0,0 +1,26 @@
+package org.cujau.utils.priorityexecutor;
+
+/**
+ * Receives the measurements of a {@link PriorityThreadPoolExecutor}, to pass them on to a metrics
+ * library. It is called on the threads that submit and run the tasks, so it must be thread-safe
+ * and quick.
+ * <p>
+ * Starts and finishes are reported while latency tracking is on; rejections always are.
+ * </p>
+ */
+public interface TaskMetricsSink {
+
+    /**
+     * @param waitNanos
+     *         How long the task waited between its submission and its start.
+     */
+    void taskStarted(int priority, long waitNanos);
+
+    /**
+     * @param runNanos
+     *         How long the task ran, whether it completed normally or not.
+     */
+    void taskFinished(int priority, long runNanos);
+
+    void taskRejected(int priority);
+}
@@ -0,0 +1,299 @@
+package org.cujau.utils.priorityexecutor;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prioritized executor that runs each task on a thread of its own, a virtual thread where the
+ * Java runtime has them, and caps how many tasks run at once.
+ * <p>
+ * Tasks that spend most of their time blocked on I/O need many more threads than cores; with
+ * virtual threads, 100,000 of them can wait on I/O without a large pool. On Java 21 and later the
+ * default thread factory creates virtual threads. On earlier versions it creates platform threads,
+ * so Java 11 users get the same behavior with the cost of platform threads.
+ * </p>
+ * <p>
+ * Admission goes through a priority-ordered permit scheduler: up to <tt>maxConcurrency</tt> tasks
+ * run at once, and the others wait in a heap, lowest priority value first and in submission order
+ * within a priority, as with {@link PriorityThreadPoolExecutor}. A thread that finishes a task
+ * runs the best waiting one, so waiting tasks hold no thread at all. Tasks submitted as a
+ * {@link PriorityCallable} or a {@link PriorityRunnable} have their own priority; other tasks get
+ * priority 0.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ *
+ * <pre>
+ * ExecutorService executor = new VirtualThreadPriorityExecutor( 10000 );
+ * for ( Request r : requests ) {
+ *     executor.submit( new FetchCallable( r, r.isInteractive() ? 0 : 5 ) );
+ * }
+ * </pre>
+ */
+public class VirtualThreadPriorityExecutor extends AbstractExecutorService {
+
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = createVirtualThreadFactory();
+
+    private final int maxConcurrency;
+    private final ThreadFactory threadFactory;
+    /** The waiting tasks; its lock also guards the counters and the run state. */
+    private final TaskHeap waiting = new TaskHeap();
+    private int running;
+    private boolean shutdown;
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    /**
+     * Create an executor on virtual threads, or platform threads before Java 21.
+     */
+    public VirtualThreadPriorityExecutor(int maxConcurrency) {
+        this(maxConcurrency, defaultThreadFactory());
+    }
+
+    /**
+     * @param maxConcurrency
+     *         The maximum number of tasks running at once.
+     * @param threadFactory
+     *         Creates a thread for each run of tasks.
+     */
+    public VirtualThreadPriorityExecutor(int maxConcurrency, ThreadFactory threadFactory) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * @return Whether this Java runtime has virtual threads.
+     */
+    public static boolean isVirtualThreadSupported() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    /**
+     * @return A factory of virtual threads if this Java runtime has them, otherwise of platform
+     *         threads.
+     */
+    public static ThreadFactory defaultThreadFactory() {
+        return VIRTUAL_THREAD_FACTORY != null ? VIRTUAL_THREAD_FACTORY : Executors.defaultThreadFactory();
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * @return The number of tasks running.
+     */
+    public int getActiveCount() {
+        waiting.lock();
+        try {
+            return running;
+        } finally {
+            waiting.unlock();
+        }
+    }
+
+    /**
+     * @return The number of tasks waiting for a permit.
+     */
+    public int getQueuedTaskCount() {
+        waiting.lock();
+        try {
+            return waiting.size();
+        } finally {
+            waiting.unlock();
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        int priority = command instanceof PriorityFuture ? ((PriorityFuture<?>) command).getPriority()
+                : command instanceof PriorityRunnable ? ((PriorityRunnable) command).getPriority() : 0;
+        waiting.lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("Executor has been shut down");
+            }
+            if (running == maxConcurrency) {
+                waiting.push(priority, command);
+                return;
+            }
+            running++;
+        } finally {
+            waiting.unlock();
+        }
+        start(command);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        int priority = callable instanceof PriorityCallable ? ((PriorityCallable<T>) callable).getPriority() : 0;
+        return new PriorityFuture<>(callable, priority);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        int priority = runnable instanceof PriorityRunnable ? ((PriorityRunnable) runnable).getPriority() : 0;
+        return new PriorityFuture<>(runnable, value, priority);
+    }
+
+    @Override
+    public void shutdown() {
+        waiting.lock();
+        try {
+            shutdown = true;
+            terminateIfDone();
+        } finally {
+            waiting.unlock();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks = new ArrayList<>();
+        waiting.lock();
+        try {
+            shutdown = true;
+            waiting.drainTo(tasks);
+            terminateIfDone();
+        } finally {
+            waiting.unlock();
+        }
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        return tasks;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        waiting.lock();
+        try {
+            return shutdown;
+        } finally {
+            waiting.unlock();
+        }
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    /**
+     * Start a thread to run the task with the permit taken by the caller, or give the permit back if
+     * no thread can be started. The thread is registered before it starts, so that
+     * {@link #shutdownNow()} interrupts it even before it runs.
+     */
+    private void start(final Runnable first) {
+        Thread thread = null;
+        try {
+            thread = threadFactory.newThread(() -> runTasks(first));
+            if (thread == null) {
+                throw new RejectedExecutionException("The thread factory did not create a thread");
+            }
+            threads.add(thread);
+            thread.start();
+        } catch (RuntimeException | Error e) {
+            if (thread != null) {
+                threads.remove(thread);
+            }
+            finished();
+            throw e;
+        }
+    }
+
+    /**
+     * Run the task, then the best waiting task, until none wait; then give up the permit.
+     */
+    private void runTasks(Runnable task) {
+        Thread thread = Thread.currentThread();
+        try {
+            while (task != null) {
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+                }
+                // Do not carry an interrupt meant for one task over to the next.
+                Thread.interrupted();
+                waiting.lock();
+                try {
+                    task = waiting.poll();
+                    if (task == null) {
+                        running--;
+                        terminateIfDone();
+                    }
+                } finally {
+                    waiting.unlock();
+                }
+            }
+        } finally {
+            threads.remove(thread);
+        }
+    }
+
+    /**
+     * Give up the permit of a run that did not start.
+     */
+    private void finished() {
+        waiting.lock();
+        try {
+            running--;
+            terminateIfDone();
+        } finally {
+            waiting.unlock();
+        }
+    }
+
+    /**
+     * Called with the lock held.
+     */
+    private void terminateIfDone() {
+        if (shutdown && running == 0 && waiting.size() == 0) {
+            terminated.countDown();
+        }
+    }
+
+    /**
+     * Look up <tt>Thread.ofVirtual().factory()</tt>, which exists from Java 21 on.
+     *
+     * @return The factory, or <tt>null</tt> if this runtime has no virtual threads.
+     */
+    private static ThreadFactory createVirtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class)
+                                  .invoke(builder, "priority-virtual-", 0L);
+            Method factory = builderClass.getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Before Java 21, or with virtual threads as a disabled preview feature.
+            return null;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package org.cujau.utils.priorityexecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Prioritized executor with a task heap per worker thread and work stealing, for loads where the
+ * single queue of {@link PriorityThreadPoolExecutor} becomes the bottleneck.
+ * <p>
+ * As in {@link PriorityThreadPoolExecutor}, tasks submitted as a {@link PriorityCallable} or a
+ * {@link PriorityRunnable} run in the order of their priority, lowest value first; other tasks get
+ * priority 0. Instead of one shared queue, each of the fixed number of workers has its own heap
+ * with its own lock. A task submitted by a worker goes to that worker's heap, and one submitted by
+ * another thread to a random heap. A worker takes the better of the head of its own heap and the
+ * head of one other, random heap, and steals from the others when both are empty.
+ * </p>
+ * <p>
+ * The order is therefore approximate:
+ * </p>
+ * <ul>
+ * <li>Tasks in the same heap run in priority order, and in submission order within a
+ * priority.</li>
+ * <li>A task can be overtaken by a task of lower priority in another heap, but every take
+ * compares two heaps, so the expected number of better tasks still waiting when a task is taken
+ * grows with the number of workers, not with the number of queued tasks.</li>
+ * <li>No worker is idle while any heap holds a task.</li>
+ * </ul>
+ * <p>
+ * Use {@link PriorityThreadPoolExecutor} when the order must be strict.
+ * </p>
+ */
+public class WorkStealingPriorityExecutor extends AbstractExecutorService {
+
+    private static final int RUNNING = 0;
+    private static final int SHUTDOWN = 1;
+    private static final int STOP = 2;
+
+    /** How often an idle worker checks for tasks before it parks. */
+    private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 256 : 0;
+
+    private final TaskHeap[] heaps;
+    private final Worker[] workers;
+    /** The number of tasks in the heaps; updated after a push and after a poll. */
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong steals = new AtomicLong();
+    private final ConcurrentLinkedQueue<Worker> idle = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Worker> currentWorker = new ThreadLocal<>();
+    private final CountDownLatch terminated;
+    private volatile int runState = RUNNING;
+
+    public WorkStealingPriorityExecutor(int parallelism) {
+        this(parallelism, Executors.defaultThreadFactory());
+    }
+
+    public WorkStealingPriorityExecutor(int parallelism, ThreadFactory threadFactory) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        heaps = new TaskHeap[parallelism];
+        workers = new Worker[parallelism];
+        terminated = new CountDownLatch(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            heaps[i] = new TaskHeap();
+        }
+        for (int i = 0; i < parallelism; i++) {
+            workers[i] = new Worker(i);
+            workers[i].thread = threadFactory.newThread(workers[i]);
+        }
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+    }
+
+    public int getParallelism() {
+        return workers.length;
+    }
+
+    /**
+     * @return The number of tasks waiting to run.
+     */
+    public long getQueuedTaskCount() {
+        return Math.max(0, queued.get());
+    }
+
+    /**
+     * @return The number of tasks that a worker took from a heap other than its own.
+     */
+    public long getStealCount() {
+        return steals.get();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        if (runState != RUNNING) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        int priority = command instanceof PriorityFuture ? ((PriorityFuture<?>) command).getPriority()
+                : command instanceof PriorityRunnable ? ((PriorityRunnable) command).getPriority() : 0;
+        push(priority, command);
+        // Shut down meanwhile: take the task back, unless a worker already has.
+        if (runState != RUNNING && remove(command)) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        int priority = callable instanceof PriorityCallable ? ((PriorityCallable<T>) callable).getPriority() : 0;
+        return new PriorityFuture<>(callable, priority);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        int priority = runnable instanceof PriorityRunnable ? ((PriorityRunnable) runnable).getPriority() : 0;
+        return new PriorityFuture<>(runnable, value, priority);
+    }
+
+    @Override
+    public void shutdown() {
+        if (runState == RUNNING) {
+            runState = SHUTDOWN;
+        }
+        wakeAll();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        runState = STOP;
+        List<Runnable> tasks = new ArrayList<>();
+        for (TaskHeap heap : heaps) {
+            heap.lock();
+            try {
+                int before = tasks.size();
+                heap.drainTo(tasks);
+                queued.addAndGet(before - tasks.size());
+            } finally {
+                heap.unlock();
+            }
+        }
+        for (Worker worker : workers) {
+            worker.thread.interrupt();
+        }
+        wakeAll();
+        return tasks;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return runState != RUNNING;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    private void push(int priority, Runnable task) {
+        Worker self = currentWorker.get();
+        TaskHeap heap;
+        if (self != null) {
+            heap = heaps[self.index];
+            heap.lock();
+        } else {
+            // Avoid waiting for a busy heap: try a few random ones before blocking.
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            heap = heaps[random.nextInt(heaps.length)];
+            boolean locked = heap.tryLock();
+            for (int i = 0; i < 3 && !locked; i++) {
+                heap = heaps[random.nextInt(heaps.length)];
+                locked = heap.tryLock();
+            }
+            if (!locked) {
+                heap.lock();
+            }
+        }
+        try {
+            heap.push(priority, task);
+        } finally {
+            heap.unlock();
+        }
+        // A full fence before reading the idle workers; see Worker.awaitWork.
+        queued.incrementAndGet();
+        Worker sleeper = idle.poll();
+        if (sleeper != null) {
+            LockSupport.unpark(sleeper.thread);
+        }
+    }
+
+    private boolean remove(Runnable task) {
+        for (TaskHeap heap : heaps) {
+            heap.lock();
+            try {
+                if (heap.remove(task)) {
+                    queued.decrementAndGet();
+                    return true;
+                }
+            } finally {
+                heap.unlock();
+            }
+        }
+        return false;
+    }
+
+    private void wakeAll() {
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker.thread);
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        final int index;
+        Thread thread;
+
+        Worker(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            currentWorker.set(this);
+            try {
+                while (true) {
+                    Runnable task = take();
+                    if (task == null) {
+                        if (runState == STOP || runState == SHUTDOWN && queued.get() <= 0) {
+                            return;
+                        }
+                        awaitWork();
+                        continue;
+                    }
+                    if (runState == STOP) {
+                        return;
+                    }
+                    try {
+                        task.run();
+                    } catch (Throwable t) {
+                        thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+                    }
+                    // Do not carry an interrupt meant for one task over to the next, or into park().
+                    if (runState != STOP) {
+                        Thread.interrupted();
+                    }
+                }
+            } finally {
+                idle.remove(this);
+                terminated.countDown();
+            }
+        }
+
+        /**
+         * @return The better head of this worker's heap and a random other heap, a task stolen
+         *         from any heap, or <tt>null</tt> if all heaps are empty.
+         */
+        private Runnable take() {
+            TaskHeap own = heaps[index];
+            int n = heaps.length;
+            for (int attempt = 0; attempt < 2; attempt++) {
+                TaskHeap heap = own;
+                if (n > 1) {
+                    int other = ThreadLocalRandom.current().nextInt(n - 1);
+                    TaskHeap candidate = heaps[other >= index ? other + 1 : other];
+                    if (candidate.top() < own.top()) {
+                        heap = candidate;
+                    }
+                }
+                if (heap.top() == TaskHeap.EMPTY) {
+                    break;
+                }
+                Runnable task = poll(heap);
+                if (task != null) {
+                    if (heap != own) {
+                        steals.incrementAndGet();
+                    }
+                    return task;
+                }
+            }
+            // Steal from whichever heap has work.
+            for (int i = 1; i <= n; i++) {
+                TaskHeap heap = heaps[(index + i) % n];
+                if (heap.top() != TaskHeap.EMPTY) {
+                    Runnable task = poll(heap);
+                    if (task != null) {
+                        if (heap != own) {
+                            steals.incrementAndGet();
+                        }
+                        return task;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private Runnable poll(TaskHeap heap) {
+            Runnable task;
+            heap.lock();
+            try {
+                task = heap.poll();
+            } finally {
+                heap.unlock();
+            }
+            if (task != null) {
+                queued.decrementAndGet();
+            }
+            return task;
+        }
+
+        /**
+         * Park until a task is pushed. Registering as idle and then reading the task count pairs
+         * with the push incrementing the count and then polling the idle workers, so either this
+         * worker sees the task or the pusher sees this worker.
+         */
+        private void awaitWork() {
+            // Tasks often arrive in bursts; waiting briefly saves parking and being unparked.
+            for (int i = 0; i < SPINS; i++) {
+                if (queued.get() > 0 || runState != RUNNING) {
+                    return;
+                }
+                Thread.onSpinWait();
+            }
+            idle.offer(this);
+            if (queued.get() > 0 || runState != RUNNING) {
+                idle.remove(this);
+                return;
+            }
+            LockSupport.park(this);
+            idle.remove(this);
+        }
+    }
+}
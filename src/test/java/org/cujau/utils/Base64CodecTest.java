@@ -0,0 +1,292 @@
+package org.cujau.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class Base64CodecTest {
+
+    private static final long SEED = 12345678;
+    private static final int[] OPTIONS = { Base64.NO_OPTIONS, Base64.DONT_BREAK_LINES, Base64.URL_SAFE,
+            Base64.URL_SAFE | Base64.DONT_BREAK_LINES, Base64.ORDERED, Base64.ORDERED | Base64.DONT_BREAK_LINES };
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Random random = new Random( SEED );
+
+    private byte[] createData( int length ) {
+        byte[] bytes = new byte[length];
+        random.nextBytes( bytes );
+        return bytes;
+    }
+
+    private static int[] lengths() {
+        int[] ret = new int[300 + 20];
+        for ( int i = 0; i < 300; i++ ) {
+            ret[i] = i;
+        }
+        for ( int i = 0; i < 20; i++ ) {
+            ret[300 + i] = 1000 + i * 997;
+        }
+        return ret;
+    }
+
+    @Test
+    public void testEncodeMatchesBase64() {
+        for ( int options : OPTIONS ) {
+            Base64Codec codec = Base64Codec.getInstance( options );
+            for ( int len : lengths() ) {
+                byte[] data = createData( len );
+                byte[] expected = Base64.encodeBytes( data, options ).getBytes( StandardCharsets.US_ASCII );
+                assertEquals( expected.length, codec.encodedLength( len ) );
+
+                // Encode into the middle of a larger array to make sure nothing outside is touched.
+                byte[] out = new byte[expected.length + 20];
+                Arrays.fill( out, (byte) '#' );
+                int produced = codec.encode( data, 0, len, out, 10 );
+                assertEquals( expected.length, produced );
+                assertArrayEquals( expected, Arrays.copyOfRange( out, 10, 10 + produced ) );
+                assertUntouched( out, 0, 10 );
+                assertUntouched( out, 10 + produced, out.length );
+            }
+        }
+    }
+
+    @Test
+    public void testDecodeMatchesBase64() {
+        for ( int options : OPTIONS ) {
+            Base64Codec codec = Base64Codec.getInstance( options );
+            for ( int len : lengths() ) {
+                byte[] data = createData( len );
+                byte[] encoded = Base64.encodeBytes( data, options ).getBytes( StandardCharsets.US_ASCII );
+
+                byte[] out = new byte[codec.maxDecodedLength( encoded.length ) + 20];
+                Arrays.fill( out, (byte) '#' );
+                int produced = codec.decode( encoded, 0, encoded.length, out, 10 );
+                assertEquals( len, produced );
+                assertArrayEquals( data, Arrays.copyOfRange( out, 10, 10 + produced ) );
+                assertArrayEquals( Base64.decode( encoded, 0, encoded.length, options ),
+                                   Arrays.copyOfRange( out, 10, 10 + produced ) );
+                assertUntouched( out, 0, 10 );
+                assertUntouched( out, 10 + produced, out.length );
+
+                // An exactly sized output array is enough.
+                byte[] exact = new byte[len];
+                assertEquals( len, codec.decode( encoded, 0, encoded.length, exact, 0 ) );
+                assertArrayEquals( data, exact );
+            }
+        }
+    }
+
+    @Test
+    public void testDecodeWhiteSpaceAndPadding() {
+        Base64Codec codec = Base64Codec.getInstance( Base64.NO_OPTIONS );
+        byte[] src = " QUJD\r\nREVG\tR0g= trailing".getBytes( StandardCharsets.US_ASCII );
+        byte[] out = new byte[codec.maxDecodedLength( src.length )];
+        int produced = codec.decode( src, 0, src.length, out, 0 );
+        assertEquals( "ABCDEFGH", new String( out, 0, produced, StandardCharsets.US_ASCII ) );
+
+        // Incomplete trailing quartets are ignored, as Base64.decode() does.
+        src = "QUJDRE".getBytes( StandardCharsets.US_ASCII );
+        produced = codec.decode( src, 0, src.length, out, 0 );
+        assertEquals( "ABC", new String( out, 0, produced, StandardCharsets.US_ASCII ) );
+    }
+
+    @Test
+    public void testDecodeBadInput() {
+        Base64Codec codec = Base64Codec.getInstance( Base64.NO_OPTIONS );
+        byte[] out = new byte[64];
+        for ( String bad : new String[] { "QUJD*EVG", "QUJDREVGR0hJSktMé", "=QUJ", "Q=UJ" } ) {
+            byte[] src = bad.getBytes( StandardCharsets.ISO_8859_1 );
+            try {
+                codec.decode( src, 0, src.length, out, 0 );
+                fail( "Expected IllegalArgumentException for " + bad );
+            } catch ( IllegalArgumentException e ) {
+                // expected
+            }
+        }
+        byte[] src = "QUJDREVG".getBytes( StandardCharsets.US_ASCII );
+        try {
+            codec.decode( src, 0, src.length, new byte[5], 0 );
+            fail( "Expected IllegalArgumentException for a too small output array" );
+        } catch ( IllegalArgumentException e ) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBufferRoundTrip() {
+        for ( int options : OPTIONS ) {
+            Base64Codec codec = Base64Codec.getInstance( options );
+            for ( int len : new int[] { 0, 1, 2, 3, 56, 57, 58, 114, 1000, 20000 } ) {
+                byte[] data = createData( len );
+                byte[] expected = Base64.encodeBytes( data, options ).getBytes( StandardCharsets.US_ASCII );
+                for ( boolean direct : new boolean[] { false, true } ) {
+                    // Feed the codec through small buffers to exercise partial encodes and decodes.
+                    byte[] encoded = encodeInChunks( codec, data, 200, direct );
+                    assertArrayEquals( expected, encoded );
+                    byte[] decoded = decodeInChunks( codec, encoded, 37, direct );
+                    assertArrayEquals( data, decoded );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFileRoundTrip()
+            throws IOException {
+        int size = Base64Codec.STREAM_BUFFER_SIZE;
+        for ( int options : new int[] { Base64.NO_OPTIONS, Base64.DONT_BREAK_LINES } ) {
+            Base64Codec codec = Base64Codec.getInstance( options );
+            for ( int len : new int[] { 0, 1, 57, size - 1, size, size + 1, 3 * size + 100 } ) {
+                byte[] data = createData( len );
+                byte[] expected = Base64.encodeBytes( data, options ).getBytes( StandardCharsets.US_ASCII );
+                Path plain = tmp.newFile().toPath();
+                Path encoded = tmp.newFile().toPath();
+                Path decoded = tmp.newFile().toPath();
+                Files.write( plain, data );
+
+                TransferStats stats = codec.encodeFile( plain, encoded );
+                assertEquals( len, stats.getBytesRead() );
+                assertEquals( expected.length, stats.getBytesWritten() );
+                assertArrayEquals( expected, Files.readAllBytes( encoded ) );
+
+                stats = codec.decodeFile( encoded, decoded );
+                assertEquals( expected.length, stats.getBytesRead() );
+                assertEquals( len, stats.getBytesWritten() );
+                assertArrayEquals( data, Files.readAllBytes( decoded ) );
+
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                codec.encodeFile( plain, Channels.newChannel( out ) );
+                assertArrayEquals( expected, out.toByteArray() );
+            }
+        }
+    }
+
+    @Test
+    public void testParallelMatchesSequential() {
+        ForkJoinPool pool = new ForkJoinPool( 4 );
+        try {
+            int threshold = Base64Codec.PARALLEL_THRESHOLD;
+            for ( int options : OPTIONS ) {
+                Base64Codec codec = Base64Codec.getInstance( options );
+                for ( int len : new int[] { threshold - 1, threshold, threshold + 1, threshold + 2, 3 * threshold + 57 } ) {
+                    byte[] data = createData( len );
+                    byte[] expected = Base64.encodeBytes( data, options ).getBytes( StandardCharsets.US_ASCII );
+
+                    byte[] encoded = new byte[expected.length + 1];
+                    assertEquals( expected.length, codec.encodeParallel( data, 0, len, encoded, 1, pool ) );
+                    assertArrayEquals( expected, Arrays.copyOfRange( encoded, 1, encoded.length ) );
+
+                    byte[] decoded = new byte[len + 1];
+                    assertEquals( len, codec.decodeParallel( expected, 0, expected.length, decoded, 1, pool ) );
+                    assertArrayEquals( data, Arrays.copyOfRange( decoded, 1, decoded.length ) );
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelDecodeIrregularInput() {
+        ForkJoinPool pool = new ForkJoinPool( 4 );
+        try {
+            Base64Codec codec = Base64Codec.getInstance( Base64.NO_OPTIONS );
+            byte[] data = createData( 2 * Base64Codec.PARALLEL_THRESHOLD );
+            String encoded = Base64.encodeBytes( data );
+            byte[] out = new byte[data.length];
+
+            // Other line endings do not match the predicted layout and fall back to sequential decoding.
+            byte[] crlf = encoded.replace( "\n", "\r\n" ).getBytes( StandardCharsets.US_ASCII );
+            assertEquals( data.length, codec.decodeParallel( crlf, 0, crlf.length, out, 0, pool ) );
+            assertArrayEquals( data, out );
+
+            // Decoding stops at the first padded quartet, even if it is in the first chunk.
+            byte[] padded = ( "QQ==" + encoded ).getBytes( StandardCharsets.US_ASCII );
+            assertEquals( 1, codec.decodeParallel( padded, 0, padded.length, out, 0, pool ) );
+            assertEquals( 'A', out[0] );
+
+            byte[] bad = encoded.getBytes( StandardCharsets.US_ASCII );
+            bad[bad.length / 2] = '*';
+            try {
+                codec.decodeParallel( bad, 0, bad.length, out, 0, pool );
+                fail( "Expected IllegalArgumentException for a bad character" );
+            } catch ( IllegalArgumentException e ) {
+                // expected
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static byte[] encodeInChunks( Base64Codec codec, byte[] data, int chunk, boolean direct ) {
+        ByteBuffer in = allocate( chunk, direct );
+        ByteBuffer out = allocate( 1024, direct );
+        ByteBuffer result = ByteBuffer.allocate( codec.encodedLength( data.length ) );
+        int pos = 0;
+        boolean done = false;
+        while ( !done ) {
+            int n = Math.min( in.remaining(), data.length - pos );
+            in.put( data, pos, n );
+            pos += n;
+            in.flip();
+            boolean end = pos == data.length;
+            codec.encode( in, out, end );
+            done = end && !in.hasRemaining();
+            in.compact();
+            out.flip();
+            result.put( out );
+            out.clear();
+        }
+        return result.array();
+    }
+
+    private static byte[] decodeInChunks( Base64Codec codec, byte[] encoded, int chunk, boolean direct ) {
+        ByteBuffer in = allocate( chunk, direct );
+        ByteBuffer out = allocate( 1024, direct );
+        ByteBuffer result = ByteBuffer.allocate( codec.maxDecodedLength( encoded.length ) );
+        int pos = 0;
+        boolean done = false;
+        while ( !done ) {
+            int n = Math.min( in.remaining(), encoded.length - pos );
+            in.put( encoded, pos, n );
+            pos += n;
+            in.flip();
+            boolean end = pos == encoded.length;
+            codec.decode( in, out, end );
+            done = end && !in.hasRemaining();
+            in.compact();
+            out.flip();
+            result.put( out );
+            out.clear();
+        }
+        return Arrays.copyOf( result.array(), result.position() );
+    }
+
+    private static ByteBuffer allocate( int size, boolean direct ) {
+        return direct ? ByteBuffer.allocateDirect( size ) : ByteBuffer.allocate( size );
+    }
+
+    private static void assertUntouched( byte[] ary, int from, int to ) {
+        for ( int i = from; i < to; i++ ) {
+            assertEquals( "byte at " + i, (byte) '#', ary[i] );
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package org.cujau.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import org.junit.Test;
+
+public class Base64GzipTest {
+
+    private static final long SEED = 12345678;
+    private static final int[] LENGTHS = { 0, 1, 2, 3, 100, 4000, 70000, 300000 };
+
+    private Random random = new Random( SEED );
+
+    /** Compressible data: random words from a small vocabulary. */
+    private byte[] createData( int length ) {
+        byte[] bytes = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            bytes[i] = (byte) ( random.nextInt( 8 ) == 0 ? random.nextInt( 256 ) : 'a' + random.nextInt( 4 ) );
+        }
+        return bytes;
+    }
+
+    /** The old pipeline: GZIPOutputStream around Base64.OutputStream. */
+    private static String legacyEncode( byte[] data, int options )
+            throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try ( GZIPOutputStream gzos = new GZIPOutputStream( new Base64.OutputStream( baos, Base64.ENCODE | options ) ) ) {
+            gzos.write( data );
+        }
+        return new String( baos.toByteArray(), StandardCharsets.US_ASCII );
+    }
+
+    @Test
+    public void testEncodeBytesMatchesGZIPOutputStream()
+            throws IOException {
+        for ( int options : new int[] { Base64.GZIP, Base64.GZIP | Base64.DONT_BREAK_LINES, Base64.GZIP | Base64.URL_SAFE } ) {
+            for ( int len : LENGTHS ) {
+                byte[] data = createData( len );
+                String encoded = Base64.encodeBytes( data, 0, len, options );
+                assertEquals( legacyEncode( data, options ), encoded );
+                assertArrayEquals( data, Base64.decode( encoded, options ) );
+            }
+        }
+    }
+
+    @Test
+    public void testCompressionLevel() {
+        byte[] data = createData( 100000 );
+        String stored = Base64.encodeBytes( data, 0, data.length, Base64.GZIP, Deflater.NO_COMPRESSION );
+        String best = Base64.encodeBytes( data, 0, data.length, Base64.GZIP, Deflater.BEST_COMPRESSION );
+        assertTrue( stored.length() > best.length() );
+        assertArrayEquals( data, Base64.decode( stored ) );
+        assertArrayEquals( data, Base64.decode( best ) );
+        try {
+            Base64.encodeBytes( data, 0, data.length, Base64.GZIP, 10 );
+            fail( "Expected IllegalArgumentException for compression level 10" );
+        } catch ( IllegalArgumentException e ) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testStreams()
+            throws IOException {
+        for ( int options : new int[] { Base64.NO_OPTIONS, Base64.DONT_BREAK_LINES } ) {
+            for ( int len : LENGTHS ) {
+                byte[] data = createData( len );
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                try ( Base64GzipOutputStream out = new Base64GzipOutputStream( baos, options, Deflater.BEST_SPEED ) ) {
+                    // Write in uneven pieces and single bytes.
+                    int pos = 0;
+                    for ( int n = 1; pos < len; n = n * 3 + 1 ) {
+                        int chunk = Math.min( n, len - pos );
+                        out.write( data, pos, chunk );
+                        pos += chunk;
+                        if ( pos < len ) {
+                            out.write( data[pos++] );
+                        }
+                    }
+                }
+                byte[] encoded = baos.toByteArray();
+                assertArrayEquals( data, Base64.decode( new String( encoded, StandardCharsets.US_ASCII ), options ) );
+
+                try ( InputStream in = new Base64GzipInputStream( new TrickleInputStream( encoded ), options ) ) {
+                    assertArrayEquals( data, in.readAllBytes() );
+                    assertEquals( -1, in.read() );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testReadsGzipHeaderFields()
+            throws IOException {
+        byte[] data = createData( 1000 );
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try ( GZIPOutputStream gzos = new GZIPOutputStream( baos ) ) {
+            gzos.write( data );
+        }
+        byte[] plain = baos.toByteArray();
+
+        // Add an extra field, a file name and a comment to the plain header.
+        byte[] extra = { 3, 0, 'a', 'b', 'c', 'f', '.', 't', 'x', 't', 0, 'h', 'i', 0 };
+        byte[] gz = new byte[plain.length + extra.length];
+        System.arraycopy( plain, 0, gz, 0, 10 );
+        gz[3] = 4 | 8 | 16;
+        System.arraycopy( extra, 0, gz, 10, extra.length );
+        System.arraycopy( plain, 10, gz, 10 + extra.length, plain.length - 10 );
+
+        String encoded = Base64.encodeBytes( gz );
+        try ( InputStream in = new Base64GzipInputStream(
+                new ByteArrayInputStream( encoded.getBytes( StandardCharsets.US_ASCII ) ), Base64.NO_OPTIONS ) ) {
+            assertArrayEquals( data, in.readAllBytes() );
+        }
+        assertArrayEquals( data, Base64.decode( encoded ) );
+    }
+
+    @Test
+    public void testCorruptData()
+            throws IOException {
+        byte[] data = createData( 5000 );
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try ( GZIPOutputStream gzos = new GZIPOutputStream( baos ) ) {
+            gzos.write( data );
+        }
+        byte[] raw = baos.toByteArray();
+
+        // Flip a bit of the stored CRC.
+        raw[raw.length - 8] ^= 1;
+        String encoded = Base64.encodeBytes( raw );
+        try ( InputStream in = new Base64GzipInputStream(
+                new ByteArrayInputStream( encoded.getBytes( StandardCharsets.US_ASCII ) ), Base64.NO_OPTIONS ) ) {
+            in.readAllBytes();
+            fail( "Expected a ZipException for a bad CRC" );
+        } catch ( ZipException e ) {
+            // expected
+        }
+        // Base64.decode() falls back to the compressed bytes, as it always did.
+        assertArrayEquals( raw, Base64.decode( encoded ) );
+    }
+
+    @Test
+    public void testEncodeObject() {
+        ArrayList<String> list = new ArrayList<>();
+        for ( int i = 0; i < 1000; i++ ) {
+            list.add( "item " + i );
+        }
+        for ( int options : new int[] { Base64.NO_OPTIONS, Base64.GZIP, Base64.GZIP | Base64.DONT_BREAK_LINES } ) {
+            String encoded = Base64.encodeObject( list, options );
+            assertEquals( list, Base64.decodeToObject( encoded ) );
+        }
+        assertTrue( Base64.encodeObject( list, Base64.GZIP ).length() < Base64.encodeObject( list ).length() );
+    }
+
+    @Test
+    public void testZipPool() {
+        Deflater first = ZipPool.deflater( Deflater.BEST_SPEED );
+        ZipPool.release( first );
+        Deflater second = ZipPool.deflater( Deflater.BEST_COMPRESSION );
+        try {
+            assertTrue( first == second );
+            assertEquals( 0, second.getTotalIn() );
+        } finally {
+            ZipPool.release( second );
+        }
+
+        // Releasing more than the pool holds ends the surplus instances.
+        Deflater[] many = new Deflater[ZipPool.MAX_POOLED + 2];
+        for ( int i = 0; i < many.length; i++ ) {
+            many[i] = ZipPool.deflater( 1 );
+        }
+        for ( Deflater d : many ) {
+            ZipPool.release( d );
+        }
+        int ended = 0;
+        for ( Deflater d : many ) {
+            try {
+                d.getTotalIn();
+            } catch ( NullPointerException e ) {
+                ended++;
+            }
+        }
+        assertEquals( 2, ended );
+    }
+
+    /** Returns at most a few bytes per read, to exercise partial quartets. */
+    private static final class TrickleInputStream extends ByteArrayInputStream {
+
+        TrickleInputStream( byte[] buf ) {
+            super( buf );
+        }
+
+        @Override
+        public synchronized int read( byte[] b, int off, int len ) {
+            return super.read( b, off, Math.min( len, 7 ) );
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.cujau.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class Base64ObjectTest {
+
+    private static final int[] OPTIONS = { Base64.NO_OPTIONS, Base64.DONT_BREAK_LINES, Base64.URL_SAFE, Base64.GZIP,
+            Base64.GZIP | Base64.DONT_BREAK_LINES };
+
+    private static ArrayList<String> createList( int size ) {
+        ArrayList<String> list = new ArrayList<>();
+        for ( int i = 0; i < size; i++ ) {
+            list.add( "item " + i );
+        }
+        return list;
+    }
+
+    /** The old pipeline: ObjectOutputStream around Base64.OutputStream. */
+    private static String legacyEncode( Object obj, int options )
+            throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try ( ObjectOutputStream oos = new ObjectOutputStream( new Base64.OutputStream( baos, Base64.ENCODE | options ) ) ) {
+            oos.writeObject( obj );
+        }
+        return new String( baos.toByteArray(), StandardCharsets.US_ASCII );
+    }
+
+    @Test
+    public void testMatchesLegacyEncoding()
+            throws IOException {
+        // Sizes around the 57 byte line and the internal block size.
+        for ( int size : new int[] { 0, 1, 5, 100, 1000, 20000 } ) {
+            ArrayList<String> list = createList( size );
+            for ( int options : new int[] { Base64.NO_OPTIONS, Base64.DONT_BREAK_LINES, Base64.ORDERED } ) {
+                String encoded = Base64.encodeObject( list, JavaObjectSerializer.INSTANCE, options );
+                assertEquals( legacyEncode( list, options ), encoded );
+                assertEquals( list, Base64.decodeToObject( encoded, JavaObjectSerializer.INSTANCE, options ) );
+            }
+            assertEquals( legacyEncode( list, Base64.NO_OPTIONS ), Base64.encodeObject( list ) );
+            assertEquals( list, Base64.decodeToObject( legacyEncode( list, Base64.NO_OPTIONS ) ) );
+        }
+    }
+
+    @Test
+    public void testRoundTrip()
+            throws IOException {
+        ArrayList<String> list = createList( 300 );
+        for ( int options : OPTIONS ) {
+            String encoded = Base64.encodeObject( list, JavaObjectSerializer.INSTANCE, options );
+            assertEquals( list, Base64.decodeToObject( encoded, JavaObjectSerializer.INSTANCE, options ) );
+            assertEquals( list, Base64.decodeToObject( Base64.encodeObject( list, options ), JavaObjectSerializer.INSTANCE,
+                                                      options ) );
+        }
+    }
+
+    @Test
+    public void testCustomSerializer()
+            throws IOException {
+        List<Integer> numbers = new ArrayList<>();
+        for ( int i = 0; i < 5000; i++ ) {
+            numbers.add( i * 7 );
+        }
+        for ( int options : OPTIONS ) {
+            String encoded = Base64.encodeObject( numbers, IntListSerializer.INSTANCE, options );
+            assertEquals( numbers, Base64.decodeToObject( encoded, IntListSerializer.INSTANCE, options ) );
+        }
+        // 4 bytes per number and a count, in Base64.
+        String encoded = Base64.encodeObject( numbers, IntListSerializer.INSTANCE, Base64.DONT_BREAK_LINES );
+        assertEquals( ( 4 * 5001 + 2 ) / 3 * 4, encoded.length() );
+    }
+
+    @Test
+    public void testNestedCalls()
+            throws IOException {
+        // A serializer that encodes another object while the thread's buffer is in use.
+        ObjectSerializer<String> nesting = new ObjectSerializer<String>() {
+            @Override
+            public void writeObject( String object, OutputStream out )
+                    throws IOException {
+                String inner = Base64.encodeObject( object, JavaObjectSerializer.INSTANCE, Base64.DONT_BREAK_LINES );
+                new DataOutputStream( out ).writeUTF( inner );
+            }
+
+            @Override
+            public String readObject( InputStream in )
+                    throws IOException {
+                String inner = new DataInputStream( in ).readUTF();
+                return (String) Base64.decodeToObject( inner, JavaObjectSerializer.INSTANCE, Base64.DONT_BREAK_LINES );
+            }
+        };
+        String encoded = Base64.encodeObject( "nested", nesting, Base64.NO_OPTIONS );
+        assertEquals( "nested", Base64.decodeToObject( encoded, nesting, Base64.NO_OPTIONS ) );
+    }
+
+    @Test
+    public void testLargeObjectThenSmall()
+            throws IOException {
+        // Grows the thread's buffers beyond what is retained.
+        ArrayList<String> large = createList( 200000 );
+        String encoded = Base64.encodeObject( large, JavaObjectSerializer.INSTANCE, Base64.NO_OPTIONS );
+        assertEquals( large, Base64.decodeToObject( encoded, JavaObjectSerializer.INSTANCE, Base64.NO_OPTIONS ) );
+
+        ArrayList<String> small = createList( 3 );
+        encoded = Base64.encodeObject( small, JavaObjectSerializer.INSTANCE, Base64.NO_OPTIONS );
+        assertEquals( small, Base64.decodeToObject( encoded, JavaObjectSerializer.INSTANCE, Base64.NO_OPTIONS ) );
+    }
+
+    @Test
+    public void testInvalidInput()
+            throws IOException {
+        String encoded = Base64.encodeObject( createList( 10 ), JavaObjectSerializer.INSTANCE, Base64.NO_OPTIONS );
+        try {
+            Base64.decodeToObject( "*" + encoded, JavaObjectSerializer.INSTANCE, Base64.NO_OPTIONS );
+            fail( "Expected an IOException for an invalid character" );
+        } catch ( IOException e ) {
+            // expected
+        }
+        try {
+            Base64.decodeToObject( "Ł" + encoded.substring( 1 ), JavaObjectSerializer.INSTANCE, Base64.NO_OPTIONS );
+            fail( "Expected an IOException for a non-ASCII character" );
+        } catch ( IOException e ) {
+            // expected
+        }
+        try {
+            Base64.encodeObject( new Object(), JavaObjectSerializer.INSTANCE, Base64.NO_OPTIONS );
+            fail( "Expected an IOException for a non-serializable object" );
+        } catch ( IOException e ) {
+            // expected
+        }
+        assertNull( Base64.decodeToObject( Base64.encodeBytes( new byte[] { 1, 2, 3 } ) ) );
+    }
+
+    /** A compact binary format for lists of integers. */
+    private static final class IntListSerializer implements ObjectSerializer<List<Integer>> {
+
+        static final IntListSerializer INSTANCE = new IntListSerializer();
+
+        @Override
+        public void writeObject( List<Integer> object, OutputStream out )
+                throws IOException {
+            DataOutputStream dos = new DataOutputStream( out );
+            dos.writeInt( object.size() );
+            for ( int value : object ) {
+                dos.writeInt( value );
+            }
+            dos.flush();
+        }
+
+        @Override
+        public List<Integer> readObject( InputStream in )
+                throws IOException {
+            DataInputStream dis = new DataInputStream( in );
+            int size = dis.readInt();
+            List<Integer> list = new ArrayList<>( size );
+            for ( int i = 0; i < size; i++ ) {
+                list.add( dis.readInt() );
+            }
+            return list;
+        }
+    }
+}
@@ -2,7 +2,10 @@ package org.cujau.utils;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Random;
 
@@ -57,4 +60,126 @@ public class Base64Test extends TestCase {
             runStreamTest( i );
         }
     }
+
+    private static byte[] readAll( InputStream in, int chunk )
+            throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[chunk];
+        for ( int n = in.read( buffer ); n > 0; n = in.read( buffer ) ) {
+            out.write( buffer, 0, n );
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    private static byte[] readByteByByte( InputStream in )
+            throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for ( int b = in.read(); b >= 0; b = in.read() ) {
+            out.write( b );
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    private static byte[] writeInChunks( byte[] data, int options, int chunk )
+            throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Base64.OutputStream b64 = new Base64.OutputStream( out, options );
+        for ( int pos = 0; pos < data.length; pos += chunk ) {
+            if ( chunk == 1 ) {
+                b64.write( data[pos] );
+            } else {
+                b64.write( data, pos, Math.min( chunk, data.length - pos ) );
+            }
+        }
+        b64.flush();
+        return out.toByteArray();
+    }
+
+    /**
+     * Encoded data with carriage returns and, optionally, characters the alphabet does not know
+     * mixed in. The input stream skips the latter, the output stream rejects them.
+     */
+    private byte[] createDirtyEncoding( byte[] data, boolean invalid ) {
+        byte[] encoded = Base64.encodeBytes( data ).getBytes();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for ( byte b : encoded ) {
+            if ( b == '\n' ) {
+                out.write( '\r' );
+            }
+            if ( invalid && s_random.nextInt( 300 ) == 0 ) {
+                out.write( '*' );
+            }
+            out.write( b );
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testBulkStreamsMatchSingleBytes()
+            throws Exception {
+        for ( int options : new int[] { Base64.NO_OPTIONS, Base64.DONT_BREAK_LINES, Base64.URL_SAFE } ) {
+            for ( int length : new int[] { 0, 1, 2, 56, 57, 58, 1000, 30000 } ) {
+                byte[] data = createData( length );
+                byte[] encoded = readByteByByte( new Base64.InputStream( new ByteArrayInputStream( data ),
+                                                                         Base64.ENCODE | options ) );
+                byte[] dirty = createDirtyEncoding( data, true );
+                byte[] crlf = createDirtyEncoding( data, false );
+                byte[] decoded = readByteByByte( new Base64.InputStream( new ByteArrayInputStream( dirty ) ) );
+                byte[] written = writeInChunks( data, Base64.ENCODE | options, 1 );
+                byte[] writtenDecoded = writeInChunks( crlf, Base64.DECODE, 1 );
+                for ( int chunk : new int[] { 2, 3, 4, 5, 77, 1000, 65536 } ) {
+                    assertTrue( Arrays.equals( encoded, readAll( new Base64.InputStream( new ByteArrayInputStream( data ),
+                                                                                         Base64.ENCODE | options ), chunk ) ) );
+                    assertTrue( Arrays.equals( decoded, readAll( new Base64.InputStream( new ByteArrayInputStream( dirty ) ),
+                                                                 chunk ) ) );
+                    assertTrue( Arrays.equals( written, writeInChunks( data, Base64.ENCODE | options, chunk ) ) );
+                    assertTrue( Arrays.equals( writtenDecoded, writeInChunks( crlf, Base64.DECODE, chunk ) ) );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFileHelpers()
+            throws Exception {
+        for ( int length : new int[] { 0, 1, 10, 1000, 4095, 4096, 4097, 5000, 20000 } ) {
+            byte[] data = createData( length );
+            File file = File.createTempFile( "Base64Test", ".bin" );
+            File encodedFile = File.createTempFile( "Base64Test", ".b64" );
+            try {
+                Files.write( file.toPath(), data );
+                String encoded = Base64.encodeFromFile( file.getPath() );
+                assertEquals( "length " + length, Base64.encodeBytes( data ), encoded );
+
+                Files.write( encodedFile.toPath(), encoded.getBytes( "US-ASCII" ) );
+                assertTrue( "length " + length, Arrays.equals( data, Base64.decodeFromFile( encodedFile.getPath() ) ) );
+            } finally {
+                file.delete();
+                encodedFile.delete();
+            }
+        }
+    }
+
+    @Test
+    public void testInputStreamStopsAtPadding()
+            throws Exception {
+        byte[] concatenated = ( Base64.encodeBytes( "A".getBytes() ) + Base64.encodeBytes( "BCD".getBytes() ) ).getBytes();
+        assertEquals( "A", new String( readAll( new Base64.InputStream( new ByteArrayInputStream( concatenated ) ), 100 ) ) );
+
+        // The output stream decodes on after padding.
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OutputStream b64 = new Base64.OutputStream( out, Base64.DECODE );
+        b64.write( concatenated );
+        b64.close();
+        assertEquals( "ABCD", new String( out.toByteArray() ) );
+
+        try {
+            writeInChunks( "QUJD*REVG".getBytes(), Base64.DECODE, 9 );
+            fail( "Expected an IOException for an invalid character" );
+        } catch ( java.io.IOException e ) {
+            // expected
+        }
+    }
 }
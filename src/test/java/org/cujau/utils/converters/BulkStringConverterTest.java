@@ -0,0 +1,142 @@
+package org.cujau.utils.converters;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BulkStringConverterTest {
+
+    private static BitSet bits( int... indexes ) {
+        BitSet bits = new BitSet();
+        for ( int i : indexes ) {
+            bits.set( i );
+        }
+        return bits;
+    }
+
+    @Test
+    public void testErrors() {
+        BulkStringConverter converter = new BulkStringConverter( Locale.US );
+        String[] cells = { "12", "", null, "abc", "-1,234.99", "3,000,000,000", "$7", "1.00000000000000000001",
+                "1.5E10", "12abc", "12 CHF", "1E5", "--5" };
+
+        int[] ints = new int[cells.length];
+        Arrays.fill( ints, 99 );
+        assertEquals( bits( 1, 2, 3, 5, 8, 9, 12 ), converter.toInts( cells, ints ) );
+        assertArrayEquals( new int[] { 12, 0, 0, 0, -1234, 0, 7, 1, 0, 0, 12, 100000, 0 }, ints );
+
+        long[] longs = new long[cells.length];
+        assertEquals( bits( 1, 2, 3, 9, 12 ), converter.toLongs( Arrays.asList( cells ), longs ) );
+        assertArrayEquals( new long[] { 12, 0, 0, 0, -1234, 3000000000L, 7, 1, 15000000000L, 0, 12, 100000, 0 },
+                           longs );
+
+        double[] doubles = new double[cells.length];
+        assertEquals( bits( 1, 2, 3, 9, 12 ),
+                      converter.toDoubles( new LinkedList<>( Arrays.asList( cells ) ), doubles ) );
+        assertArrayEquals( new double[] { 12, 0, 0, 0, -1234.99, 3e9, 7, 1, 1.5e10, 0, 12, 1e5, 0 }, doubles, 1e-9 );
+
+        BigDecimal[] decimals = new BigDecimal[cells.length];
+        assertEquals( bits( 1, 2, 3, 9, 12 ), converter.toBigDecimals( cells, decimals ) );
+        assertEquals( new BigDecimal( "-1234.99" ), decimals[4] );
+        assertEquals( new BigDecimal( "1.00000000000000000001" ), decimals[7] );
+        assertEquals( 0, new BigDecimal( "1.5E10" ).compareTo( decimals[8] ) );
+        assertNull( decimals[1] );
+        assertNull( decimals[9] );
+
+        // Too many digits for a long.
+        assertEquals( bits( 0 ), converter.toLongs( new String[] { "123456789012345678901" }, new long[1] ) );
+        try {
+            converter.toInts( cells, new int[2] );
+            fail( "Expected an IllegalArgumentException" );
+        } catch ( IllegalArgumentException e ) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSlowCells() {
+        BulkStringConverter converter = new BulkStringConverter( Locale.US );
+        String[] cells = { "1.23456789012345678901E5", "0.12345678901234567890123E-3", "123456789012345678901abc",
+                "1.5e10", "-2.5e-3 %", "$123,456,789,012,345,678,901.5", "1e5x", "1E999999999999" };
+
+        BigDecimal[] decimals = new BigDecimal[cells.length];
+        assertEquals( bits( 2, 6, 7 ), converter.toBigDecimals( cells, decimals ) );
+        assertEquals( new BigDecimal( "123456.789012345678901" ), decimals[0] );
+        assertEquals( new BigDecimal( "0.00012345678901234567890123" ), decimals[1] );
+        assertEquals( new BigDecimal( "1.5E10" ), decimals[3] );
+        assertEquals( new BigDecimal( "-0.0025" ), decimals[4] );
+        assertEquals( new BigDecimal( "123456789012345678901.5" ), decimals[5] );
+
+        long[] longs = new long[cells.length];
+        assertEquals( bits( 2, 5, 6, 7 ), converter.toLongs( cells, longs ) );
+        assertArrayEquals( new long[] { 123456, 0, 0, 15000000000L, 0, 0, 0, 0 }, longs );
+
+        double[] doubles = new double[cells.length];
+        assertEquals( bits( 2, 6, 7 ), converter.toDoubles( cells, doubles ) );
+        assertArrayEquals( new double[] { 123456.789012345678901, 1.2345678901234567e-4, 0, 1.5e10, -0.0025,
+                1.234567890123456789015e20, 0, 0 }, doubles, 0 );
+    }
+
+    @Test
+    public void testBuffer() {
+        char[] buf = "7;1.234,5;x;-3".toCharArray();
+        int[] starts = { 0, 2, 10, 12 };
+        int[] ends = { 1, 9, 11, 14 };
+        double[] doubles = new double[4];
+        assertEquals( bits( 2 ), new BulkStringConverter( Locale.GERMANY ).toDoubles( buf, starts, ends, doubles ) );
+        assertArrayEquals( new double[] { 7, 1234.5, 0, -3 }, doubles, 0 );
+        long[] longs = new long[4];
+        assertEquals( bits( 2 ), new BulkStringConverter( Locale.GERMANY ).toLongs( buf, starts, ends, longs ) );
+        assertArrayEquals( new long[] { 7, 1234, 0, -3 }, longs );
+    }
+
+    @Test
+    public void testParallel() {
+        Random rnd = new Random( 13 );
+        int n = 100003;
+        String[] cells = new String[n];
+        int[] expected = new int[n];
+        BitSet expectedErrors = new BitSet();
+        StringBuilder buf = new StringBuilder();
+        int[] starts = new int[n];
+        int[] ends = new int[n];
+        for ( int i = 0; i < n; i++ ) {
+            if ( rnd.nextInt( 100 ) == 0 ) {
+                cells[i] = "n/a";
+                expectedErrors.set( i );
+            } else {
+                expected[i] = rnd.nextInt();
+                cells[i] = String.valueOf( expected[i] );
+            }
+            starts[i] = buf.length();
+            buf.append( cells[i] );
+            ends[i] = buf.length();
+            buf.append( ',' );
+        }
+        BulkStringConverter parallel = new BulkStringConverter( Locale.US, 1000 );
+        BulkStringConverter serial = new BulkStringConverter( Locale.US, Integer.MAX_VALUE );
+        for ( BulkStringConverter converter : new BulkStringConverter[] { parallel, serial } ) {
+            int[] out = new int[n];
+            assertEquals( expectedErrors, converter.toInts( cells, out ) );
+            assertArrayEquals( expected, out );
+            out = new int[n];
+            List<String> list = Arrays.asList( cells );
+            assertEquals( expectedErrors, converter.toInts( list, out ) );
+            assertArrayEquals( expected, out );
+            out = new int[n];
+            assertEquals( expectedErrors, converter.toInts( buf.toString().toCharArray(), starts, ends, out ) );
+            assertArrayEquals( expected, out );
+        }
+    }
+}
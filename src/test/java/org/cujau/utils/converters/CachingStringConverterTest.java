@@ -0,0 +1,119 @@
+package org.cujau.utils.converters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class CachingStringConverterTest {
+
+    /** Counts the conversions that reach it. */
+    private static class CountingConverter extends StringLongConverter {
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public Long convert( String val ) {
+            calls.incrementAndGet();
+            return super.convert( val );
+        }
+    }
+
+    @Test
+    public void testCanonicalInstances() {
+        CountingConverter counting = new CountingConverter();
+        CachingStringConverter<Long> cvtr = new CachingStringConverter<>( counting, 10 );
+        Long first = cvtr.convert( new String( "123456789" ) );
+        Long second = cvtr.convert( new String( "123456789" ) );
+        assertSame( first, second );
+        assertNotSame( first, counting.convert( "123456789" ) );
+        assertEquals( 1, cvtr.getHitCount() );
+        assertEquals( 1, cvtr.getMissCount() );
+        assertEquals( 0.5, cvtr.getHitRatio(), 0 );
+        assertEquals( 1, cvtr.getSize() );
+        assertEquals( "12", cvtr.convert( 12L ) );
+        assertEquals( Long.class, cvtr.getConvertedClass() );
+
+        // Failures are not cached.
+        try {
+            cvtr.convert( "abc" );
+            fail( "Expected a NumberFormatException" );
+        } catch ( NumberFormatException e ) {
+            // expected
+        }
+        assertEquals( 1, cvtr.getSize() );
+        cvtr.clear();
+        assertEquals( 0, cvtr.getSize() );
+        cvtr.convert( "123456789" );
+        assertEquals( 4, counting.calls.get() );
+    }
+
+    @Test
+    public void testEviction() {
+        CachingStringConverter<Long> fifo =
+                new CachingStringConverter<>( new StringLongConverter(), 3, CachingStringConverter.Eviction.FIFO );
+        CachingStringConverter<Long> clock =
+                new CachingStringConverter<>( new StringLongConverter(), 3, CachingStringConverter.Eviction.CLOCK );
+        for ( CachingStringConverter<Long> cvtr : Arrays.asList( fifo, clock ) ) {
+            cvtr.convert( "1" );
+            cvtr.convert( "2" );
+            cvtr.convert( "3" );
+            // "1" is in use.
+            cvtr.convert( "1" );
+            cvtr.convert( "4" );
+            assertEquals( 3, cvtr.getSize() );
+            assertEquals( 1, cvtr.getEvictionCount() );
+        }
+        long misses = fifo.getMissCount();
+        fifo.convert( "1" );
+        assertEquals( "FIFO evicted the oldest", misses + 1, fifo.getMissCount() );
+        misses = clock.getMissCount();
+        clock.convert( "1" );
+        assertEquals( "CLOCK kept the one in use", misses, clock.getMissCount() );
+        clock.convert( "2" );
+        assertEquals( misses + 1, clock.getMissCount() );
+    }
+
+    @Test
+    public void testConcurrent()
+            throws InterruptedException {
+        final CachingStringConverter<Long> cvtr = new CachingStringConverter<>( new StringLongConverter(), 100 );
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for ( int t = 0; t < 4; t++ ) {
+            final int seed = t;
+            Thread thread = new Thread( () -> {
+                try {
+                    for ( int i = 0; i < 50000; i++ ) {
+                        long v = ( i * 31L + seed ) % ( i % 2 == 0 ? 50 : 1000 );
+                        if ( cvtr.convert( String.valueOf( v ) ) != v ) {
+                            throw new AssertionError( v );
+                        }
+                    }
+                } catch ( Throwable e ) {
+                    failure.compareAndSet( null, e );
+                }
+            } );
+            threads.add( thread );
+            thread.start();
+        }
+        for ( Thread thread : threads ) {
+            thread.join();
+        }
+        if ( failure.get() != null ) {
+            throw new AssertionError( failure.get() );
+        }
+        assertTrue( cvtr.toString(), cvtr.getSize() <= 100 );
+        assertEquals( 200000, cvtr.getHitCount() + cvtr.getMissCount() );
+        // Half the lookups are for 50 hot values, which CLOCK keeps despite the scan of the others.
+        assertTrue( cvtr.toString(), cvtr.getHitCount() > 90000 );
+    }
+}
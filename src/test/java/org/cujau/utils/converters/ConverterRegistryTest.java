@@ -0,0 +1,144 @@
+package org.cujau.utils.converters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class ConverterRegistryTest {
+
+    private static class Named implements Serializable, Comparable<Named> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int compareTo( Named o ) {
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return "named";
+        }
+    }
+
+    private static class SubNamed extends Named {
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static class FixedConverter extends StringObjectConverter {
+        private final String text;
+
+        FixedConverter( String text ) {
+            this.text = text;
+        }
+
+        @Override
+        public String convert( Object val ) {
+            return text;
+        }
+    }
+
+    @Test
+    public void testResolve() {
+        ConverterRegistry registry = ConverterRegistry.withDefaults();
+        assertNull( registry.resolve( Named.class ) );
+        assertEquals( "named", registry.toString( new SubNamed() ) );
+
+        StringConverter<?> comparable = new FixedConverter( "comparable" );
+        registry.register( Comparable.class, comparable );
+        assertSame( comparable, registry.resolve( SubNamed.class ) );
+        assertEquals( "comparable", registry.toString( new SubNamed() ) );
+        // Interfaces in declaration order.
+        StringConverter<?> serializable = new FixedConverter( "serializable" );
+        registry.register( Serializable.class, serializable );
+        assertSame( serializable, registry.resolve( SubNamed.class ) );
+        // Superclasses before interfaces.
+        StringConverter<?> named = new FixedConverter( "named!" );
+        registry.register( Named.class, named );
+        assertSame( named, registry.resolve( SubNamed.class ) );
+        assertEquals( "named!", registry.toString( new SubNamed() ) );
+
+        registry.unregister( Named.class );
+        assertSame( serializable, registry.resolve( SubNamed.class ) );
+        assertNull( registry.getRegistered( SubNamed.class ) );
+        // The exact class wins; Integer is also Comparable and Serializable.
+        assertSame( registry.getRegistered( Integer.class ), registry.resolve( Integer.class ) );
+        assertSame( registry.getRegistered( Object.class ), registry.resolve( Object.class ) );
+        assertSame( serializable, registry.resolve( Date.class ) );
+        registry.unregister( Serializable.class );
+        assertSame( comparable, registry.resolve( Date.class ) );
+        // The catch-all is not part of the resolution.
+        registry.unregister( Comparable.class );
+        assertNull( registry.resolve( Date.class ) );
+    }
+
+    @Test
+    public void testSeparateRegistries() {
+        ConverterRegistry registry = ConverterRegistry.withDefaults();
+        ConverterRegistry copy = registry.copy();
+        copy.register( Named.class, new FixedConverter( "copy" ) );
+        StringConverterFactory shared = new StringConverterFactoryImpl();
+        StringConverterFactory own = new StringConverterFactoryImpl( copy );
+        assertEquals( "copy", own.toString( new Named() ) );
+        assertEquals( "named", shared.toString( new Named() ) );
+        assertNull( registry.resolve( Named.class ) );
+        assertSame( StringConverterFactoryImpl.getDefaultRegistry(),
+                    ( (StringConverterFactoryImpl) shared ).getRegistry() );
+    }
+
+    @Test
+    public void testConcurrentRegistration()
+            throws InterruptedException {
+        final ConverterRegistry registry = ConverterRegistry.withDefaults();
+        final int rounds = 2000;
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for ( int t = 0; t < 3; t++ ) {
+            Thread reader = new Thread( () -> {
+                try {
+                    start.await();
+                    for ( int i = 0; i < rounds * 10; i++ ) {
+                        StringConverter<?> cvtr = registry.resolve( SubNamed.class );
+                        if ( cvtr != null && !( cvtr instanceof FixedConverter ) ) {
+                            throw new AssertionError( cvtr );
+                        }
+                        if ( !"12".equals( registry.toString( 12 ) ) ) {
+                            throw new AssertionError( registry.toString( 12 ) );
+                        }
+                    }
+                } catch ( Throwable e ) {
+                    failure.compareAndSet( null, e );
+                }
+            } );
+            threads.add( reader );
+            reader.start();
+        }
+        start.countDown();
+        FixedConverter last = null;
+        for ( int i = 0; i < rounds; i++ ) {
+            last = new FixedConverter( "v" + i );
+            registry.register( i % 2 == 0 ? Named.class : Comparable.class, last );
+            // A lookup after the registration sees it.
+            StringConverter<?> seen = registry.resolve( SubNamed.class );
+            if ( i % 2 == 0 ) {
+                assertSame( last, seen );
+            }
+        }
+        for ( Thread thread : threads ) {
+            thread.join();
+        }
+        if ( failure.get() != null ) {
+            throw new AssertionError( failure.get() );
+        }
+        assertEquals( "v" + ( rounds - 2 ), registry.toString( new SubNamed() ) );
+    }
+}
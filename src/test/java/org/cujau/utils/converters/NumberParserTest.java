@@ -0,0 +1,158 @@
+package org.cujau.utils.converters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.text.ParsePosition;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class NumberParserTest {
+
+    private static BigDecimal parse( String str, Locale locale ) {
+        NumberParser.Result result = new NumberParser.Result();
+        assertEquals( str, NumberParser.OK, NumberParser.getInstance( locale ).parse( str, result ) );
+        return result.bigDecimalValue();
+    }
+
+    @Test
+    public void testStatus() {
+        NumberParser parser = NumberParser.getInstance( Locale.US );
+        NumberParser.Result result = new NumberParser.Result();
+        for ( String str : new String[] { "", "abc", "-", ".", "$,", "CHF -" } ) {
+            assertEquals( str, NumberParser.NO_DIGITS, parser.parse( str, result ) );
+            assertFalse( result.isOk() );
+        }
+        assertEquals( NumberParser.TOO_MANY_DIGITS, parser.parse( "1234567890123456789", result ) );
+        assertEquals( NumberParser.TOO_MANY_DIGITS, parser.parse( "1.234567890123456789", result ) );
+        // Leading zeros are not significant.
+        assertEquals( NumberParser.OK, parser.parse( "000000000000000000000123456789012345678", result ) );
+        assertEquals( 123456789012345678L, result.getUnscaledValue() );
+        assertEquals( NumberParser.OK, parser.parse( "0.000000000000000000001", result ) );
+        assertEquals( new BigDecimal( "1E-21" ), result.bigDecimalValue() );
+    }
+
+    @Test
+    public void testGrouping() {
+        for ( String str : new String[] { "1,234.5", "1'234.5", "1\u2019234.5", "1 234.5", "1\u00a0234.5",
+                "1\u202f234.5" } ) {
+            assertEquals( str, new BigDecimal( "1234.5" ), parse( str, Locale.US ) );
+        }
+        assertEquals( new BigDecimal( "1234.5" ), parse( "1.234,5", Locale.GERMANY ) );
+        assertEquals( new BigDecimal( "1234.5" ), parse( "1 234,5", Locale.FRANCE ) );
+        assertEquals( new BigDecimal( "1234.5" ), parse( "1\u202f234,5", Locale.FRANCE ) );
+        assertEquals( new BigDecimal( "1234.50" ), parse( "CHF 1\u2019234.50", new Locale( "de", "CH" ) ) );
+        // A grouping character must be followed by a digit, and only the integer part has them.
+        assertEquals( new BigDecimal( "12" ), parse( "12 CHF", Locale.US ) );
+        assertEquals( new BigDecimal( "12" ), parse( "12, 13", Locale.US ) );
+        assertEquals( new BigDecimal( "1.2" ), parse( "1.2,345", Locale.US ) );
+    }
+
+    @Test
+    public void testSignAndBounds() {
+        assertEquals( new BigDecimal( "-1234.50" ), parse( "-$1,234.50", Locale.US ) );
+        assertEquals( new BigDecimal( "-12" ), parse( "CHF -12", Locale.US ) );
+        assertEquals( new BigDecimal( "0.5" ), parse( ".5", Locale.US ) );
+        assertEquals( new BigDecimal( "1" ), parse( "1-23.45", Locale.US ) );
+
+        NumberParser.Result result = new NumberParser.Result();
+        String str = "total: 1,234.50 USD";
+        assertEquals( NumberParser.OK, NumberParser.getInstance( Locale.US ).parse( str, 5, str.length(), result ) );
+        assertEquals( str.indexOf( " USD" ), result.getEnd() );
+        assertEquals( 2, result.getScale() );
+        assertEquals( 123450, result.getUnscaledValue() );
+        assertFalse( result.isNegative() );
+    }
+
+    @Test
+    public void testUnsupported() {
+        NumberParser parser = NumberParser.getInstance( Locale.US );
+        NumberParser.Result result = new NumberParser.Result();
+        for ( String str : new String[] { "1.5E10", "1E5", "2e-3", "-1.5E+10", "$1E5", "--5", "- -5", "Total - $5",
+                "-$-5" } ) {
+            assertEquals( str, NumberParser.UNSUPPORTED, parser.parse( str, result ) );
+            assertFalse( str, result.isOk() );
+        }
+        // Not an exponent.
+        assertEquals( new BigDecimal( "12" ), parse( "12EUR", Locale.US ) );
+        assertEquals( new BigDecimal( "12" ), parse( "12E", Locale.US ) );
+        assertEquals( new BigDecimal( "12" ), parse( "12E-", Locale.US ) );
+        // A minus at the start of the prefix or right before the number.
+        assertEquals( new BigDecimal( "-5" ), parse( " -CHF 5", Locale.US ) );
+        assertEquals( new BigDecimal( "-5" ), parse( "- 5", Locale.US ) );
+        assertEquals( new BigDecimal( "-5" ), parse( "CHF-5", Locale.US ) );
+    }
+
+    @Test
+    public void testParseBigDecimal() {
+        NumberParser parser = NumberParser.getInstance( Locale.US );
+        String[] valid = { "1.5E10", "1.5e10", "-2e-3", "1E+5", "$-123,456,789,012,345,678,901.25", "-CHF 1'000",
+                ".5e1", "12 USD" };
+        String[] expected = { "1.5E10", "1.5E10", "-0.002", "1E5", "-123456789012345678901.25", "-1000", "5", "12" };
+        for ( int i = 0; i < valid.length; i++ ) {
+            ParsePosition pos = new ParsePosition( 0 );
+            BigDecimal value = parser.parseBigDecimal( valid[i], 0, valid[i].length(), pos );
+            assertEquals( valid[i], 0, new BigDecimal( expected[i] ).compareTo( value ) );
+        }
+        ParsePosition pos = new ParsePosition( 0 );
+        String str = "x 1.5E3 y";
+        assertEquals( new BigDecimal( "1.5E3" ), parser.parseBigDecimal( str, 0, str.length(), pos ) );
+        assertEquals( str.indexOf( " y" ), pos.getIndex() );
+        assertEquals( new BigDecimal( "12" ), parser.parseBigDecimal( "12E", 0, 3, pos ) );
+        assertEquals( 2, pos.getIndex() );
+
+        for ( String str2 : new String[] { "", "abc", "--5", "1E99999999999" } ) {
+            pos = new ParsePosition( 0 );
+            assertNull( str2, parser.parseBigDecimal( str2, 0, str2.length(), pos ) );
+            assertEquals( str2, 0, pos.getErrorIndex() );
+        }
+    }
+
+    @Test
+    public void testConversions() {
+        NumberParser parser = NumberParser.getInstance( Locale.US );
+        NumberParser.Result result = new NumberParser.Result();
+
+        parser.parse( "-1,234.99", result );
+        assertTrue( result.fitsInInt() );
+        assertEquals( -1234, result.intValue() );
+        assertEquals( -1234L, result.longValue() );
+        parser.parse( "3,000,000,000", result );
+        assertFalse( result.fitsInInt() );
+        assertEquals( 3000000000L, result.longValue() );
+        parser.parse( "-0", result );
+        assertEquals( Double.doubleToLongBits( -0.0 ), Double.doubleToLongBits( result.doubleValue() ) );
+        parser.parse( "16777217", result );
+        assertEquals( (float) 16777217L, result.floatValue(), 0 );
+
+        Random rnd = new Random( 17 );
+        for ( int i = 0; i < 100000; i++ ) {
+            StringBuilder digits = new StringBuilder();
+            int length = 1 + rnd.nextInt( 18 );
+            for ( int d = 0; d < length; d++ ) {
+                digits.append( (char) ( '0' + rnd.nextInt( 10 ) ) );
+            }
+            int point = rnd.nextInt( length + 1 );
+            String number = ( rnd.nextBoolean() ? "-" : "" ) + digits.substring( 0, point ) + "."
+                            + digits.substring( point );
+            assertEquals( number, NumberParser.OK, parser.parse( number, result ) );
+            assertEquals( number, Double.parseDouble( number ), result.doubleValue(), 0 );
+            assertEquals( number, new BigDecimal( number ).compareTo( result.bigDecimalValue() ), 0 );
+        }
+    }
+
+    @Test
+    public void testHelperFallback() {
+        // Too large for the fast path; the NumberFormat path is kept.
+        assertEquals( (int) 3000000000L, StringConverterHelper.intValueOf( "3,000,000,000" ) );
+        assertEquals( 1.2345678901234567e19, StringConverterHelper.doubleValueOf( "12345678901234567890" ), 1e4 );
+        // Exponents and stray minus signs are left to NumberFormat.
+        assertEquals( 1.5E10, StringConverterHelper.doubleValueOf( "1.5E10" ), 0 );
+        assertEquals( -0.002, StringConverterHelper.doubleValueOf( "-2E-3" ), 0 );
+    }
+}
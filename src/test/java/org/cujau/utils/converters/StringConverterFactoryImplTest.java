@@ -1,8 +1,12 @@
 package org.cujau.utils.converters;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import java.math.BigDecimal;
 import java.util.Calendar;
 import java.util.Date;
 
@@ -18,6 +22,11 @@ public class StringConverterFactoryImplTest {
         assertEquals( StringObjectConverter.class, impl.getConverter( Object.class ).getClass() );
         assertEquals( StringStringConverter.class, impl.getConverter( String.class ).getClass() );
         assertEquals( StringBooleanConverter.class, impl.getConverter( Boolean.class ).getClass() );
+        assertEquals( StringLongConverter.class, impl.getConverter( Long.class ).getClass() );
+        assertEquals( StringDoubleConverter.class, impl.getConverter( Double.class ).getClass() );
+        assertEquals( StringBigDecimalConverter.class, impl.getConverter( BigDecimal.class ).getClass() );
+        assertSame( impl.getConverter( Integer.class ), impl.getConverter( int.class ) );
+        assertSame( impl.getConverter( Double.class ), impl.getConverter( double.class ) );
 
         assertNull( impl.getConverter( Date.class ) );
         assertNull( impl.getConverter( Comparable.class ) );
@@ -34,5 +43,34 @@ public class StringConverterFactoryImplTest {
         Object obj = new String( "Bob" );
         assertEquals( "Bob", obj );
         assertEquals( "", impl.toString( null ) );
+        assertEquals( "12345678901", impl.toString( 12345678901L ) );
+        assertEquals( "0.0000001", impl.toString( new BigDecimal( "1E-7" ) ) );
+    }
+
+    @Test
+    public void testPrimitiveConverters() {
+        String line = "x;-1,234;12345678901;2.5;YES;0";
+        assertEquals( -1234, StringConverterFactoryImpl.getIntConverter().toInt( line, 2, 8 ) );
+        assertEquals( 12345678901L, StringConverterFactoryImpl.getLongConverter().toLong( line, 9, 20 ) );
+        assertEquals( 2.5, StringConverterFactoryImpl.getDoubleConverter().toDouble( line, 21, 24 ), 0 );
+        assertTrue( StringConverterFactoryImpl.getBooleanConverter().toBoolean( line, 25, 28 ) );
+        assertFalse( StringConverterFactoryImpl.getBooleanConverter().toBoolean( line, 29, 30 ) );
+        assertTrue( StringConverterFactoryImpl.getBooleanConverter().toBoolean( "True" ) );
+        // Too many digits for the fast path.
+        assertEquals( 1.2345678901234567e19, StringConverterFactoryImpl.getDoubleConverter()
+                                                                       .toDouble( "a12345678901234567890b", 1, 21 ), 1e4 );
+        assertEquals( new BigDecimal( "1234.50" ),
+                      new StringBigDecimalConverter().convert( "1,234.50" ) );
+    }
+
+    @Test
+    public void testPrimitiveConverterFallback() {
+        StringConverter<?> old = StringConverterFactoryImpl.getConfiguredConverter( long.class );
+        try {
+            StringConverterFactoryImpl.addConverter( long.class, new StringIntegerConverter() );
+            assertEquals( 42L, StringConverterFactoryImpl.getLongConverter().toLong( "[42]", 1, 3 ) );
+        } finally {
+            StringConverterFactoryImpl.addConverter( long.class, old );
+        }
     }
 }
@@ -3,6 +3,7 @@ package org.cujau.utils.converters;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.math.BigDecimal;
 import java.text.NumberFormat;
@@ -120,6 +121,37 @@ public class StringConverterHelperTest {
         assertTrue( 1234567 == StringConverterHelper.intValueOf( "\u20A41,234,567\u20A4" ) );
     }
 
+    @Test
+    public void testExponentValueOf() {
+        Locale def = Locale.getDefault();
+        Locale.setDefault( Locale.US );
+        try {
+            assertEquals( 1.5E10, StringConverterHelper.doubleValueOf( "1.5E10" ), 0 );
+            assertEquals( 100000.0, StringConverterHelper.doubleValueOf( "1E5" ), 0 );
+            assertEquals( 100000, StringConverterHelper.intValueOf( "1E5" ) );
+            assertEquals( 100000L, StringConverterHelper.longValueOf( "1E5" ) );
+            assertEquals( 1.5E10f, StringConverterHelper.floatValueOf( "1.5E10" ), 0 );
+        } finally {
+            Locale.setDefault( def );
+        }
+    }
+
+    @Test
+    public void testStrayMinusSigns() {
+        try {
+            StringConverterHelper.intValueOf( "--5" );
+            fail( "Should not be here." );
+        } catch ( NumberFormatException e ) {
+            // expected
+        }
+        try {
+            StringConverterHelper.doubleValueOf( "--5" );
+            fail( "Should not be here." );
+        } catch ( NumberFormatException e ) {
+            // expected
+        }
+    }
+
     @Test
     public void testCurrencyFormat() {
         float val = 12345.34f;
@@ -186,4 +218,24 @@ public class StringConverterHelperTest {
         assertEquals( "", conv.convert( (Boolean) null ) );
     }
 
+
+    @Test
+    public void testLongValueOf() {
+        assertEquals( 12345678901L, StringConverterHelper.longValueOf( "12,345,678,901" ) );
+        assertEquals( -3000000000L, StringConverterHelper.longValueOf( "$-3,000,000,000.99" ) );
+        assertEquals( Long.MAX_VALUE, StringConverterHelper.longValueOf( "9223372036854775807" ) );
+        assertEquals( 12345L, StringConverterHelper.longValueOf( "id=12345;", 3, 8 ) );
+    }
+
+    @Test
+    public void testRangeValueOf() {
+        String line = "7,2.25,no";
+        assertEquals( 7, StringConverterHelper.intValueOf( line, 0, 1 ) );
+        assertEquals( 2.25, StringConverterHelper.doubleValueOf( line, 2, 6 ), 0 );
+        assertFalse( StringConverterHelper.booleanValueOf( line, 7, 9 ) );
+        assertTrue( StringConverterHelper.booleanValueOf( "yEs", 0, 3 ) );
+        assertFalse( StringConverterHelper.booleanValueOf( "yes!", 0, 4 ) );
+        // The range is respected when falling back.
+        assertEquals( (int) 3000000000L, StringConverterHelper.intValueOf( "1;3,000,000,000;2", 2, 15 ) );
+    }
 }
@@ -0,0 +1,131 @@
+package org.cujau.utils.csv;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BufferedCSVWriterTest {
+
+    private static final String CHARS = "ab,;\"\n\r xyz";
+
+    private static CSVSymbols createSymbols( char separator ) {
+        CSVSymbols symbols = new CSVSymbols( Locale.US );
+        symbols.setRecordSeparator( separator );
+        symbols.setLineSeparator( "\r\n" );
+        return symbols;
+    }
+
+    private static List<List<String>> createRows( Random rnd, int count, int maxFieldLength ) {
+        List<List<String>> rows = new ArrayList<>();
+        for ( int r = 0; r < count; r++ ) {
+            List<String> row = new ArrayList<>();
+            for ( int f = rnd.nextInt( 6 ); f >= 0; f-- ) {
+                StringBuilder field = new StringBuilder();
+                for ( int i = rnd.nextInt( maxFieldLength + 1 ); i > 0; i-- ) {
+                    field.append( CHARS.charAt( rnd.nextInt( CHARS.length() ) ) );
+                }
+                row.add( field.toString() );
+            }
+            rows.add( row );
+        }
+        return rows;
+    }
+
+    @Test
+    public void testMatchesCSVWriter()
+            throws IOException {
+        Random rnd = new Random( 42 );
+        for ( char separator : new char[] { ',', ';' } ) {
+            for ( int bufferSize : new int[] { 64, 100, BufferedCSVWriter.DEFAULT_BUFFER_SIZE } ) {
+                CSVSymbols symbols = createSymbols( separator );
+                // Fields up to 200 characters overflow the smallest buffers.
+                List<List<String>> rows = createRows( rnd, 500, 200 );
+
+                StringWriter expected = new StringWriter();
+                CSVWriter plain = new CSVWriter( expected, symbols );
+                StringWriter actual = new StringWriter();
+                try ( BufferedCSVWriter buffered = new BufferedCSVWriter( actual, symbols, bufferSize ) ) {
+                    for ( List<String> row : rows ) {
+                        plain.renderLine( row );
+                        if ( row.size() % 2 == 0 ) {
+                            buffered.renderLine( row );
+                        } else {
+                            for ( String field : row ) {
+                                buffered.writeField( new StringBuilder( field ) );
+                            }
+                            buffered.endLine();
+                        }
+                    }
+                }
+                assertEquals( expected.toString(), actual.toString() );
+            }
+        }
+    }
+
+    @Test
+    public void testRenderers()
+            throws IOException {
+        CSVSymbols symbols = createSymbols( ',' );
+        CSVTypedRenderer<Integer> renderer = new CSVTypedRenderer<Integer>() {
+            @Override
+            public String renderRecord( Integer value, Object... accessoryData ) {
+                return value + accessoryData[0].toString();
+            }
+        };
+        List<Integer> values = Arrays.asList( 1, 2, 3 );
+
+        StringWriter expected = new StringWriter();
+        new CSVWriter( expected, symbols ).renderLine( renderer, values, "\"x,y\"" );
+        StringWriter actual = new StringWriter();
+        BufferedCSVWriter buffered = new BufferedCSVWriter( actual, symbols );
+        buffered.renderLine( renderer, values, "\"x,y\"" );
+        assertEquals( "", actual.toString() );
+        buffered.flush();
+        assertEquals( expected.toString(), actual.toString() );
+        assertEquals( "\"1\"\"x,y\"\"\",\"2\"\"x,y\"\"\",\"3\"\"x,y\"\"\"\r\n", actual.toString() );
+    }
+
+    @Test
+    public void testPrimitives()
+            throws IOException {
+        long[] longs = { 0, -1, 42, Integer.MIN_VALUE, Long.MIN_VALUE, Long.MAX_VALUE };
+        double[] doubles = { 0.0, -0.0, 1.5, 1e7, 1e-5, 0.1 + 0.2, Double.NaN, Double.NEGATIVE_INFINITY,
+                Double.MIN_VALUE };
+        StringWriter actual = new StringWriter();
+        StringBuilder expected = new StringBuilder();
+        try ( BufferedCSVWriter buffered = new BufferedCSVWriter( actual, createSymbols( ';' ) ) ) {
+            for ( long l : longs ) {
+                buffered.writeField( l );
+                buffered.writeField( (int) l );
+                buffered.writeField( (CharSequence) null );
+                expected.append( l ).append( ';' ).append( (int) l ).append( ';' ).append( ';' );
+            }
+            for ( double d : doubles ) {
+                buffered.writeField( d );
+                expected.append( d ).append( ';' );
+            }
+            buffered.endLine();
+        }
+        expected.setLength( expected.length() - 1 );
+        expected.append( "\r\n" );
+        assertEquals( expected.toString(), actual.toString() );
+
+        // A separator that occurs in numbers gets them quoted.
+        CSVSymbols dot = createSymbols( '.' );
+        actual = new StringWriter();
+        try ( BufferedCSVWriter buffered = new BufferedCSVWriter( actual, dot ) ) {
+            buffered.writeField( 1.5 );
+            buffered.writeField( 2 );
+            buffered.endLine();
+        }
+        assertEquals( "\"1.5\".2\r\n", actual.toString() );
+    }
+}
@@ -0,0 +1,300 @@
+package org.cujau.utils.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.invoke.MethodHandles;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.cujau.utils.ReflectionException;
+import org.junit.Test;
+
+public class CSVBeanMapperTest {
+
+    private static final String[] PROPERTIES = { "id", "volume", "price", "symbol", "amount", "active", "side",
+            "count" };
+
+    public enum Side {
+        BUY, SELL
+    }
+
+    public static class Trade {
+
+        private int id;
+        private long volume;
+        private double price;
+        private String symbol;
+        private BigDecimal amount;
+        private boolean active;
+        private Side side;
+        private Integer count = 42;
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId( int id ) {
+            this.id = id;
+        }
+
+        public long getVolume() {
+            return volume;
+        }
+
+        public void setVolume( long volume ) {
+            this.volume = volume;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public void setPrice( double price ) {
+            this.price = price;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+
+        public void setSymbol( String symbol ) {
+            this.symbol = symbol;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public void setAmount( BigDecimal amount ) {
+            this.amount = amount;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive( boolean active ) {
+            this.active = active;
+        }
+
+        public Side getSide() {
+            return side;
+        }
+
+        public void setSide( Side side ) {
+            this.side = side;
+        }
+
+        public Integer getCount() {
+            return count;
+        }
+
+        public void setCount( Integer count ) {
+            this.count = count;
+        }
+    }
+
+    public static class ReadOnly {
+
+        public String getName() {
+            return "a,b";
+        }
+    }
+
+    static class Hidden {
+
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName( String name ) {
+            this.name = name;
+        }
+    }
+
+    private static CSVSymbols createSymbols() {
+        CSVSymbols symbols = new CSVSymbols( Locale.US );
+        symbols.setLineSeparator( "\n" );
+        return symbols;
+    }
+
+    private static List<Trade> createTrades() {
+        List<Trade> trades = new ArrayList<>();
+        for ( int i = 0; i < 100; i++ ) {
+            Trade t = new Trade();
+            t.setId( i );
+            t.setVolume( Long.MAX_VALUE - i );
+            t.setPrice( i / 3.0 );
+            t.setSymbol( i % 10 == 0 ? null : "S\"Y,M\n" + i );
+            t.setAmount( i % 7 == 0 ? null : BigDecimal.valueOf( i * 1001L, 3 ) );
+            t.setActive( i % 2 == 0 );
+            t.setSide( i % 3 == 0 ? null : Side.values()[i % 2] );
+            t.setCount( i % 5 == 0 ? null : Integer.valueOf( -i ) );
+            trades.add( t );
+        }
+        return trades;
+    }
+
+    private static String render( CSVBeanMapper<Trade> mapper, List<Trade> trades, CSVSymbols symbols )
+            throws IOException {
+        StringWriter out = new StringWriter();
+        try ( BufferedCSVWriter csv = new BufferedCSVWriter( out, symbols ) ) {
+            mapper.renderHeader( csv );
+            for ( Trade t : trades ) {
+                mapper.renderRow( t, csv );
+            }
+        }
+        return out.toString();
+    }
+
+    private static void assertRoundTrip( CSVBeanMapper<Trade> mapper )
+            throws IOException {
+        CSVSymbols symbols = createSymbols();
+        List<Trade> trades = createTrades();
+        String text = render( mapper, trades, symbols );
+
+        try ( CSVReader in = new CSVReader( new StringReader( text ), symbols ) ) {
+            assertTrue( in.next() );
+            assertEquals( Arrays.asList( PROPERTIES ), Arrays.asList( in.getStrings() ) );
+            for ( Trade expected : trades ) {
+                assertTrue( in.next() );
+                Trade actual = mapper.parseRow( in );
+                assertEquals( expected.getId(), actual.getId() );
+                assertEquals( expected.getVolume(), actual.getVolume() );
+                assertEquals( expected.getPrice(), actual.getPrice(), 0 );
+                assertEquals( expected.getSymbol(), actual.getSymbol() );
+                assertEquals( expected.getAmount(), actual.getAmount() );
+                assertEquals( expected.isActive(), actual.isActive() );
+                assertEquals( expected.getSide(), actual.getSide() );
+                // Empty fields keep the constructor's value.
+                assertEquals( expected.getCount() != null ? expected.getCount() : Integer.valueOf( 42 ),
+                              actual.getCount() );
+            }
+            assertFalse( in.next() );
+        }
+    }
+
+    @Test
+    public void testRoundTrip()
+            throws Exception {
+        CSVBeanMapper<Trade> mapper = CSVBeanMapper.create( Trade.class, PROPERTIES );
+        assertEquals( Trade.class, mapper.getBeanClass() );
+        assertEquals( Arrays.asList( PROPERTIES ), mapper.getProperties() );
+        assertTrue( mapper.canParse() );
+        assertRoundTrip( mapper );
+    }
+
+    @Test
+    public void testRenderMatchesCSVWriter()
+            throws Exception {
+        CSVSymbols symbols = createSymbols();
+        List<Trade> trades = createTrades();
+        StringWriter expected = new StringWriter();
+        CSVWriter writer = new CSVWriter( expected, symbols );
+        writer.renderLine( PROPERTIES );
+        for ( Trade t : trades ) {
+            List<String> row = new ArrayList<>();
+            row.add( String.valueOf( t.getId() ) );
+            row.add( String.valueOf( t.getVolume() ) );
+            row.add( String.valueOf( t.getPrice() ) );
+            row.add( t.getSymbol() == null ? "" : t.getSymbol() );
+            row.add( t.getAmount() == null ? "" : t.getAmount().toString() );
+            row.add( String.valueOf( t.isActive() ) );
+            row.add( t.getSide() == null ? "" : t.getSide().name() );
+            row.add( t.getCount() == null ? "" : t.getCount().toString() );
+            writer.renderLine( row );
+        }
+        assertEquals( expected.toString(), render( CSVBeanMapper.create( Trade.class, PROPERTIES ), trades, symbols ) );
+    }
+
+    @Test
+    public void testProxyFallback()
+            throws Exception {
+        // The public lookup cannot define lambdas, so the accessors are proxies.
+        assertRoundTrip( CSVBeanMapper.create( MethodHandles.publicLookup(), Trade.class, PROPERTIES ) );
+    }
+
+    @Test
+    public void testPackagePrivateBean()
+            throws Exception {
+        CSVBeanMapper<Hidden> mapper = CSVBeanMapper.create( MethodHandles.lookup(), Hidden.class, "name" );
+        try ( CSVReader in = new CSVReader( new StringReader( "x\n" ), createSymbols() ) ) {
+            assertTrue( in.next() );
+            assertEquals( "x", mapper.parseRow( in ).getName() );
+        }
+        try {
+            CSVBeanMapper.create( Hidden.class, "name" );
+            fail( "Expected a ReflectionException" );
+        } catch ( ReflectionException e ) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testReadOnlyBean()
+            throws Exception {
+        CSVBeanMapper<ReadOnly> mapper = CSVBeanMapper.create( ReadOnly.class, "name" );
+        assertFalse( mapper.canParse() );
+        StringWriter out = new StringWriter();
+        try ( BufferedCSVWriter csv = new BufferedCSVWriter( out, createSymbols() ) ) {
+            mapper.renderRow( new ReadOnly(), csv );
+        }
+        assertEquals( "\"a,b\"\n", out.toString() );
+        try ( CSVReader in = new CSVReader( new StringReader( "x\n" ), createSymbols() ) ) {
+            assertTrue( in.next() );
+            mapper.parseRow( in );
+            fail( "Expected an UnsupportedOperationException" );
+        } catch ( UnsupportedOperationException e ) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testUnknownProperty() {
+        try {
+            CSVBeanMapper.create( Trade.class, "id", "nothing" );
+            fail( "Expected a ReflectionException" );
+        } catch ( ReflectionException e ) {
+            assertTrue( e.getMessage().contains( "nothing" ) );
+        }
+    }
+
+    @Test
+    public void testInvalidField()
+            throws Exception {
+        CSVBeanMapper<Trade> mapper = CSVBeanMapper.create( Trade.class, "id", "price" );
+        try ( CSVReader in = new CSVReader( new StringReader( "1,2.5\n1x,2\n3\n" ), createSymbols() ) ) {
+            assertTrue( in.next() );
+            Trade t = mapper.parseRow( in );
+            assertEquals( 1, t.getId() );
+            assertEquals( 2.5, t.getPrice(), 0 );
+            assertTrue( in.next() );
+            try {
+                mapper.parseRow( in );
+                fail( "Expected an IllegalArgumentException" );
+            } catch ( IllegalArgumentException e ) {
+                assertTrue( e.getMessage(), e.getMessage().contains( "'id'" ) );
+            }
+            // A short record leaves the remaining properties alone.
+            assertTrue( in.next() );
+            t = new Trade();
+            t.setPrice( 7 );
+            mapper.parseRow( in, t );
+            assertEquals( 3, t.getId() );
+            assertEquals( 7, t.getPrice(), 0 );
+            assertNull( t.getSymbol() );
+        }
+    }
+}
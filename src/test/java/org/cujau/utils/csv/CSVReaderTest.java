@@ -0,0 +1,187 @@
+package org.cujau.utils.csv;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CSVReaderTest {
+
+    private static final String CHARS = "ab,;\"\n\r xyzäö€";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static CSVSymbols createSymbols( char separator ) {
+        CSVSymbols symbols = new CSVSymbols( Locale.US );
+        symbols.setRecordSeparator( separator );
+        symbols.setLineSeparator( "\r\n" );
+        return symbols;
+    }
+
+    /** Values that CSVWriter writes in a way that does not read back as the same value. */
+    private static boolean isAmbiguous( String value, char separator ) {
+        boolean quoted = value.indexOf( separator ) >= 0 || value.indexOf( '\n' ) >= 0 || value.indexOf( '\r' ) >= 0;
+        return !quoted && ( value.equals( "\"" ) || value.startsWith( "\"\"" ) );
+    }
+
+    private static List<String[]> createRows( Random rnd, int count, int maxFieldLength, char separator ) {
+        List<String[]> rows = new ArrayList<>();
+        while ( rows.size() < count ) {
+            String[] row = new String[rnd.nextInt( 6 ) + 1];
+            for ( int f = 0; f < row.length; f++ ) {
+                StringBuilder field = new StringBuilder();
+                for ( int i = rnd.nextInt( maxFieldLength + 1 ); i > 0; i-- ) {
+                    field.append( CHARS.charAt( rnd.nextInt( CHARS.length() ) ) );
+                }
+                row[f] = field.toString();
+                if ( isAmbiguous( row[f], separator ) ) {
+                    row[f] = "x" + row[f];
+                }
+            }
+            if ( row.length == 1 && row[0].isEmpty() ) {
+                // Reads back as an empty line.
+                continue;
+            }
+            rows.add( row );
+        }
+        return rows;
+    }
+
+    private static void write( Writer out, CSVSymbols symbols, List<String[]> rows )
+            throws IOException {
+        try ( BufferedCSVWriter writer = new BufferedCSVWriter( out, symbols ) ) {
+            for ( String[] row : rows ) {
+                writer.renderLine( row );
+            }
+        }
+    }
+
+    private static void assertRows( List<String[]> expected, CSVReader reader )
+            throws IOException {
+        for ( String[] row : expected ) {
+            assertTrue( reader.next() );
+            assertArrayEquals( row, reader.getStrings() );
+        }
+        assertFalse( reader.next() );
+        assertFalse( reader.next() );
+    }
+
+    @Test
+    public void testRoundTrip()
+            throws IOException {
+        Random rnd = new Random( 4711 );
+        for ( char separator : new char[] { ',', ';' } ) {
+            CSVSymbols symbols = createSymbols( separator );
+            // Fields up to 100 characters overflow the smallest buffer.
+            List<String[]> rows = createRows( rnd, 2000, 100, separator );
+            StringWriter sw = new StringWriter();
+            write( sw, symbols, rows );
+            for ( int bufferSize : new int[] { 64, 1000, CSVReader.DEFAULT_BUFFER_SIZE } ) {
+                try ( CSVReader reader = new CSVReader( new StringReader( sw.toString() ), symbols, bufferSize ) ) {
+                    assertRows( rows, reader );
+                    assertEquals( rows.size(), reader.getRecordNumber() );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMappedFile()
+            throws IOException {
+        CSVSymbols symbols = createSymbols( ';' );
+        List<String[]> rows = createRows( new Random( 42 ), 3000, 20, ';' );
+        Path file = folder.newFile( "data.csv" ).toPath();
+        write( Files.newBufferedWriter( file, StandardCharsets.UTF_8 ), symbols, rows );
+
+        try ( CSVReader reader = CSVReader.open( file, symbols, StandardCharsets.UTF_8 ) ) {
+            assertRows( rows, reader );
+        }
+        // Windows that split multi-byte characters.
+        for ( long windowSize : new long[] { 1, 7, 4096 } ) {
+            try ( CSVReader reader = CSVReader.open( file, symbols, StandardCharsets.UTF_8, windowSize ) ) {
+                assertRows( rows, reader );
+            }
+        }
+
+        Path empty = folder.newFile( "empty.csv" ).toPath();
+        try ( CSVReader reader = CSVReader.open( empty, symbols, StandardCharsets.UTF_8 ) ) {
+            assertFalse( reader.next() );
+        }
+    }
+
+    @Test
+    public void testParsing()
+            throws IOException {
+        String csv = "a,b\r\nc,\"d\ne\"\r\"x\"\"y\",z\n\n\"\",\"\"\"q\"\"\"\na\"\"b,\"\"c,\"x\"y\r\n,\n\"\"";
+        try ( CSVReader reader = new CSVReader( new StringReader( csv ), createSymbols( ',' ) ) ) {
+            assertTrue( reader.next() );
+            assertArrayEquals( new String[] { "a", "b" }, reader.getStrings() );
+            assertTrue( reader.next() );
+            assertArrayEquals( new String[] { "c", "d\ne" }, reader.getStrings() );
+            assertTrue( reader.next() );
+            assertArrayEquals( new String[] { "x\"y", "z" }, reader.getStrings() );
+            assertTrue( reader.next() );
+            assertEquals( 0, reader.getFieldCount() );
+            assertTrue( reader.next() );
+            assertArrayEquals( new String[] { "", "\"q\"" }, reader.getStrings() );
+            assertTrue( reader.next() );
+            assertArrayEquals( new String[] { "a\"b", "\"c", "xy" }, reader.getStrings() );
+            assertTrue( reader.next() );
+            assertArrayEquals( new String[] { "", "" }, reader.getStrings() );
+            assertTrue( reader.next() );
+            assertArrayEquals( new String[] { "" }, reader.getStrings() );
+            assertFalse( reader.next() );
+            assertEquals( 8, reader.getRecordNumber() );
+        }
+    }
+
+    @Test
+    public void testFieldViews()
+            throws IOException {
+        try ( CSVReader reader = new CSVReader( new StringReader( "hello;\"wo;rld\"\nnext;x\n" ), createSymbols( ';' ) ) ) {
+            assertTrue( reader.next() );
+            CharSequence first = reader.getField( 0 );
+            CharSequence second = reader.getField( 1 );
+            assertEquals( 5, first.length() );
+            assertEquals( 'e', first.charAt( 1 ) );
+            assertEquals( "ell", first.subSequence( 1, 4 ).toString() );
+            assertEquals( "wo;rld", second.toString() );
+            try {
+                reader.getField( 2 );
+                fail( "Expected IndexOutOfBoundsException" );
+            } catch ( IndexOutOfBoundsException e ) {
+                // expected
+            }
+            try {
+                first.charAt( 5 );
+                fail( "Expected IndexOutOfBoundsException" );
+            } catch ( IndexOutOfBoundsException e ) {
+                // expected
+            }
+
+            // The views are reused for the next record.
+            assertTrue( reader.next() );
+            assertTrue( first == reader.getField( 0 ) );
+            assertEquals( "next", first.toString() );
+            assertFalse( reader.next() );
+        }
+    }
+}
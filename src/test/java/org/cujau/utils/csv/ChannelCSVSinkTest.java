@@ -0,0 +1,185 @@
+package org.cujau.utils.csv;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+public class ChannelCSVSinkTest {
+
+    /** ASCII, Latin-1, other BMP characters, a surrogate pair and lone surrogates. */
+    private static final String CHARS = "abc,\"\n xyzéÿΔ€😀😀𐀀x";
+
+    private static String createText( Random rnd, int length ) {
+        StringBuilder text = new StringBuilder( length );
+        for ( int i = 0; i < length; i++ ) {
+            if ( rnd.nextInt( 4 ) == 0 ) {
+                text.append( CHARS.charAt( rnd.nextInt( CHARS.length() ) ) );
+            } else {
+                text.append( (char) ( 'a' + rnd.nextInt( 26 ) ) );
+            }
+        }
+        return text.toString();
+    }
+
+    /** Write the text in chunks of random size, which split surrogate pairs. */
+    private static void writeChunks( Random rnd, String text, Writer out )
+            throws IOException {
+        char[] chars = text.toCharArray();
+        int i = 0;
+        while ( i < chars.length ) {
+            int len = Math.min( chars.length - i, 1 + rnd.nextInt( 300 ) );
+            if ( len == 1 ) {
+                out.write( chars[i] );
+            } else if ( len % 3 == 0 ) {
+                out.write( text, i, len );
+            } else {
+                out.write( chars, i, len );
+            }
+            i += len;
+        }
+    }
+
+    private static byte[] gunzip( byte[] gzip )
+            throws IOException {
+        try ( InputStream in = new GZIPInputStream( new ByteArrayInputStream( gzip ) ) ) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ( ( n = in.read( buf ) ) > 0 ) {
+                out.write( buf, 0, n );
+            }
+            return out.toByteArray();
+        }
+    }
+
+    @Test
+    public void testMatchesOutputStreamWriter()
+            throws IOException {
+        Random rnd = new Random( 7 );
+        String[] charsets = { "UTF-8", "US-ASCII", "ISO-8859-1", "UTF-16", "windows-1252" };
+        for ( String name : charsets ) {
+            Charset charset = Charset.forName( name );
+            for ( int length : new int[] { 0, 1, 1000, 3 * ChannelCSVSink.BUFFER_SIZE + 17 } ) {
+                String text = createText( rnd, length );
+                ByteArrayOutputStream expected = new ByteArrayOutputStream();
+                try ( Writer w = new OutputStreamWriter( expected, charset ) ) {
+                    w.write( text );
+                }
+                long seed = rnd.nextLong();
+                ByteArrayOutputStream actual = new ByteArrayOutputStream();
+                ChannelCSVSink sink = new ChannelCSVSink( Channels.newChannel( actual ), charset );
+                writeChunks( new Random( seed ), text, sink );
+                sink.close();
+                assertArrayEquals( name + " " + length, expected.toByteArray(), actual.toByteArray() );
+                assertEquals( actual.size(), sink.getBytesWritten() );
+
+                ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+                sink = ChannelCSVSink.gzip( Channels.newChannel( gzip ), charset, Deflater.BEST_SPEED );
+                writeChunks( new Random( seed ), text, sink );
+                sink.flush();
+                sink.close();
+                assertArrayEquals( name + " " + length, expected.toByteArray(), gunzip( gzip.toByteArray() ) );
+            }
+        }
+    }
+
+    @Test
+    public void testLongStrings()
+            throws IOException {
+        Random rnd = new Random( 11 );
+        String text = createText( rnd, 5000 );
+        // A surrogate pair straddling the point where long strings are split.
+        text = text.substring( 0, 1023 ) + "😀" + text.substring( 1025 );
+        for ( String name : new String[] { "UTF-8", "ISO-8859-1", "UTF-16" } ) {
+            Charset charset = Charset.forName( name );
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            try ( Writer w = new OutputStreamWriter( expected, charset ) ) {
+                w.write( text );
+                w.write( text, 1, 3000 );
+            }
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            try ( ChannelCSVSink sink = new ChannelCSVSink( Channels.newChannel( actual ), charset ) ) {
+                sink.write( text );
+                sink.write( text, 1, 3000 );
+            }
+            assertArrayEquals( name, expected.toByteArray(), actual.toByteArray() );
+        }
+    }
+
+    @Test
+    public void testTrailingHighSurrogate()
+            throws IOException {
+        for ( Charset charset : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1 } ) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try ( ChannelCSVSink sink = new ChannelCSVSink( Channels.newChannel( out ), charset ) ) {
+                sink.write( "ab\ud83d" );
+            }
+            assertEquals( "ab?", new String( out.toByteArray(), charset ) );
+        }
+    }
+
+    @Test
+    public void testBufferedCSVWriterToFile()
+            throws IOException {
+        CSVSymbols symbols = new CSVSymbols( Locale.US );
+        Path plain = Files.createTempFile( "channel-sink", ".csv" );
+        Path gzip = Files.createTempFile( "channel-sink", ".csv.gz" );
+        try {
+            StringBuilder expected = new StringBuilder();
+            for ( boolean compress : new boolean[] { false, true } ) {
+                try ( BufferedCSVWriter csv = new BufferedCSVWriter(
+                        ChannelCSVSink.open( compress ? gzip : plain, StandardCharsets.UTF_8, compress ), symbols ) ) {
+                    for ( int i = 0; i < 20000; i++ ) {
+                        csv.writeField( "résumé " + i );
+                        csv.writeField( i * 0.5 );
+                        csv.writeField( "a,\"b\"" );
+                        csv.endLine();
+                        if ( !compress ) {
+                            expected.append( "résumé " ).append( i ).append( ',' ).append( i * 0.5 )
+                                    .append( ",\"a,\"\"b\"\"\"" ).append( symbols.getLineSeparator() );
+                        }
+                    }
+                }
+            }
+            assertEquals( expected.toString(), new String( Files.readAllBytes( plain ), StandardCharsets.UTF_8 ) );
+            assertEquals( expected.toString(),
+                          new String( gunzip( Files.readAllBytes( gzip ) ), StandardCharsets.UTF_8 ) );
+        } finally {
+            Files.deleteIfExists( plain );
+            Files.deleteIfExists( gzip );
+        }
+    }
+
+    @Test
+    public void testWriteAfterClose()
+            throws IOException {
+        ChannelCSVSink sink = new ChannelCSVSink( Channels.newChannel( new ByteArrayOutputStream() ),
+                                                  StandardCharsets.UTF_8 );
+        sink.close();
+        sink.close();
+        try {
+            sink.write( "x" );
+            fail( "Expected an IOException" );
+        } catch ( IOException e ) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.cujau.utils.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ColumnarCSVWriterTest {
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern( "uuuu-MM-dd HH:mm:ss" );
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern( "uuuu-MM-dd" );
+
+    private static CSVSymbols createSymbols() {
+        CSVSymbols symbols = new CSVSymbols( Locale.US );
+        symbols.setLineSeparator( "\n" );
+        return symbols;
+    }
+
+    @Test
+    public void testMatchesCSVWriter()
+            throws IOException {
+        Random rnd = new Random( 3 );
+        int rows = 2000;
+        int[] ints = new int[rows];
+        long[] longs = new long[rows];
+        double[] doubles = new double[rows];
+        String[] strings = new String[rows];
+        int[] codes = new int[rows];
+        String[] dictionary = { "plain", "with,comma", "with \"quotes\"", "line\nbreak", "",
+                new String( new char[200] ).replace( '\0', 'x' ) };
+        for ( int i = 0; i < rows; i++ ) {
+            ints[i] = i % 10 == 0 ? Integer.MIN_VALUE + i : rnd.nextInt();
+            longs[i] = i % 10 == 0 ? Long.MIN_VALUE + i % 2 : i % 10 == 1 ? Long.MAX_VALUE : rnd.nextLong() >> rnd.nextInt( 64 );
+            doubles[i] = i % 10 == 0 ? Double.NaN : rnd.nextGaussian() * Math.pow( 10, rnd.nextInt( 40 ) - 20 );
+            strings[i] = i % 7 == 0 ? null : "s\"" + i + ( i % 3 == 0 ? ",x" : "" );
+            codes[i] = rnd.nextInt( dictionary.length + 1 ) - 1;
+        }
+
+        CSVSymbols symbols = createSymbols();
+        StringWriter expected = new StringWriter();
+        CSVWriter plain = new CSVWriter( expected, symbols );
+        plain.renderLine( "i", "l", "d", "s", "c" );
+        for ( int i = 0; i < rows; i++ ) {
+            plain.renderLine( String.valueOf( ints[i] ), String.valueOf( longs[i] ), String.valueOf( doubles[i] ),
+                              strings[i] == null ? "" : strings[i], codes[i] < 0 ? "" : dictionary[codes[i]] );
+        }
+
+        for ( int bufferSize : new int[] { 64, BufferedCSVWriter.DEFAULT_BUFFER_SIZE } ) {
+            StringWriter actual = new StringWriter();
+            try ( BufferedCSVWriter csv = new BufferedCSVWriter( actual, symbols, bufferSize ) ) {
+                ColumnarCSVWriter columns = new ColumnarCSVWriter( csv );
+                columns.addIntColumn( "i", ints ).addLongColumn( "l", longs ).addDoubleColumn( "d", doubles )
+                       .addStringColumn( "s", strings ).addDictionaryColumn( "c", codes, dictionary );
+                assertEquals( rows, columns.getRowCount() );
+                columns.writeHeader();
+                // In several blocks.
+                columns.writeRows( 0, 0 );
+                columns.writeRows( 0, 700 );
+                columns.writeRows( 700, rows );
+            }
+            assertEquals( expected.toString(), actual.toString() );
+        }
+    }
+
+    private static String renderFixed( double value, int decimals )
+            throws IOException {
+        StringWriter out = new StringWriter();
+        try ( BufferedCSVWriter csv = new BufferedCSVWriter( out, createSymbols() ) ) {
+            new ColumnarCSVWriter( csv ).addDoubleColumn( "d", new double[] { value }, decimals ).writeRows( 0, 1 );
+        }
+        String s = out.toString();
+        return s.substring( 0, s.length() - 1 );
+    }
+
+    @Test
+    public void testFixedDecimals()
+            throws IOException {
+        assertEquals( "0.00", renderFixed( 0, 2 ) );
+        assertEquals( "1.50", renderFixed( 1.5, 2 ) );
+        assertEquals( "-1.50", renderFixed( -1.5, 2 ) );
+        assertEquals( "1", renderFixed( 0.5, 0 ) );
+        assertEquals( "-1", renderFixed( -0.5, 0 ) );
+        assertEquals( "0.00", renderFixed( -0.001, 2 ) );
+        assertEquals( "0.0001", renderFixed( 0.0001, 4 ) );
+        assertEquals( "123456.789000000000000", renderFixed( 123456.789, 15 ) );
+        assertEquals( "100000000000000000000.0", renderFixed( 1e20, 1 ) );
+        assertEquals( "NaN", renderFixed( Double.NaN, 2 ) );
+        assertEquals( "-Infinity", renderFixed( Double.NEGATIVE_INFINITY, 2 ) );
+
+        Random rnd = new Random( 5 );
+        for ( int i = 0; i < 10000; i++ ) {
+            int decimals = rnd.nextInt( 5 );
+            double value = ( rnd.nextInt() >> rnd.nextInt( 31 ) ) / Math.pow( 10, decimals );
+            assertEquals( String.format( Locale.US, "%." + decimals + "f", value ), renderFixed( value, decimals ) );
+        }
+        try {
+            renderFixed( 1, ColumnarCSVWriter.MAX_DECIMALS + 1 );
+            fail( "Expected an IllegalArgumentException" );
+        } catch ( IllegalArgumentException e ) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testDates()
+            throws IOException {
+        Random rnd = new Random( 11 );
+        int rows = 5000;
+        long[] millis = new long[rows];
+        long t = -2208988800000L; // 1900
+        for ( int i = 0; i < rows; i++ ) {
+            // Mostly increasing, with some jumps back and out of the four-digit years.
+            t += ( rnd.nextInt( 1000 ) == 0 ? -1 : 1 ) * (long) rnd.nextInt( 2000000000 );
+            millis[i] = i % 500 == 0 ? -70000000000000000L + i : t;
+        }
+        for ( ZoneId zone : new ZoneId[] { ZoneOffset.UTC, ZoneOffset.ofHours( -5 ), ZoneId.of( "Europe/Zurich" ),
+                ZoneId.of( "America/New_York" ) } ) {
+            StringBuilder expected = new StringBuilder();
+            for ( long m : millis ) {
+                Instant instant = Instant.ofEpochMilli( m );
+                expected.append( DATE.format( instant.atZone( zone ) ) ).append( ',' )
+                        .append( DATE_TIME.format( instant.atZone( zone ) ) ).append( '\n' );
+            }
+            StringWriter actual = new StringWriter();
+            try ( BufferedCSVWriter csv = new BufferedCSVWriter( actual, createSymbols() ) ) {
+                new ColumnarCSVWriter( csv ).addDateColumn( "d", millis, zone ).addDateTimeColumn( "t", millis, zone )
+                                            .writeRows( 0, rows );
+            }
+            assertEquals( zone.toString(), expected.toString(), actual.toString() );
+        }
+    }
+
+    @Test
+    public void testRowRange()
+            throws IOException {
+        List<String> out = new ArrayList<>();
+        try ( BufferedCSVWriter csv = new BufferedCSVWriter( new StringWriter(), createSymbols() ) ) {
+            ColumnarCSVWriter columns = new ColumnarCSVWriter( csv );
+            assertEquals( 0, columns.getRowCount() );
+            columns.addIntColumn( "a", new int[5] ).addLongColumn( "b", new long[3] );
+            assertEquals( 3, columns.getRowCount() );
+            for ( int[] range : new int[][] { { -1, 2 }, { 2, 1 }, { 0, 4 } } ) {
+                try {
+                    columns.writeRows( range[0], range[1] );
+                    out.add( range[0] + "-" + range[1] );
+                } catch ( IndexOutOfBoundsException e ) {
+                    // expected
+                }
+            }
+        }
+        assertEquals( new ArrayList<String>(), out );
+    }
+}
@@ -0,0 +1,164 @@
+package org.cujau.utils.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelCSVExporterTest {
+
+    private static final int ROWS = 10000;
+
+    private ForkJoinPool pool;
+    private CSVSymbols symbols;
+
+    /** Renders a row number as a few fields, taking a random amount of time. */
+    private static final CSVRowRenderer<Integer> RENDERER = new CSVRowRenderer<Integer>() {
+        @Override
+        public void renderRow( Integer row, BufferedCSVWriter out )
+                throws IOException {
+            if ( ThreadLocalRandom.current().nextInt( 100 ) == 0 ) {
+                Thread.yield();
+            }
+            out.writeField( row );
+            out.writeField( "row \"" + row + "\"" );
+            out.writeField( row / 7.0 );
+            out.writeField( row % 3 == 0 ? "a,b" : "c" );
+            out.endLine();
+        }
+    };
+
+    @Before
+    public void before() {
+        pool = new ForkJoinPool( 4 );
+        symbols = new CSVSymbols( Locale.US );
+        symbols.setLineSeparator( "\n" );
+    }
+
+    @After
+    public void after() {
+        pool.shutdownNow();
+    }
+
+    private String renderSequentially( int rows )
+            throws IOException {
+        StringWriter sw = new StringWriter();
+        try ( BufferedCSVWriter writer = new BufferedCSVWriter( sw, symbols ) ) {
+            for ( int i = 0; i < rows; i++ ) {
+                RENDERER.renderRow( i, writer );
+            }
+        }
+        return sw.toString();
+    }
+
+    @Test
+    public void testOrderedOutput()
+            throws IOException {
+        String expected = renderSequentially( ROWS );
+        for ( int batchSize : new int[] { 1, 7, 1000, 20000 } ) {
+            ParallelCSVExporter exporter = new ParallelCSVExporter( symbols, pool, batchSize, 3 );
+            StringWriter sw = new StringWriter();
+            assertEquals( ROWS, exporter.export( IntStream.range( 0, ROWS ).boxed(), RENDERER, sw ) );
+            assertEquals( expected, sw.toString() );
+
+            sw = new StringWriter();
+            exporter.export( IntStream.range( 0, ROWS ).boxed().spliterator(), RENDERER, sw );
+            assertEquals( expected, sw.toString() );
+        }
+
+        StringWriter sw = new StringWriter();
+        assertEquals( 0, new ParallelCSVExporter( symbols ).export( new ArrayList<Integer>().iterator(), RENDERER, sw ) );
+        assertEquals( "", sw.toString() );
+    }
+
+    @Test
+    public void testTypedRenderer()
+            throws IOException {
+        CSVTypedRenderer<Integer> renderer = new CSVTypedRenderer<Integer>() {
+            @Override
+            public String renderRecord( Integer value, Object... accessoryData ) {
+                return accessoryData[0] + "," + value;
+            }
+        };
+        List<List<Integer>> rows = new ArrayList<>();
+        StringWriter expected = new StringWriter();
+        CSVWriter writer = new CSVWriter( expected, symbols );
+        for ( int i = 0; i < 500; i++ ) {
+            List<Integer> row = Arrays.asList( i, i + 1, i + 2 );
+            rows.add( row );
+            writer.renderLine( renderer, row, "x" );
+        }
+        StringWriter sw = new StringWriter();
+        new ParallelCSVExporter( symbols, pool, 16, 4 ).export( rows.iterator(), renderer, sw, "x" );
+        assertEquals( expected.toString(), sw.toString() );
+    }
+
+    @Test
+    public void testBoundedPending()
+            throws IOException {
+        final int batchSize = 10;
+        final int maxPending = 3;
+        final AtomicInteger pulled = new AtomicInteger();
+        final AtomicInteger maxAhead = new AtomicInteger();
+        final StringWriter sw = new StringWriter();
+        Iterator<Integer> rows = new Iterator<Integer>() {
+            @Override
+            public boolean hasNext() {
+                return pulled.get() < ROWS;
+            }
+
+            @Override
+            public Integer next() {
+                int written = (int) sw.getBuffer().chars().filter( c -> c == '\n' ).count();
+                maxAhead.accumulateAndGet( pulled.get() - written, Math::max );
+                return pulled.getAndIncrement();
+            }
+        };
+        new ParallelCSVExporter( symbols, pool, batchSize, maxPending ).export( rows, RENDERER, sw );
+        assertEquals( renderSequentially( ROWS ), sw.toString() );
+        // The batches in flight plus the one being collected.
+        assertTrue( "ahead " + maxAhead.get(), maxAhead.get() <= ( maxPending + 1 ) * batchSize );
+    }
+
+    @Test
+    public void testRendererFailure() {
+        CSVRowRenderer<Integer> failing = new CSVRowRenderer<Integer>() {
+            @Override
+            public void renderRow( Integer row, BufferedCSVWriter out )
+                    throws IOException {
+                if ( row == 5000 ) {
+                    throw new IOException( "row " + row );
+                }
+                RENDERER.renderRow( row, out );
+            }
+        };
+        try {
+            new ParallelCSVExporter( symbols, pool, 100, 4 ).export( IntStream.range( 0, ROWS ).boxed(), failing,
+                                                                    new StringWriter() );
+            fail( "Expected the renderer's IOException" );
+        } catch ( IOException e ) {
+            assertEquals( "row 5000", e.getMessage() );
+        }
+        try {
+            new ParallelCSVExporter( symbols, pool, 0, 4 );
+            fail( "Expected IllegalArgumentException" );
+        } catch ( IllegalArgumentException e ) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package org.cujau.utils.priorityexecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class BucketedPriorityBlockingQueueTest {
+
+    private static PriorityFuture<Integer> task(int priority, int id) {
+        return new PriorityFuture<>(() -> id, priority);
+    }
+
+    private static int id(Runnable task)
+            throws Exception {
+        task.run();
+        return (Integer) ((PriorityFuture<?>) task).get();
+    }
+
+    @Test
+    public void testOrder()
+            throws Exception {
+        BucketedPriorityBlockingQueue queue = new BucketedPriorityBlockingQueue(0, 9);
+        int[][] tasks = {{5, 0}, {1, 1}, {5, 2}, {9, 3}, {1, 4}, {-3, 5}, {42, 6}, {5, 7}};
+        for (int[] t : tasks) {
+            assertTrue(queue.offer(task(t[0], t[1])));
+        }
+        queue.offer(() -> { });
+        assertEquals(9, queue.size());
+        assertEquals(3, queue.size(5));
+        // Clamped to the range; equal priorities in FIFO order; a plain task has priority 0.
+        assertEquals(5, id(queue.peek()));
+        List<Integer> ids = new ArrayList<>();
+        Runnable task;
+        while ((task = queue.poll()) != null) {
+            ids.add(task instanceof PriorityFuture ? id(task) : -1);
+        }
+        assertEquals(Arrays.asList(5, -1, 1, 4, 0, 2, 7, 3, 6), ids);
+        assertTrue(queue.isEmpty());
+        assertNull(queue.peek());
+    }
+
+    @Test
+    public void testAddAll()
+            throws Exception {
+        BucketedPriorityBlockingQueue queue = new BucketedPriorityBlockingQueue(0, 3);
+        queue.offer(task(2, 0));
+        assertTrue(queue.addAll(Arrays.asList(task(3, 1), task(0, 2), task(2, 3))));
+        assertFalse(queue.addAll(Collections.emptyList()));
+        assertEquals(4, queue.size());
+        List<Integer> ids = new ArrayList<>();
+        Runnable task;
+        while ((task = queue.poll()) != null) {
+            ids.add(id(task));
+        }
+        assertEquals(Arrays.asList(2, 0, 3, 1), ids);
+    }
+
+    @Test
+    public void testRemoveAndIterate()
+            throws Exception {
+        BucketedPriorityBlockingQueue queue = new BucketedPriorityBlockingQueue(-2, 2);
+        List<PriorityFuture<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            PriorityFuture<Integer> t = task(2 - i % 5, i);
+            tasks.add(t);
+            queue.put(t);
+        }
+        assertTrue(queue.remove(tasks.get(3)));
+        assertFalse(queue.remove(tasks.get(3)));
+        assertFalse(queue.contains(tasks.get(3)));
+        assertTrue(queue.contains(tasks.get(4)));
+        List<Integer> ids = new ArrayList<>();
+        for (Iterator<Runnable> it = queue.iterator(); it.hasNext(); ) {
+            Runnable t = it.next();
+            if (t == tasks.get(0)) {
+                it.remove();
+            } else {
+                ids.add(id(t));
+            }
+        }
+        assertEquals(Arrays.asList(4, 9, 8, 2, 7, 1, 6, 5), ids);
+        assertEquals(8, queue.size());
+        List<Runnable> drained = new ArrayList<>();
+        assertEquals(3, queue.drainTo(drained, 3));
+        assertEquals(5, queue.drainTo(drained));
+        assertSame(tasks.get(4), drained.get(0));
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testBlocking()
+            throws Exception {
+        final BucketedPriorityBlockingQueue queue = new BucketedPriorityBlockingQueue(0, 3);
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+        final int producers = 3;
+        final int perProducer = 20000;
+        final Set<Runnable> taken = Collections.synchronizedSet(new HashSet<>());
+        final AtomicInteger remaining = new AtomicInteger(producers * perProducer);
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < 3; c++) {
+            threads.add(new Thread(() -> {
+                try {
+                    while (remaining.get() > 0) {
+                        Runnable t = queue.poll(1, TimeUnit.MILLISECONDS);
+                        if (t != null) {
+                            taken.add(t);
+                            remaining.decrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (int p = 0; p < producers; p++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    queue.offer(task(i & 3, i));
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(30000);
+        }
+        assertEquals(producers * perProducer, taken.size());
+        assertEquals(0, queue.size());
+
+        // take() wakes up for a task offered later.
+        final CountDownLatch tookIt = new CountDownLatch(1);
+        Thread taker = new Thread(() -> {
+            try {
+                queue.take();
+                tookIt.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        taker.start();
+        Thread.sleep(50);
+        queue.offer(task(1, 1));
+        assertTrue(tookIt.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testExecutor()
+            throws Exception {
+        PriorityThreadPoolExecutor executor =
+                new PriorityThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new BucketedPriorityBlockingQueue(0, 9));
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.submit(new PriorityCallable<Void>() {
+            @Override
+            public int getPriority() {
+                return 0;
+            }
+
+            @Override
+            public Void call()
+                    throws InterruptedException {
+                release.await();
+                return null;
+            }
+        });
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final int id = i;
+            futures.add(executor.submit(new PriorityCallable<Void>() {
+                @Override
+                public int getPriority() {
+                    return id % 2 == 0 ? 7 : 3;
+                }
+
+                @Override
+                public Void call() {
+                    order.add(id);
+                    return null;
+                }
+            }));
+        }
+        release.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(Arrays.asList(1, 3, 5, 7, 9, 11, 13, 15, 17, 19, 0, 2, 4, 6, 8, 10, 12, 14, 16, 18), order);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+}
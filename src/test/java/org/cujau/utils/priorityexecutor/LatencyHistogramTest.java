@@ -0,0 +1,49 @@
+package org.cujau.utils.priorityexecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        long[] values = {0, 1, 31, 32, 33, 63, 64, 65, 1000, 123456789L, Long.MAX_VALUE};
+        for (long v : values) {
+            int bucket = LatencyHistogram.bucket(v);
+            assertTrue(v + "", LatencyHistogram.highestValue(bucket) >= v);
+            assertTrue(v + "", bucket == 0 || LatencyHistogram.highestValue(bucket - 1) < v);
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(99, TimeUnit.NANOSECONDS));
+        Random rnd = new Random(7);
+        long[] values = new long[100000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(rnd.nextDouble() * 25);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(Arrays.stream(values).sum(), histogram.getTotal(TimeUnit.NANOSECONDS));
+        for (double p : new double[] {0, 1, 50, 90, 99, 99.9, 100}) {
+            long exact = values[Math.max(0, (int) Math.ceil(p / 100 * values.length) - 1)];
+            long approx = histogram.getPercentile(p, TimeUnit.NANOSECONDS);
+            assertTrue(p + ": " + approx + " vs " + exact, approx >= exact && approx <= exact * 1.04 + 1);
+        }
+        assertEquals(values[values.length - 1], histogram.getMax(TimeUnit.NANOSECONDS));
+        histogram.record(-5);
+        assertEquals(0, histogram.getPercentile(0, TimeUnit.NANOSECONDS));
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax(TimeUnit.NANOSECONDS));
+    }
+}
@@ -0,0 +1,144 @@
+package org.cujau.utils.priorityexecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class PriorityTaskQueueTest {
+
+    private static PriorityFuture<Integer> task(int priority) {
+        return new PriorityFuture<>(() -> priority, priority);
+    }
+
+    private static int priority(Runnable task) {
+        return ((PriorityFuture<?>) task).getPriority();
+    }
+
+    private static List<Integer> drain(PriorityTaskQueue queue) {
+        List<Integer> priorities = new ArrayList<>();
+        Runnable task;
+        while ((task = queue.poll()) != null) {
+            priorities.add(priority(task));
+        }
+        return priorities;
+    }
+
+    @Test
+    public void testOrder() {
+        PriorityTaskQueue queue = new PriorityTaskQueue(2);
+        Random rnd = new Random(3);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            int p = rnd.nextInt(50) - 10;
+            expected.add(p);
+            queue.offer(task(p));
+            if (i % 7 == 0) {
+                // Interleave removals with additions.
+                Collections.sort(expected);
+                assertEquals(expected.remove(0).intValue(), priority(queue.poll()));
+            }
+        }
+        Collections.sort(expected);
+        assertEquals(expected.size(), queue.size());
+        assertEquals(expected.get(0).intValue(), priority(queue.peek()));
+        assertEquals(expected, drain(queue));
+        assertNull(queue.peek());
+    }
+
+    @Test
+    public void testAddAll() {
+        Random rnd = new Random(5);
+        // A small batch into a large queue, then a batch larger than the queue.
+        for (int[] sizes : new int[][] {{500, 20}, {20, 500}, {0, 300}}) {
+            PriorityTaskQueue queue = new PriorityTaskQueue();
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < sizes[0]; i++) {
+                int p = rnd.nextInt(100);
+                expected.add(p);
+                queue.offer(task(p));
+            }
+            List<Runnable> batch = new ArrayList<>();
+            for (int i = 0; i < sizes[1]; i++) {
+                int p = rnd.nextInt(100);
+                expected.add(p);
+                batch.add(task(p));
+            }
+            assertTrue(queue.addAll(batch));
+            Collections.sort(expected);
+            assertEquals(expected, drain(queue));
+        }
+        PriorityTaskQueue queue = new PriorityTaskQueue();
+        assertFalse(queue.addAll(Collections.emptyList()));
+        try {
+            queue.addAll(Arrays.asList(task(1), null));
+            fail("Should not be here.");
+        } catch (NullPointerException e) {
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    @Test
+    public void testRemoveAndIterate() {
+        PriorityTaskQueue queue = new PriorityTaskQueue();
+        List<PriorityFuture<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tasks.add(task(i * 7 % 10));
+        }
+        queue.addAll(tasks);
+        assertTrue(queue.remove(tasks.get(3)));
+        assertFalse(queue.remove(tasks.get(3)));
+        assertFalse(queue.contains(tasks.get(3)));
+        assertTrue(queue.contains(tasks.get(4)));
+        for (Iterator<Runnable> it = queue.iterator(); it.hasNext(); ) {
+            if (priority(it.next()) % 2 == 0) {
+                it.remove();
+            }
+        }
+        assertEquals(Arrays.asList(3, 5, 7, 9), drain(queue));
+        queue.addAll(tasks);
+        List<Runnable> drained = new ArrayList<>();
+        assertEquals(3, queue.drainTo(drained, 3));
+        assertEquals(0, priority(drained.get(0)));
+        assertEquals(7, queue.toArray().length);
+        queue.clear();
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testBlocking()
+            throws Exception {
+        final PriorityTaskQueue queue = new PriorityTaskQueue();
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+        // One batch wakes every waiting thread it has a task for.
+        final int takers = 4;
+        final CountDownLatch tookIt = new CountDownLatch(takers);
+        for (int i = 0; i < takers; i++) {
+            new Thread(() -> {
+                try {
+                    queue.take();
+                    tookIt.countDown();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }).start();
+        }
+        Thread.sleep(50);
+        queue.addAll(Arrays.asList(task(1), task(2), task(3), task(4), task(5)));
+        assertTrue(tookIt.await(10, TimeUnit.SECONDS));
+        assertEquals(1, queue.size());
+        assertEquals(5, priority(queue.take()));
+    }
+}
@@ -0,0 +1,394 @@
+package org.cujau.utils.priorityexecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Test;
+
+public class PriorityThreadPoolExecutorTest {
+
+    private static PriorityCallable<Void> task(final int priority, final List<Integer> order) {
+        return new PriorityCallable<Void>() {
+            @Override
+            public int getPriority() {
+                return priority;
+            }
+
+            @Override
+            public Void call() {
+                order.add(priority);
+                return null;
+            }
+        };
+    }
+
+    /** Occupy the single thread until the latch opens, so that tasks queue up behind it. */
+    private static CountDownLatch block(PriorityThreadPoolExecutor executor)
+            throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.submit(new PriorityCallable<Void>() {
+            @Override
+            public int getPriority() {
+                return 0;
+            }
+
+            @Override
+            public Void call()
+                    throws InterruptedException {
+                started.countDown();
+                release.await();
+                return null;
+            }
+        });
+        started.await();
+        return release;
+    }
+
+    private static List<Integer> run(SchedulingPolicy policy, int[] before, long pauseMillis, int[] after)
+            throws Exception {
+        PriorityThreadPoolExecutor executor = new PriorityThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, 16);
+        executor.setSchedulingPolicy(policy);
+        CountDownLatch release = block(executor);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int p : before) {
+            futures.add(executor.submit(task(p, order)));
+        }
+        Thread.sleep(pauseMillis);
+        for (int p : after) {
+            futures.add(executor.submit(task(p, order)));
+        }
+        release.countDown();
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        return order;
+    }
+
+    @Test
+    public void testStrict()
+            throws Exception {
+        assertEquals(Arrays.asList(0, 0, 3, 9), run(SchedulingPolicy.strict(), new int[] {9, 3}, 20, new int[] {0, 0}));
+    }
+
+    @Test
+    public void testAging()
+            throws Exception {
+        // After waiting 20ms, priority 9 with 1ms aging is ahead of new tasks of priority 0.
+        assertEquals(Arrays.asList(9, 0, 0),
+                     run(SchedulingPolicy.aging(1, TimeUnit.MILLISECONDS), new int[] {9}, 20, new int[] {0, 0}));
+        // But not of priority 0 tasks that arrive early enough.
+        assertEquals(Arrays.asList(0, 0, 9),
+                     run(SchedulingPolicy.aging(1, TimeUnit.HOURS), new int[] {9}, 20, new int[] {0, 0}));
+    }
+
+    @Test
+    public void testWeightedFair()
+            throws Exception {
+        int[] tasks = new int[200];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = i < 100 ? 1 : 0;
+        }
+        List<Integer> order = run(SchedulingPolicy.weightedFair(), tasks, 0, new int[0]);
+        // Priority 0 has twice the weight of priority 1.
+        int low = Collections.frequency(order.subList(0, 30), 1);
+        assertTrue(order.subList(0, 30).toString(), low >= 9 && low <= 11);
+        order = run(SchedulingPolicy.strict(), tasks, 0, new int[0]);
+        assertEquals(0, Collections.frequency(order.subList(0, 30), 1));
+    }
+
+    @Test
+    public void testRunnablesAndDefaultPriority()
+            throws Exception {
+        PriorityThreadPoolExecutor executor = new PriorityThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, 16);
+        executor.setDefaultPriority(5);
+        CountDownLatch release = block(executor);
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        executor.execute(() -> {
+            order.add(5);
+        });
+        executor.execute(new PriorityRunnable() {
+            @Override
+            public int getPriority() {
+                return 7;
+            }
+
+            @Override
+            public void run() {
+                order.add(7);
+            }
+        });
+        executor.execute(() -> {
+            order.add(2);
+        }, 2);
+        executor.setDefaultPriority(6);
+        Future<?> plain = executor.submit(() -> {
+            order.add(6);
+        });
+        Future<Integer> callable = executor.submit(() -> {
+            order.add(1);
+            return 1;
+        }, 1);
+        Future<?> runnable = executor.submit(() -> {
+            order.add(3);
+        }, 3);
+        executor.setDefaultPriority(4);
+        Future<String> unannotated = executor.submit(() -> {
+            order.add(4);
+            return "4";
+        });
+        release.countDown();
+        assertEquals(Integer.valueOf(1), callable.get());
+        assertEquals("4", unannotated.get());
+        assertNull(runnable.get());
+        assertNull(plain.get());
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7), order);
+    }
+
+    @Test
+    public void testExecuteRethrows()
+            throws Exception {
+        final AtomicReference<Throwable> thrown = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        PriorityThreadPoolExecutor executor = new PriorityThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, r -> {
+            Thread thread = new Thread(r);
+            thread.setUncaughtExceptionHandler((t, e) -> {
+                thrown.set(e);
+                done.countDown();
+            });
+            return thread;
+        }, 16);
+        executor.execute(() -> {
+            throw new IllegalStateException("boom");
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals("boom", thrown.get().getMessage());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testSubmitAll()
+            throws Exception {
+        PriorityThreadPoolExecutor executor = new PriorityThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, 16);
+        CountDownLatch release = block(executor);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<PriorityCallable<Void>> tasks = new ArrayList<>();
+        for (int p : new int[] {4, 1, 3, 0, 2}) {
+            tasks.add(task(p, order));
+        }
+        List<Future<Void>> futures = executor.submitAll(tasks);
+        assertEquals(5, futures.size());
+        assertEquals(5, executor.getQueue().size());
+        release.countDown();
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), order);
+        executor.shutdown();
+        try {
+            executor.submitAll(tasks);
+            fail("Should not be here.");
+        } catch (RejectedExecutionException e) {
+            // As for submit.
+        }
+    }
+
+    @Test
+    public void testInvokeAll()
+            throws Exception {
+        // Starts the core threads, as submitting one at a time would.
+        PriorityThreadPoolExecutor executor = new PriorityThreadPoolExecutor(4, 4, 60, TimeUnit.SECONDS, 16);
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            final int n = i;
+            tasks.add(() -> {
+                if (n == 500) {
+                    throw new IllegalStateException();
+                }
+                return n;
+            });
+        }
+        List<Future<Integer>> futures = executor.invokeAll(tasks);
+        assertEquals(4, executor.getPoolSize());
+        for (int i = 0; i < futures.size(); i++) {
+            assertTrue(futures.get(i).isDone());
+            if (i != 500) {
+                assertEquals(i, futures.get(i).get().intValue());
+            }
+        }
+        try {
+            futures.get(500).get();
+            fail("Should not be here.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void testInstrumentation()
+            throws Exception {
+        PriorityThreadPoolExecutor executor = new PriorityThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, 16);
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        executor.setMetricsSink(new TaskMetricsSink() {
+            @Override
+            public void taskStarted(int priority, long waitNanos) {
+                events.add("started " + priority);
+            }
+
+            @Override
+            public void taskFinished(int priority, long runNanos) {
+                events.add("finished " + priority);
+            }
+
+            @Override
+            public void taskRejected(int priority) {
+                events.add("rejected " + priority);
+            }
+        });
+        executor.setLatencyTracking(true);
+        CountDownLatch release = block(executor);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(executor.submit(() -> {
+                Thread.sleep(10);
+                return null;
+            }, i % 3 + 1));
+        }
+        assertEquals(6, executor.getQueueSize());
+        Map<Integer, Integer> depths = new TreeMap<>();
+        depths.put(1, 2);
+        depths.put(2, 2);
+        depths.put(3, 2);
+        assertEquals(depths, executor.getQueueDepths());
+        release.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        // The run time is recorded after the future completes.
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        PriorityExecutorMetrics metrics = executor.getMetrics();
+        assertEquals(2, metrics.getRunTimes(3).getCount());
+        assertTrue(metrics.getRunTimes(3).getPercentile(50, TimeUnit.MILLISECONDS) >= 9);
+        assertTrue(executor.getRunTimePercentile(1, 99) >= 9000);
+        assertEquals(Arrays.asList(0, 1, 2, 3), new ArrayList<>(executor.getRunTimeSummaries().keySet()));
+        assertTrue(metrics.getBusyTime(TimeUnit.MILLISECONDS) >= 60);
+        assertEquals(0, executor.getQueueDepths().size());
+        assertEquals(2, Collections.frequency(events, "started 2"));
+        assertEquals(2, Collections.frequency(events, "finished 2"));
+
+        try {
+            executor.submit(() -> null, 5);
+            fail("Should not be here.");
+        } catch (RejectedExecutionException e) {
+            // Counted before the handler throws.
+        }
+        assertEquals(1, executor.getRejectedTaskCount());
+        assertEquals(Collections.singletonMap(5, 1L), executor.getRejectedTaskCounts());
+        assertTrue(events.contains("rejected 5"));
+        assertTrue(executor.getRejectedExecutionHandler() instanceof ThreadPoolExecutor.AbortPolicy);
+
+        executor.resetMetrics();
+        assertEquals(0, metrics.getRunTimes(3).getCount());
+        assertEquals(0, executor.getRejectedTaskCount());
+    }
+
+    @Test
+    public void testUtilizationAndJmx()
+            throws Exception {
+        PriorityThreadPoolExecutor executor = new PriorityThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, 16);
+        executor.setLatencyTracking(true);
+        executor.resetMetrics();
+        executor.submit(() -> {
+            Thread.sleep(50);
+            return null;
+        }, 0).get();
+        // With one thread, this runs after the run time of the first task is recorded.
+        executor.submit(() -> null, 1).get();
+        double utilization = executor.getUtilization();
+        assertTrue(utilization + "", utilization > 0.3 && utilization <= 1);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("org.cujau:type=PriorityThreadPoolExecutor,name=test");
+        server.registerMBean(executor, name);
+        try {
+            assertEquals(1, server.getAttribute(name, "PoolSize"));
+            assertEquals(0L, server.getAttribute(name, "RejectedTaskCount"));
+            assertEquals(Boolean.TRUE, server.getAttribute(name, "LatencyTracking"));
+            assertTrue(server.getAttribute(name, "RunTimeSummaries") instanceof TabularData);
+            long p50 = (Long) server.invoke(name, "getRunTimePercentile", new Object[] {0, 50.0},
+                                            new String[] {"int", "double"});
+            assertTrue(p50 + "", p50 >= 49000);
+        } finally {
+            server.unregisterMBean(name);
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testLatencyTracking()
+            throws Exception {
+        PriorityThreadPoolExecutor executor = new PriorityThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, 16);
+        assertNull(executor.getLatencyHistogram(0));
+        executor.setLatencyTracking(true);
+        CountDownLatch release = block(executor);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(executor.submit(task(i % 2, order)));
+        }
+        Thread.sleep(20);
+        release.countDown();
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        // The blocking task was submitted with tracking on too.
+        assertEquals(6, executor.getLatencyHistogram(0).getCount());
+        assertEquals(5, executor.getLatencyHistogram(1).getCount());
+        assertTrue(executor.getLatencyHistogram(1).getPercentile(50, TimeUnit.MILLISECONDS) >= 19);
+        assertEquals(Arrays.asList(0, 1), new ArrayList<>(executor.getLatencyHistograms().keySet()));
+
+        // Turning tracking off keeps the waits of tasks already queued, but not of new ones.
+        release = block(executor);
+        futures.clear();
+        futures.add(executor.submit(task(3, order)));
+        executor.setLatencyTracking(false);
+        futures.add(executor.submit(task(4, order)));
+        release.countDown();
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        assertEquals(1, executor.getLatencyHistogram(3).getCount());
+        assertNull(executor.getLatencyHistogram(4));
+        executor.shutdown();
+    }
+}
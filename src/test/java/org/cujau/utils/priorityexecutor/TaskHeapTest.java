@@ -0,0 +1,74 @@
+package org.cujau.utils.priorityexecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TaskHeapTest {
+
+    private static final class Task implements Runnable {
+        final int priority;
+        final int id;
+
+        Task(int priority, int id) {
+            this.priority = priority;
+            this.id = id;
+        }
+
+        @Override
+        public void run() {
+        }
+    }
+
+    @Test
+    public void testHighestPriorityIsNotEmpty() {
+        TaskHeap heap = new TaskHeap(Integer.MAX_VALUE - 1);
+        heap.push(Integer.MAX_VALUE, new Task(Integer.MAX_VALUE, 0));
+        assertNotEquals(TaskHeap.EMPTY, heap.top());
+        // This one is numbered after the heap is renumbered.
+        heap.push(Integer.MAX_VALUE, new Task(Integer.MAX_VALUE, 1));
+        assertNotEquals(TaskHeap.EMPTY, heap.top());
+        assertEquals(0, ((Task) heap.poll()).id);
+        assertNotEquals(TaskHeap.EMPTY, heap.top());
+        assertEquals(1, ((Task) heap.poll()).id);
+        assertEquals(TaskHeap.EMPTY, heap.top());
+    }
+
+    @Test
+    public void testFifoAcrossRenumbering() {
+        TaskHeap heap = new TaskHeap(Integer.MAX_VALUE - 50);
+        int[] priorities = {5, Integer.MIN_VALUE, 0, -3, Integer.MAX_VALUE};
+        List<Task> expected = new ArrayList<>();
+        int id = 0;
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 40; i++) {
+                int priority = priorities[i % priorities.length];
+                Task task = new Task(priority, id++);
+                expected.add(task);
+                heap.push(priority, task);
+            }
+            // Take some out so the heap is renumbered while it holds tasks of every priority.
+            for (int i = 0; i < 10; i++) {
+                Task best = expected.get(0);
+                for (Task task : expected) {
+                    if (task.priority < best.priority) {
+                        best = task;
+                    }
+                }
+                expected.remove(best);
+                Task task = (Task) heap.poll();
+                assertEquals(best.id, task.id);
+            }
+        }
+        expected.sort((a, b) -> Integer.compare(a.priority, b.priority));
+        for (Task task : expected) {
+            assertEquals(task.id, ((Task) heap.poll()).id);
+        }
+        assertNull(heap.poll());
+    }
+}
@@ -0,0 +1,201 @@
+package org.cujau.utils.priorityexecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class VirtualThreadPriorityExecutorTest {
+
+    private static PriorityCallable<Integer> task(final int priority, final int id, final List<Integer> order) {
+        return new PriorityCallable<Integer>() {
+            @Override
+            public int getPriority() {
+                return priority;
+            }
+
+            @Override
+            public Integer call() {
+                order.add(id);
+                return id;
+            }
+        };
+    }
+
+    @Test
+    public void testDefaultThreadFactory() {
+        String version = System.getProperty("java.specification.version");
+        boolean expected = !version.startsWith("1.") && Integer.parseInt(version) >= 21;
+        assertEquals(expected, VirtualThreadPriorityExecutor.isVirtualThreadSupported());
+    }
+
+    @Test
+    public void testPriorityAdmission()
+            throws Exception {
+        VirtualThreadPriorityExecutor executor = new VirtualThreadPriorityExecutor(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<Future<Integer>> futures = new ArrayList<>();
+        int[] priorities = {5, 1, 9, 1, 3};
+        for (int i = 0; i < priorities.length; i++) {
+            futures.add(executor.submit(task(priorities[i], i, order)));
+        }
+        assertEquals(1, executor.getActiveCount());
+        assertEquals(5, executor.getQueuedTaskCount());
+        release.countDown();
+        for (Future<Integer> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(Arrays.asList(1, 3, 4, 0, 2), order);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testConcurrencyCap()
+            throws Exception {
+        final int cap = 8;
+        VirtualThreadPriorityExecutor executor = new VirtualThreadPriorityExecutor(cap);
+        final AtomicInteger current = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        int n = 2000;
+        final CountDownLatch done = new CountDownLatch(n);
+        for (int i = 0; i < n; i++) {
+            executor.execute(() -> {
+                int now = current.incrementAndGet();
+                peak.accumulateAndGet(now, Math::max);
+                try {
+                    // Blocking, as on I/O.
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                current.decrementAndGet();
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        assertTrue("peak " + peak.get(), peak.get() <= cap);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(0, executor.getActiveCount());
+    }
+
+    @Test
+    public void testShutdown()
+            throws Exception {
+        VirtualThreadPriorityExecutor executor = new VirtualThreadPriorityExecutor(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(60000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        started.await();
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        executor.submit(task(1, 1, order));
+        executor.submit(task(2, 2, order));
+        assertEquals(2, executor.shutdownNow().size());
+        try {
+            executor.submit(task(1, 3, order));
+            fail("Expected a RejectedExecutionException");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(order.isEmpty());
+
+        // An idle executor terminates at once.
+        executor = new VirtualThreadPriorityExecutor(1);
+        executor.shutdown();
+        assertTrue(executor.isTerminated());
+    }
+
+    @Test
+    public void testShutdownNowBeforeThreadRuns()
+            throws Exception {
+        final AtomicReference<VirtualThreadPriorityExecutor> executor = new AtomicReference<>();
+        final AtomicBoolean go = new AtomicBoolean();
+        executor.set(new VirtualThreadPriorityExecutor(1, r -> new Thread(() -> {
+            // Not interruptible, so the interrupt stays pending for the task.
+            while (!go.get()) {
+                Thread.onSpinWait();
+            }
+            r.run();
+        }) {
+            @Override
+            public synchronized void start() {
+                super.start();
+                executor.get().shutdownNow();
+                go.set(true);
+            }
+        }));
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        executor.get().execute(() -> interrupted.set(Thread.currentThread().isInterrupted()));
+        assertTrue(executor.get().awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(interrupted.get());
+    }
+
+    @Test
+    public void testThreadNotStarted()
+            throws Exception {
+        final AtomicInteger threads = new AtomicInteger();
+        VirtualThreadPriorityExecutor executor = new VirtualThreadPriorityExecutor(1, r -> {
+            switch (threads.getAndIncrement()) {
+            case 0:
+                throw new IllegalStateException("no thread");
+            case 1:
+                return new Thread(r) {
+                    @Override
+                    public synchronized void start() {
+                        throw new OutOfMemoryError("unable to create native thread");
+                    }
+                };
+            default:
+                return new Thread(r);
+            }
+        });
+        try {
+            executor.execute(() -> { });
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            executor.execute(() -> { });
+            fail("Expected an OutOfMemoryError");
+        } catch (OutOfMemoryError e) {
+            // expected
+        }
+        // The permits were given back.
+        assertEquals(0, executor.getActiveCount());
+        assertEquals(Integer.valueOf(7), executor.submit(() -> 7).get(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,190 @@
+package org.cujau.utils.priorityexecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class WorkStealingPriorityExecutorTest {
+
+    private static PriorityCallable<Integer> task(final int priority, final List<Integer> order) {
+        return new PriorityCallable<Integer>() {
+            @Override
+            public int getPriority() {
+                return priority;
+            }
+
+            @Override
+            public Integer call() {
+                order.add(priority);
+                return priority;
+            }
+        };
+    }
+
+    /** Occupy the single worker until the latch opens, so that tasks queue up behind it. */
+    private static CountDownLatch block(WorkStealingPriorityExecutor executor)
+            throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+        return release;
+    }
+
+    @Test
+    public void testPriorityOrder()
+            throws Exception {
+        WorkStealingPriorityExecutor executor = new WorkStealingPriorityExecutor(1);
+        CountDownLatch release = block(executor);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int p : new int[] {5, 1, 9, 3, 1, -2, 7}) {
+            futures.add(executor.submit(task(p, order)));
+        }
+        assertEquals(7, executor.getQueuedTaskCount());
+        release.countDown();
+        for (Future<Integer> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(Arrays.asList(-2, 1, 1, 3, 5, 7, 9), order);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testManySubmitters()
+            throws Exception {
+        final WorkStealingPriorityExecutor executor = new WorkStealingPriorityExecutor(4);
+        final int perThread = 20000;
+        final AtomicInteger ran = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(4 * perThread * 2);
+        List<Thread> submitters = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread submitter = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    final int priority = i % 10;
+                    executor.execute(() -> {
+                        ran.incrementAndGet();
+                        done.countDown();
+                        // Tasks submitted from a worker go to its own heap.
+                        executor.submit(new PriorityCallable<Void>() {
+                            @Override
+                            public int getPriority() {
+                                return priority;
+                            }
+
+                            @Override
+                            public Void call() {
+                                ran.incrementAndGet();
+                                done.countDown();
+                                return null;
+                            }
+                        });
+                    });
+                }
+            });
+            submitters.add(submitter);
+            submitter.start();
+        }
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(4 * perThread * 2, ran.get());
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(0, executor.getQueuedTaskCount());
+    }
+
+    @Test
+    public void testExceptions()
+            throws Exception {
+        WorkStealingPriorityExecutor executor = new WorkStealingPriorityExecutor(1, r -> {
+            Thread thread = new Thread(r);
+            thread.setUncaughtExceptionHandler((t, e) -> { });
+            return thread;
+        });
+        Future<Object> failed = executor.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+        try {
+            failed.get(10, TimeUnit.SECONDS);
+            fail("Expected an ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        executor.execute(() -> {
+            throw new IllegalStateException("boom");
+        });
+        // The worker survives both.
+        assertEquals("ok", executor.submit(() -> "ok").get(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testInterruptIsCleared()
+            throws Exception {
+        WorkStealingPriorityExecutor executor = new WorkStealingPriorityExecutor(1);
+        executor.execute(() -> Thread.currentThread().interrupt());
+        assertFalse(executor.submit(() -> Thread.currentThread().isInterrupted()).get(10, TimeUnit.SECONDS));
+        // The idle worker parks again instead of returning from park() at once.
+        Thread.sleep(100);
+        assertFalse(executor.submit(() -> Thread.currentThread().isInterrupted()).get(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testShutdown()
+            throws Exception {
+        WorkStealingPriorityExecutor executor = new WorkStealingPriorityExecutor(1);
+        CountDownLatch release = block(executor);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        Future<Integer> queued = executor.submit(task(1, order));
+        executor.shutdown();
+        assertTrue(executor.isShutdown());
+        try {
+            executor.execute(() -> { });
+            fail("Expected a RejectedExecutionException");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        // Queued tasks still run after shutdown.
+        release.countDown();
+        assertEquals(Integer.valueOf(1), queued.get(10, TimeUnit.SECONDS));
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(executor.isTerminated());
+
+        executor = new WorkStealingPriorityExecutor(1);
+        release = block(executor);
+        executor.submit(task(1, order));
+        executor.submit(task(2, order));
+        List<Runnable> pending = executor.shutdownNow();
+        assertEquals(2, pending.size());
+        release.countDown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(1, order.size());
+    }
+}